@@ -1,21 +1,69 @@
 package com.ariskourt.nats.starter;
 
 import com.ariskourt.nats.NatsClient;
+import com.ariskourt.nats.ack.NatsAcknowledger;
+import com.ariskourt.nats.ack.NatsAutoAckMessageHandler;
+import com.ariskourt.nats.codec.NatsCodecRegistry;
+import com.ariskourt.nats.codec.NatsCompression;
+import com.ariskourt.nats.codec.NatsPayloadReader;
 import com.ariskourt.nats.configuration.ConsumerConfiguration;
 import com.ariskourt.nats.configuration.NatsConsumerConfiguration;
+import com.ariskourt.nats.configuration.NatsConsumptionMode;
+import com.ariskourt.nats.configuration.NatsPullSubscriberConfiguration;
 import com.ariskourt.nats.configuration.NatsPushSubscriberConfiguration;
+import com.ariskourt.nats.consumer.NatsConsumerSnapshot;
+import com.ariskourt.nats.handler.NatsAdaptiveConcurrencyLimit;
+import com.ariskourt.nats.handler.NatsAdaptiveConcurrencyLimitedMessageHandler;
+import com.ariskourt.nats.handler.NatsBatchHandler;
+import com.ariskourt.nats.handler.NatsBatchingMessageHandler;
+import com.ariskourt.nats.handler.NatsConcurrencyLimitedMessageHandler;
+import com.ariskourt.nats.handler.NatsDecodingMessageHandler;
+import com.ariskourt.nats.handler.NatsDeduplicatingMessageHandler;
+import com.ariskourt.nats.handler.NatsDeduplicationCache;
+import com.ariskourt.nats.handler.NatsEvent;
 import com.ariskourt.nats.handler.NatsHandler;
+import com.ariskourt.nats.handler.NatsHeaderRouter;
+import com.ariskourt.nats.handler.NatsOrderedMessageHandler;
+import com.ariskourt.nats.handler.NatsOrderingKey;
+import com.ariskourt.nats.handler.NatsRetryPolicy;
+import com.ariskourt.nats.handler.NatsRetryingMessageHandler;
+import com.ariskourt.nats.handler.NatsTypedHandler;
+import com.ariskourt.nats.publisher.NatsPublisher;
+import com.ariskourt.nats.service.NatsServiceEndpoint;
+import com.ariskourt.nats.service.NatsServiceHandler;
+import com.ariskourt.nats.service.NatsServiceMessageHandler;
+import com.ariskourt.nats.starter.metrics.NatsHandlerMetrics;
 import com.ariskourt.nats.starter.properties.NatsProperties;
+import io.nats.client.Message;
+import io.nats.client.MessageHandler;
+import io.nats.client.api.AckPolicy;
 import jakarta.annotation.PostConstruct;
-import jakarta.annotation.PreDestroy;
 import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.lang3.BooleanUtils;
+import org.apache.commons.lang3.ObjectUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * Auto-configuration class for bootstrapping NATS connections and handlers.
@@ -27,68 +75,562 @@ public class NatsBootstrapperConfiguration {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(NatsBootstrapperConfiguration.class);
 
+    /**
+     * Default number of handlers registered concurrently.
+     */
+    public static final int DEFAULT_REGISTRATION_PARALLELISM = 8;
+
+    /**
+     * Default maximum number of messages a handler processes concurrently when each message runs on its own virtual
+     * thread.
+     */
+    public static final int DEFAULT_HANDLER_CONCURRENCY = 1024;
+
+    /**
+     * Settings of the consumer that the handlers of a header-routed group share and therefore have to agree on.
+     */
+    private static final List<Map.Entry<String, Function<NatsHandler<?>, Object>>> CONSUMER_SETTINGS = List.of(
+            Map.entry("consumerName", NatsHandler::consumerName),
+            Map.entry("deliverGroup", NatsHandler::deliverGroup),
+            Map.entry("deliverSubject", NatsHandler::deliverSubject),
+            Map.entry("ackPolicy", NatsHandler::ackPolicy),
+            Map.entry("ackWait", NatsHandler::ackWait),
+            Map.entry("maxDeliver", NatsHandler::maxDeliver),
+            Map.entry("maxAckPending", NatsHandler::maxAckPending),
+            Map.entry("adaptiveMaxAckPending", NatsHandler::adaptiveMaxAckPending),
+            Map.entry("flowControl", NatsHandler::flowControl),
+            Map.entry("idleHeartbeat", NatsHandler::idleHeartbeat),
+            Map.entry("rateLimit", NatsHandler::rateLimit),
+            Map.entry("headersOnly", NatsHandler::headersOnly),
+            Map.entry("unmatchedAction", NatsHandler::unmatchedAction));
+
     private final NatsClient natsClient;
+    private final NatsProperties properties;
     private final Set<NatsHandler<?>> handlers;
+    private final ObjectProvider<NatsServiceHandler<?, ?>> serviceHandlers;
+    private final NatsCodecRegistry codecRegistry;
+    private final ObjectProvider<NatsHandlerMetrics> handlerMetrics;
+    private final NatsPayloadReader payloadReader;
 
     /**
      * Constructor for creating an instance of NatsBootstrapperConfiguration.
      *
      * @param natsClient The NATS client
+     * @param properties The NATS properties
      * @param handlers A set of NATS handlers
+     * @param serviceHandlers The handlers serving the endpoints of services
+     * @param codecRegistry The registry providing the codecs of typed handlers
+     * @param handlerMetrics The instrumentation of handlers, available when a meter registry is present
+     * @param compression The compression whose payloads are decompressed before being decoded, if any
      */
-    public NatsBootstrapperConfiguration(NatsClient natsClient, Set<NatsHandler<?>> handlers) {
+    public NatsBootstrapperConfiguration(NatsClient natsClient, NatsProperties properties, Set<NatsHandler<?>> handlers,
+                                         ObjectProvider<NatsServiceHandler<?, ?>> serviceHandlers, NatsCodecRegistry codecRegistry, ObjectProvider<NatsHandlerMetrics> handlerMetrics,
+                                         ObjectProvider<NatsCompression> compression) {
         this.natsClient = natsClient;
+        this.properties = properties;
         this.handlers = handlers;
+        this.serviceHandlers = serviceHandlers;
+        this.codecRegistry = codecRegistry;
+        this.handlerMetrics = handlerMetrics;
+        this.payloadReader = compression.getIfAvailable(NatsCompression::new);
     }
 
     /**
-     * Initializes the NATS connection and registers handlers after the bean is constructed.
+     * Initializes the NATS connection and registers handlers and services after the bean is constructed.
      */
     @PostConstruct
     public void connect() {
         natsClient.connect();
         registerHandlers();
+        registerServices();
+        handlerMetrics.ifAvailable(metrics -> metrics.bindDispatchers(natsClient.getDispatchers()));
     }
 
     /**
-     * Disconnects from the NATS server before the bean is destroyed.
+     * Creates the coordinator shutting the NATS client down in stages once the application context is stopped.
+     *
+     * @param publishers The publishers to flush before the connections are closed
+     * @return the shutdown coordinator
      */
-    @PreDestroy
-    public void disconnect() {
-        natsClient.disconnect();
+    @Bean(name = "natsShutdownCoordinator")
+    public NatsShutdownCoordinator natsShutdownCoordinator(ObjectProvider<NatsPublisher> publishers) {
+        return new NatsShutdownCoordinator(natsClient, properties, publishers);
     }
 
     /**
-     * Registers the NATS handlers with the NATS server.
-     * Throws an {@link IllegalStateException} if no suitable handler is found.
+     * Registers the NATS handlers with the NATS server. Each registration is a blocking round trip to the server, so
+     * handlers are registered concurrently on virtual threads, bounded by the configured registration parallelism.
+     * Push handlers sharing a durable consumer and routed by a header filter are registered together, as a single
+     * subscription. All registrations are attempted and their timings logged, slowest first. When binding to existing
+     * consumers is enabled, the existing consumers are loaded once up front and only created or updated where they
+     * differ. Throws an {@link IllegalStateException} carrying every registration failure as a suppressed exception,
+     * if any.
      */
     private void registerHandlers() {
-        if (CollectionUtils.isNotEmpty(handlers)) {
-            handlers.forEach(handler -> {
-                var handlerClass = handler.getClass().getCanonicalName();
-                if (CollectionUtils.isEmpty(handler.filterSubjects())) {
-                    LOGGER.error("No NATS subject value found for handler of type {} and registered filterSubject {}", handlerClass, handler.filterSubjects());
-                    throw new IllegalStateException(String.format("No suitable handler found for type %s and filterSubject %s", handler, handler.filterSubjects()));
+        if (CollectionUtils.isEmpty(handlers)) {
+            return;
+        }
+        var parallelism = getRegistrationParallelism();
+        var snapshot = BooleanUtils.isTrue(properties.bindExistingConsumers()) ? natsClient.loadConsumerSnapshot() : null;
+        var timings = new ConcurrentHashMap<String, Duration>();
+        var registered = new AtomicInteger();
+        var failures = new ConcurrentLinkedQueue<RuntimeException>();
+        var start = System.nanoTime();
+        try (var executor = Executors.newFixedThreadPool(parallelism, Thread.ofVirtual()
+                .name("nats-registration-", 0)
+                .factory())) {
+            groupHandlers().forEach(group -> executor.execute(() -> {
+                var groupStart = System.nanoTime();
+                var name = group.stream().map(handler -> handler.getClass().getCanonicalName()).collect(Collectors.joining(", "));
+                try {
+                    registerHandlers(group, snapshot);
+                    registered.addAndGet(group.size());
+                    timings.put(name, Duration.ofNanos(System.nanoTime() - groupStart));
+                } catch (RuntimeException e) {
+                    LOGGER.error("Registering NATS handler {} has failed", name, e);
+                    failures.add(e);
                 }
-                LOGGER.debug("Registering NATS handler {} using filterSubject {}", handlerClass, handler.filterSubjects());
-                var configuration = NatsConsumerConfiguration.builder()
-                        .with(builder -> builder.setConsumerConfiguration(ConsumerConfiguration.builder()
-                                .with(consumerBuilder -> {
-                                    consumerBuilder.setDurable(handler.durable());
-                                    consumerBuilder.setFilterSubjects(handler.filterSubjects());
-                                    consumerBuilder.setMaxDeliver(handler.maxDeliver());
-                                    consumerBuilder.setAckAwait(handler.ackWait());
-                                }).build())
-                        ).with(builder -> builder.setPushSubscriberConfiguration(NatsPushSubscriberConfiguration.builder()
+            }));
+        }
+        timings.entrySet().stream()
+                .sorted(Map.Entry.<String, Duration>comparingByValue().reversed())
+                .forEach(entry -> LOGGER.info("Registered NATS handler {} in {} ms", entry.getKey(), entry.getValue().toMillis()));
+        LOGGER.info("Registered {} of {} NATS handlers in {} ms using parallelism {}", registered.get(), handlers.size(),
+                Duration.ofNanos(System.nanoTime() - start).toMillis(), parallelism);
+        if (!failures.isEmpty()) {
+            var exception = new IllegalStateException(String.format("Registering %d of %d NATS handlers has failed", handlers.size() - registered.get(), handlers.size()));
+            failures.forEach(exception::addSuppressed);
+            throw exception;
+        }
+    }
+
+    /**
+     * Starts a service per service name, with an endpoint per service handler of that name. Endpoints are served on
+     * dispatchers of their own and load balanced across instances by their queue group.
+     * Throws an {@link IllegalStateException} if the handlers of a service disagree on its version or description, or
+     * declare the same endpoint more than once.
+     */
+    private void registerServices() {
+        var services = new TreeMap<String, List<NatsServiceHandler<?, ?>>>();
+        serviceHandlers.orderedStream()
+                .forEach(handler -> services.computeIfAbsent(handler.serviceName(), name -> new ArrayList<>()).add(handler));
+        services.forEach((name, group) -> {
+            var handler = group.getFirst();
+            if (group.stream().anyMatch(member -> !Objects.equals(member.serviceVersion(), handler.serviceVersion())
+                    || !Objects.equals(member.serviceDescription(), handler.serviceDescription()))) {
+                throw new IllegalStateException(String.format("NATS service handlers of service %s disagree on its version or description", name));
+            }
+            var endpoints = group.stream()
+                    .map(member -> new NatsServiceEndpoint(member.endpoint(), member.subject(), member.queueGroup(),
+                            connection -> new NatsServiceMessageHandler<>(member, connection, codecRegistry)))
+                    .toList();
+            var endpointNames = endpoints.stream().map(NatsServiceEndpoint::name).toList();
+            if (endpointNames.stream().distinct().count() != endpointNames.size()) {
+                throw new IllegalStateException(String.format("NATS service %s declares endpoint(s) %s more than once", name, endpointNames));
+            }
+            var service = natsClient.startService(name, handler.serviceVersion(), handler.serviceDescription(), endpoints);
+            handlerMetrics.ifAvailable(metrics -> metrics.bindService(service, endpointNames));
+        });
+    }
+
+    /**
+     * Groups the handlers that are registered together. Push handlers declaring a header filter are grouped by their
+     * durable consumer, in the order of their class names, while every other handler is registered on its own.
+     *
+     * @return The groups of handlers
+     */
+    private List<List<NatsHandler<?>>> groupHandlers() {
+        var groups = new ArrayList<List<NatsHandler<?>>>();
+        var routed = new TreeMap<String, List<NatsHandler<?>>>();
+        handlers.stream()
+                .sorted(Comparator.comparing(handler -> handler.getClass().getName()))
+                .forEach(handler -> {
+                    if (handler.headerFilter() != null && NatsConsumptionMode.PUSH == handler.consumptionMode()
+                            && StringUtils.isNotEmpty(handler.durable())) {
+                        routed.computeIfAbsent(handler.durable(), durable -> new ArrayList<>()).add(handler);
+                    } else {
+                        groups.add(List.of(handler));
+                    }
+                });
+        groups.addAll(routed.values());
+        return groups;
+    }
+
+    /**
+     * Registers a group of NATS handlers with the NATS server. A single handler without a header filter is subscribed
+     * directly, while otherwise a header router is subscribed for the consumer, with a route per handler. The consumer
+     * of a group captures the filter subjects of all its handlers.
+     * Throws an {@link IllegalStateException} if the handlers of a group disagree on a setting of their shared consumer,
+     * including how unmatched messages are acknowledged.
+     *
+     * @param group The NATS handlers sharing a consumer
+     * @param snapshot The snapshot of the consumers that exist on the server, or null to always create or update
+     */
+    private void registerHandlers(List<NatsHandler<?>> group, NatsConsumerSnapshot snapshot) {
+        var handler = group.getFirst();
+        if (group.size() == 1 && handler.headerFilter() == null) {
+            registerHandler(handler, snapshot);
+            return;
+        }
+        group.forEach(this::validateFilterSubjects);
+        var disagreements = CONSUMER_SETTINGS.stream()
+                .filter(setting -> group.stream().map(setting.getValue()).distinct().count() > 1)
+                .map(Map.Entry::getKey)
+                .toList();
+        if (!disagreements.isEmpty()) {
+            throw new IllegalStateException(String.format("NATS handlers of consumer %s disagree on the consumer setting(s) %s", handler.durable(), disagreements));
+        }
+        var filterSubjects = group.stream()
+                .flatMap(member -> member.filterSubjects().stream())
+                .distinct()
+                .toList();
+        var configuration = createConfiguration(handler, filterSubjects, snapshot);
+        var routes = group.stream()
+                .map(member -> new NatsHeaderRouter.Route(member.headerFilter(), createMessageHandler(member, configuration, false)))
+                .toList();
+        var metrics = handlerMetrics.getIfAvailable();
+        NatsAcknowledger acknowledger = natsClient.getAckPipeline();
+        if (metrics != null) {
+            acknowledger = metrics.instrument(handler, acknowledger);
+        }
+        var router = new NatsHeaderRouter(routes, acknowledger, AckPolicy.None == handler.ackPolicy() ? null : handler.unmatchedAction());
+        if (metrics != null) {
+            metrics.bindRouter(handler, router);
+        }
+        LOGGER.debug("Routing NATS consumer {} by headers to handlers {}", StringUtils.firstNonEmpty(handler.durable(), handler.consumerName()),
+                group.stream().map(member -> member.getClass().getSimpleName()).toList());
+        MessageHandler messageHandler = router;
+        if (handler.adaptiveMaxAckPending()) {
+            messageHandler = natsClient.getAdaptiveAckPendingController().track(configuration, router);
+        }
+        subscribe(handler, configuration, messageHandler, snapshot);
+    }
+
+    /**
+     * Registers a single NATS handler with the NATS server.
+     * Throws an {@link IllegalStateException} if no suitable handler is found.
+     *
+     * @param handler The NATS handler
+     * @param snapshot The snapshot of the consumers that exist on the server, or null to always create or update
+     */
+    private void registerHandler(NatsHandler<?> handler, NatsConsumerSnapshot snapshot) {
+        validateFilterSubjects(handler);
+        LOGGER.debug("Registering NATS handler {} using filterSubject {}", handler.getClass().getCanonicalName(), handler.filterSubjects());
+        var configuration = createConfiguration(handler, handler.filterSubjects(), snapshot);
+        subscribe(handler, configuration, createMessageHandler(handler, configuration, true), snapshot);
+    }
+
+    private void validateFilterSubjects(NatsHandler<?> handler) {
+        if (CollectionUtils.isEmpty(handler.filterSubjects())) {
+            LOGGER.error("No NATS subject value found for handler of type {} and registered filterSubject {}", handler.getClass().getCanonicalName(), handler.filterSubjects());
+            throw new IllegalStateException(String.format("No suitable handler found for type %s and filterSubject %s", handler, handler.filterSubjects()));
+        }
+    }
+
+    private void subscribe(NatsHandler<?> handler, NatsConsumerConfiguration configuration, MessageHandler messageHandler, NatsConsumerSnapshot snapshot) {
+        switch (handler.consumptionMode()) {
+            case PULL -> natsClient.subscribePullConsumer(configuration, messageHandler, snapshot);
+            case PUSH -> natsClient.subscribePushConsumer(configuration, messageHandler, snapshot, false);
+        }
+    }
+
+    private NatsConsumerConfiguration createConfiguration(NatsHandler<?> handler, List<String> filterSubjects, NatsConsumerSnapshot snapshot) {
+        var maxAckPending = getMaxAckPending(handler, filterSubjects, snapshot);
+        return NatsConsumerConfiguration.builder()
+                .with(builder -> builder.setConsumerConfiguration(ConsumerConfiguration.builder()
+                        .with(consumerBuilder -> {
+                            consumerBuilder.setDurable(handler.durable());
+                            consumerBuilder.setFilterSubjects(filterSubjects);
+                            consumerBuilder.setMaxDeliver(handler.maxDeliver());
+                            consumerBuilder.setAckAwait(handler.ackWait());
+                            consumerBuilder.setAckPolicy(handler.ackPolicy());
+                            consumerBuilder.setMaxAckPending(maxAckPending);
+                            consumerBuilder.setFlowControl(handler.flowControl());
+                            consumerBuilder.setIdleHeartbeat(handler.idleHeartbeat());
+                            consumerBuilder.setRateLimit(handler.rateLimit());
+                            consumerBuilder.setHeadersOnly(handler.headersOnly());
+                            consumerBuilder.setMaxBatch(handler.maxBatch());
+                            consumerBuilder.setMaxExpires(handler.maxExpires());
+                            consumerBuilder.setMaxPullWaiting(handler.maxPullWaiting());
+                        }).build())
+                ).with(builder -> {
+                    if (NatsConsumptionMode.PULL == handler.consumptionMode()) {
+                        builder.setPullSubscriberConfiguration(NatsPullSubscriberConfiguration.builder()
+                                .with(pullBuilder -> {
+                                    pullBuilder.setStream(handler.stream());
+                                    pullBuilder.setBatchSize(handler.fetchBatchSize());
+                                    pullBuilder.setBatchBytes(handler.fetchBatchBytes());
+                                    pullBuilder.setExpiresIn(handler.fetchExpiresIn());
+                                    pullBuilder.setThresholdPercent(handler.fetchThresholdPercent());
+                                }).build());
+                    } else {
+                        builder.setPushSubscriberConfiguration(NatsPushSubscriberConfiguration.builder()
                                 .with(pushBuilder -> {
                                     pushBuilder.setName(handler.consumerName());
                                     pushBuilder.setDeliverGroup(handler.deliverGroup());
                                     pushBuilder.setDeliverSubject(handler.deliverSubject());
-                                }).build()
-                        )).build();
-                natsClient.subscribePushConsumer(configuration, handler);
-            });
+                                }).build());
+                    }
+                }).build();
+    }
+
+    /**
+     * Gets the maximum number of pending acknowledgments of the consumer of a handler. A handler with adaptive max ack
+     * pending binding to an existing consumer keeps the value the consumer has been tuned to, which would otherwise
+     * differ from the one of the handler and have the consumer updated and its tuning reset on every start.
+     *
+     * @param handler The NATS handler
+     * @param filterSubjects The filter subjects of the consumer
+     * @param snapshot The snapshot of the consumers that exist on the server, may be null
+     * @return The maximum number of pending acknowledgments, or null to leave it to the server
+     */
+    private Long getMaxAckPending(NatsHandler<?> handler, List<String> filterSubjects, NatsConsumerSnapshot snapshot) {
+        if (!handler.adaptiveMaxAckPending() || snapshot == null || StringUtils.isEmpty(handler.durable())) {
+            return handler.maxAckPending();
+        }
+        var stream = NatsConsumptionMode.PULL == handler.consumptionMode() && StringUtils.isNotEmpty(handler.stream())
+                ? handler.stream()
+                : snapshot.findStream(filterSubjects.getFirst());
+        var existing = stream == null ? null : snapshot.findConsumer(stream, handler.durable());
+        if (existing == null || existing.getConsumerConfiguration().getMaxAckPending() <= 0) {
+            return handler.maxAckPending();
+        }
+        return existing.getConsumerConfiguration().getMaxAckPending();
+    }
+
+    private int getRegistrationParallelism() {
+        var registration = properties.registration();
+        if (registration != null && registration.parallelism() != null && registration.parallelism() > 0) {
+            return registration.parallelism();
+        }
+        return DEFAULT_REGISTRATION_PARALLELISM;
+    }
+
+    /**
+     * Creates the retry policy of a handler, capping its attempts to the maximum deliveries of the consumer, as the
+     * server stops redelivering a message before it could be dead-lettered otherwise. A policy with a dead-letter
+     * subject keeps one delivery in reserve, so that a message whose publishing to the dead-letter subject has failed
+     * is redelivered and published once more.
+     *
+     * @param handler The NATS handler
+     * @return The retry policy of the handler, or null if it has none
+     */
+    private NatsRetryPolicy createRetryPolicy(NatsHandler<?> handler) {
+        var policy = handler.retryPolicy();
+        if (policy == null || handler.maxDeliver() == null || handler.maxDeliver() <= 0) {
+            return policy;
+        }
+        var maxAttempts = policy.deadLetterSubject() == null ? handler.maxDeliver() : Math.max(1, handler.maxDeliver() - 1);
+        if (maxAttempts >= policy.maxAttempts()) {
+            return policy;
+        }
+        return new NatsRetryPolicy(policy.initialDelay(), policy.maxDelay(), policy.multiplier(), policy.jitter(),
+                (int) maxAttempts, policy.deadLetterSubject());
+    }
+
+    /**
+     * Creates the message handler that is subscribed for the given NATS handler. Typed and batch handlers are wrapped
+     * in a decoding or batching message handler whose codec is looked up once, here, for the event class of the
+     * handler, and whose payloads are decompressed first if they have been compressed. All other handlers receive the
+     * raw messages. Handlers opting into deduplication skip messages whose handling has already completed before
+     * they are decoded. Handlers opting into automatic acknowledgment have their
+     * messages acknowledged through the ack pipeline of the client. Push subscriptions never acknowledge on their own,
+     * as that would void the negative acknowledgments and terminations of the ack pipeline, so the messages other push
+     * handlers return from are acknowledged through the pipeline as well, while those they throw on are left to be
+     * redelivered. When metrics are enabled, the handler itself, inside all of the above, and its acknowledgments are
+     * instrumented, so that the failures the wrappers turn into negative acknowledgments are counted as errors. Handlers with adaptive max ack pending have their throughput and
+     * latency tracked. Handlers with adaptive concurrency are bounded by a limit following their latency and negative
+     * acknowledgments, other handlers with a concurrency limit by a semaphore. Handlers defining an ordering key
+     * are finally spread over ordered lanes. Their failed messages are retried in place, so that no message overtakes
+     * one sharing its key, which is why their retries are not delayed by the server and why their automatic
+     * acknowledgment leaves failed messages to the lane instead of negatively acknowledging them.
+     * Throws an {@link IllegalStateException} if a handler defining an ordering key is dispatched through an executor,
+     * which hands messages sharing a key to the lanes in arbitrary order.
+     *
+     * @param handler The NATS handler
+     * @param configuration The consumer configuration of the handler
+     * @param trackAckPending Whether adaptive max ack pending tracks the handler, which is false for the routes of a
+     *                        header router tracked as a whole
+     * @return The message handler to subscribe
+     */
+    private MessageHandler createMessageHandler(NatsHandler<?> handler, NatsConsumerConfiguration configuration, boolean trackAckPending) {
+        var metrics = handlerMetrics.getIfAvailable();
+        var adaptiveLimit = createAdaptiveConcurrencyLimit(handler);
+        NatsAcknowledger acknowledger = natsClient.getAckPipeline();
+        if (metrics != null) {
+            acknowledger = metrics.instrument(handler, acknowledger);
+        }
+        if (adaptiveLimit != null) {
+            acknowledger = createLimitObservingAcknowledger(acknowledger, adaptiveLimit);
+        }
+        NatsOrderingKey orderingKey = null;
+        var ordered = false;
+        MessageHandler messageHandler = handler;
+        if (handler instanceof NatsBatchHandler<?> batchHandler) {
+            messageHandler = createBatchingMessageHandler(batchHandler, acknowledger);
+            if (metrics != null) {
+                messageHandler = metrics.instrument(handler, messageHandler);
+            }
+        } else {
+            orderingKey = handler.orderingKey();
+            if (handler instanceof NatsTypedHandler<?> typedHandler) {
+                var decoding = createDecodingMessageHandler(typedHandler);
+                orderingKey = ObjectUtils.defaultIfNull(decoding.orderingKey(), orderingKey);
+                messageHandler = decoding;
+            }
+            if (metrics != null) {
+                messageHandler = metrics.instrument(handler, messageHandler);
+            }
+            ordered = orderingKey != null && handler.orderingLanes() > 1;
+            if (handler.deduplicate()) {
+                var cache = createDeduplicationCache(handler);
+                messageHandler = new NatsDeduplicatingMessageHandler(messageHandler, cache, handler.autoAck() ? null : acknowledger);
+                if (metrics != null) {
+                    metrics.bindDeduplication(handler, cache);
+                }
+            }
+            var pushAcknowledged = NatsConsumptionMode.PUSH == handler.consumptionMode() && AckPolicy.None != handler.ackPolicy();
+            var retryPolicy = createRetryPolicy(handler);
+            if (retryPolicy != null) {
+                var retrying = new NatsRetryingMessageHandler(messageHandler, retryPolicy, acknowledger, natsClient::getJetStream,
+                        handler.autoAck() || pushAcknowledged, ordered);
+                if (metrics != null) {
+                    metrics.bindRetries(handler, retrying);
+                }
+                messageHandler = retrying;
+            } else if (handler.autoAck()) {
+                messageHandler = new NatsAutoAckMessageHandler(messageHandler, acknowledger, !ordered);
+            } else if (pushAcknowledged) {
+                messageHandler = new NatsAutoAckMessageHandler(messageHandler, acknowledger, false);
+            }
+        }
+        if (trackAckPending && handler.adaptiveMaxAckPending()) {
+            messageHandler = natsClient.getAdaptiveAckPendingController().track(configuration, messageHandler);
+        }
+        var concurrency = getHandlerConcurrency(handler);
+        if (adaptiveLimit != null) {
+            messageHandler = new NatsAdaptiveConcurrencyLimitedMessageHandler(messageHandler, adaptiveLimit);
+            if (metrics != null) {
+                metrics.bindConcurrencyLimit(handler, adaptiveLimit);
+            }
+        } else if (concurrency > 0) {
+            messageHandler = new NatsConcurrencyLimitedMessageHandler(messageHandler, concurrency);
+        }
+        if (orderingKey != null) {
+            if (BooleanUtils.isTrue(properties.useDispatcherWithExecutor())) {
+                throw new IllegalStateException(String.format("NATS handler %s defines an ordering key, which requires serial dispatch and cannot be combined with a dispatcher executor", handler.getClass().getCanonicalName()));
+            }
+            if (ordered) {
+                var name = StringUtils.firstNonEmpty(handler.durable(), handler.consumerName(), handler.getClass().getSimpleName());
+                messageHandler = new NatsOrderedMessageHandler(name, handler.orderingLanes(), handler.orderingLaneCapacity(), orderingKey, messageHandler,
+                        AckPolicy.None == handler.ackPolicy() ? null : acknowledger);
+            }
+        }
+        return messageHandler;
+    }
+
+    private int getHandlerConcurrency(NatsHandler<?> handler) {
+        if (handler.maxConcurrency() != null) {
+            return handler.maxConcurrency();
+        }
+        var executor = properties.executor();
+        if (!BooleanUtils.isTrue(properties.useDispatcherWithExecutor()) || executor == null
+                || !BooleanUtils.isTrue(executor.virtualThreadPerMessage())) {
+            return 0;
+        }
+        if (executor.handlerConcurrency() != null) {
+            return executor.handlerConcurrency();
+        }
+        return DEFAULT_HANDLER_CONCURRENCY;
+    }
+
+    private NatsAdaptiveConcurrencyLimit createAdaptiveConcurrencyLimit(NatsHandler<?> handler) {
+        if (!handler.adaptiveConcurrency() || handler instanceof NatsBatchHandler<?>) {
+            return null;
+        }
+        var maxLimit = handler.maxConcurrency();
+        if (maxLimit == null) {
+            var executor = properties.executor();
+            maxLimit = executor != null && executor.handlerConcurrency() != null ? executor.handlerConcurrency() : DEFAULT_HANDLER_CONCURRENCY;
+        }
+        var concurrency = properties.concurrency();
+        if (concurrency == null) {
+            return new NatsAdaptiveConcurrencyLimit(NatsAdaptiveConcurrencyLimit.DEFAULT_INITIAL_LIMIT, NatsAdaptiveConcurrencyLimit.DEFAULT_MIN_LIMIT,
+                    maxLimit, NatsAdaptiveConcurrencyLimit.DEFAULT_LATENCY_TOLERANCE, NatsAdaptiveConcurrencyLimit.DEFAULT_BACKOFF_RATIO);
+        }
+        return new NatsAdaptiveConcurrencyLimit(
+                ObjectUtils.defaultIfNull(concurrency.initialLimit(), NatsAdaptiveConcurrencyLimit.DEFAULT_INITIAL_LIMIT),
+                ObjectUtils.defaultIfNull(concurrency.minLimit(), NatsAdaptiveConcurrencyLimit.DEFAULT_MIN_LIMIT),
+                maxLimit,
+                ObjectUtils.defaultIfNull(concurrency.latencyTolerance(), NatsAdaptiveConcurrencyLimit.DEFAULT_LATENCY_TOLERANCE),
+                ObjectUtils.defaultIfNull(concurrency.backoffRatio(), NatsAdaptiveConcurrencyLimit.DEFAULT_BACKOFF_RATIO));
+    }
+
+    private NatsDeduplicationCache createDeduplicationCache(NatsHandler<?> handler) {
+        var deduplication = properties.deduplication();
+        var window = handler.deduplicationWindow();
+        if (window == null) {
+            window = deduplication != null && deduplication.windowSeconds() != null
+                    ? Duration.ofSeconds(deduplication.windowSeconds())
+                    : NatsDeduplicationCache.DEFAULT_WINDOW;
+        }
+        if (deduplication == null) {
+            return new NatsDeduplicationCache(NatsDeduplicationCache.DEFAULT_MAX_ENTRIES, window, false,
+                    NatsDeduplicationCache.DEFAULT_FALSE_POSITIVE_RATE);
+        }
+        return new NatsDeduplicationCache(
+                ObjectUtils.defaultIfNull(deduplication.maxEntries(), NatsDeduplicationCache.DEFAULT_MAX_ENTRIES),
+                window,
+                BooleanUtils.isTrue(deduplication.bloomFilter()),
+                ObjectUtils.defaultIfNull(deduplication.falsePositiveRate(), NatsDeduplicationCache.DEFAULT_FALSE_POSITIVE_RATE));
+    }
+
+    private NatsAcknowledger createLimitObservingAcknowledger(NatsAcknowledger delegate, NatsAdaptiveConcurrencyLimit limit) {
+        return new NatsAcknowledger() {
+
+            @Override
+            public void ack(Message message) {
+                delegate.ack(message);
+            }
+
+            @Override
+            public void nak(Message message) {
+                limit.failed();
+                delegate.nak(message);
+            }
+
+            @Override
+            public void nakWithDelay(Message message, Duration delay) {
+                limit.failed();
+                delegate.nakWithDelay(message, delay);
+            }
+
+            @Override
+            public void term(Message message) {
+                delegate.term(message);
+            }
+
+        };
+    }
+
+    private <T extends NatsEvent> NatsDecodingMessageHandler<T> createDecodingMessageHandler(NatsTypedHandler<T> handler) {
+        return new NatsDecodingMessageHandler<>(handler, codecRegistry.codec(handler.eventClass()), payloadReader);
+    }
+
+    /**
+     * Creates the batching message handler of a batch handler.
+     * Throws an {@link IllegalStateException} if the handler acknowledges all messages up to the last of a batch while
+     * consuming through a pull consumer or a deliver group, where that would acknowledge messages delivered elsewhere.
+     *
+     * @param handler The batch handler
+     * @param acknowledger The acknowledger sending the acknowledgments of the batches
+     * @return The batching message handler
+     */
+    private <T extends NatsEvent> MessageHandler createBatchingMessageHandler(NatsBatchHandler<T> handler, NatsAcknowledger acknowledger) {
+        if (AckPolicy.All == handler.ackPolicy() && (NatsConsumptionMode.PULL == handler.consumptionMode() || StringUtils.isNotEmpty(handler.deliverGroup()))) {
+            throw new IllegalStateException(String.format("NATS batch handler %s may only acknowledge all messages on a push consumer without a deliver group", handler.getClass().getCanonicalName()));
         }
+        return new NatsBatchingMessageHandler<>(handler, codecRegistry.codec(handler.eventClass()), payloadReader, acknowledger);
     }
 
 }
@@ -1,19 +1,35 @@
 package com.ariskourt.nats.starter;
 
 import com.ariskourt.nats.NatsClient;
+import com.ariskourt.nats.codec.JacksonNatsCodecFactory;
+import com.ariskourt.nats.codec.NatsCodecFactory;
+import com.ariskourt.nats.codec.NatsCodecRegistry;
+import com.ariskourt.nats.codec.NatsCompression;
+import com.ariskourt.nats.publisher.NatsPublisher;
+import com.ariskourt.nats.requester.NatsRequester;
+import com.ariskourt.nats.requester.NatsResponseCache;
 import com.ariskourt.nats.configuration.NatsConnectionConfiguration;
 import com.ariskourt.nats.configuration.NatsConnectionConfigurationParameters;
 import com.ariskourt.nats.starter.exception.NatsConfigurationException;
 import com.ariskourt.nats.starter.properties.NatsProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.nats.client.Connection;
 import io.nats.client.JetStream;
+import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.BooleanUtils;
+import org.apache.commons.lang3.ObjectUtils;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.DependsOn;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * Auto-configuration class for setting up NATS connections and related properties.
@@ -24,6 +40,11 @@ import org.springframework.context.annotation.Bean;
 @ConditionalOnProperty(prefix = "nats", name = "enabled", havingValue = "true", matchIfMissing = true)
 public class NatsConfiguration {
 
+    /**
+     * Name of the bootstrapper bean, which connects the NATS client.
+     */
+    private static final String NATS_BOOTSTRAPPER_BEAN = "com.ariskourt.nats.starter.NatsBootstrapperConfiguration";
+
     private final NatsProperties properties;
 
     /**
@@ -46,16 +67,119 @@ public class NatsConfiguration {
         return new NatsClient(configuration());
     }
 
+    /**
+     * Exposes the connection of the NATS client, the first one of its pool, once the bootstrapper has connected it.
+     *
+     * @param nats the NATS client
+     * @return the connection of the client
+     */
     @Bean(name = "natsConnection")
     @ConditionalOnMissingBean
-    public Connection natsConnection() {
-        return nats().getConnection();
+    @DependsOn(NATS_BOOTSTRAPPER_BEAN)
+    public Connection natsConnection(NatsClient nats) {
+        return nats.getConnection();
     }
 
+    /**
+     * Exposes the JetStream context of the connection of the NATS client, once the bootstrapper has connected it.
+     *
+     * @param nats the NATS client
+     * @return the JetStream context of the client
+     */
     @Bean(name = "natsJetStream")
     @ConditionalOnMissingBean
-    public JetStream natsJetStream() {
-        return nats().getJetStream();
+    @DependsOn(NATS_BOOTSTRAPPER_BEAN)
+    public JetStream natsJetStream(NatsClient nats) {
+        return nats.getJetStream();
+    }
+
+    /**
+     * Creates the codec factory used to decode and encode NATS payloads. The application's {@link ObjectMapper} is
+     * used when one is available.
+     *
+     * @param objectMapper the object mapper of the application, if any
+     * @return a JSON codec factory
+     */
+    @Bean(name = "natsCodecFactory")
+    @ConditionalOnMissingBean
+    public NatsCodecFactory natsCodecFactory(ObjectProvider<ObjectMapper> objectMapper) {
+        return new JacksonNatsCodecFactory(objectMapper.getIfAvailable(ObjectMapper::new));
+    }
+
+    /**
+     * Creates the registry caching a codec per event class.
+     *
+     * @param natsCodecFactory the codec factory
+     * @return a new codec registry
+     */
+    @Bean(name = "natsCodecRegistry")
+    @ConditionalOnMissingBean
+    public NatsCodecRegistry natsCodecRegistry(NatsCodecFactory natsCodecFactory) {
+        return new NatsCodecRegistry(natsCodecFactory);
+    }
+
+    /**
+     * Creates the compression of payloads, which compresses published payloads when enabled and always decompresses
+     * received ones before they are decoded.
+     *
+     * @return a new payload compression
+     */
+    @Bean(name = "natsCompression", destroyMethod = "close")
+    @ConditionalOnMissingBean
+    public NatsCompression natsCompression() {
+        var compression = properties.compression();
+        if (compression == null) {
+            return new NatsCompression();
+        }
+        return new NatsCompression(BooleanUtils.isTrue(compression.enabled()),
+                ObjectUtils.defaultIfNull(compression.level(), NatsCompression.DEFAULT_LEVEL),
+                ObjectUtils.defaultIfNull(compression.threshold(), NatsCompression.DEFAULT_THRESHOLD),
+                ObjectUtils.defaultIfNull(compression.subjects(), Map.of()),
+                ObjectUtils.defaultIfNull(compression.poolSize(), NatsCompression.DEFAULT_POOL_SIZE),
+                ObjectUtils.defaultIfNull(compression.maxDecompressedSize(), NatsCompression.DEFAULT_MAX_DECOMPRESSED_SIZE));
+    }
+
+    /**
+     * Creates the publisher pipelining JetStream messages within a bounded in-flight window.
+     *
+     * @param nats the NATS client the messages are published through
+     * @param natsCodecRegistry the codec registry used to encode published events
+     * @param natsCompression the compression applied to published payloads
+     * @return a new NATS publisher
+     */
+    @Bean(name = "natsPublisher")
+    @ConditionalOnMissingBean
+    public NatsPublisher natsPublisher(NatsClient nats, NatsCodecRegistry natsCodecRegistry, NatsCompression natsCompression) {
+        var settings = configuration().snapshot();
+        return new NatsPublisher(nats, natsCodecRegistry, natsCompression,
+                settings.publisherMaxInFlightMessages(),
+                settings.publisherMaxInFlightBytes(),
+                settings.publisherAcquireTimeout());
+    }
+
+    /**
+     * Creates the requester of request-reply exchanges, coalescing identical requests in flight and caching their
+     * responses when enabled.
+     *
+     * @param nats the NATS client the requests are sent through
+     * @param natsCodecRegistry the codec registry used to encode requests and decode responses
+     * @param natsCompression the compression undone on response payloads
+     * @return a new NATS requester
+     */
+    @Bean(name = "natsRequester")
+    @ConditionalOnMissingBean
+    public NatsRequester natsRequester(NatsClient nats, NatsCodecRegistry natsCodecRegistry, NatsCompression natsCompression) {
+        var requester = properties.requester();
+        if (requester == null) {
+            return new NatsRequester(nats, natsCodecRegistry, natsCompression, NatsRequester.DEFAULT_TIMEOUT, null);
+        }
+        var timeout = requester.timeoutMillis() != null ? Duration.ofMillis(requester.timeoutMillis()) : NatsRequester.DEFAULT_TIMEOUT;
+        NatsResponseCache cache = null;
+        if (BooleanUtils.isTrue(requester.cacheEnabled())) {
+            cache = new NatsResponseCache(ObjectUtils.defaultIfNull(requester.cacheMaxEntries(), NatsResponseCache.DEFAULT_MAX_ENTRIES),
+                    requester.cacheTtlMillis() != null ? Duration.ofMillis(requester.cacheTtlMillis()) : NatsResponseCache.DEFAULT_TTL);
+        }
+        return new NatsRequester(nats, natsCodecRegistry, natsCompression, timeout, cache);
     }
 
     /**
@@ -67,30 +191,131 @@ public class NatsConfiguration {
     private NatsConnectionConfiguration configuration() {
         var configuration = new NatsConnectionConfiguration();
         if (properties.enabled() != null) {
-            configuration.put(NatsConnectionConfigurationParameters.NATS_ENABLED, properties.enabled());
+            configuration.put(NatsConnectionConfigurationParameters.NATS_ENABLED, String.valueOf(properties.enabled()));
         }
         if (properties.urls() != null) {
             configuration.put(NatsConnectionConfigurationParameters.NATS_URLS, properties.urls());
         }
         if (properties.maxReconnects() != null) {
-            configuration.put(NatsConnectionConfigurationParameters.NATS_MAX_RECONNECTS, properties.maxReconnects());
+            configuration.put(NatsConnectionConfigurationParameters.NATS_MAX_RECONNECTS, String.valueOf(properties.maxReconnects()));
         }
         if (properties.traceConnection() != null) {
-            configuration.put(NatsConnectionConfigurationParameters.NATS_TRACE_CONNECTION, properties.traceConnection());
+            configuration.put(NatsConnectionConfigurationParameters.NATS_TRACE_CONNECTION, String.valueOf(properties.traceConnection()));
         }
         if (properties.drainAwaitSeconds() != null) {
-            configuration.put(NatsConnectionConfigurationParameters.NATS_DRAIN_AWAIT_SECONDS, properties.drainAwaitSeconds());
+            configuration.put(NatsConnectionConfigurationParameters.NATS_DRAIN_AWAIT_SECONDS, String.valueOf(properties.drainAwaitSeconds()));
         }
-        configuration.put(NatsConnectionConfigurationParameters.NATS_USE_DISPATCHER_WITH_EXECUTOR, BooleanUtils.isTrue(properties.useDispatcherWithExecutor()));
+        var connections = properties.connections();
+        if (connections != null) {
+            if (connections.poolSize() != null) {
+                configuration.put(NatsConnectionConfigurationParameters.NATS_CONNECTIONS_POOL_SIZE, String.valueOf(connections.poolSize()));
+            }
+            if (CollectionUtils.isNotEmpty(connections.weights())) {
+                configuration.put(NatsConnectionConfigurationParameters.NATS_CONNECTIONS_WEIGHTS, connections.weights().stream()
+                        .map(String::valueOf)
+                        .collect(Collectors.joining(",")));
+            }
+        }
+        configuration.put(NatsConnectionConfigurationParameters.NATS_USE_DISPATCHER_WITH_EXECUTOR, String.valueOf(BooleanUtils.isTrue(properties.useDispatcherWithExecutor())));
         if (BooleanUtils.isTrue(properties.useDispatcherWithExecutor())) {
             var executor = properties.executor();
             if (executor != null) {
                 if (executor.poolSize() != null) {
-                    configuration.put(NatsConnectionConfigurationParameters.NATS_EXECUTOR_POOL_SIZE, executor.poolSize());
+                    configuration.put(NatsConnectionConfigurationParameters.NATS_EXECUTOR_POOL_SIZE, String.valueOf(executor.poolSize()));
                 }
                 if (executor.namingPrefix() != null) {
                     configuration.put(NatsConnectionConfigurationParameters.NATS_EXECUTOR_NAMING_PREFIX, executor.namingPrefix());
                 }
+                if (executor.virtualThreadPerMessage() != null) {
+                    configuration.put(NatsConnectionConfigurationParameters.NATS_EXECUTOR_VIRTUAL_THREAD_PER_MESSAGE, String.valueOf(executor.virtualThreadPerMessage()));
+                }
+            }
+        }
+        var ack = properties.ack();
+        if (ack != null) {
+            if (ack.maxBurst() != null) {
+                configuration.put(NatsConnectionConfigurationParameters.NATS_ACK_MAX_BURST, String.valueOf(ack.maxBurst()));
+            }
+            if (ack.checkpointInterval() != null) {
+                configuration.put(NatsConnectionConfigurationParameters.NATS_ACK_CHECKPOINT_INTERVAL, String.valueOf(ack.checkpointInterval()));
+            }
+            if (ack.checkpointTimeoutMillis() != null) {
+                configuration.put(NatsConnectionConfigurationParameters.NATS_ACK_CHECKPOINT_TIMEOUT_MILLIS, String.valueOf(ack.checkpointTimeoutMillis()));
+            }
+            if (ack.maxQueued() != null) {
+                configuration.put(NatsConnectionConfigurationParameters.NATS_ACK_MAX_QUEUED, String.valueOf(ack.maxQueued()));
+            }
+        }
+        var adaptiveAckPending = properties.adaptiveAckPending();
+        if (adaptiveAckPending != null) {
+            if (adaptiveAckPending.intervalSeconds() != null) {
+                configuration.put(NatsConnectionConfigurationParameters.NATS_ADAPTIVE_ACK_PENDING_INTERVAL_SECONDS, String.valueOf(adaptiveAckPending.intervalSeconds()));
+            }
+            if (adaptiveAckPending.min() != null) {
+                configuration.put(NatsConnectionConfigurationParameters.NATS_ADAPTIVE_ACK_PENDING_MIN, String.valueOf(adaptiveAckPending.min()));
+            }
+            if (adaptiveAckPending.max() != null) {
+                configuration.put(NatsConnectionConfigurationParameters.NATS_ADAPTIVE_ACK_PENDING_MAX, String.valueOf(adaptiveAckPending.max()));
+            }
+        }
+        var publisher = properties.publisher();
+        if (publisher != null) {
+            if (publisher.maxInFlightMessages() != null) {
+                configuration.put(NatsConnectionConfigurationParameters.NATS_PUBLISHER_MAX_IN_FLIGHT_MESSAGES, String.valueOf(publisher.maxInFlightMessages()));
+            }
+            if (publisher.maxInFlightBytes() != null) {
+                configuration.put(NatsConnectionConfigurationParameters.NATS_PUBLISHER_MAX_IN_FLIGHT_BYTES, String.valueOf(publisher.maxInFlightBytes()));
+            }
+            if (publisher.acquireTimeoutMillis() != null) {
+                configuration.put(NatsConnectionConfigurationParameters.NATS_PUBLISHER_ACQUIRE_TIMEOUT_MILLIS, String.valueOf(publisher.acquireTimeoutMillis()));
+            }
+        }
+        var options = properties.options();
+        if (options != null) {
+            if (options.preset() != null) {
+                configuration.put(NatsConnectionConfigurationParameters.NATS_OPTIONS_PRESET, options.preset().name());
+            }
+            if (options.connectionName() != null) {
+                configuration.put(NatsConnectionConfigurationParameters.NATS_OPTIONS_CONNECTION_NAME, options.connectionName());
+            }
+            if (options.connectionTimeoutMillis() != null) {
+                configuration.put(NatsConnectionConfigurationParameters.NATS_OPTIONS_CONNECTION_TIMEOUT_MILLIS, String.valueOf(options.connectionTimeoutMillis()));
+            }
+            if (options.socketWriteTimeoutMillis() != null) {
+                configuration.put(NatsConnectionConfigurationParameters.NATS_OPTIONS_SOCKET_WRITE_TIMEOUT_MILLIS, String.valueOf(options.socketWriteTimeoutMillis()));
+            }
+            if (options.pingIntervalMillis() != null) {
+                configuration.put(NatsConnectionConfigurationParameters.NATS_OPTIONS_PING_INTERVAL_MILLIS, String.valueOf(options.pingIntervalMillis()));
+            }
+            if (options.maxPingsOut() != null) {
+                configuration.put(NatsConnectionConfigurationParameters.NATS_OPTIONS_MAX_PINGS_OUT, String.valueOf(options.maxPingsOut()));
+            }
+            if (options.reconnectWaitMillis() != null) {
+                configuration.put(NatsConnectionConfigurationParameters.NATS_OPTIONS_RECONNECT_WAIT_MILLIS, String.valueOf(options.reconnectWaitMillis()));
+            }
+            if (options.reconnectJitterMillis() != null) {
+                configuration.put(NatsConnectionConfigurationParameters.NATS_OPTIONS_RECONNECT_JITTER_MILLIS, String.valueOf(options.reconnectJitterMillis()));
+            }
+            if (options.reconnectBufferSize() != null) {
+                configuration.put(NatsConnectionConfigurationParameters.NATS_OPTIONS_RECONNECT_BUFFER_SIZE, String.valueOf(options.reconnectBufferSize()));
+            }
+            if (options.bufferSize() != null) {
+                configuration.put(NatsConnectionConfigurationParameters.NATS_OPTIONS_BUFFER_SIZE, String.valueOf(options.bufferSize()));
+            }
+            if (options.maxMessagesInOutgoingQueue() != null) {
+                configuration.put(NatsConnectionConfigurationParameters.NATS_OPTIONS_MAX_MESSAGES_IN_OUTGOING_QUEUE, String.valueOf(options.maxMessagesInOutgoingQueue()));
+            }
+            if (options.discardMessagesWhenOutgoingQueueFull() != null) {
+                configuration.put(NatsConnectionConfigurationParameters.NATS_OPTIONS_DISCARD_MESSAGES_WHEN_OUTGOING_QUEUE_FULL, String.valueOf(options.discardMessagesWhenOutgoingQueueFull()));
+            }
+            if (options.requestCleanupIntervalMillis() != null) {
+                configuration.put(NatsConnectionConfigurationParameters.NATS_OPTIONS_REQUEST_CLEANUP_INTERVAL_MILLIS, String.valueOf(options.requestCleanupIntervalMillis()));
+            }
+            if (options.noEcho() != null) {
+                configuration.put(NatsConnectionConfigurationParameters.NATS_OPTIONS_NO_ECHO, String.valueOf(options.noEcho()));
+            }
+            if (options.maxControlLine() != null) {
+                configuration.put(NatsConnectionConfigurationParameters.NATS_OPTIONS_MAX_CONTROL_LINE, String.valueOf(options.maxControlLine()));
             }
         }
         return configuration;
@@ -0,0 +1,119 @@
+package com.ariskourt.nats.starter;
+
+import com.ariskourt.nats.NatsClient;
+import com.ariskourt.nats.kv.NatsKeyValueCache;
+import com.ariskourt.nats.starter.properties.NatsProperties;
+import io.nats.client.KeyValue;
+import org.apache.commons.lang3.BooleanUtils;
+import org.apache.commons.lang3.ObjectUtils;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.support.BeanDefinitionBuilder;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.support.BeanDefinitionRegistryPostProcessor;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Auto-configuration class for exposing the KeyValue buckets configured under {@code nats.key-value} as beans. Every
+ * bucket is registered as a {@link KeyValue} bean named {@code natsKeyValue.<bucket>} and, when its near-cache is
+ * enabled, as a {@link NatsKeyValueCache} bean named {@code natsKeyValueCache.<bucket>}, which is loaded once the
+ * client has connected.
+ */
+@AutoConfiguration(after = NatsBootstrapperConfiguration.class)
+@ConditionalOnClass(NatsClient.class)
+@ConditionalOnProperty(prefix = "nats", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class NatsKeyValueConfiguration {
+
+    /**
+     * Prefix of the names of KeyValue beans.
+     */
+    public static final String KEY_VALUE_BEAN_PREFIX = "natsKeyValue.";
+
+    /**
+     * Prefix of the names of near-cache beans.
+     */
+    public static final String KEY_VALUE_CACHE_BEAN_PREFIX = "natsKeyValueCache.";
+
+    /**
+     * Creates the registrar of the beans of the configured buckets.
+     *
+     * @param environment the environment holding the bucket configuration
+     * @return a new bucket registrar
+     */
+    @Bean(name = "natsKeyValueRegistrar")
+    public static BeanDefinitionRegistryPostProcessor natsKeyValueRegistrar(Environment environment) {
+        return new KeyValueRegistrar(environment);
+    }
+
+    /**
+     * Registers the beans of the configured buckets. Since bean definitions are registered before configuration
+     * properties are bound, the bucket configuration is bound from the environment directly.
+     */
+    static class KeyValueRegistrar implements BeanDefinitionRegistryPostProcessor {
+
+        private final Environment environment;
+
+        /**
+         * Constructor for creating an instance of KeyValueRegistrar.
+         *
+         * @param environment The environment holding the bucket configuration
+         */
+        KeyValueRegistrar(Environment environment) {
+            this.environment = environment;
+        }
+
+        /**
+         * Registers a KeyValue bean and, when enabled, a near-cache bean per configured bucket. Both are created once
+         * the bootstrapper has connected the client.
+         *
+         * @param registry The bean definition registry
+         */
+        @Override
+        public void postProcessBeanDefinitionRegistry(BeanDefinitionRegistry registry) {
+            if (!(registry instanceof BeanFactory beanFactory)) {
+                return;
+            }
+            var buckets = Binder.get(environment)
+                    .bind("nats.key-value", Bindable.mapOf(String.class, NatsProperties.NatsKeyValueBucketConfiguration.class))
+                    .orElse(Map.of());
+            buckets.forEach((bucket, configuration) -> {
+                registry.registerBeanDefinition(KEY_VALUE_BEAN_PREFIX + bucket, BeanDefinitionBuilder
+                        .genericBeanDefinition(KeyValue.class, () -> beanFactory.getBean(NatsClient.class).getKeyValue(bucket))
+                        .addDependsOn(NatsBootstrapperConfiguration.class.getName())
+                        .getBeanDefinition());
+                if (configuration == null || BooleanUtils.isNotTrue(configuration.nearCache())) {
+                    return;
+                }
+                var maxEntries = ObjectUtils.defaultIfNull(configuration.maxEntries(), NatsKeyValueCache.DEFAULT_MAX_ENTRIES);
+                var loadTimeout = configuration.loadTimeoutSeconds() != null
+                        ? Duration.ofSeconds(configuration.loadTimeoutSeconds())
+                        : NatsKeyValueCache.DEFAULT_LOAD_TIMEOUT;
+                registry.registerBeanDefinition(KEY_VALUE_CACHE_BEAN_PREFIX + bucket, BeanDefinitionBuilder
+                        .genericBeanDefinition(NatsKeyValueCache.class,
+                                () -> beanFactory.getBean(NatsClient.class).createKeyValueCache(bucket, maxEntries, loadTimeout))
+                        .addDependsOn(NatsBootstrapperConfiguration.class.getName())
+                        .getBeanDefinition());
+            });
+        }
+
+        /**
+         * Does nothing, as every bean is registered through the registry.
+         *
+         * @param beanFactory The bean factory
+         */
+        @Override
+        public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) {
+        }
+
+    }
+
+}
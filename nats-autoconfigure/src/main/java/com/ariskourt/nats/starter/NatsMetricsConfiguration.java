@@ -0,0 +1,123 @@
+package com.ariskourt.nats.starter;
+
+import com.ariskourt.nats.NatsClient;
+import com.ariskourt.nats.codec.NatsCompression;
+import com.ariskourt.nats.kv.NatsKeyValueCache;
+import com.ariskourt.nats.publisher.NatsPublisher;
+import com.ariskourt.nats.requester.NatsRequester;
+import com.ariskourt.nats.starter.metrics.NatsAckPipelineMetrics;
+import com.ariskourt.nats.starter.metrics.NatsCompressionMetrics;
+import com.ariskourt.nats.starter.metrics.NatsConnectionMetrics;
+import com.ariskourt.nats.starter.metrics.NatsHandlerMetrics;
+import com.ariskourt.nats.starter.metrics.NatsKeyValueMetrics;
+import com.ariskourt.nats.starter.metrics.NatsPublisherMetrics;
+import com.ariskourt.nats.starter.metrics.NatsRequesterMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * Auto-configuration class for exposing NATS metrics through Micrometer, when it is present.
+ */
+@AutoConfiguration(after = {NatsConfiguration.class, NatsKeyValueConfiguration.class},
+        afterName = "org.springframework.boot.actuate.autoconfigure.metrics.CompositeMeterRegistryAutoConfiguration")
+@ConditionalOnClass(MeterRegistry.class)
+@ConditionalOnBean(NatsClient.class)
+@ConditionalOnProperty(prefix = "nats", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class NatsMetricsConfiguration {
+
+    /**
+     * Creates the meter binder of the NATS connection statistics.
+     *
+     * @param natsClient the NATS client
+     * @return a new meter binder for the connection
+     */
+    @Bean(name = "natsConnectionMetrics")
+    @ConditionalOnMissingBean
+    public NatsConnectionMetrics natsConnectionMetrics(NatsClient natsClient) {
+        return new NatsConnectionMetrics(natsClient);
+    }
+
+    /**
+     * Creates the instrumentation applied to every registered NATS handler and its dispatcher.
+     *
+     * @param meterRegistry the meter registry
+     * @return a new handler instrumentation
+     */
+    @Bean(name = "natsHandlerMetrics")
+    @ConditionalOnMissingBean
+    @ConditionalOnBean(MeterRegistry.class)
+    public NatsHandlerMetrics natsHandlerMetrics(MeterRegistry meterRegistry) {
+        return new NatsHandlerMetrics(meterRegistry);
+    }
+
+    /**
+     * Creates the meter binder of the ack pipeline of the NATS client.
+     *
+     * @param natsClient the NATS client
+     * @return a new meter binder for the ack pipeline
+     */
+    @Bean(name = "natsAckPipelineMetrics")
+    @ConditionalOnMissingBean
+    public NatsAckPipelineMetrics natsAckPipelineMetrics(NatsClient natsClient) {
+        return new NatsAckPipelineMetrics(natsClient.getAckPipeline());
+    }
+
+    /**
+     * Creates the meter binder of the NATS publisher.
+     *
+     * @param natsPublisher the NATS publisher
+     * @return a new meter binder for the publisher
+     */
+    @Bean(name = "natsPublisherMetrics")
+    @ConditionalOnMissingBean
+    @ConditionalOnBean(NatsPublisher.class)
+    public NatsPublisherMetrics natsPublisherMetrics(NatsPublisher natsPublisher) {
+        return new NatsPublisherMetrics(natsPublisher);
+    }
+
+    /**
+     * Creates the meter binder of the payload compression.
+     *
+     * @param natsCompression the payload compression
+     * @return a new meter binder for the compression
+     */
+    @Bean(name = "natsCompressionMetrics")
+    @ConditionalOnMissingBean
+    @ConditionalOnBean(NatsCompression.class)
+    public NatsCompressionMetrics natsCompressionMetrics(NatsCompression natsCompression) {
+        return new NatsCompressionMetrics(natsCompression);
+    }
+
+    /**
+     * Creates the meter binder of the NATS requester.
+     *
+     * @param natsRequester the NATS requester
+     * @return a new meter binder for the requester
+     */
+    @Bean(name = "natsRequesterMetrics")
+    @ConditionalOnMissingBean
+    @ConditionalOnBean(NatsRequester.class)
+    public NatsRequesterMetrics natsRequesterMetrics(NatsRequester natsRequester) {
+        return new NatsRequesterMetrics(natsRequester);
+    }
+
+    /**
+     * Creates the meter binder of the near-caches of KeyValue buckets. The near-caches are registered by a bean
+     * registry post-processor, after bean conditions have been evaluated, so they are looked up rather than required.
+     *
+     * @param caches the near-caches of the configured buckets
+     * @return a new meter binder for the near-caches
+     */
+    @Bean(name = "natsKeyValueMetrics")
+    @ConditionalOnMissingBean
+    public NatsKeyValueMetrics natsKeyValueMetrics(ObjectProvider<NatsKeyValueCache> caches) {
+        return new NatsKeyValueMetrics(caches.orderedStream().toList());
+    }
+
+}
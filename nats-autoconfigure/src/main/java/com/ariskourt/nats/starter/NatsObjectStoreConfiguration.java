@@ -0,0 +1,109 @@
+package com.ariskourt.nats.starter;
+
+import com.ariskourt.nats.NatsClient;
+import com.ariskourt.nats.objectstore.NatsObjectStore;
+import com.ariskourt.nats.starter.properties.NatsProperties;
+import org.apache.commons.lang3.ObjectUtils;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.support.BeanDefinitionBuilder;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.support.BeanDefinitionRegistryPostProcessor;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Auto-configuration class for exposing the object store buckets configured under {@code nats.object-store} as beans.
+ * Every bucket is registered as a {@link NatsObjectStore} bean named {@code natsObjectStore.<bucket>}, which streams
+ * objects in chunks of the configured size once the client has connected.
+ */
+@AutoConfiguration(after = NatsBootstrapperConfiguration.class)
+@ConditionalOnClass(NatsClient.class)
+@ConditionalOnProperty(prefix = "nats", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class NatsObjectStoreConfiguration {
+
+    /**
+     * Prefix of the names of object store beans.
+     */
+    public static final String OBJECT_STORE_BEAN_PREFIX = "natsObjectStore.";
+
+    /**
+     * Creates the registrar of the beans of the configured buckets.
+     *
+     * @param environment the environment holding the bucket configuration
+     * @return a new bucket registrar
+     */
+    @Bean(name = "natsObjectStoreRegistrar")
+    public static BeanDefinitionRegistryPostProcessor natsObjectStoreRegistrar(Environment environment) {
+        return new ObjectStoreRegistrar(environment);
+    }
+
+    /**
+     * Registers the beans of the configured buckets. Since bean definitions are registered before configuration
+     * properties are bound, the bucket configuration is bound from the environment directly.
+     */
+    static class ObjectStoreRegistrar implements BeanDefinitionRegistryPostProcessor {
+
+        private final Environment environment;
+
+        /**
+         * Constructor for creating an instance of ObjectStoreRegistrar.
+         *
+         * @param environment The environment holding the bucket configuration
+         */
+        ObjectStoreRegistrar(Environment environment) {
+            this.environment = environment;
+        }
+
+        /**
+         * Registers an object store bean per configured bucket, created once the bootstrapper has connected the
+         * client.
+         *
+         * @param registry The bean definition registry
+         */
+        @Override
+        public void postProcessBeanDefinitionRegistry(BeanDefinitionRegistry registry) {
+            if (!(registry instanceof BeanFactory beanFactory)) {
+                return;
+            }
+            var buckets = Binder.get(environment)
+                    .bind("nats.object-store", Bindable.mapOf(String.class, NatsProperties.NatsObjectStoreBucketConfiguration.class))
+                    .orElse(Map.of());
+            buckets.forEach((bucket, configuration) -> {
+                var chunkSize = configuration != null
+                        ? ObjectUtils.defaultIfNull(configuration.chunkSize(), NatsObjectStore.DEFAULT_CHUNK_SIZE)
+                        : NatsObjectStore.DEFAULT_CHUNK_SIZE;
+                var maxInFlightChunks = configuration != null
+                        ? ObjectUtils.defaultIfNull(configuration.maxInFlightChunks(), NatsObjectStore.DEFAULT_MAX_IN_FLIGHT_CHUNKS)
+                        : NatsObjectStore.DEFAULT_MAX_IN_FLIGHT_CHUNKS;
+                var ackTimeout = configuration != null && configuration.ackTimeoutSeconds() != null
+                        ? Duration.ofSeconds(configuration.ackTimeoutSeconds())
+                        : NatsObjectStore.DEFAULT_ACK_TIMEOUT;
+                registry.registerBeanDefinition(OBJECT_STORE_BEAN_PREFIX + bucket, BeanDefinitionBuilder
+                        .genericBeanDefinition(NatsObjectStore.class,
+                                () -> beanFactory.getBean(NatsClient.class).createObjectStore(bucket, chunkSize, maxInFlightChunks, ackTimeout))
+                        .addDependsOn(NatsBootstrapperConfiguration.class.getName())
+                        .getBeanDefinition());
+            });
+        }
+
+        /**
+         * Does nothing, as every bean is registered through the registry.
+         *
+         * @param beanFactory The bean factory
+         */
+        @Override
+        public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) {
+        }
+
+    }
+
+}
@@ -0,0 +1,203 @@
+package com.ariskourt.nats.starter;
+
+import com.ariskourt.nats.NatsClient;
+import com.ariskourt.nats.publisher.NatsPublisher;
+import com.ariskourt.nats.starter.properties.NatsProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.SmartLifecycle;
+
+import java.time.Duration;
+
+/**
+ * Shuts the NATS client down in stages as part of the application context lifecycle, instead of all at once when
+ * its beans are destroyed. Intake is stopped for every consumer first, then dispatchers are drained in parallel,
+ * handlers are given the chance to complete, pending acknowledgments are sent and publishers flushed, before the
+ * connections are finally drained and closed. Every stage is given its own budget and its duration is logged.
+ * <p>
+ * The shutdown runs in the phase of graceful web server shutdown, so that both run side by side. The sum of the
+ * budgets should fit into the shutdown phase timeout of the application context.
+ * </p>
+ */
+public class NatsShutdownCoordinator implements SmartLifecycle, DisposableBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NatsShutdownCoordinator.class);
+
+    /**
+     * The phase the coordinator is stopped in, which is the one of graceful web server shutdown.
+     */
+    public static final int PHASE = SmartLifecycle.DEFAULT_PHASE - 1024;
+
+    /**
+     * Default number of seconds given to each shutdown stage when neither the stage nor the drain timeout is
+     * configured.
+     */
+    public static final int DEFAULT_STAGE_SECONDS = 10;
+
+    private final NatsClient natsClient;
+    private final NatsProperties properties;
+    private final ObjectProvider<NatsPublisher> publishers;
+
+    private volatile boolean running;
+    private volatile boolean stopped;
+
+    /**
+     * Constructor for creating an instance of NatsShutdownCoordinator.
+     *
+     * @param natsClient The NATS client to shut down
+     * @param properties The NATS properties holding the stage budgets
+     * @param publishers The publishers to flush before the connections are closed
+     */
+    public NatsShutdownCoordinator(NatsClient natsClient, NatsProperties properties, ObjectProvider<NatsPublisher> publishers) {
+        this.natsClient = natsClient;
+        this.properties = properties;
+        this.publishers = publishers;
+    }
+
+    /**
+     * Marks the coordinator as running. The client itself is connected while the context is refreshed.
+     */
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    /**
+     * Shuts the client down synchronously.
+     */
+    @Override
+    public void stop() {
+        shutdown();
+    }
+
+    /**
+     * Shuts the client down on a separate thread, so that other lifecycle beans of the same phase are stopped in
+     * parallel.
+     *
+     * @param callback The callback to run once the client has been shut down
+     */
+    @Override
+    public void stop(Runnable callback) {
+        Thread.ofVirtual().name("nats-shutdown-coordinator").start(() -> {
+            try {
+                shutdown();
+            } finally {
+                callback.run();
+            }
+        });
+    }
+
+    /**
+     * Checks if the coordinator is running.
+     *
+     * @return true if the client has not been shut down yet, false otherwise
+     */
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Gets the phase the coordinator is stopped in.
+     *
+     * @return the phase of the coordinator
+     */
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    /**
+     * Shuts the client down in case the context is closed without having been started, for example when its refresh
+     * has failed after the client has connected.
+     */
+    @Override
+    public void destroy() {
+        if (!stopped) {
+            natsClient.disconnect();
+        }
+    }
+
+    private synchronized void shutdown() {
+        if (stopped) {
+            return;
+        }
+        stopped = true;
+        var start = System.nanoTime();
+        LOGGER.info("Shutting down NATS client");
+        try {
+            stage("stop intake", null, () -> {
+                natsClient.stopIntake();
+                return true;
+            });
+            stage("drain dispatchers", budget(Stage.DISPATCHERS), () -> natsClient.drainDispatchers(budget(Stage.DISPATCHERS)));
+            stage("complete handlers", budget(Stage.HANDLERS), () -> natsClient.closeHandlers(budget(Stage.HANDLERS)));
+            stage("send pending acks", budget(Stage.ACKS), () -> natsClient.closeAckPipeline(budget(Stage.ACKS)));
+            stage("flush publishers", budget(Stage.PUBLISHERS), this::flushPublishers);
+            stage("drain connections", budget(Stage.CONNECTIONS), () -> natsClient.drainConnections(budget(Stage.CONNECTIONS)));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.warn("Shutting down NATS client has been interrupted");
+        } finally {
+            running = false;
+        }
+        LOGGER.info("Shut down NATS client in {} ms", Duration.ofNanos(System.nanoTime() - start).toMillis());
+    }
+
+    private boolean flushPublishers() throws InterruptedException {
+        var flushed = true;
+        for (var publisher : publishers) {
+            flushed &= publisher.awaitInFlight(budget(Stage.PUBLISHERS));
+        }
+        return flushed;
+    }
+
+    private void stage(String name, Duration budget, Action action) throws InterruptedException {
+        var start = System.nanoTime();
+        boolean completed;
+        try {
+            completed = action.run();
+        } catch (RuntimeException e) {
+            LOGGER.warn("NATS shutdown stage '{}' has failed", name, e);
+            return;
+        }
+        var elapsed = Duration.ofNanos(System.nanoTime() - start).toMillis();
+        if (completed) {
+            LOGGER.info("NATS shutdown stage '{}' completed in {} ms", name, elapsed);
+        } else {
+            LOGGER.warn("NATS shutdown stage '{}' did not complete within its budget of {} ms", name, budget.toMillis());
+        }
+    }
+
+    private Duration budget(Stage stage) {
+        var shutdown = properties.shutdown();
+        Integer seconds = null;
+        if (shutdown != null) {
+            seconds = switch (stage) {
+                case DISPATCHERS -> shutdown.dispatchersSeconds();
+                case HANDLERS -> shutdown.handlersSeconds();
+                case ACKS -> shutdown.acksSeconds();
+                case PUBLISHERS -> shutdown.publishersSeconds();
+                case CONNECTIONS -> shutdown.connectionsSeconds();
+            };
+        }
+        if (seconds == null) {
+            seconds = properties.drainAwaitSeconds() != null ? properties.drainAwaitSeconds() : DEFAULT_STAGE_SECONDS;
+        }
+        return Duration.ofSeconds(seconds);
+    }
+
+    private enum Stage {
+        DISPATCHERS, HANDLERS, ACKS, PUBLISHERS, CONNECTIONS
+    }
+
+    @FunctionalInterface
+    private interface Action {
+
+        boolean run() throws InterruptedException;
+
+    }
+
+}
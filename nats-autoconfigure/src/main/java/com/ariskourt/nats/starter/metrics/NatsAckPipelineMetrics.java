@@ -0,0 +1,56 @@
+package com.ariskourt.nats.starter.metrics;
+
+import com.ariskourt.nats.ack.NatsAckPipeline;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Binds the state of a {@link NatsAckPipeline} to a {@link MeterRegistry}.
+ */
+public class NatsAckPipelineMetrics implements MeterBinder {
+
+    private final NatsAckPipeline ackPipeline;
+
+    /**
+     * Constructor for creating an instance of NatsAckPipelineMetrics.
+     *
+     * @param ackPipeline The ack pipeline to instrument
+     */
+    public NatsAckPipelineMetrics(NatsAckPipeline ackPipeline) {
+        this.ackPipeline = ackPipeline;
+    }
+
+    /**
+     * Registers the pending, inline, failed and latency meters of the ack pipeline.
+     *
+     * @param registry The registry to bind the meters to
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("nats.ack.pending", ackPipeline, NatsAckPipeline::getPendingAcks)
+                .description("Number of acknowledgments waiting to be sent")
+                .register(registry);
+        FunctionCounter.builder("nats.ack.inline", ackPipeline, NatsAckPipeline::getInlineAcks)
+                .description("Number of acknowledgments sent on the handler thread because the queue was full")
+                .register(registry);
+        FunctionCounter.builder("nats.ack.failed", ackPipeline, NatsAckPipeline::getFailedAcks)
+                .description("Number of acknowledgments that could not be sent")
+                .register(registry);
+        FunctionTimer.builder("nats.ack.latency", ackPipeline,
+                        NatsAckPipeline::getSentAcks,
+                        NatsAckPipeline::getTotalAckLatencyNanos,
+                        TimeUnit.NANOSECONDS)
+                .description("Time acknowledgments spend queued before being sent")
+                .register(registry);
+        Gauge.builder("nats.ack.latency.max", ackPipeline, pipeline -> pipeline.getMaxAckLatencyNanos() / 1_000_000.0)
+                .description("Longest time an acknowledgment spent queued before being sent")
+                .baseUnit("milliseconds")
+                .register(registry);
+    }
+
+}
@@ -0,0 +1,63 @@
+package com.ariskourt.nats.starter.metrics;
+
+import com.ariskourt.nats.codec.NatsCompression;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Binds the payload compression of the NATS client to a {@link MeterRegistry}.
+ */
+public class NatsCompressionMetrics implements MeterBinder {
+
+    private final NatsCompression compression;
+
+    /**
+     * Constructor for creating an instance of NatsCompressionMetrics.
+     *
+     * @param compression The compression to instrument
+     */
+    public NatsCompressionMetrics(NatsCompression compression) {
+        this.compression = compression;
+    }
+
+    /**
+     * Registers the compression ratio, the compressed bytes and the time spent compressing and decompressing.
+     *
+     * @param registry The registry to bind the meters to
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("nats.compression.ratio", compression, NatsCompression::getCompressionRatio)
+                .description("Ratio of the compressed to the uncompressed size of compressed payloads")
+                .register(registry);
+        FunctionCounter.builder("nats.compression.bytes", compression, NatsCompression::getCompressionInputBytes)
+                .description("Number of payload bytes before and after compression")
+                .tag("stage", "input")
+                .baseUnit("bytes")
+                .register(registry);
+        FunctionCounter.builder("nats.compression.bytes", compression, NatsCompression::getCompressionOutputBytes)
+                .description("Number of payload bytes before and after compression")
+                .tag("stage", "output")
+                .baseUnit("bytes")
+                .register(registry);
+        FunctionTimer.builder("nats.compression.time", compression, NatsCompression::getCompressedMessages,
+                        NatsCompression::getCompressionNanos, TimeUnit.NANOSECONDS)
+                .description("CPU time spent compressing published payloads")
+                .tag("operation", "compress")
+                .register(registry);
+        FunctionTimer.builder("nats.compression.time", compression, NatsCompression::getDecompressedMessages,
+                        NatsCompression::getDecompressionNanos, TimeUnit.NANOSECONDS)
+                .description("CPU time spent decompressing received payloads")
+                .tag("operation", "decompress")
+                .register(registry);
+        FunctionCounter.builder("nats.compression.oversized", compression, NatsCompression::getOversizedMessages)
+                .description("Number of compressed payloads rejected for inflating beyond the maximum decompressed size")
+                .register(registry);
+    }
+
+}
@@ -0,0 +1,68 @@
+package com.ariskourt.nats.starter.metrics;
+
+import com.ariskourt.nats.NatsClient;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.nats.client.Connection;
+import io.nats.client.Statistics;
+
+import java.util.function.ToLongFunction;
+
+/**
+ * Binds the statistics of the NATS connections to a {@link MeterRegistry}. The connections are looked up on every
+ * read, since they are only established once the application has started, and the statistics of every connection of
+ * the pool are summed up.
+ */
+public class NatsConnectionMetrics implements MeterBinder {
+
+    private final NatsClient natsClient;
+
+    /**
+     * Constructor for creating an instance of NatsConnectionMetrics.
+     *
+     * @param natsClient The NATS client whose connection is instrumented
+     */
+    public NatsConnectionMetrics(NatsClient natsClient) {
+        this.natsClient = natsClient;
+    }
+
+    /**
+     * Registers the traffic, reconnect, drop and error meters of the connection.
+     *
+     * @param registry The registry to bind the meters to
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        counter(registry, "nats.connection.messages.in", "Number of messages received", Statistics::getInMsgs);
+        counter(registry, "nats.connection.messages.out", "Number of messages sent", Statistics::getOutMsgs);
+        counter(registry, "nats.connection.bytes.in", "Number of bytes received", Statistics::getInBytes);
+        counter(registry, "nats.connection.bytes.out", "Number of bytes sent", Statistics::getOutBytes);
+        counter(registry, "nats.connection.reconnects", "Number of reconnects", Statistics::getReconnects);
+        counter(registry, "nats.connection.dropped", "Number of messages dropped by slow consumers", Statistics::getDroppedCount);
+        counter(registry, "nats.connection.errors", "Number of errors reported by the server", Statistics::getErrs);
+        counter(registry, "nats.connection.exceptions", "Number of exceptions raised by the connection", Statistics::getExceptions);
+        Gauge.builder("nats.connection.connected", natsClient, client -> isConnected(client) ? 1 : 0)
+                .description("Whether every connection of the pool is currently connected")
+                .register(registry);
+        Gauge.builder("nats.connection.pool.size", natsClient, client -> client.getConnections().size())
+                .description("Number of open connections in the pool")
+                .register(registry);
+    }
+
+    private void counter(MeterRegistry registry, String name, String description, ToLongFunction<Statistics> statistic) {
+        FunctionCounter.builder(name, natsClient, client -> client.getConnections().stream()
+                        .mapToLong(connection -> statistic.applyAsLong(connection.getStatistics()))
+                        .sum())
+                .description(description)
+                .register(registry);
+    }
+
+    private boolean isConnected(NatsClient client) {
+        var connections = client.getConnections();
+        return !connections.isEmpty() && connections.stream()
+                .allMatch(connection -> Connection.Status.CONNECTED == connection.getStatus());
+    }
+
+}
@@ -0,0 +1,299 @@
+package com.ariskourt.nats.starter.metrics;
+
+import com.ariskourt.nats.ack.NatsAcknowledger;
+import com.ariskourt.nats.handler.NatsAdaptiveConcurrencyLimit;
+import com.ariskourt.nats.handler.NatsDeduplicationCache;
+import com.ariskourt.nats.handler.NatsHandler;
+import com.ariskourt.nats.handler.NatsHeaderRouter;
+import com.ariskourt.nats.handler.NatsRetryingMessageHandler;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import io.nats.client.Dispatcher;
+import io.nats.client.Message;
+import io.nats.client.MessageHandler;
+import io.nats.service.Service;
+import org.apache.commons.lang3.StringUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Instruments NATS handlers and their dispatchers with Micrometer meters. Every handler is tagged with the name of
+ * its consumer, so that its processing time, throughput, in-flight messages, redeliveries and acknowledgments can be
+ * told apart from those of every other handler.
+ */
+public class NatsHandlerMetrics {
+
+    private final MeterRegistry registry;
+
+    /**
+     * Constructor for creating an instance of NatsHandlerMetrics.
+     *
+     * @param registry The registry the meters are registered to
+     */
+    public NatsHandlerMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Wraps the message handler of a NATS handler with one recording its processing time, in-flight messages,
+     * errors and redeliveries. It has to wrap the handler inside any wrapper acknowledging its messages, since the
+     * failures such a wrapper turns into negative acknowledgments would not reach it otherwise.
+     *
+     * @param handler The NATS handler
+     * @param delegate The message handler subscribed for the NATS handler
+     * @return The instrumented message handler
+     */
+    public MessageHandler instrument(NatsHandler<?> handler, MessageHandler delegate) {
+        var tags = tags(handler);
+        var inFlight = new AtomicInteger();
+        Gauge.builder("nats.handler.in.flight", inFlight, AtomicInteger::get)
+                .description("Number of messages currently being handled")
+                .tags(tags)
+                .register(registry);
+        var timer = Timer.builder("nats.handler.processing")
+                .description("Time spent handling messages")
+                .tags(tags)
+                .publishPercentileHistogram()
+                .register(registry);
+        var errors = Counter.builder("nats.handler.errors")
+                .description("Number of messages whose handling has failed")
+                .tags(tags)
+                .register(registry);
+        var redeliveries = Counter.builder("nats.handler.redeliveries")
+                .description("Number of messages delivered more than once")
+                .tags(tags)
+                .register(registry);
+        return new InstrumentedMessageHandler(delegate, inFlight, timer, errors, redeliveries);
+    }
+
+    /**
+     * Wraps the acknowledger used for a NATS handler with one counting acks, naks and terms.
+     *
+     * @param handler The NATS handler
+     * @param delegate The acknowledger used for the NATS handler
+     * @return The instrumented acknowledger
+     */
+    public NatsAcknowledger instrument(NatsHandler<?> handler, NatsAcknowledger delegate) {
+        var tags = tags(handler);
+        var acks = acknowledgments(tags, "ack");
+        var naks = acknowledgments(tags, "nak");
+        var terms = acknowledgments(tags, "term");
+        return new NatsAcknowledger() {
+
+            @Override
+            public void ack(Message message) {
+                acks.increment();
+                delegate.ack(message);
+            }
+
+            @Override
+            public void nak(Message message) {
+                naks.increment();
+                delegate.nak(message);
+            }
+
+            @Override
+            public void nakWithDelay(Message message, Duration delay) {
+                naks.increment();
+                delegate.nakWithDelay(message, delay);
+            }
+
+            @Override
+            public void term(Message message) {
+                terms.increment();
+                delegate.term(message);
+            }
+
+        };
+    }
+
+    /**
+     * Registers the gauges of the adaptive concurrency limit of a NATS handler: the current limit and the short and
+     * long-term latency it is adapted from.
+     *
+     * @param handler The NATS handler
+     * @param limit The adaptive concurrency limit of the handler
+     */
+    public void bindConcurrencyLimit(NatsHandler<?> handler, NatsAdaptiveConcurrencyLimit limit) {
+        var tags = tags(handler);
+        Gauge.builder("nats.handler.concurrency.limit", limit, NatsAdaptiveConcurrencyLimit::getLimit)
+                .description("Number of messages currently allowed in flight")
+                .tags(tags)
+                .register(registry);
+        TimeGauge.builder("nats.handler.concurrency.latency", limit, TimeUnit.NANOSECONDS, NatsAdaptiveConcurrencyLimit::getLatencyNanos)
+                .description("Short-term moving average of the latency the concurrency limit is adapted from")
+                .tags(tags)
+                .register(registry);
+        TimeGauge.builder("nats.handler.concurrency.baseline.latency", limit, TimeUnit.NANOSECONDS, NatsAdaptiveConcurrencyLimit::getBaselineLatencyNanos)
+                .description("Long-term moving average of the latency the concurrency limit is adapted against")
+                .tags(tags)
+                .register(registry);
+    }
+
+    /**
+     * Registers the hit and miss counters of the deduplication cache of a NATS handler.
+     *
+     * @param handler The NATS handler
+     * @param cache The deduplication cache of the handler
+     */
+    public void bindDeduplication(NatsHandler<?> handler, NatsDeduplicationCache cache) {
+        var tags = tags(handler);
+        FunctionCounter.builder("nats.handler.deduplication", cache, NatsDeduplicationCache::getHits)
+                .description("Number of deduplication lookups by whether they have found a duplicate")
+                .tags(tags.and("result", "hit"))
+                .register(registry);
+        FunctionCounter.builder("nats.handler.deduplication", cache, NatsDeduplicationCache::getMisses)
+                .description("Number of deduplication lookups by whether they have found a duplicate")
+                .tags(tags.and("result", "miss"))
+                .register(registry);
+        Gauge.builder("nats.handler.deduplication.size", cache, NatsDeduplicationCache::size)
+                .description("Number of message keys held for deduplication")
+                .tags(tags)
+                .register(registry);
+    }
+
+    /**
+     * Registers the counters of the messages a handler has failed on, by whether they have been retried, published to
+     * the dead-letter subject, terminated, or could not be published to the dead-letter subject.
+     *
+     * @param handler The NATS handler whose failures are retried
+     * @param retrying The retrying message handler of the handler
+     */
+    public void bindRetries(NatsHandler<?> handler, NatsRetryingMessageHandler retrying) {
+        var tags = tags(handler);
+        bindRetryOutcome(tags, "retried", retrying, NatsRetryingMessageHandler::getRetried);
+        bindRetryOutcome(tags, "dead.lettered", retrying, NatsRetryingMessageHandler::getDeadLettered);
+        bindRetryOutcome(tags, "terminated", retrying, NatsRetryingMessageHandler::getTerminated);
+        bindRetryOutcome(tags, "dead.letter.failed", retrying, NatsRetryingMessageHandler::getDeadLetterFailures);
+    }
+
+    private void bindRetryOutcome(Tags tags, String outcome, NatsRetryingMessageHandler retrying, ToDoubleFunction<NatsRetryingMessageHandler> count) {
+        FunctionCounter.builder("nats.handler.retries", retrying, count)
+                .description("Number of failed messages by how their failure has been handled")
+                .tags(tags.and("outcome", outcome))
+                .register(registry);
+    }
+
+    /**
+     * Registers the counter of messages the header router of a consumer has discarded without passing them to any
+     * handler.
+     *
+     * @param handler The NATS handler whose consumer the router routes
+     * @param router The header router of the consumer
+     */
+    public void bindRouter(NatsHandler<?> handler, NatsHeaderRouter router) {
+        FunctionCounter.builder("nats.handler.unmatched", router, NatsHeaderRouter::getUnmatched)
+                .description("Number of messages matching the header filter of no handler")
+                .tags(tags(handler))
+                .register(registry);
+    }
+
+    /**
+     * Registers the request and error counters and the processing time of every endpoint of a service, as reported by
+     * the statistics the Service API keeps for it.
+     *
+     * @param service The started service
+     * @param endpoints The names of the endpoints of the service
+     */
+    public void bindService(Service service, List<String> endpoints) {
+        endpoints.forEach(endpoint -> {
+            var tags = Tags.of("service", service.getName(), "endpoint", endpoint);
+            FunctionCounter.builder("nats.service.requests", service, bound -> bound.getEndpointStats(endpoint).getNumRequests())
+                    .description("Number of requests received by the endpoint")
+                    .tags(tags)
+                    .register(registry);
+            FunctionCounter.builder("nats.service.errors", service, bound -> bound.getEndpointStats(endpoint).getNumErrors())
+                    .description("Number of requests the endpoint has failed on")
+                    .tags(tags)
+                    .register(registry);
+            FunctionTimer.builder("nats.service.processing", service, bound -> bound.getEndpointStats(endpoint).getNumRequests(),
+                            bound -> bound.getEndpointStats(endpoint).getProcessingTime(), TimeUnit.NANOSECONDS)
+                    .description("Time spent processing the requests of the endpoint")
+                    .tags(tags)
+                    .register(registry);
+            TimeGauge.builder("nats.service.processing.average", service, TimeUnit.NANOSECONDS,
+                            bound -> bound.getEndpointStats(endpoint).getAverageProcessingTime())
+                    .description("Average time spent processing a request of the endpoint")
+                    .tags(tags)
+                    .register(registry);
+        });
+    }
+
+    /**
+     * Registers the pending message and byte gauges of the given dispatchers.
+     *
+     * @param dispatchers The dispatchers, keyed by the name of their consumer
+     */
+    public void bindDispatchers(Map<String, Dispatcher> dispatchers) {
+        dispatchers.forEach((consumer, dispatcher) -> {
+            var tags = Tags.of("consumer", consumer);
+            Gauge.builder("nats.dispatcher.pending.messages", dispatcher, Dispatcher::getPendingMessageCount)
+                    .description("Number of messages waiting in the dispatcher queue")
+                    .tags(tags)
+                    .register(registry);
+            Gauge.builder("nats.dispatcher.pending.bytes", dispatcher, Dispatcher::getPendingByteCount)
+                    .description("Number of bytes waiting in the dispatcher queue")
+                    .tags(tags)
+                    .baseUnit("bytes")
+                    .register(registry);
+            Gauge.builder("nats.dispatcher.dropped", dispatcher, Dispatcher::getDroppedCount)
+                    .description("Number of messages dropped because the dispatcher was a slow consumer")
+                    .tags(tags)
+                    .register(registry);
+        });
+    }
+
+    private Counter acknowledgments(Tags tags, String type) {
+        return Counter.builder("nats.handler.acknowledgments")
+                .description("Number of acknowledgments sent by the framework")
+                .tags(tags.and("type", type))
+                .register(registry);
+    }
+
+    private Tags tags(NatsHandler<?> handler) {
+        var consumer = StringUtils.firstNonEmpty(handler.durable(), handler.consumerName(), handler.getClass().getSimpleName());
+        return Tags.of("consumer", consumer, "handler", handler.getClass().getSimpleName());
+    }
+
+    private record InstrumentedMessageHandler(MessageHandler delegate, AtomicInteger inFlight, Timer timer,
+                                              Counter errors, Counter redeliveries) implements MessageHandler, AutoCloseable {
+
+        @Override
+        public void onMessage(Message message) throws InterruptedException {
+            if (message.isJetStream() && message.metaData().deliveredCount() > 1) {
+                redeliveries.increment();
+            }
+            inFlight.incrementAndGet();
+            var sample = Timer.start();
+            try {
+                delegate.onMessage(message);
+            } catch (RuntimeException | InterruptedException e) {
+                errors.increment();
+                throw e;
+            } finally {
+                sample.stop(timer);
+                inFlight.decrementAndGet();
+            }
+        }
+
+        @Override
+        public void close() throws Exception {
+            if (delegate instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,65 @@
+package com.ariskourt.nats.starter.metrics;
+
+import com.ariskourt.nats.kv.NatsKeyValueCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.List;
+
+/**
+ * Binds the near-caches of KeyValue buckets to a {@link MeterRegistry}.
+ */
+public class NatsKeyValueMetrics implements MeterBinder {
+
+    private final List<NatsKeyValueCache> caches;
+
+    /**
+     * Constructor for creating an instance of NatsKeyValueMetrics.
+     *
+     * @param caches The near-caches to instrument
+     */
+    public NatsKeyValueMetrics(List<NatsKeyValueCache> caches) {
+        this.caches = caches;
+    }
+
+    /**
+     * Registers the reads by whether they have been answered locally, the hit ratio, the evictions, the updates
+     * received from the bucket and the size of every near-cache.
+     *
+     * @param registry The registry to bind the meters to
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        caches.forEach(cache -> {
+            var tags = Tags.of("bucket", cache.getBucket());
+            FunctionCounter.builder("nats.kv.cache.reads", cache, NatsKeyValueCache::getHits)
+                    .description("Number of reads by whether they have been answered by the near-cache")
+                    .tags(tags.and("result", "hit"))
+                    .register(registry);
+            FunctionCounter.builder("nats.kv.cache.reads", cache, NatsKeyValueCache::getMisses)
+                    .description("Number of reads by whether they have been answered by the near-cache")
+                    .tags(tags.and("result", "miss"))
+                    .register(registry);
+            Gauge.builder("nats.kv.cache.hit.ratio", cache, NatsKeyValueCache::getHitRatio)
+                    .description("Ratio of reads answered by the near-cache")
+                    .tags(tags)
+                    .register(registry);
+            FunctionCounter.builder("nats.kv.cache.evictions", cache, NatsKeyValueCache::getEvictions)
+                    .description("Number of keys evicted to keep the near-cache within its bound")
+                    .tags(tags)
+                    .register(registry);
+            FunctionCounter.builder("nats.kv.cache.updates", cache, NatsKeyValueCache::getUpdates)
+                    .description("Number of updates and deletions received from the watcher of the bucket")
+                    .tags(tags)
+                    .register(registry);
+            Gauge.builder("nats.kv.cache.size", cache, NatsKeyValueCache::size)
+                    .description("Number of keys held by the near-cache")
+                    .tags(tags)
+                    .register(registry);
+        });
+    }
+
+}
@@ -0,0 +1,40 @@
+package com.ariskourt.nats.starter.metrics;
+
+import com.ariskourt.nats.publisher.NatsPublisher;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Binds the in-flight window of a {@link NatsPublisher} to a {@link MeterRegistry}.
+ */
+public class NatsPublisherMetrics implements MeterBinder {
+
+    private final NatsPublisher publisher;
+
+    /**
+     * Constructor for creating an instance of NatsPublisherMetrics.
+     *
+     * @param publisher The publisher to instrument
+     */
+    public NatsPublisherMetrics(NatsPublisher publisher) {
+        this.publisher = publisher;
+    }
+
+    /**
+     * Registers the in-flight message and byte gauges of the publisher.
+     *
+     * @param registry The registry to bind the meters to
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("nats.publisher.in.flight.messages", publisher, NatsPublisher::getInFlightMessages)
+                .description("Number of published messages awaiting an acknowledgment")
+                .register(registry);
+        Gauge.builder("nats.publisher.in.flight.bytes", publisher, NatsPublisher::getInFlightBytes)
+                .description("Number of published payload bytes awaiting an acknowledgment")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+}
@@ -0,0 +1,70 @@
+package com.ariskourt.nats.starter.metrics;
+
+import com.ariskourt.nats.requester.NatsRequester;
+import com.ariskourt.nats.requester.NatsResponseCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Binds the requester of the NATS client to a {@link MeterRegistry}.
+ */
+public class NatsRequesterMetrics implements MeterBinder {
+
+    private final NatsRequester requester;
+
+    /**
+     * Constructor for creating an instance of NatsRequesterMetrics.
+     *
+     * @param requester The requester to instrument
+     */
+    public NatsRequesterMetrics(NatsRequester requester) {
+        this.requester = requester;
+    }
+
+    /**
+     * Registers the requests by outcome, the requests in flight and, when responses are cached, the cache lookups and
+     * size.
+     *
+     * @param registry The registry to bind the meters to
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("nats.requester.requests", requester, NatsRequester::getSent)
+                .description("Number of requests by whether they have been sent or coalesced into one in flight")
+                .tag("result", "sent")
+                .register(registry);
+        FunctionCounter.builder("nats.requester.requests", requester, NatsRequester::getCoalesced)
+                .description("Number of requests by whether they have been sent or coalesced into one in flight")
+                .tag("result", "coalesced")
+                .register(registry);
+        FunctionCounter.builder("nats.requester.errors", requester, NatsRequester::getTimeouts)
+                .description("Number of requests sent that have not been responded to")
+                .tag("reason", "timeout")
+                .register(registry);
+        FunctionCounter.builder("nats.requester.errors", requester, NatsRequester::getFailures)
+                .description("Number of requests sent that have not been responded to")
+                .tag("reason", "failure")
+                .register(registry);
+        Gauge.builder("nats.requester.in.flight", requester, NatsRequester::getInFlight)
+                .description("Number of requests awaiting their response")
+                .register(registry);
+        var cache = requester.getCache();
+        if (cache == null) {
+            return;
+        }
+        FunctionCounter.builder("nats.requester.cache", cache, NatsResponseCache::getHits)
+                .description("Number of response cache lookups by whether they have found a response")
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("nats.requester.cache", cache, NatsResponseCache::getMisses)
+                .description("Number of response cache lookups by whether they have found a response")
+                .tag("result", "miss")
+                .register(registry);
+        Gauge.builder("nats.requester.cache.size", cache, NatsResponseCache::size)
+                .description("Number of responses held in the cache")
+                .register(registry);
+    }
+
+}
@@ -1,7 +1,11 @@
 package com.ariskourt.nats.starter.properties;
 
+import com.ariskourt.nats.configuration.NatsOptionsPreset;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.util.List;
+import java.util.Map;
+
 /**
  * Configuration properties for NATS.
  * <p>
@@ -13,8 +17,23 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
  * @param maxReconnects The maximum number of reconnection attempts.
  * @param traceConnection Whether to enable connection tracing.
  * @param drainAwaitSeconds The number of seconds to wait for draining connections.
+ * @param connections The configuration for the pool of connections.
  * @param useDispatcherWithExecutor Whether to use a dispatcher with an executor service.
  * @param executor The configuration for the executor service.
+ * @param ack The configuration for the ack pipeline.
+ * @param publisher The configuration for the publisher.
+ * @param registration The configuration for the registration of handlers.
+ * @param adaptiveAckPending The configuration for adaptive max ack pending.
+ * @param concurrency The configuration for adaptive handler concurrency.
+ * @param shutdown The budgets of the shutdown stages.
+ * @param compression The configuration for payload compression.
+ * @param deduplication The configuration for the deduplication of redelivered messages.
+ * @param requester The configuration for the requester of request-reply exchanges.
+ * @param keyValue The KeyValue buckets exposed as beans, keyed by bucket name.
+ * @param objectStore The object store buckets exposed as beans, keyed by bucket name.
+ * @param options The tuning of the connection options.
+ * @param bindExistingConsumers Whether to bind to existing consumers whose configuration is unchanged instead of
+ *                              creating or updating them on every start.
  */
 @ConfigurationProperties(prefix = "nats")
 public record NatsProperties(Boolean enabled,
@@ -22,15 +41,187 @@ public record NatsProperties(Boolean enabled,
                              Integer maxReconnects,
                              Boolean traceConnection,
                              Integer drainAwaitSeconds,
+                             NatsConnectionPoolConfiguration connections,
                              Boolean useDispatcherWithExecutor,
-                             NatsExecutorConfiguration executor) {
+                             NatsExecutorConfiguration executor,
+                             NatsAckConfiguration ack,
+                             NatsPublisherConfiguration publisher,
+                             NatsRegistrationConfiguration registration,
+                             NatsAdaptiveAckPendingConfiguration adaptiveAckPending,
+                             NatsConcurrencyConfiguration concurrency,
+                             NatsShutdownConfiguration shutdown,
+                             NatsCompressionConfiguration compression,
+                             NatsDeduplicationConfiguration deduplication,
+                             NatsRequesterConfiguration requester,
+                             Map<String, NatsKeyValueBucketConfiguration> keyValue,
+                             Map<String, NatsObjectStoreBucketConfiguration> objectStore,
+                             NatsOptionsConfiguration options,
+                             Boolean bindExistingConsumers) {
+
+    /**
+     * Configuration for the pool of connections.
+     *
+     * @param poolSize The number of connections opened to the NATS server.
+     * @param weights The weight of every connection subscriptions are assigned in proportion to. When empty,
+     *                subscriptions are assigned round-robin.
+     */
+    public record NatsConnectionPoolConfiguration(Integer poolSize, List<Integer> weights) {}
 
     /**
      * Configuration for the executor service.
      *
      * @param poolSize The size of the thread pool.
      * @param namingPrefix The prefix for naming threads.
+     * @param virtualThreadPerMessage Whether each message runs on its own virtual thread instead of the pool.
+     * @param handlerConcurrency The default maximum number of messages a handler processes concurrently when each
+     *                           message runs on its own virtual thread.
+     */
+    public record NatsExecutorConfiguration(Integer poolSize, String namingPrefix, Boolean virtualThreadPerMessage,
+                                            Integer handlerConcurrency) {}
+
+    /**
+     * Configuration for the ack pipeline.
+     *
+     * @param maxBurst The maximum number of acknowledgments sent before flushing the connection.
+     * @param checkpointInterval The number of acknowledgments after which one is sent synchronously.
+     * @param checkpointTimeoutMillis The number of milliseconds to wait for a checkpoint acknowledgment.
+     * @param maxQueued The maximum number of acknowledgments queued before they are sent on the calling thread.
+     */
+    public record NatsAckConfiguration(Integer maxBurst, Integer checkpointInterval, Integer checkpointTimeoutMillis,
+                                       Integer maxQueued) {}
+
+    /**
+     * Configuration for the publisher.
+     *
+     * @param maxInFlightMessages The maximum number of messages awaiting an acknowledgment.
+     * @param maxInFlightBytes The maximum number of payload bytes awaiting an acknowledgment.
+     * @param acquireTimeoutMillis The number of milliseconds a publish waits for room in the in-flight window.
+     */
+    public record NatsPublisherConfiguration(Integer maxInFlightMessages, Integer maxInFlightBytes, Integer acquireTimeoutMillis) {}
+
+    /**
+     * Configuration for the registration of handlers.
+     *
+     * @param parallelism The number of handlers registered concurrently.
+     */
+    public record NatsRegistrationConfiguration(Integer parallelism) {}
+
+    /**
+     * Configuration for adaptive max ack pending.
+     *
+     * @param intervalSeconds The number of seconds between re-evaluations of the consumers.
+     * @param min The lower bound of max ack pending.
+     * @param max The upper bound of max ack pending.
+     */
+    public record NatsAdaptiveAckPendingConfiguration(Integer intervalSeconds, Long min, Long max) {}
+
+    /**
+     * Configuration for adaptive handler concurrency.
+     *
+     * @param initialLimit The number of messages allowed in flight before any latency has been observed.
+     * @param minLimit The lower bound of the limit.
+     * @param latencyTolerance The multiple of the long-term latency the short-term latency may reach before the
+     *                         limit is lowered.
+     * @param backoffRatio The ratio the limit is multiplied with when it is lowered.
+     */
+    public record NatsConcurrencyConfiguration(Integer initialLimit, Integer minLimit, Double latencyTolerance,
+                                               Double backoffRatio) {}
+
+    /**
+     * Budgets of the stages the NATS client is shut down in. Stages without a budget are given the drain await
+     * seconds.
+     *
+     * @param dispatchersSeconds The number of seconds given to draining the dispatchers.
+     * @param handlersSeconds The number of seconds given to handlers to complete their pending work.
+     * @param acksSeconds The number of seconds given to sending the pending acknowledgments.
+     * @param publishersSeconds The number of seconds given to publishers to receive their outstanding acknowledgments.
+     * @param connectionsSeconds The number of seconds given to draining the connections.
+     */
+    public record NatsShutdownConfiguration(Integer dispatchersSeconds, Integer handlersSeconds, Integer acksSeconds,
+                                            Integer publishersSeconds, Integer connectionsSeconds) {}
+
+    /**
+     * Configuration for payload compression. Compressed payloads are decompressed before being decoded regardless of
+     * whether publishing compresses them.
+     *
+     * @param enabled Whether published payloads are compressed.
+     * @param level The deflate compression level, from 0 to 9.
+     * @param threshold The payload size in bytes from which payloads are compressed.
+     * @param poolSize The number of deflaters and inflaters kept in each pool.
+     * @param subjects The thresholds of subjects deviating from the default one, keyed by subject pattern. A negative
+     *                 threshold disables compression for the subject.
+     * @param maxDecompressedSize The maximum size in bytes of a decompressed payload.
+     */
+    public record NatsCompressionConfiguration(Boolean enabled, Integer level, Integer threshold, Integer poolSize,
+                                               Map<String, Integer> subjects, Integer maxDecompressedSize) {}
+
+    /**
+     * Configuration for the deduplication of redelivered messages by handlers opting into it.
+     *
+     * @param maxEntries The maximum number of message keys held per handler.
+     * @param windowSeconds The number of seconds message keys are held for.
+     * @param bloomFilter Whether lookups are fronted by Bloom filters.
+     * @param falsePositiveRate The false positive rate of the Bloom filters.
+     */
+    public record NatsDeduplicationConfiguration(Integer maxEntries, Integer windowSeconds, Boolean bloomFilter,
+                                                 Double falsePositiveRate) {}
+
+    /**
+     * Configuration for the requester of request-reply exchanges.
+     *
+     * @param timeoutMillis The number of milliseconds to wait for a response.
+     * @param cacheEnabled Whether responses are cached.
+     * @param cacheMaxEntries The maximum number of responses held.
+     * @param cacheTtlMillis The number of milliseconds responses are held for.
+     */
+    public record NatsRequesterConfiguration(Long timeoutMillis, Boolean cacheEnabled, Integer cacheMaxEntries,
+                                             Long cacheTtlMillis) {}
+
+    /**
+     * Configuration for a KeyValue bucket exposed as a bean.
+     *
+     * @param nearCache Whether the bucket is fronted by an in-process near-cache kept coherent by a watcher.
+     * @param maxEntries The maximum number of keys held by the near-cache.
+     * @param loadTimeoutSeconds The number of seconds to wait for the near-cache to load the bucket on start.
+     */
+    public record NatsKeyValueBucketConfiguration(Boolean nearCache, Integer maxEntries, Integer loadTimeoutSeconds) {}
+
+    /**
+     * Configuration for an object store bucket exposed as a bean.
+     *
+     * @param chunkSize The size in bytes of the chunks objects are split into.
+     * @param maxInFlightChunks The maximum number of chunks awaiting their acknowledgment while putting an object.
+     * @param ackTimeoutSeconds The number of seconds to wait for the acknowledgments of the chunks of an object.
+     */
+    public record NatsObjectStoreBucketConfiguration(Integer chunkSize, Integer maxInFlightChunks, Integer ackTimeoutSeconds) {}
+
+    /**
+     * Configuration for the tuning of the connection options. Unset settings are taken from the preset, if any, and
+     * otherwise keep the defaults of the client library.
+     *
+     * @param preset The preset tuning the connections for latency or throughput.
+     * @param connectionName The name the connections report to the server.
+     * @param connectionTimeoutMillis The number of milliseconds to establish a connection within.
+     * @param socketWriteTimeoutMillis The number of milliseconds a socket write may stall before the connection is
+     *                                 considered broken.
+     * @param pingIntervalMillis The number of milliseconds between pings to the server.
+     * @param maxPingsOut The number of unanswered pings after which the connection is considered broken.
+     * @param reconnectWaitMillis The number of milliseconds to wait between reconnect attempts to the same server.
+     * @param reconnectJitterMillis The random number of milliseconds added to the reconnect wait.
+     * @param reconnectBufferSize The number of bytes buffered while reconnecting.
+     * @param bufferSize The size of the socket read and write buffers.
+     * @param maxMessagesInOutgoingQueue The maximum number of messages waiting to be written to the socket.
+     * @param discardMessagesWhenOutgoingQueueFull Whether messages published to a full outgoing queue are discarded
+     *                                             instead of blocking the publisher.
+     * @param requestCleanupIntervalMillis The number of milliseconds between clean-ups of timed-out requests.
+     * @param noEcho Whether messages published on a connection are withheld from its own subscriptions.
+     * @param maxControlLine The maximum length of a protocol control line.
      */
-    public record NatsExecutorConfiguration(Integer poolSize, String namingPrefix) {}
+    public record NatsOptionsConfiguration(NatsOptionsPreset preset, String connectionName, Long connectionTimeoutMillis,
+                                           Long socketWriteTimeoutMillis, Long pingIntervalMillis, Integer maxPingsOut,
+                                           Long reconnectWaitMillis, Long reconnectJitterMillis, Long reconnectBufferSize,
+                                           Integer bufferSize, Integer maxMessagesInOutgoingQueue,
+                                           Boolean discardMessagesWhenOutgoingQueueFull, Long requestCleanupIntervalMillis,
+                                           Boolean noEcho, Integer maxControlLine) {}
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,23 @@
+package com.ariskourt.nats.benchmarks;
+
+import com.ariskourt.nats.handler.NatsEvent;
+
+import java.util.List;
+
+/**
+ * Event of a representative size and shape decoded and encoded by the benchmarks.
+ *
+ * @param id The identifier of the event
+ * @param account The account the event belongs to
+ * @param amount The amount carried by the event
+ * @param tags The tags of the event
+ */
+public record BenchmarkEvent(String id, String account, long amount, List<String> tags) implements NatsEvent {
+
+    /**
+     * The JSON payload of a sample event.
+     */
+    public static final String SAMPLE_JSON = """
+            {"id":"3f0b6c1e-2a4d-4d5e-9a77-1c2b3d4e5f60","account":"ACC-000042","amount":125000,"tags":["payments","eu-west","priority"]}""";
+
+}
@@ -0,0 +1,85 @@
+package com.ariskourt.nats.benchmarks;
+
+import com.ariskourt.nats.configuration.ConsumerConfiguration;
+import com.ariskourt.nats.configuration.NatsConsumerConfiguration;
+import com.ariskourt.nats.configuration.NatsPushSubscriberConfiguration;
+import com.ariskourt.nats.consumer.NatsConsumerDiff;
+import io.nats.client.api.AckPolicy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the builder chain every handler goes through at registration, and the comparison of its result with the
+ * configuration of an existing consumer that decides whether the consumer can be bound to.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ConsumerConfigurationBenchmark {
+
+    private NatsConsumerConfiguration configuration;
+    private io.nats.client.api.ConsumerConfiguration existing;
+
+    /**
+     * Builds the configuration and its server-side counterpart shared by all invocations.
+     */
+    @Setup
+    public void setUp() {
+        configuration = build();
+        existing = io.nats.client.api.ConsumerConfiguration.builder()
+                .durable("benchmark")
+                .filterSubjects(List.of("benchmark.events.>"))
+                .maxDeliver(3)
+                .ackWait(Duration.ofSeconds(30))
+                .ackPolicy(AckPolicy.Explicit)
+                .maxAckPending(1000)
+                .build();
+    }
+
+    /**
+     * Builds the configuration of a push consumer the way handlers are registered.
+     *
+     * @return the consumer configuration
+     */
+    @Benchmark
+    public NatsConsumerConfiguration builderChain() {
+        return build();
+    }
+
+    /**
+     * Compares the desired configuration with the one of the existing consumer.
+     *
+     * @return the differing fields
+     */
+    @Benchmark
+    public List<String> diff() {
+        return NatsConsumerDiff.changes(configuration, existing);
+    }
+
+    private NatsConsumerConfiguration build() {
+        return NatsConsumerConfiguration.builder()
+                .with(builder -> builder.setConsumerConfiguration(ConsumerConfiguration.builder()
+                        .with(consumerBuilder -> {
+                            consumerBuilder.setDurable("benchmark");
+                            consumerBuilder.setFilterSubjects(List.of("benchmark.events.>"));
+                            consumerBuilder.setMaxDeliver(3L);
+                            consumerBuilder.setAckAwait(Duration.ofSeconds(30));
+                            consumerBuilder.setAckPolicy(AckPolicy.Explicit);
+                            consumerBuilder.setMaxAckPending(1000L);
+                        }).build()))
+                .with(builder -> builder.setPushSubscriberConfiguration(NatsPushSubscriberConfiguration.builder()
+                        .with(pushBuilder -> pushBuilder.setDeliverGroup("benchmark-group"))
+                        .build()))
+                .build();
+    }
+
+}
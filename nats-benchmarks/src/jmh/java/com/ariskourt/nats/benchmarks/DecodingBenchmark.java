@@ -0,0 +1,88 @@
+package com.ariskourt.nats.benchmarks;
+
+import com.ariskourt.nats.codec.JacksonNatsCodecFactory;
+import com.ariskourt.nats.codec.NatsCodec;
+import com.ariskourt.nats.handler.NatsHandler;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.nats.client.Message;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares reading a payload through {@link NatsHandler#readMessage(Message)} and mapping the resulting string with
+ * an {@link ObjectMapper}, which is what untyped handlers do, with decoding the payload bytes directly through the
+ * codec typed handlers are dispatched with.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DecodingBenchmark {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final NatsHandler<BenchmarkEvent> handler = new NatsHandler<>() {
+
+        @Override
+        public String durable() {
+            return "benchmark";
+        }
+
+        @Override
+        public List<String> filterSubjects() {
+            return List.of("benchmark.events");
+        }
+
+        @Override
+        public Class<BenchmarkEvent> eventClass() {
+            return BenchmarkEvent.class;
+        }
+
+        @Override
+        public void onMessage(Message message) {
+        }
+
+    };
+
+    private Message message;
+    private NatsCodec<BenchmarkEvent> codec;
+
+    /**
+     * Creates the message and the codec shared by all invocations.
+     */
+    @Setup
+    public void setUp() {
+        message = new StandInMessage("benchmark.events", BenchmarkEvent.SAMPLE_JSON.getBytes(StandardCharsets.UTF_8));
+        codec = new JacksonNatsCodecFactory(objectMapper).create(BenchmarkEvent.class);
+    }
+
+    /**
+     * Reads the payload as a string and maps it, as untyped handlers do.
+     *
+     * @return the decoded event
+     * @throws JsonProcessingException In case the payload cannot be mapped
+     */
+    @Benchmark
+    public BenchmarkEvent readMessage() throws JsonProcessingException {
+        return objectMapper.readValue(handler.readMessage(message), BenchmarkEvent.class);
+    }
+
+    /**
+     * Decodes the payload bytes through the codec, as typed handlers do.
+     *
+     * @return the decoded event
+     */
+    @Benchmark
+    public BenchmarkEvent decodeBytes() {
+        return codec.decode(message.getData());
+    }
+
+}
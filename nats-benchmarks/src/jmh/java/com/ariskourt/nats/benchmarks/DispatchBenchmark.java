@@ -0,0 +1,151 @@
+package com.ariskourt.nats.benchmarks;
+
+import com.ariskourt.nats.ack.NatsAcknowledger;
+import com.ariskourt.nats.ack.NatsAutoAckMessageHandler;
+import com.ariskourt.nats.codec.JacksonNatsCodecFactory;
+import com.ariskourt.nats.handler.NatsAdaptiveConcurrencyLimit;
+import com.ariskourt.nats.handler.NatsAdaptiveConcurrencyLimitedMessageHandler;
+import com.ariskourt.nats.handler.NatsConcurrencyLimitedMessageHandler;
+import com.ariskourt.nats.handler.NatsDecodingMessageHandler;
+import com.ariskourt.nats.handler.NatsTypedHandler;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.nats.client.Message;
+import io.nats.client.MessageHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the overhead every layer of the handler chain built at registration adds to dispatching a message through
+ * {@link MessageHandler#onMessage(Message)}, from a plain typed handler up to automatic acknowledgment and
+ * concurrency limits.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DispatchBenchmark {
+
+    private final RecordingHandler handler = new RecordingHandler();
+
+    private Message message;
+    private MessageHandler decoding;
+    private MessageHandler autoAck;
+    private MessageHandler limited;
+    private MessageHandler adaptive;
+
+    /**
+     * Builds the handler chains shared by all invocations.
+     */
+    @Setup
+    public void setUp() {
+        message = new StandInMessage("benchmark.events", BenchmarkEvent.SAMPLE_JSON.getBytes(StandardCharsets.UTF_8));
+        var codec = new JacksonNatsCodecFactory(new ObjectMapper()).create(BenchmarkEvent.class);
+        NatsAcknowledger acknowledger = new NatsAcknowledger() {
+
+            @Override
+            public void ack(Message message) {
+                message.ack();
+            }
+
+            @Override
+            public void nak(Message message) {
+                message.nak();
+            }
+
+            @Override
+            public void term(Message message) {
+                message.term();
+            }
+
+        };
+        decoding = new NatsDecodingMessageHandler<>(handler, codec);
+        autoAck = new NatsAutoAckMessageHandler(decoding, acknowledger);
+        limited = new NatsConcurrencyLimitedMessageHandler(autoAck, 1024);
+        adaptive = new NatsAdaptiveConcurrencyLimitedMessageHandler(autoAck, new NatsAdaptiveConcurrencyLimit(
+                NatsAdaptiveConcurrencyLimit.DEFAULT_INITIAL_LIMIT, NatsAdaptiveConcurrencyLimit.DEFAULT_MIN_LIMIT, 1024,
+                NatsAdaptiveConcurrencyLimit.DEFAULT_LATENCY_TOLERANCE, NatsAdaptiveConcurrencyLimit.DEFAULT_BACKOFF_RATIO));
+    }
+
+    /**
+     * Dispatches through the decoding handler only.
+     *
+     * @return the decoded event
+     * @throws InterruptedException never
+     */
+    @Benchmark
+    public BenchmarkEvent decoding() throws InterruptedException {
+        decoding.onMessage(message);
+        return handler.last;
+    }
+
+    /**
+     * Dispatches through the decoding handler with automatic acknowledgment.
+     *
+     * @return the decoded event
+     * @throws InterruptedException never
+     */
+    @Benchmark
+    public BenchmarkEvent autoAck() throws InterruptedException {
+        autoAck.onMessage(message);
+        return handler.last;
+    }
+
+    /**
+     * Dispatches through a static concurrency limit in front of automatic acknowledgment.
+     *
+     * @return the decoded event
+     * @throws InterruptedException never
+     */
+    @Benchmark
+    public BenchmarkEvent concurrencyLimited() throws InterruptedException {
+        limited.onMessage(message);
+        return handler.last;
+    }
+
+    /**
+     * Dispatches through an adaptive concurrency limit in front of automatic acknowledgment.
+     *
+     * @return the decoded event
+     * @throws InterruptedException never
+     */
+    @Benchmark
+    public BenchmarkEvent adaptiveConcurrencyLimited() throws InterruptedException {
+        adaptive.onMessage(message);
+        return handler.last;
+    }
+
+    private static final class RecordingHandler implements NatsTypedHandler<BenchmarkEvent> {
+
+        private BenchmarkEvent last;
+
+        @Override
+        public void handle(BenchmarkEvent event, Message message) {
+            last = event;
+        }
+
+        @Override
+        public String durable() {
+            return "benchmark";
+        }
+
+        @Override
+        public List<String> filterSubjects() {
+            return List.of("benchmark.events");
+        }
+
+        @Override
+        public Class<BenchmarkEvent> eventClass() {
+            return BenchmarkEvent.class;
+        }
+
+    }
+
+}
@@ -0,0 +1,125 @@
+package com.ariskourt.nats.benchmarks;
+
+import com.ariskourt.nats.NatsClient;
+import com.ariskourt.nats.ack.NatsAckPipeline;
+import com.ariskourt.nats.codec.JacksonNatsCodecFactory;
+import com.ariskourt.nats.codec.NatsCodecRegistry;
+import com.ariskourt.nats.configuration.NatsConnectionConfiguration;
+import com.ariskourt.nats.publisher.NatsPublisher;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.nats.client.JetStream;
+import io.nats.client.JetStreamApiException;
+import io.nats.client.api.PublishAck;
+import io.nats.client.impl.NatsMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the client side of publishing and acknowledging against in-JVM stand-ins: the publisher window, encoding
+ * and message id generation in front of a JetStream whose publishes are acknowledged immediately, and acknowledging
+ * directly versus through the ack pipeline for messages that only count their acknowledgments.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PublishAckBenchmark {
+
+    private final BenchmarkEvent event = new BenchmarkEvent("3f0b6c1e-2a4d-4d5e-9a77-1c2b3d4e5f60", "ACC-000042", 125000,
+            List.of("payments", "eu-west", "priority"));
+    private final byte[] payload = BenchmarkEvent.SAMPLE_JSON.getBytes(StandardCharsets.UTF_8);
+
+    private NatsPublisher publisher;
+    private NatsAckPipeline ackPipeline;
+    private StandInMessage message;
+
+    /**
+     * Creates the publisher, the ack pipeline and their stand-ins shared by all invocations.
+     *
+     * @throws IOException In case the stand-in publish acknowledgment cannot be parsed
+     * @throws JetStreamApiException In case the stand-in publish acknowledgment cannot be parsed
+     */
+    @Setup
+    public void setUp() throws IOException, JetStreamApiException {
+        var publishAck = CompletableFuture.completedFuture(new PublishAck(
+                new NatsMessage("_INBOX.benchmark", null, "{\"stream\":\"BENCHMARK\",\"seq\":1}".getBytes(StandardCharsets.UTF_8))));
+        var jetStream = (JetStream) Proxy.newProxyInstance(JetStream.class.getClassLoader(), new Class<?>[]{JetStream.class},
+                (proxy, method, arguments) -> {
+                    if ("publishAsync".equals(method.getName())) {
+                        return publishAck;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        var natsClient = new NatsClient(new NatsConnectionConfiguration()) {
+
+            @Override
+            public JetStream getJetStream(String subject) {
+                return jetStream;
+            }
+
+        };
+        publisher = new NatsPublisher(natsClient, new NatsCodecRegistry(new JacksonNatsCodecFactory(new ObjectMapper())),
+                1024, 64 * 1024 * 1024, Duration.ofSeconds(30));
+        ackPipeline = new NatsAckPipeline(256, 0, Duration.ofSeconds(2));
+        ackPipeline.start();
+        message = new StandInMessage("benchmark.events", payload);
+    }
+
+    /**
+     * Sends the acknowledgments still queued in the ack pipeline.
+     */
+    @TearDown
+    public void tearDown() {
+        ackPipeline.close();
+    }
+
+    /**
+     * Publishes an event, encoding it through its codec.
+     *
+     * @return the future of the publish acknowledgment
+     */
+    @Benchmark
+    public CompletableFuture<PublishAck> publishEvent() {
+        return publisher.publishEvent("benchmark.events", event);
+    }
+
+    /**
+     * Publishes a payload that is already encoded.
+     *
+     * @return the future of the publish acknowledgment
+     */
+    @Benchmark
+    public CompletableFuture<PublishAck> publishBytes() {
+        return publisher.publish("benchmark.events", payload);
+    }
+
+    /**
+     * Acknowledges a message directly on the calling thread.
+     */
+    @Benchmark
+    public void ackDirect() {
+        message.ack();
+    }
+
+    /**
+     * Acknowledges a message through the ack pipeline, which sends it in bursts on its own thread.
+     */
+    @Benchmark
+    public void ackPipeline() {
+        ackPipeline.ack(message);
+    }
+
+}
@@ -0,0 +1,66 @@
+package com.ariskourt.nats.benchmarks;
+
+import io.nats.client.Connection;
+import io.nats.client.impl.NatsMessage;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-JVM stand-in for a JetStream message that counts its acknowledgments instead of sending them to a server, so
+ * that the benchmarks measure the client code paths rather than network round trips.
+ */
+public class StandInMessage extends NatsMessage {
+
+    private final LongAdder acknowledgments = new LongAdder();
+
+    /**
+     * Constructor for creating an instance of StandInMessage.
+     *
+     * @param subject The subject of the message
+     * @param data The payload of the message
+     */
+    public StandInMessage(String subject, byte[] data) {
+        super(subject, null, data);
+    }
+
+    /**
+     * Gets the number of acknowledgments of any kind sent for this message.
+     *
+     * @return the number of acknowledgments
+     */
+    public long getAcknowledgments() {
+        return acknowledgments.sum();
+    }
+
+    @Override
+    public boolean isJetStream() {
+        return true;
+    }
+
+    @Override
+    public Connection getConnection() {
+        return null;
+    }
+
+    @Override
+    public void ack() {
+        acknowledgments.increment();
+    }
+
+    @Override
+    public void ackSync(Duration timeout) {
+        acknowledgments.increment();
+    }
+
+    @Override
+    public void nak() {
+        acknowledgments.increment();
+    }
+
+    @Override
+    public void term() {
+        acknowledgments.increment();
+    }
+
+}
@@ -1,12 +1,25 @@
 package com.ariskourt.nats;
 
+import com.ariskourt.nats.ack.NatsAckPipeline;
+import com.ariskourt.nats.ack.NatsAcknowledger;
 import com.ariskourt.nats.configuration.NatsConnectionConfiguration;
+import com.ariskourt.nats.configuration.NatsConnectionSettings;
 import com.ariskourt.nats.configuration.NatsConsumerConfiguration;
+import com.ariskourt.nats.consumer.NatsAdaptiveAckPendingController;
+import com.ariskourt.nats.consumer.NatsConsumerDiff;
+import com.ariskourt.nats.consumer.NatsConsumerSnapshot;
+import com.ariskourt.nats.kv.NatsKeyValueCache;
 import com.ariskourt.nats.exception.NatsException;
 import com.ariskourt.nats.listener.DefaultNatsConnectionListener;
 import com.ariskourt.nats.listener.DefaultNatsErrorListener;
+import com.ariskourt.nats.objectstore.NatsObjectStore;
+import com.ariskourt.nats.service.NatsServiceEndpoint;
 import io.nats.client.*;
 import io.nats.client.api.ConsumerConfiguration;
+import io.nats.client.api.ConsumerInfo;
+import io.nats.service.Service;
+import io.nats.service.ServiceBuilder;
+import io.nats.service.ServiceEndpoint;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
@@ -14,8 +27,15 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
 
 /**
  * The Nats class provides methods to connect, disconnect, and subscribe to NATS server.
@@ -27,12 +47,25 @@ public class NatsClient {
     protected final ErrorListener errorListener;
     protected final ConnectionListener connectionListener;
     protected final NatsConnectionConfiguration configuration;
+    protected final NatsConnectionSettings settings;
     protected final Map<String, Dispatcher> dispatchers = new ConcurrentHashMap<>();
+    protected final Map<String, Connection> dispatcherConnections = new ConcurrentHashMap<>();
+    protected final Map<String, MessageConsumer> pullConsumers = new ConcurrentHashMap<>();
+    protected final Map<String, Service> services = new ConcurrentHashMap<>();
+    protected final Map<String, NatsKeyValueCache> keyValueCaches = new ConcurrentHashMap<>();
+    protected final List<AutoCloseable> closeableHandlers = new CopyOnWriteArrayList<>();
+    protected final NatsAckPipeline ackPipeline;
+    protected final NatsAdaptiveAckPendingController adaptiveAckPendingController;
+
+    private final List<Connection> connections = new CopyOnWriteArrayList<>();
+    private final List<JetStream> jetStreams = new CopyOnWriteArrayList<>();
+    private final AtomicInteger nextConnection = new AtomicInteger();
+    private int[] connectionAssignment;
 
     private Connection connection;
 
     /**
-     * Gets the current NATS connection.
+     * Gets the current NATS connection. When a pool of connections is used, this is the first connection of the pool.
      *
      * @return the current NATS connection
      */
@@ -40,10 +73,20 @@ public class NatsClient {
         return connection;
     }
 
+    /**
+     * Gets all connections of the pool, the first of which is the one returned by {@link #getConnection()}.
+     *
+     * @return an unmodifiable view of the connections
+     */
+    public List<Connection> getConnections() {
+        return Collections.unmodifiableList(connections);
+    }
+
     private JetStream jetStream;
 
     /**
-     * Gets the current JetStream instance.
+     * Gets the current JetStream instance. When a pool of connections is used, this is the JetStream instance of the
+     * first connection of the pool.
      *
      * @return the current JetStream instance
      */
@@ -51,6 +94,66 @@ public class NatsClient {
         return jetStream;
     }
 
+    /**
+     * Gets the JetStream instance to publish to the given subject with. When a pool of connections is used, subjects
+     * are striped across the connections by their hash, so that messages published to the same subject keep their
+     * order while publishing is spread over every connection of the pool.
+     *
+     * @param subject The subject to publish to
+     * @return the JetStream instance of the connection the subject is striped to
+     */
+    public JetStream getJetStream(String subject) {
+        if (jetStreams.size() <= 1) {
+            return jetStream;
+        }
+        return jetStreams.get(Math.floorMod(subject.hashCode(), jetStreams.size()));
+    }
+
+    /**
+     * Gets the dispatchers of the registered consumers.
+     *
+     * @return an unmodifiable view of the dispatchers, keyed by the name of their consumer
+     */
+    public Map<String, Dispatcher> getDispatchers() {
+        return Collections.unmodifiableMap(dispatchers);
+    }
+
+    /**
+     * Gets the started services.
+     *
+     * @return an unmodifiable view of the services, keyed by their name
+     */
+    public Map<String, Service> getServices() {
+        return Collections.unmodifiableMap(services);
+    }
+
+    /**
+     * Gets the near-caches of KeyValue buckets.
+     *
+     * @return an unmodifiable view of the near-caches, keyed by their bucket
+     */
+    public Map<String, NatsKeyValueCache> getKeyValueCaches() {
+        return Collections.unmodifiableMap(keyValueCaches);
+    }
+
+    /**
+     * Gets the ack pipeline used to acknowledge messages on behalf of handlers.
+     *
+     * @return the ack pipeline
+     */
+    public NatsAckPipeline getAckPipeline() {
+        return ackPipeline;
+    }
+
+    /**
+     * Gets the controller tuning the max ack pending of consumers from their observed throughput and latency.
+     *
+     * @return the adaptive max ack pending controller
+     */
+    public NatsAdaptiveAckPendingController getAdaptiveAckPendingController() {
+        return adaptiveAckPendingController;
+    }
+
     /**
      * Constructor that creates a new instance of the {@link NatsClient} object using the provided configuration. This
      * @param configuration The configuration that will be used to create the connection to the NATS server
@@ -71,21 +174,51 @@ public class NatsClient {
         this.errorListener = errorListener == null ? new DefaultNatsErrorListener() : errorListener;
         this.connectionListener = connectionListener == null ? new DefaultNatsConnectionListener() : connectionListener;
         this.configuration = configuration;
+        this.settings = configuration.snapshot();
+        this.ackPipeline = new NatsAckPipeline(settings.ackMaxBurst(),
+                settings.ackCheckpointInterval(),
+                settings.ackCheckpointTimeout(),
+                settings.ackMaxQueued());
+        this.adaptiveAckPendingController = new NatsAdaptiveAckPendingController(this::getConnection,
+                settings.adaptiveAckPendingInterval(),
+                settings.adaptiveAckPendingMin(),
+                settings.adaptiveAckPendingMax());
     }
 
     /**
      * This method is responsible for creating a connection to the NATS server using the provided configuration. This
      * method will attempt to establish a connection to the NATS server using the provided configuration. In case the
      * connection process fails, the method will throw a {@link NatsException} with the underlying cause of the failure.
+     * When a connection pool size above one is configured, that many connections are opened and subscriptions are
+     * assigned to them round-robin, or in proportion to the configured connection weights.
      *
      * @return The current instance of the {@link NatsClient} object
      */
     public NatsClient connect() {
+        var poolSize = settings.connectionPoolSize();
+        connectionAssignment = createConnectionAssignment(poolSize, settings.connectionWeights());
         try {
             LOGGER.info("Attempting to connect to NATS server using the following configuration {}", configuration);
-            connection = io.nats.client.Nats.connect(createOptions());
-            jetStream = connection.jetStream();
+            var options = createOptions();
+            for (var i = 0; i < poolSize; i++) {
+                var pooled = io.nats.client.Nats.connect(options);
+                connections.add(pooled);
+                jetStreams.add(pooled.jetStream());
+            }
+            connection = connections.getFirst();
+            jetStream = jetStreams.getFirst();
+            if (poolSize > 1) {
+                LOGGER.info("Opened a pool of {} NATS connections", poolSize);
+            }
+            ackPipeline.start();
+            adaptiveAckPendingController.start();
         } catch (IOException | InterruptedException e) {
+            try {
+                closeConnections();
+            } catch (InterruptedException closeException) {
+                e.addSuppressed(closeException);
+                Thread.currentThread().interrupt();
+            }
             throw new NatsException("An error occurred while trying to connect to the NATS server!", e);
         }
         return this;
@@ -97,28 +230,30 @@ public class NatsClient {
      * method will attempt to close an active connection in case the following criteria are met:
      * <ol>
      *     <li>The connection object is not null</li>
-     *     <li>The connection is not null and is currently in the CONNECTED state</li>
+     *     <li>The connection is not null and has not been closed already</li>
      * </ol>
+     * Intake is stopped first, then dispatchers, handlers, pending acknowledgments and connections are given the
+     * configured drain timeout each.
      *
      * @throws NatsException In case the process of shutting down the connection has failed
      */
     public NatsClient disconnect() {
-        if (connection == null) {
+        if (connection == null || connections.isEmpty()) {
             return this;
         }
-        if (Connection.Status.CONNECTED != connection.getStatus()) {
-            LOGGER.warn("Active connection is not in connected status. Nothing to do...");
+        if (Connection.Status.CLOSED == connection.getStatus()) {
+            LOGGER.warn("Active connection is already closed. Nothing to do...");
             return this;
         }
         try {
-            var drained = connection.drain(Duration.ofSeconds(configuration.getDrainAwaitSeconds())).get();
-            if (drained) {
-                LOGGER.info("Successfully drained NATS connection before closing...");
-            }
-            closeDispatchers();
-            connection.close();
+            var timeout = settings.drainAwait();
+            stopIntake();
+            drainDispatchers(timeout);
+            closeHandlers(timeout);
+            closeAckPipeline(timeout);
+            drainConnections(timeout);
             LOGGER.info("NATS connection has been closed successfully");
-        } catch (InterruptedException | ExecutionException | TimeoutException e) {
+        } catch (InterruptedException e) {
             LOGGER.error("Closing NATS connection has failed", e);
             throw new NatsException(e);
         }
@@ -131,9 +266,39 @@ public class NatsClient {
      * an NPE in case the passed in topic and handler values are null
      *
      * @param configuration The configuration that define the consumer configuration
-     * @param handler The actual handler that will operate on the topics' messages
+     * @param handler The actual handler that will operate on the topics' messages. In case it is
+     *                {@link AutoCloseable}, such as a batching handler, it is closed once its dispatcher is drained
      */
     public void subscribePushConsumer(NatsConsumerConfiguration configuration, MessageHandler handler) {
+        subscribePushConsumer(configuration, handler, null);
+    }
+
+    /**
+     * Method that allows for registering push consumers as dispatchers for a given NATS subject, binding to the
+     * consumer if it already exists on the server with the desired configuration. Only consumers that are missing or
+     * whose configuration differs are created or updated.
+     *
+     * @param configuration The configuration that define the consumer configuration
+     * @param handler The actual handler that will operate on the topics' messages
+     * @param snapshot The snapshot of the consumers that exist on the server, or null to always create or update
+     */
+    public void subscribePushConsumer(NatsConsumerConfiguration configuration, MessageHandler handler, NatsConsumerSnapshot snapshot) {
+        subscribePushConsumer(configuration, handler, snapshot, true);
+    }
+
+    /**
+     * Method that allows for registering push consumers as dispatchers for a given NATS subject, binding to the
+     * consumer if it already exists on the server with the desired configuration. Handlers acknowledging their
+     * messages through a {@link NatsAcknowledger}, such as the {@link NatsAckPipeline}, are subscribed without
+     * automatic acknowledgment, as the acknowledgment sent once the handler returns would otherwise precede theirs and
+     * void any negative acknowledgment or termination.
+     *
+     * @param configuration The configuration that define the consumer configuration
+     * @param handler The actual handler that will operate on the topics' messages
+     * @param snapshot The snapshot of the consumers that exist on the server, or null to always create or update
+     * @param autoAck Whether each message is acknowledged once the handler has returned, or left to the handler
+     */
+    public void subscribePushConsumer(NatsConsumerConfiguration configuration, MessageHandler handler, NatsConsumerSnapshot snapshot, boolean autoAck) {
         if (CollectionUtils.isEmpty(configuration.consumerConfiguration().filterSubjects())) {
             throw new NatsException("Please provide at least one non-null NATS filter subject");
         }
@@ -147,33 +312,438 @@ public class NatsClient {
         }
 
         try {
-            var dispatcher = connection.createDispatcher();
-            jetStream.subscribe(null,
+            var index = nextConnectionIndex();
+            var subscriptionConnection = connections.get(index);
+            var dispatcher = subscriptionConnection.createDispatcher();
+            jetStreams.get(index).subscribe(null,
                     configuration.natsPushSubscriberConfiguration().deliverGroup(),
                     dispatcher,
                     handler,
-                    true,
-                    createPushSubscribeOptions(configuration));
-            LOGGER.info("Subscribed NATS push consumer {} to subject(s) {}", getConsumerName(configuration), configuration.consumerConfiguration().filterSubjects());
+                    autoAck,
+                    createPushSubscribeOptions(subscriptionConnection, configuration, snapshot));
+            LOGGER.info("Subscribed NATS push consumer {} to subject(s) {} on connection {}", getConsumerName(configuration), configuration.consumerConfiguration().filterSubjects(), index);
             dispatchers.put(configuration.consumerConfiguration().durable(), dispatcher);
+            dispatcherConnections.put(configuration.consumerConfiguration().durable(), subscriptionConnection);
+            registerCloseableHandler(handler);
         } catch (JetStreamApiException | IOException e) {
             throw new NatsException(String.format("Subscribing push consumer with name %s to NATS failed", getConsumerName(configuration)), e);
         }
     }
 
+    /**
+     * Method that allows for registering pull consumers for a given NATS subject. Messages are fetched in batches
+     * bounded by count and bytes, and the next fetch is issued while the current batch is still being processed, so
+     * the client only receives as much as it asked for. The consumer is created or updated on the stream that
+     * captures the filter subjects, which is either configured explicitly or looked up from the server.
+     *
+     * @param configuration The configuration that define the consumer configuration
+     * @param handler The actual handler that will operate on the topics' messages. In case it is
+     *                {@link AutoCloseable}, such as a batching handler, it is closed once its dispatcher is drained
+     */
+    public void subscribePullConsumer(NatsConsumerConfiguration configuration, MessageHandler handler) {
+        subscribePullConsumer(configuration, handler, null);
+    }
+
+    /**
+     * Method that allows for registering pull consumers for a given NATS subject, binding to the consumer if it
+     * already exists on the server with the desired configuration. Only consumers that are missing or whose
+     * configuration differs are created or updated.
+     *
+     * @param configuration The configuration that define the consumer configuration
+     * @param handler The actual handler that will operate on the topics' messages
+     * @param snapshot The snapshot of the consumers that exist on the server, or null to always create or update
+     */
+    public void subscribePullConsumer(NatsConsumerConfiguration configuration, MessageHandler handler, NatsConsumerSnapshot snapshot) {
+        if (CollectionUtils.isEmpty(configuration.consumerConfiguration().filterSubjects())) {
+            throw new NatsException("Please provide at least one non-null NATS filter subject");
+        }
+
+        if (null == configuration.natsPullSubscriberConfiguration()) {
+            throw new NatsException("Cannot register pull consumer with null configuration options");
+        }
+
+        if (null == handler) {
+            throw new NatsException("Please provide a non-null message handler instance");
+        }
+
+        try {
+            var existing = findUnchangedConsumer(configuration, snapshot);
+            var stream = existing != null ? existing.getStreamName() : resolveStreamName(configuration, snapshot);
+            var index = nextConnectionIndex();
+            var subscriptionConnection = connections.get(index);
+            var streamContext = subscriptionConnection.getStreamContext(stream);
+            var consumerContext = existing != null
+                    ? streamContext.getConsumerContext(existing.getName())
+                    : streamContext.createOrUpdateConsumer(createConsumerConfiguration(configuration));
+            var dispatcher = subscriptionConnection.createDispatcher();
+            var consumer = consumerContext.consume(createConsumeOptions(configuration), dispatcher, handler);
+            LOGGER.info("Subscribed NATS pull consumer {} on stream {} to subject(s) {} on connection {}", consumerContext.getConsumerName(), stream, configuration.consumerConfiguration().filterSubjects(), index);
+            dispatchers.put(consumerContext.getConsumerName(), dispatcher);
+            dispatcherConnections.put(consumerContext.getConsumerName(), subscriptionConnection);
+            pullConsumers.put(consumerContext.getConsumerName(), consumer);
+            registerCloseableHandler(handler);
+        } catch (JetStreamApiException | IOException e) {
+            throw new NatsException(String.format("Subscribing pull consumer with name %s to NATS failed", getConsumerName(configuration)), e);
+        }
+    }
+
+    /**
+     * Starts a service built on the NATS Service API on a connection of the pool. Every endpoint is given a dispatcher
+     * of its own, so that a slow endpoint does not hold up the others, and is registered under the name
+     * {@code <service>.<endpoint>} along with the dispatchers of consumers. When the dispatchers run on an executor,
+     * every request is handled on a thread of that executor.
+     *
+     * @param name The name of the service
+     * @param version The version of the service
+     * @param description The description of the service, may be null
+     * @param endpoints The endpoints of the service
+     * @return The started service
+     * @throws NatsException In case the service has no endpoints, has already been started or cannot be built
+     */
+    public Service startService(String name, String version, String description, List<NatsServiceEndpoint> endpoints) {
+        if (CollectionUtils.isEmpty(endpoints)) {
+            throw new NatsException(String.format("Please provide at least one endpoint for service %s", name));
+        }
+        if (services.containsKey(name)) {
+            throw new NatsException(String.format("Service with name %s has already been started", name));
+        }
+        var index = nextConnectionIndex();
+        var serviceConnection = connections.get(index);
+        var created = new ArrayList<String>();
+        try {
+            var builder = new ServiceBuilder()
+                    .connection(serviceConnection)
+                    .name(name)
+                    .version(version)
+                    .description(description);
+            for (var endpoint : endpoints) {
+                var dispatcher = serviceConnection.createDispatcher();
+                var dispatcherName = name + "." + endpoint.name();
+                dispatchers.put(dispatcherName, dispatcher);
+                dispatcherConnections.put(dispatcherName, serviceConnection);
+                created.add(dispatcherName);
+                var endpointBuilder = ServiceEndpoint.builder()
+                        .endpointName(endpoint.name())
+                        .endpointSubject(StringUtils.defaultIfEmpty(endpoint.subject(), endpoint.name()))
+                        .handler(endpoint.handler().apply(serviceConnection))
+                        .dispatcher(dispatcher);
+                if (StringUtils.isNotEmpty(endpoint.queueGroup())) {
+                    endpointBuilder.endpointQueueGroup(endpoint.queueGroup());
+                }
+                builder.addServiceEndpoint(endpointBuilder.build());
+            }
+            var service = builder.build();
+            service.startService();
+            services.put(name, service);
+            LOGGER.info("Started NATS service {} {} with endpoint(s) {} on connection {}", name, version,
+                    endpoints.stream().map(NatsServiceEndpoint::name).toList(), index);
+            return service;
+        } catch (RuntimeException e) {
+            created.forEach(dispatcherName -> serviceConnection.closeDispatcher(dispatchers.remove(dispatcherName)));
+            created.forEach(dispatcherConnections::remove);
+            throw new NatsException(String.format("Starting service with name %s failed", name), e);
+        }
+    }
+
+    /**
+     * Gets the KeyValue context of a bucket. Buckets are spread over the connections of the pool by the hash of
+     * their name.
+     *
+     * @param bucket The name of the bucket
+     * @return The KeyValue context of the bucket
+     * @throws NatsException In case the client is not connected or the bucket does not exist
+     */
+    public KeyValue getKeyValue(String bucket) {
+        if (connections.isEmpty()) {
+            throw new NatsException(String.format("Cannot access NATS KeyValue bucket %s before connecting", bucket));
+        }
+        try {
+            return connections.get(Math.floorMod(bucket.hashCode(), connections.size())).keyValue(bucket);
+        } catch (IOException | RuntimeException e) {
+            throw new NatsException(String.format("Accessing NATS KeyValue bucket %s failed", bucket), e);
+        }
+    }
+
+    /**
+     * Creates the near-cache of a bucket and waits for its initial load. The cache is kept coherent until intake is
+     * stopped.
+     *
+     * @param bucket The name of the bucket
+     * @param maxEntries The maximum number of keys held
+     * @param loadTimeout The maximum time to wait for the initial load
+     * @return The started near-cache of the bucket
+     * @throws NatsException In case the bucket already has a near-cache or cannot be watched
+     */
+    public NatsKeyValueCache createKeyValueCache(String bucket, int maxEntries, Duration loadTimeout) {
+        var cache = new NatsKeyValueCache(bucket, getKeyValue(bucket), maxEntries);
+        if (keyValueCaches.putIfAbsent(bucket, cache) != null) {
+            throw new NatsException(String.format("NATS KeyValue bucket %s already has a near-cache", bucket));
+        }
+        try {
+            cache.start(loadTimeout);
+        } catch (RuntimeException e) {
+            keyValueCaches.remove(bucket, cache);
+            cache.close();
+            throw e;
+        }
+        return cache;
+    }
+
+    /**
+     * Creates a streaming store of an object store bucket. Buckets are spread over the connections of the pool by the
+     * hash of their name.
+     *
+     * @param bucket The name of the bucket
+     * @param chunkSize The size of the chunks objects are split into
+     * @param maxInFlightChunks The maximum number of chunks awaiting their acknowledgment while putting an object
+     * @param ackTimeout The maximum time to wait for the acknowledgments of the chunks of an object
+     * @return The store of the bucket
+     * @throws NatsException In case the client is not connected or the bucket does not exist
+     */
+    public NatsObjectStore createObjectStore(String bucket, int chunkSize, int maxInFlightChunks, Duration ackTimeout) {
+        if (connections.isEmpty()) {
+            throw new NatsException(String.format("Cannot access NATS object store bucket %s before connecting", bucket));
+        }
+        return new NatsObjectStore(bucket, connections.get(Math.floorMod(bucket.hashCode(), connections.size())),
+                chunkSize, maxInFlightChunks, ackTimeout);
+    }
+
+    /**
+     * Loads a snapshot of the streams and consumers that currently exist on the server, to be used for binding to
+     * existing consumers while subscribing.
+     *
+     * @return The snapshot of streams and consumers
+     * @throws NatsException In case loading the snapshot fails
+     */
+    public NatsConsumerSnapshot loadConsumerSnapshot() {
+        try {
+            var snapshot = NatsConsumerSnapshot.load(connection.jetStreamManagement());
+            LOGGER.info("Loaded {} existing NATS consumer(s) across {} stream(s)", snapshot.getConsumerCount(), snapshot.getStreamCount());
+            return snapshot;
+        } catch (JetStreamApiException | IOException e) {
+            throw new NatsException("Loading the existing NATS consumers failed", e);
+        }
+    }
+
+    /**
+     * Stops taking in new messages: the max ack pending of consumers is no longer tuned, all registered pull
+     * consumers stop issuing fetches, all started services stop, draining the requests they have received, and
+     * near-caches of KeyValue buckets stop watching them. Messages of fetches that are already in flight are still
+     * delivered to their handlers, and push consumers keep receiving messages until their dispatchers are drained.
+     */
+    public void stopIntake() {
+        adaptiveAckPendingController.close();
+        pullConsumers.forEach((name, consumer) -> {
+            LOGGER.info("Stopping pull consumer with name {}", name);
+            consumer.stop();
+        });
+        pullConsumers.clear();
+        services.forEach((name, service) -> {
+            LOGGER.info("Stopping service with name {}", name);
+            service.stop(true);
+        });
+        services.clear();
+        keyValueCaches.forEach((bucket, cache) -> {
+            LOGGER.info("Stopping near-cache of KeyValue bucket {}", bucket);
+            cache.close();
+        });
+        keyValueCaches.clear();
+    }
+
+    /**
+     * Drains all registered dispatchers in parallel, so that every message already delivered to them is handled
+     * before their handlers are closed. Draining a dispatcher unsubscribes it first, which stops the intake of push
+     * consumers.
+     *
+     * @param timeout The time every dispatcher is given to drain
+     * @return true if every dispatcher has drained within the timeout, false otherwise
+     * @throws InterruptedException In case waiting for the dispatchers to drain has been interrupted
+     */
+    public boolean drainDispatchers(Duration timeout) throws InterruptedException {
+        var drains = new HashMap<String, CompletableFuture<Boolean>>();
+        for (var entry : dispatchers.entrySet()) {
+            drains.put(entry.getKey(), entry.getValue().drain(timeout));
+        }
+        var drained = true;
+        for (var entry : drains.entrySet()) {
+            try {
+                if (!entry.getValue().get()) {
+                    LOGGER.warn("Dispatcher for consumer with name {} did not drain within {}", entry.getKey(), timeout);
+                    drained = false;
+                }
+            } catch (ExecutionException e) {
+                LOGGER.warn("Draining dispatcher for consumer with name {} has failed", entry.getKey(), e);
+                drained = false;
+            }
+        }
+        return drained;
+    }
+
+    /**
+     * Closes all registered closeable handlers in parallel, giving them the chance to handle and acknowledge any
+     * pending work. Handlers that do not complete within the timeout are left to complete in the background.
+     *
+     * @param timeout The time the handlers are given to complete
+     * @return true if every handler has completed within the timeout, false otherwise
+     * @throws InterruptedException In case waiting for the handlers has been interrupted
+     */
+    public boolean closeHandlers(Duration timeout) throws InterruptedException {
+        var closes = closeableHandlers.stream()
+                .map(handler -> CompletableFuture.runAsync(() -> closeHandler(handler), NatsClient::startShutdownThread))
+                .toList();
+        closeableHandlers.clear();
+        return await(closes, timeout);
+    }
+
+    /**
+     * Closes the ack pipeline, sending every acknowledgment still pending.
+     *
+     * @param timeout The time the pending acknowledgments are given to be sent
+     * @return true if every pending acknowledgment has been sent within the timeout, false otherwise
+     * @throws InterruptedException In case waiting for the ack pipeline has been interrupted
+     */
+    public boolean closeAckPipeline(Duration timeout) throws InterruptedException {
+        return await(List.of(CompletableFuture.runAsync(ackPipeline::close, NatsClient::startShutdownThread)), timeout);
+    }
+
+    /**
+     * Drains every connection of the pool in parallel, flushing whatever is still buffered, then closes the
+     * dispatchers and the connections.
+     *
+     * @param timeout The time every connection is given to drain
+     * @return true if every connection has drained within the timeout, false otherwise
+     * @throws InterruptedException In case draining or closing the connections has been interrupted
+     */
+    public boolean drainConnections(Duration timeout) throws InterruptedException {
+        var drains = new ArrayList<CompletableFuture<Boolean>>();
+        for (var pooled : connections) {
+            try {
+                drains.add(pooled.drain(timeout));
+            } catch (TimeoutException | IllegalStateException e) {
+                LOGGER.warn("Draining NATS connection has failed", e);
+            }
+        }
+        var drained = drains.size() == connections.size();
+        for (var drain : drains) {
+            try {
+                drained &= drain.get();
+            } catch (ExecutionException e) {
+                LOGGER.warn("Draining NATS connection has failed", e);
+                drained = false;
+            }
+        }
+        if (drained) {
+            LOGGER.info("Successfully drained NATS connection before closing...");
+        }
+        closeDispatchers();
+        closeConnections();
+        return drained;
+    }
+
+    private void closeHandler(AutoCloseable handler) {
+        try {
+            handler.close();
+        } catch (Exception e) {
+            LOGGER.warn("Closing handler {} has failed", handler, e);
+        }
+    }
+
+    private static boolean await(List<CompletableFuture<Void>> futures, Duration timeout) throws InterruptedException {
+        try {
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        } catch (ExecutionException e) {
+            LOGGER.warn("Shutting down NATS client has failed", e);
+            return false;
+        }
+    }
+
+    private static void startShutdownThread(Runnable task) {
+        Thread.ofVirtual().name("nats-shutdown").start(task);
+    }
+
+    private void registerCloseableHandler(MessageHandler handler) {
+        if (handler instanceof AutoCloseable closeable) {
+            closeableHandlers.add(closeable);
+        }
+    }
+
     /**
      * Closes all registered dispatchers.
      */
     protected void closeDispatchers() {
         dispatchers.forEach((name, dispatcher) -> {
             LOGGER.info("Closing dispatcher for consumer with name {}", name);
-            connection.closeDispatcher(dispatcher);
+            dispatcherConnections.getOrDefault(name, connection).closeDispatcher(dispatcher);
         });
         dispatchers.clear();
+        dispatcherConnections.clear();
+    }
+
+    /**
+     * Closes every connection of the pool.
+     *
+     * @throws InterruptedException In case closing a connection has been interrupted
+     */
+    protected void closeConnections() throws InterruptedException {
+        for (var pooled : connections) {
+            pooled.close();
+        }
+        connections.clear();
+        jetStreams.clear();
+    }
+
+    /**
+     * Picks the connection of the pool the next subscription is assigned to.
+     *
+     * @return The index of the connection in the pool
+     */
+    protected int nextConnectionIndex() {
+        return connectionAssignment[Math.floorMod(nextConnection.getAndIncrement(), connectionAssignment.length)];
+    }
+
+    /**
+     * Creates the order in which subscriptions are assigned to the connections of the pool. Without weights, every
+     * connection is assigned in turn. With weights, each connection is assigned in proportion to its weight, spread
+     * evenly over the cycle following the smooth weighted round-robin scheme, so that heavier connections are not
+     * assigned in bursts.
+     *
+     * @param poolSize The number of connections in the pool
+     * @param weights The weight of every connection, or an empty list for plain round-robin
+     * @return The indexes of the connections in assignment order
+     * @throws NatsException In case the weights do not match the pool
+     */
+    private static int[] createConnectionAssignment(int poolSize, List<Integer> weights) {
+        if (poolSize < 1) {
+            throw new NatsException(String.format("Connection pool size must be positive but was %d", poolSize));
+        }
+        if (weights.isEmpty()) {
+            return IntStream.range(0, poolSize).toArray();
+        }
+        if (weights.size() != poolSize || weights.stream().anyMatch(weight -> weight < 1)) {
+            throw new NatsException(String.format("Expected %d positive connection weights but got %s", poolSize, weights));
+        }
+        var total = weights.stream().mapToInt(Integer::intValue).sum();
+        var current = new int[poolSize];
+        var assignment = new int[total];
+        for (var slot = 0; slot < total; slot++) {
+            var selected = 0;
+            for (var i = 0; i < poolSize; i++) {
+                current[i] += weights.get(i);
+                if (current[i] > current[selected]) {
+                    selected = i;
+                }
+            }
+            current[selected] -= total;
+            assignment[slot] = selected;
+        }
+        return assignment;
     }
 
     /**
-     * Creates the options for connecting to the NATS server.
+     * Creates the options for connecting to the NATS server, tuned by the configured options and preset.
      *
      * @return The options for connecting to the NATS server
      */
@@ -181,17 +751,18 @@ public class NatsClient {
         var optionsBuilder = new Options.Builder()
                 .errorListener(errorListener)
                 .connectionListener(connectionListener)
-                .maxReconnects(configuration.getMaxReconnects());
+                .maxReconnects(settings.maxReconnects());
 
-        if (configuration.useDispatcherWithExecutor()) {
+        if (settings.useDispatcherWithExecutor()) {
             optionsBuilder.useDispatcherWithExecutor();
             optionsBuilder.executor(natsExecutor());
         }
 
-        if (configuration.traceConnection()) {
+        if (settings.traceConnection()) {
             optionsBuilder.traceConnection();
         }
-        configuration.getServerUrls().forEach(optionsBuilder::server);
+        settings.options().apply(optionsBuilder);
+        settings.serverUrls().forEach(optionsBuilder::server);
         return optionsBuilder.build();
     }
 
@@ -202,15 +773,177 @@ public class NatsClient {
      * @return The consumer name
      */
     protected String getConsumerName(NatsConsumerConfiguration configuration) {
-        String name;
+        String name = null;
         if (StringUtils.isNotEmpty(configuration.consumerConfiguration().durable())) {
             name = configuration.consumerConfiguration().durable();
-        } else {
+        } else if (configuration.natsPushSubscriberConfiguration() != null) {
             name = configuration.natsPushSubscriberConfiguration().name();
         }
         return name;
     }
 
+    /**
+     * Resolves the name of the stream a pull consumer will be created on. The explicitly configured stream takes
+     * precedence, then the snapshot of existing streams if available, otherwise the server is asked for the single
+     * stream that captures the first filter subject.
+     *
+     * @param configuration The configuration that will be used to create the pull consumer
+     * @param snapshot The snapshot of the streams that exist on the server, may be null
+     * @return The stream name
+     * @throws NatsException In case no single stream can be resolved for the filter subjects
+     */
+    protected String resolveStreamName(NatsConsumerConfiguration configuration, NatsConsumerSnapshot snapshot) throws IOException, JetStreamApiException {
+        var stream = configuration.natsPullSubscriberConfiguration().stream();
+        if (StringUtils.isNotEmpty(stream)) {
+            return stream;
+        }
+        var subject = configuration.consumerConfiguration().filterSubjects().getFirst();
+        if (snapshot != null && snapshot.findStream(subject) != null) {
+            return snapshot.findStream(subject);
+        }
+        var streams = connection.jetStreamManagement().getStreamNames(subject);
+        if (streams.size() != 1) {
+            throw new NatsException(String.format("Expected exactly one stream for subject %s but found %s", subject, streams));
+        }
+        return streams.getFirst();
+    }
+
+    /**
+     * Creates the consume options of a pull consumer from the configuration. Values that are not configured fall
+     * back to the defaults of the NATS client.
+     *
+     * @param configuration The configuration that will be used to create the consume options
+     * @return The consume options
+     */
+    protected ConsumeOptions createConsumeOptions(NatsConsumerConfiguration configuration) {
+        var pullConfiguration = configuration.natsPullSubscriberConfiguration();
+        var builder = ConsumeOptions.builder();
+        if (pullConfiguration.batchSize() != null) {
+            builder.batchSize(pullConfiguration.batchSize());
+        }
+        if (pullConfiguration.batchBytes() != null) {
+            builder.batchBytes(pullConfiguration.batchBytes());
+        }
+        if (pullConfiguration.expiresIn() != null) {
+            builder.expiresIn(pullConfiguration.expiresIn().toMillis());
+        }
+        if (pullConfiguration.thresholdPercent() != null) {
+            builder.thresholdPercent(pullConfiguration.thresholdPercent());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Creates the push subscribe options from the configuration, binding to the existing consumer in case it exists
+     * on the server. A subscription does not modify an existing durable consumer, so one whose configuration differs
+     * from the desired one is updated through the JetStream management API of the subscribing connection before being
+     * bound to.
+     *
+     * @param subscriptionConnection The connection the consumer is subscribed on
+     * @param configuration The configuration that will be used to create the push subscribe options
+     * @param snapshot The snapshot of the consumers that exist on the server, may be null
+     * @return The push subscribe options
+     * @throws IOException In case the consumer could not be updated
+     * @throws JetStreamApiException In case the server rejected the update of the consumer
+     */
+    protected PushSubscribeOptions createPushSubscribeOptions(Connection subscriptionConnection, NatsConsumerConfiguration configuration,
+                                                              NatsConsumerSnapshot snapshot) throws IOException, JetStreamApiException {
+        var existing = findExistingConsumer(configuration, snapshot);
+        if (existing == null) {
+            return createPushSubscribeOptions(configuration);
+        }
+        if (!isUnchanged(configuration, existing)) {
+            existing = subscriptionConnection.jetStreamManagement().addOrUpdateConsumer(existing.getStreamName(),
+                    createPushConsumerUpdate(subscriptionConnection, configuration, existing.getConsumerConfiguration()));
+        }
+        return PushSubscribeOptions.bind(existing.getStreamName(), existing.getName());
+    }
+
+    /**
+     * Creates the configuration an existing push consumer is updated to. It starts from the configuration the server
+     * holds, so that settings left unspecified keep their current value, and overlays the specified settings along with
+     * the deliver subject and group, without which the server would take the update for one to a pull consumer.
+     *
+     * @param subscriptionConnection The connection the consumer is subscribed on, creating a deliver subject if the
+     *                               consumer has none
+     * @param configuration The desired configuration of the consumer
+     * @param existing The configuration of the consumer as held by the server
+     * @return The consumer configuration to update the consumer to
+     */
+    protected ConsumerConfiguration createPushConsumerUpdate(Connection subscriptionConnection, NatsConsumerConfiguration configuration,
+                                                             ConsumerConfiguration existing) {
+        var consumer = configuration.consumerConfiguration();
+        var push = configuration.natsPushSubscriberConfiguration();
+        var builder = ConsumerConfiguration.builder(existing);
+        overlay(consumer.filterSubjects(), builder::filterSubjects);
+        overlay(consumer.ackPolicy(), builder::ackPolicy);
+        overlay(consumer.ackAwait(), builder::ackWait);
+        overlay(consumer.deliverPolicy(), builder::deliverPolicy);
+        overlay(consumer.optStartSeq(), builder::startSequence);
+        overlay(consumer.optStartTime(), builder::startTime);
+        overlay(consumer.description(), builder::description);
+        overlay(consumer.inactiveThreshold(), builder::inactiveThreshold);
+        overlay(consumer.maxAckPending(), builder::maxAckPending);
+        overlay(consumer.maxDeliver(), builder::maxDeliver);
+        overlay(consumer.replayPolicy(), builder::replayPolicy);
+        overlay(consumer.replicas(), builder::numReplicas);
+        overlay(consumer.memoryStorage(), builder::memStorage);
+        overlay(consumer.sampleFrequency(), builder::sampleFrequency);
+        overlay(consumer.flowControl(), builder::flowControl);
+        overlay(consumer.idleHeartbeat(), builder::idleHeartbeat);
+        overlay(consumer.rateLimit(), builder::rateLimit);
+        overlay(consumer.headersOnly(), builder::headersOnly);
+        return builder
+                .deliverSubject(StringUtils.firstNonEmpty(push.deliverSubject(), existing.getDeliverSubject(), subscriptionConnection.createInbox()))
+                .deliverGroup(push.deliverGroup())
+                .build();
+    }
+
+    /**
+     * Finds the durable consumer of the configuration in the snapshot and returns it in case its configuration on the
+     * server matches the desired one, so that it can be bound to without being created or updated.
+     *
+     * @param configuration The desired consumer configuration
+     * @param snapshot The snapshot of the consumers that exist on the server, may be null
+     * @return The existing consumer, or null if it is missing or has to be created or updated
+     */
+    protected ConsumerInfo findUnchangedConsumer(NatsConsumerConfiguration configuration, NatsConsumerSnapshot snapshot) {
+        var existing = findExistingConsumer(configuration, snapshot);
+        return existing != null && isUnchanged(configuration, existing) ? existing : null;
+    }
+
+    /**
+     * Finds the durable consumer of the configuration in the snapshot.
+     *
+     * @param configuration The desired consumer configuration
+     * @param snapshot The snapshot of the consumers that exist on the server, may be null
+     * @return The existing consumer, or null if it is missing
+     */
+    protected ConsumerInfo findExistingConsumer(NatsConsumerConfiguration configuration, NatsConsumerSnapshot snapshot) {
+        var durable = configuration.consumerConfiguration().durable();
+        if (snapshot == null || StringUtils.isEmpty(durable)) {
+            return null;
+        }
+        var stream = configuration.natsPullSubscriberConfiguration() != null && StringUtils.isNotEmpty(configuration.natsPullSubscriberConfiguration().stream())
+                ? configuration.natsPullSubscriberConfiguration().stream()
+                : snapshot.findStream(configuration.consumerConfiguration().filterSubjects().getFirst());
+        var existing = stream == null ? null : snapshot.findConsumer(stream, durable);
+        if (existing == null) {
+            LOGGER.info("NATS consumer {} does not exist yet and will be created", durable);
+        }
+        return existing;
+    }
+
+    private boolean isUnchanged(NatsConsumerConfiguration configuration, ConsumerInfo existing) {
+        var changes = NatsConsumerDiff.changes(configuration, existing.getConsumerConfiguration());
+        if (!changes.isEmpty()) {
+            LOGGER.info("NATS consumer {} on stream {} differs in {} and will be updated", existing.getName(), existing.getStreamName(), changes);
+            return false;
+        }
+        LOGGER.debug("Binding to unchanged NATS consumer {} on stream {}", existing.getName(), existing.getStreamName());
+        return true;
+    }
+
     /**
      * Creates the push subscribe options from the configuration.
      *
@@ -233,7 +966,7 @@ public class NatsClient {
      * @return The consumer configuration
      */
     protected ConsumerConfiguration createConsumerConfiguration(NatsConsumerConfiguration configuration) {
-        return ConsumerConfiguration.builder()
+        var builder = ConsumerConfiguration.builder()
                 .durable(configuration.consumerConfiguration().durable())
                 .filterSubjects(configuration.consumerConfiguration().filterSubjects())
                 .ackPolicy(configuration.consumerConfiguration().ackPolicy())
@@ -249,12 +982,42 @@ public class NatsClient {
                 .numReplicas(configuration.consumerConfiguration().replicas())
                 .memStorage(configuration.consumerConfiguration().memoryStorage())
                 .sampleFrequency(configuration.consumerConfiguration().sampleFrequency())
-                .build();
+                .headersOnly(configuration.consumerConfiguration().headersOnly());
+        if (configuration.consumerConfiguration().flowControl() != null) {
+            builder.flowControl(configuration.consumerConfiguration().flowControl());
+        }
+        if (configuration.consumerConfiguration().idleHeartbeat() != null) {
+            builder.idleHeartbeat(configuration.consumerConfiguration().idleHeartbeat());
+        }
+        if (configuration.consumerConfiguration().rateLimit() != null) {
+            builder.rateLimit(configuration.consumerConfiguration().rateLimit());
+        }
+        if (configuration.consumerConfiguration().maxBatch() != null) {
+            builder.maxBatch(configuration.consumerConfiguration().maxBatch());
+        }
+        if (configuration.consumerConfiguration().maxExpires() != null) {
+            builder.maxExpires(configuration.consumerConfiguration().maxExpires());
+        }
+        if (configuration.consumerConfiguration().maxPullWaiting() != null) {
+            builder.maxPullWaiting(configuration.consumerConfiguration().maxPullWaiting());
+        }
+        return builder.build();
+    }
+
+    private static <T> void overlay(T value, Consumer<T> setter) {
+        if (value != null) {
+            setter.accept(value);
+        }
     }
 
     private ExecutorService natsExecutor() {
-        return Executors.newFixedThreadPool(configuration.getExecutorPoolSize(), Thread.ofVirtual()
-                .name(configuration.getExecutorNamingPrefix(), 0)
+        if (settings.virtualThreadPerMessage()) {
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual()
+                    .name(settings.executorNamingPrefix(), 0)
+                    .factory());
+        }
+        return Executors.newFixedThreadPool(settings.executorPoolSize(), Thread.ofVirtual()
+                .name(settings.executorNamingPrefix(), 0)
                 .factory());
     }
 
@@ -0,0 +1,298 @@
+package com.ariskourt.nats.ack;
+
+import io.nats.client.Connection;
+import io.nats.client.Message;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Acknowledger that takes acknowledgments off the handler threads. Requests are queued and a single flusher thread
+ * sends them in bursts of up to {@code maxBurst}, flushing each connection once per burst instead of once per message.
+ * Bursts form naturally under load, so an idle pipeline sends a lone acknowledgment right away and never holds it back
+ * towards the consumer's ack wait.
+ * <p>
+ * When a checkpoint interval is configured, every n-th acknowledgment is sent with {@link Message#ackSync(Duration)},
+ * confirming that the server has received it and, since they travel on the same connection, all earlier ones too.
+ * </p>
+ * <p>
+ * The queue is bounded by {@code maxQueued}. Once it is full, requests are sent on the calling thread instead, which
+ * slows the handlers down to the pace of the connection rather than letting the queue, and the time its requests wait
+ * towards the ack wait of their consumers, grow without limit.
+ * </p>
+ */
+public class NatsAckPipeline implements NatsAcknowledger, AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NatsAckPipeline.class);
+
+    private static final Duration POLL_TIMEOUT = Duration.ofMillis(100);
+
+    /**
+     * Default maximum number of requests queued before they are sent on the calling thread.
+     */
+    public static final int DEFAULT_MAX_QUEUED = 65_536;
+
+    private enum AckType { ACK, NAK, TERM }
+
+    private record AckRequest(Message message, AckType type, Duration delay, long enqueuedAt) {}
+
+    private final BlockingQueue<AckRequest> queue;
+    private final int maxBurst;
+    private final int checkpointInterval;
+    private final Duration checkpointTimeout;
+
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder sentInline = new LongAdder();
+    private final LongAdder latencyNanos = new LongAdder();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+    private final AtomicLong sinceCheckpoint = new AtomicLong();
+
+    private volatile boolean running;
+    private Thread flusher;
+
+    /**
+     * Constructor for creating an instance of NatsAckPipeline.
+     *
+     * @param maxBurst The maximum number of acknowledgments sent before the connection is flushed
+     * @param checkpointInterval The number of acknowledgments after which one is sent synchronously, or zero to never
+     *                           wait for the server
+     * @param checkpointTimeout The time to wait for the server to confirm a checkpoint acknowledgment
+     */
+    public NatsAckPipeline(int maxBurst, int checkpointInterval, Duration checkpointTimeout) {
+        this(maxBurst, checkpointInterval, checkpointTimeout, DEFAULT_MAX_QUEUED);
+    }
+
+    /**
+     * Constructor for creating an instance of NatsAckPipeline with a bounded queue.
+     *
+     * @param maxBurst The maximum number of acknowledgments sent before the connection is flushed
+     * @param checkpointInterval The number of acknowledgments after which one is sent synchronously, or zero to never
+     *                           wait for the server
+     * @param checkpointTimeout The time to wait for the server to confirm a checkpoint acknowledgment
+     * @param maxQueued The maximum number of requests queued before they are sent on the calling thread
+     */
+    public NatsAckPipeline(int maxBurst, int checkpointInterval, Duration checkpointTimeout, int maxQueued) {
+        this.queue = new LinkedBlockingQueue<>(Math.max(1, maxQueued));
+        this.maxBurst = Math.max(1, maxBurst);
+        this.checkpointInterval = checkpointInterval;
+        this.checkpointTimeout = checkpointTimeout;
+    }
+
+    /**
+     * Starts the flusher thread of this pipeline. Until the pipeline is started, requests are sent on the calling
+     * thread.
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        flusher = Thread.ofVirtual().name("nats-ack-pipeline").start(this::run);
+    }
+
+    @Override
+    public void ack(Message message) {
+        enqueue(message, AckType.ACK);
+    }
+
+    @Override
+    public void nak(Message message) {
+        enqueue(message, AckType.NAK);
+    }
+
+    @Override
+    public void nakWithDelay(Message message, Duration delay) {
+        enqueue(message, AckType.NAK, delay);
+    }
+
+    @Override
+    public void term(Message message) {
+        enqueue(message, AckType.TERM);
+    }
+
+    /**
+     * Gets the number of requests waiting to be sent.
+     *
+     * @return the number of pending requests
+     */
+    public int getPendingAcks() {
+        return queue.size();
+    }
+
+    /**
+     * Gets the number of requests that have been sent.
+     *
+     * @return the number of sent requests
+     */
+    public long getSentAcks() {
+        return sent.sum();
+    }
+
+    /**
+     * Gets the number of requests that could not be sent.
+     *
+     * @return the number of failed requests
+     */
+    public long getFailedAcks() {
+        return failed.sum();
+    }
+
+    /**
+     * Gets the number of requests that have been sent on the calling thread because the queue was full.
+     *
+     * @return the number of requests sent inline
+     */
+    public long getInlineAcks() {
+        return sentInline.sum();
+    }
+
+    /**
+     * Gets the accumulated time requests spent between being queued and being sent.
+     *
+     * @return the total ack latency in nanoseconds
+     */
+    public long getTotalAckLatencyNanos() {
+        return latencyNanos.sum();
+    }
+
+    /**
+     * Gets the longest time a request spent between being queued and being sent.
+     *
+     * @return the maximum ack latency in nanoseconds
+     */
+    public long getMaxAckLatencyNanos() {
+        return maxLatencyNanos.get();
+    }
+
+    /**
+     * Stops accepting work on the flusher thread and waits for it to send every request still queued.
+     */
+    @Override
+    public void close() {
+        Thread current;
+        synchronized (this) {
+            running = false;
+            current = flusher;
+            flusher = null;
+        }
+        if (current != null) {
+            try {
+                current.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        var remaining = new ArrayList<AckRequest>();
+        queue.drainTo(remaining);
+        send(remaining);
+    }
+
+    private void enqueue(Message message, AckType type) {
+        enqueue(message, type, null);
+    }
+
+    /**
+     * Queues a request for the flusher thread, or sends it on the calling thread while the pipeline is not running or
+     * its queue is full. A request queued while the pipeline is being closed may miss the final drain, so it is taken
+     * back and sent here unless the flusher or the drain has already picked it up.
+     */
+    private void enqueue(Message message, AckType type, Duration delay) {
+        var request = new AckRequest(message, type, delay, System.nanoTime());
+        if (!running) {
+            send(List.of(request));
+            return;
+        }
+        if (!queue.offer(request)) {
+            sentInline.increment();
+            send(List.of(request));
+            return;
+        }
+        if (!running && queue.remove(request)) {
+            send(List.of(request));
+        }
+    }
+
+    private void run() {
+        var burst = new ArrayList<AckRequest>(maxBurst);
+        while (running || !queue.isEmpty()) {
+            try {
+                var first = queue.poll(POLL_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                burst.add(first);
+                queue.drainTo(burst, maxBurst - 1);
+                send(burst);
+                burst.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void send(List<AckRequest> burst) {
+        if (burst.isEmpty()) {
+            return;
+        }
+        for (var request : burst) {
+            try {
+                switch (request.type()) {
+                    case ACK -> acknowledge(request.message());
+                    case NAK -> {
+                        if (request.delay() == null) {
+                            request.message().nak();
+                        } else {
+                            request.message().nakWithDelay(request.delay());
+                        }
+                    }
+                    case TERM -> request.message().term();
+                }
+                var latency = System.nanoTime() - request.enqueuedAt();
+                latencyNanos.add(latency);
+                maxLatencyNanos.accumulateAndGet(latency, Math::max);
+                sent.increment();
+            } catch (RuntimeException | TimeoutException e) {
+                failed.increment();
+                LOGGER.warn("Sending {} for message on subject {} has failed", request.type(), request.message().getSubject(), e);
+            } catch (InterruptedException e) {
+                failed.increment();
+                Thread.currentThread().interrupt();
+            }
+        }
+        burst.stream()
+                .map(request -> request.message().getConnection())
+                .filter(Objects::nonNull)
+                .distinct()
+                .forEach(this::flush);
+    }
+
+    private void acknowledge(Message message) throws TimeoutException, InterruptedException {
+        if (checkpointInterval > 0 && sinceCheckpoint.incrementAndGet() % checkpointInterval == 0) {
+            message.ackSync(checkpointTimeout);
+        } else {
+            message.ack();
+        }
+    }
+
+    private void flush(Connection connection) {
+        try {
+            connection.flushBuffer();
+        } catch (IOException | RuntimeException e) {
+            LOGGER.debug("Flushing NATS connection after sending acknowledgments has failed", e);
+        }
+    }
+
+}
@@ -0,0 +1,44 @@
+package com.ariskourt.nats.ack;
+
+import io.nats.client.Message;
+
+import java.time.Duration;
+
+/**
+ * Interface representing a component that acknowledges JetStream messages on behalf of their handlers.
+ */
+public interface NatsAcknowledger {
+
+    /**
+     * Acknowledges the message as successfully processed
+     *
+     * @param message The message to acknowledge
+     */
+    void ack(Message message);
+
+    /**
+     * Negatively acknowledges the message, requesting its redelivery
+     *
+     * @param message The message to negatively acknowledge
+     */
+    void nak(Message message);
+
+    /**
+     * Negatively acknowledges the message, requesting its redelivery once the delay has passed. Acknowledgers that do
+     * not batch their requests send it right away.
+     *
+     * @param message The message to negatively acknowledge
+     * @param delay The delay after which the message is redelivered
+     */
+    default void nakWithDelay(Message message, Duration delay) {
+        message.nakWithDelay(delay);
+    }
+
+    /**
+     * Terminates the message, instructing the server to never redeliver it
+     *
+     * @param message The message to terminate
+     */
+    void term(Message message);
+
+}
@@ -0,0 +1,68 @@
+package com.ariskourt.nats.ack;
+
+import io.nats.client.Message;
+import io.nats.client.MessageHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Message handler that acknowledges each message once its delegate has handled it and negatively acknowledges it in
+ * case the delegate throws, leaving the actual sending to a {@link NatsAcknowledger}. It can also leave failed messages
+ * unacknowledged and rethrow, so that they are redelivered once their ack wait has passed, which is what the automatic
+ * acknowledgment of a push subscription does.
+ */
+public class NatsAutoAckMessageHandler implements MessageHandler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NatsAutoAckMessageHandler.class);
+
+    private final MessageHandler delegate;
+    private final NatsAcknowledger acknowledger;
+    private final boolean nakOnFailure;
+
+    /**
+     * Constructor for creating an instance of NatsAutoAckMessageHandler.
+     *
+     * @param delegate The message handler processing the messages
+     * @param acknowledger The acknowledger sending the acknowledgments
+     */
+    public NatsAutoAckMessageHandler(MessageHandler delegate, NatsAcknowledger acknowledger) {
+        this(delegate, acknowledger, true);
+    }
+
+    /**
+     * Constructor for creating an instance of NatsAutoAckMessageHandler.
+     *
+     * @param delegate The message handler processing the messages
+     * @param acknowledger The acknowledger sending the acknowledgments
+     * @param nakOnFailure Whether a message the delegate throws on is negatively acknowledged, or left unacknowledged
+     *                     with the exception rethrown
+     */
+    public NatsAutoAckMessageHandler(MessageHandler delegate, NatsAcknowledger acknowledger, boolean nakOnFailure) {
+        this.delegate = delegate;
+        this.acknowledger = acknowledger;
+        this.nakOnFailure = nakOnFailure;
+    }
+
+    /**
+     * Passes the message to the delegate and acknowledges it depending on the outcome.
+     *
+     * @param message The NATS message
+     * @throws InterruptedException In case the delegate has been interrupted
+     * @throws RuntimeException In case the delegate throws and failed messages are not negatively acknowledged
+     */
+    @Override
+    public void onMessage(Message message) throws InterruptedException {
+        try {
+            delegate.onMessage(message);
+        } catch (RuntimeException e) {
+            if (!nakOnFailure) {
+                throw e;
+            }
+            LOGGER.error("Handling message on subject {} has failed", message.getSubject(), e);
+            acknowledger.nak(message);
+            return;
+        }
+        acknowledger.ack(message);
+    }
+
+}
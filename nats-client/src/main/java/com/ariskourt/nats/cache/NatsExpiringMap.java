@@ -0,0 +1,77 @@
+package com.ariskourt.nats.cache;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Bounded, concurrent map whose entries expire after a time to live. Entries are evicted in the order they were put,
+ * once they have expired or the map has outgrown its bound, so that eviction costs a look at the oldest entries
+ * rather than a scan of the whole map.
+ *
+ * @param <K> The type of the keys
+ * @param <V> The type of the values
+ */
+public class NatsExpiringMap<K, V> {
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final Map<K, Entry<K, V>> entries = new ConcurrentHashMap<>();
+    private final Queue<Entry<K, V>> order = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Constructor for creating an instance of NatsExpiringMap.
+     *
+     * @param maxEntries The maximum number of entries held
+     * @param ttl The duration entries are held for
+     */
+    public NatsExpiringMap(int maxEntries, Duration ttl) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    /**
+     * Gets the value of a key.
+     *
+     * @param key The key
+     * @return the value, or null if none is held or it has expired
+     */
+    public V get(K key) {
+        var entry = entries.get(key);
+        return entry != null && System.nanoTime() - entry.putAt() < ttlNanos ? entry.value() : null;
+    }
+
+    /**
+     * Puts the value of a key, replacing and renewing any value it has, and evicts the entries that have expired or
+     * exceed the bound of the map.
+     *
+     * @param key The key
+     * @param value The value
+     */
+    public void put(K key, V value) {
+        var now = System.nanoTime();
+        var entry = new Entry<>(key, value, now);
+        entries.put(key, entry);
+        order.add(entry);
+        Entry<K, V> head;
+        while ((head = order.peek()) != null && (now - head.putAt() >= ttlNanos || entries.size() > maxEntries)) {
+            if (order.remove(head)) {
+                entries.remove(head.key(), head);
+            }
+        }
+    }
+
+    /**
+     * Gets the number of entries held, including those that have expired but have not been evicted yet.
+     *
+     * @return the size of the map
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    private record Entry<K, V>(K key, V value, long putAt) {}
+
+}
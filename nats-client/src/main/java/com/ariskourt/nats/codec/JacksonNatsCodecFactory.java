@@ -0,0 +1,61 @@
+package com.ariskourt.nats.codec;
+
+import com.ariskourt.nats.exception.NatsException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.IOException;
+
+/**
+ * {@link NatsCodecFactory} implementation producing JSON codecs backed by Jackson. Each codec holds an
+ * {@link ObjectReader} and {@link ObjectWriter} bound to its type, so payloads are parsed straight from their bytes.
+ */
+public class JacksonNatsCodecFactory implements NatsCodecFactory {
+
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Constructor for creating an instance of JacksonNatsCodecFactory.
+     *
+     * @param objectMapper The object mapper used to build the readers and writers of the codecs
+     */
+    public JacksonNatsCodecFactory(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Creates a JSON codec for the given type.
+     *
+     * @param type The class of the values handled by the codec
+     * @param <T> The type of values handled by the codec
+     * @return A JSON codec for the given type
+     */
+    @Override
+    public <T> NatsCodec<T> create(Class<T> type) {
+        return new JacksonNatsCodec<>(type, objectMapper.readerFor(type), objectMapper.writerFor(type));
+    }
+
+    private record JacksonNatsCodec<T>(Class<T> type, ObjectReader reader, ObjectWriter writer) implements NatsCodec<T> {
+
+        @Override
+        public T decode(byte[] data) {
+            try {
+                return reader.readValue(data);
+            } catch (IOException e) {
+                throw new NatsException(String.format("Decoding NATS payload to type %s failed", type.getName()), e);
+            }
+        }
+
+        @Override
+        public byte[] encode(T value) {
+            try {
+                return writer.writeValueAsBytes(value);
+            } catch (IOException e) {
+                throw new NatsException(String.format("Encoding value of type %s to NATS payload failed", type.getName()), e);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,27 @@
+package com.ariskourt.nats.codec;
+
+/**
+ * Interface representing a codec that converts NATS message payloads from and to typed values without going through
+ * an intermediate string representation.
+ *
+ * @param <T> The type of value handled by this codec
+ */
+public interface NatsCodec<T> {
+
+    /**
+     * Decodes the raw bytes of a message payload into a typed value
+     *
+     * @param data The raw payload bytes
+     * @return The decoded value
+     */
+    T decode(byte[] data);
+
+    /**
+     * Encodes a typed value into the raw bytes of a message payload
+     *
+     * @param value The value to encode
+     * @return The encoded payload bytes
+     */
+    byte[] encode(T value);
+
+}
@@ -0,0 +1,18 @@
+package com.ariskourt.nats.codec;
+
+/**
+ * Interface representing a factory of {@link NatsCodec} instances for a given type.
+ */
+public interface NatsCodecFactory {
+
+    /**
+     * Creates a codec for the given type. Creating a codec may be expensive, which is why callers are expected to
+     * create it once and reuse it, see {@link NatsCodecRegistry}.
+     *
+     * @param type The class of the values handled by the codec
+     * @param <T> The type of values handled by the codec
+     * @return A codec for the given type
+     */
+    <T> NatsCodec<T> create(Class<T> type);
+
+}
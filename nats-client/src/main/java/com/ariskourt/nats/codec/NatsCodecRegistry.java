@@ -0,0 +1,36 @@
+package com.ariskourt.nats.codec;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry that creates a {@link NatsCodec} once per type using a {@link NatsCodecFactory} and caches it for all
+ * subsequent lookups.
+ */
+public class NatsCodecRegistry {
+
+    private final NatsCodecFactory codecFactory;
+    private final Map<Class<?>, NatsCodec<?>> codecs = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor for creating an instance of NatsCodecRegistry.
+     *
+     * @param codecFactory The factory used to create codecs for types that have not been seen before
+     */
+    public NatsCodecRegistry(NatsCodecFactory codecFactory) {
+        this.codecFactory = codecFactory;
+    }
+
+    /**
+     * Gets the codec for the given type, creating and caching it on first use.
+     *
+     * @param type The class of the values handled by the codec
+     * @param <T> The type of values handled by the codec
+     * @return The cached codec for the given type
+     */
+    @SuppressWarnings("unchecked")
+    public <T> NatsCodec<T> codec(Class<T> type) {
+        return (NatsCodec<T>) codecs.computeIfAbsent(type, codecFactory::create);
+    }
+
+}
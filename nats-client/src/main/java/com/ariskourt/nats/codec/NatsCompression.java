@@ -0,0 +1,360 @@
+package com.ariskourt.nats.codec;
+
+import com.ariskourt.nats.exception.NatsException;
+import io.nats.client.Message;
+import io.nats.client.impl.Headers;
+
+import java.io.ByteArrayOutputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Transparent compression of message payloads. Payloads published to a subject are deflated once they reach the
+ * threshold of the subject, and marked with the {@link #HEADER} header so that consumers inflate them again before
+ * they are decoded. Payloads that do not shrink are published as they are.
+ * <p>
+ * Deflaters and inflaters hold native memory, so they are pooled and reset between messages instead of being created
+ * for each one. The pools are bounded, and instances created beyond their capacity under contention are released as
+ * soon as they are returned.
+ * </p>
+ * <p>
+ * Inflation stops once a payload exceeds the maximum decompressed size, which defaults to the default maximum payload
+ * of the server, so that a small compressed payload cannot exhaust the memory of a consumer.
+ * </p>
+ */
+public class NatsCompression implements NatsPayloadReader, AutoCloseable {
+
+    /**
+     * The header marking compressed payloads.
+     */
+    public static final String HEADER = "Nats-Compression";
+
+    /**
+     * The value of the {@link #HEADER} header for payloads compressed with zlib-wrapped deflate.
+     */
+    public static final String DEFLATE = "deflate";
+
+    /**
+     * Default compression level, favouring speed over ratio.
+     */
+    public static final int DEFAULT_LEVEL = Deflater.BEST_SPEED;
+
+    /**
+     * Default payload size in bytes from which payloads are compressed.
+     */
+    public static final int DEFAULT_THRESHOLD = 1024;
+
+    /**
+     * Default number of deflaters and inflaters kept in each pool.
+     */
+    public static final int DEFAULT_POOL_SIZE = Runtime.getRuntime().availableProcessors() * 2;
+
+    /**
+     * Default maximum size in bytes of a decompressed payload, the default maximum payload of the server.
+     */
+    public static final int DEFAULT_MAX_DECOMPRESSED_SIZE = 1024 * 1024;
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+    private static final int MAX_CACHED_SUBJECTS = 10_000;
+
+    private final boolean enabled;
+    private final int level;
+    private final int threshold;
+    private final Map<String, Integer> subjectThresholds;
+    private final int maxDecompressedSize;
+    private final Map<String, Integer> resolvedThresholds = new ConcurrentHashMap<>();
+    private final BlockingQueue<Deflater> deflaters;
+    private final BlockingQueue<Inflater> inflaters;
+
+    private final LongAdder compressedMessages = new LongAdder();
+    private final LongAdder compressionInputBytes = new LongAdder();
+    private final LongAdder compressionOutputBytes = new LongAdder();
+    private final LongAdder compressionNanos = new LongAdder();
+    private final LongAdder decompressedMessages = new LongAdder();
+    private final LongAdder decompressionNanos = new LongAdder();
+    private final LongAdder oversizedMessages = new LongAdder();
+
+    /**
+     * Constructor for creating an instance of NatsCompression that only decompresses.
+     */
+    public NatsCompression() {
+        this(false, DEFAULT_LEVEL, DEFAULT_THRESHOLD, Map.of(), DEFAULT_POOL_SIZE, DEFAULT_MAX_DECOMPRESSED_SIZE);
+    }
+
+    /**
+     * Constructor for creating an instance of NatsCompression.
+     *
+     * @param enabled Whether published payloads are compressed. Compressed payloads are decompressed regardless
+     * @param level The deflate compression level, from 0 to 9
+     * @param threshold The payload size in bytes from which payloads are compressed
+     * @param subjectThresholds The thresholds of subjects deviating from the default one, keyed by subject pattern
+     *                          that may contain wildcards and are matched in order. A negative threshold disables
+     *                          compression for the subject
+     * @param poolSize The number of deflaters and inflaters kept in each pool
+     */
+    public NatsCompression(boolean enabled, int level, int threshold, Map<String, Integer> subjectThresholds, int poolSize) {
+        this(enabled, level, threshold, subjectThresholds, poolSize, DEFAULT_MAX_DECOMPRESSED_SIZE);
+    }
+
+    /**
+     * Constructor for creating an instance of NatsCompression with a maximum decompressed size.
+     *
+     * @param enabled Whether published payloads are compressed. Compressed payloads are decompressed regardless
+     * @param level The deflate compression level, from 0 to 9
+     * @param threshold The payload size in bytes from which payloads are compressed
+     * @param subjectThresholds The thresholds of subjects deviating from the default one, keyed by subject pattern
+     *                          that may contain wildcards and are matched in order. A negative threshold disables
+     *                          compression for the subject
+     * @param poolSize The number of deflaters and inflaters kept in each pool
+     * @param maxDecompressedSize The maximum size in bytes of a decompressed payload
+     */
+    public NatsCompression(boolean enabled, int level, int threshold, Map<String, Integer> subjectThresholds, int poolSize,
+                           int maxDecompressedSize) {
+        this.enabled = enabled;
+        this.level = level;
+        this.threshold = threshold;
+        this.subjectThresholds = new LinkedHashMap<>(subjectThresholds);
+        this.maxDecompressedSize = Math.max(1, maxDecompressedSize);
+        this.deflaters = new ArrayBlockingQueue<>(Math.max(1, poolSize));
+        this.inflaters = new ArrayBlockingQueue<>(Math.max(1, poolSize));
+    }
+
+    /**
+     * Compresses a payload published to a subject, if it reaches the threshold of the subject and shrinks.
+     *
+     * @param subject The subject the payload is published to
+     * @param headers The headers of the message, may be null. They are copied rather than modified
+     * @param data The payload of the message
+     * @return The headers and payload to publish
+     */
+    public Payload compress(String subject, Headers headers, byte[] data) {
+        if (!enabled || data == null || (headers != null && headers.containsKey(HEADER))) {
+            return new Payload(headers, data);
+        }
+        var subjectThreshold = threshold(subject);
+        if (subjectThreshold < 0 || data.length < subjectThreshold) {
+            return new Payload(headers, data);
+        }
+        var start = System.nanoTime();
+        var deflater = deflaters.poll();
+        byte[] compressed;
+        try {
+            if (deflater == null) {
+                deflater = new Deflater(level);
+            }
+            deflater.setInput(data);
+            deflater.finish();
+            var output = new ByteArrayOutputStream(Math.max(64, data.length / 2));
+            var buffer = new byte[Math.min(BUFFER_SIZE, Math.max(64, data.length))];
+            while (!deflater.finished()) {
+                output.write(buffer, 0, deflater.deflate(buffer));
+            }
+            compressed = output.toByteArray();
+        } finally {
+            if (deflater != null) {
+                deflater.reset();
+                if (!deflaters.offer(deflater)) {
+                    deflater.end();
+                }
+            }
+        }
+        compressionNanos.add(System.nanoTime() - start);
+        if (compressed.length >= data.length) {
+            return new Payload(headers, data);
+        }
+        compressedMessages.increment();
+        compressionInputBytes.add(data.length);
+        compressionOutputBytes.add(compressed.length);
+        var marked = headers == null ? new Headers() : new Headers(headers);
+        marked.put(HEADER, DEFLATE);
+        return new Payload(marked, compressed);
+    }
+
+    /**
+     * Reads the payload of a message, inflating it if it has been compressed.
+     *
+     * @param message The NATS message
+     * @return The payload as it has been encoded by its producer
+     * @throws NatsException In case the payload is marked as compressed but cannot be inflated, or inflates beyond the
+     *                       maximum decompressed size
+     */
+    @Override
+    public byte[] read(Message message) {
+        var data = message.getData();
+        if (!message.hasHeaders() || !DEFLATE.equals(message.getHeaders().getFirst(HEADER))) {
+            return data;
+        }
+        var start = System.nanoTime();
+        var inflater = inflaters.poll();
+        try {
+            if (inflater == null) {
+                inflater = new Inflater();
+            }
+            inflater.setInput(data);
+            var output = new ByteArrayOutputStream((int) Math.min(data.length * 4L, maxDecompressedSize));
+            var buffer = new byte[BUFFER_SIZE];
+            while (!inflater.finished()) {
+                var inflated = inflater.inflate(buffer);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new NatsException(String.format("Compressed payload on subject %s is truncated", message.getSubject()));
+                }
+                if (output.size() + inflated > maxDecompressedSize) {
+                    oversizedMessages.increment();
+                    throw new NatsException(String.format("Compressed payload on subject %s inflates beyond %d bytes",
+                            message.getSubject(), maxDecompressedSize));
+                }
+                output.write(buffer, 0, inflated);
+            }
+            decompressedMessages.increment();
+            return output.toByteArray();
+        } catch (DataFormatException e) {
+            throw new NatsException(String.format("Inflating compressed payload on subject %s failed", message.getSubject()), e);
+        } finally {
+            if (inflater != null) {
+                inflater.reset();
+                if (!inflaters.offer(inflater)) {
+                    inflater.end();
+                }
+            }
+            decompressionNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Gets the number of payloads compressed.
+     *
+     * @return the number of compressed payloads
+     */
+    public long getCompressedMessages() {
+        return compressedMessages.sum();
+    }
+
+    /**
+     * Gets the number of payload bytes compressed payloads had before compression.
+     *
+     * @return the number of uncompressed bytes
+     */
+    public long getCompressionInputBytes() {
+        return compressionInputBytes.sum();
+    }
+
+    /**
+     * Gets the number of payload bytes compressed payloads had after compression.
+     *
+     * @return the number of compressed bytes
+     */
+    public long getCompressionOutputBytes() {
+        return compressionOutputBytes.sum();
+    }
+
+    /**
+     * Gets the ratio of the compressed to the uncompressed size of all compressed payloads.
+     *
+     * @return the compression ratio, or 1 if nothing has been compressed yet
+     */
+    public double getCompressionRatio() {
+        var input = compressionInputBytes.sum();
+        return input == 0 ? 1.0 : (double) compressionOutputBytes.sum() / input;
+    }
+
+    /**
+     * Gets the time spent compressing payloads, including those that have not shrunk.
+     *
+     * @return the compression time in nanoseconds
+     */
+    public long getCompressionNanos() {
+        return compressionNanos.sum();
+    }
+
+    /**
+     * Gets the number of payloads decompressed.
+     *
+     * @return the number of decompressed payloads
+     */
+    public long getDecompressedMessages() {
+        return decompressedMessages.sum();
+    }
+
+    /**
+     * Gets the number of compressed payloads rejected for inflating beyond the maximum decompressed size.
+     *
+     * @return the number of oversized payloads
+     */
+    public long getOversizedMessages() {
+        return oversizedMessages.sum();
+    }
+
+    /**
+     * Gets the time spent decompressing payloads.
+     *
+     * @return the decompression time in nanoseconds
+     */
+    public long getDecompressionNanos() {
+        return decompressionNanos.sum();
+    }
+
+    /**
+     * Releases the native memory of the pooled deflaters and inflaters.
+     */
+    @Override
+    public void close() {
+        Deflater deflater;
+        while ((deflater = deflaters.poll()) != null) {
+            deflater.end();
+        }
+        Inflater inflater;
+        while ((inflater = inflaters.poll()) != null) {
+            inflater.end();
+        }
+    }
+
+    private int threshold(String subject) {
+        if (subjectThresholds.isEmpty()) {
+            return threshold;
+        }
+        var resolved = resolvedThresholds.get(subject);
+        if (resolved != null) {
+            return resolved;
+        }
+        resolved = subjectThresholds.entrySet().stream()
+                .filter(entry -> matches(entry.getKey(), subject))
+                .map(Map.Entry::getValue)
+                .findFirst()
+                .orElse(threshold);
+        if (resolvedThresholds.size() < MAX_CACHED_SUBJECTS) {
+            resolvedThresholds.put(subject, resolved);
+        }
+        return resolved;
+    }
+
+    private static boolean matches(String pattern, String subject) {
+        var patternTokens = pattern.split("\\.");
+        var subjectTokens = subject.split("\\.");
+        for (var i = 0; i < patternTokens.length; i++) {
+            if (">".equals(patternTokens[i])) {
+                return subjectTokens.length > i;
+            }
+            if (i >= subjectTokens.length || !("*".equals(patternTokens[i]) || patternTokens[i].equals(subjectTokens[i]))) {
+                return false;
+            }
+        }
+        return patternTokens.length == subjectTokens.length;
+    }
+
+    /**
+     * The headers and payload of a message to publish.
+     *
+     * @param headers The headers of the message, may be null
+     * @param data The payload of the message
+     */
+    public record Payload(Headers headers, byte[] data) {
+    }
+
+}
@@ -0,0 +1,29 @@
+package com.ariskourt.nats.codec;
+
+import io.nats.client.Message;
+
+/**
+ * Reads the payload of a message as it has been encoded by its producer, undoing any transport encoding such as
+ * compression, before it is passed to a {@link NatsCodec}.
+ */
+@FunctionalInterface
+public interface NatsPayloadReader {
+
+    /**
+     * Reads the payload of a message
+     *
+     * @param message The NATS message
+     * @return The payload bytes to decode
+     */
+    byte[] read(Message message);
+
+    /**
+     * Creates a reader returning the payload of messages as received
+     *
+     * @return The payload reader
+     */
+    static NatsPayloadReader raw() {
+        return Message::getData;
+    }
+
+}
@@ -27,12 +27,21 @@ import java.util.function.Consumer;
  * @param replicas The number of replicas.
  * @param memoryStorage Whether to use memory storage.
  * @param sampleFrequency The sample frequency.
+ * @param flowControl Whether the server uses flow control towards a push consumer.
+ * @param idleHeartbeat The interval of idle heartbeats sent to a push consumer.
+ * @param rateLimit The maximum delivery rate of a push consumer in bits per second.
+ * @param headersOnly Whether only the headers of messages are delivered.
+ * @param maxBatch The maximum number of messages a single pull request may ask for.
+ * @param maxExpires The maximum expiry a single pull request may ask for.
+ * @param maxPullWaiting The maximum number of pull requests waiting to be fulfilled.
  */
 public record ConsumerConfiguration(String durable, List<String> filterSubjects, AckPolicy ackPolicy,
                                     Duration ackAwait, DeliverPolicy deliverPolicy, Long optStartSeq,
                                     ZonedDateTime optStartTime, String description, Duration inactiveThreshold,
                                     Long maxAckPending, Long maxDeliver, ReplayPolicy replayPolicy,
-                                    Integer replicas, Boolean memoryStorage, String sampleFrequency) {
+                                    Integer replicas, Boolean memoryStorage, String sampleFrequency,
+                                    Boolean flowControl, Duration idleHeartbeat, Long rateLimit, Boolean headersOnly,
+                                    Long maxBatch, Duration maxExpires, Long maxPullWaiting) {
 
     /**
      * Creates a new builder for ConsumerConfiguration.
@@ -63,6 +72,13 @@ public record ConsumerConfiguration(String durable, List<String> filterSubjects,
         private Integer replicas;
         private Boolean memoryStorage;
         private String sampleFrequency;
+        private Boolean flowControl;
+        private Duration idleHeartbeat;
+        private Long rateLimit;
+        private Boolean headersOnly;
+        private Long maxBatch;
+        private Duration maxExpires;
+        private Long maxPullWaiting;
 
         /**
          * Gets the durable name.
@@ -334,6 +350,132 @@ public record ConsumerConfiguration(String durable, List<String> filterSubjects,
             this.sampleFrequency = sampleFrequency;
         }
 
+        /**
+         * Gets whether flow control is used.
+         *
+         * @return whether flow control is used
+         */
+        public Boolean getFlowControl() {
+            return flowControl;
+        }
+
+        /**
+         * Sets whether flow control is used.
+         *
+         * @param flowControl whether flow control is used
+         */
+        public void setFlowControl(Boolean flowControl) {
+            this.flowControl = flowControl;
+        }
+
+        /**
+         * Gets the idle heartbeat interval.
+         *
+         * @return the idle heartbeat interval
+         */
+        public Duration getIdleHeartbeat() {
+            return idleHeartbeat;
+        }
+
+        /**
+         * Sets the idle heartbeat interval.
+         *
+         * @param idleHeartbeat the idle heartbeat interval
+         */
+        public void setIdleHeartbeat(Duration idleHeartbeat) {
+            this.idleHeartbeat = idleHeartbeat;
+        }
+
+        /**
+         * Gets the rate limit in bits per second.
+         *
+         * @return the rate limit in bits per second
+         */
+        public Long getRateLimit() {
+            return rateLimit;
+        }
+
+        /**
+         * Sets the rate limit in bits per second.
+         *
+         * @param rateLimit the rate limit in bits per second
+         */
+        public void setRateLimit(Long rateLimit) {
+            this.rateLimit = rateLimit;
+        }
+
+        /**
+         * Gets whether only headers are delivered.
+         *
+         * @return whether only headers are delivered
+         */
+        public Boolean getHeadersOnly() {
+            return headersOnly;
+        }
+
+        /**
+         * Sets whether only headers are delivered.
+         *
+         * @param headersOnly whether only headers are delivered
+         */
+        public void setHeadersOnly(Boolean headersOnly) {
+            this.headersOnly = headersOnly;
+        }
+
+        /**
+         * Gets the maximum pull batch size.
+         *
+         * @return the maximum pull batch size
+         */
+        public Long getMaxBatch() {
+            return maxBatch;
+        }
+
+        /**
+         * Sets the maximum pull batch size.
+         *
+         * @param maxBatch the maximum pull batch size
+         */
+        public void setMaxBatch(Long maxBatch) {
+            this.maxBatch = maxBatch;
+        }
+
+        /**
+         * Gets the maximum pull expiry.
+         *
+         * @return the maximum pull expiry
+         */
+        public Duration getMaxExpires() {
+            return maxExpires;
+        }
+
+        /**
+         * Sets the maximum pull expiry.
+         *
+         * @param maxExpires the maximum pull expiry
+         */
+        public void setMaxExpires(Duration maxExpires) {
+            this.maxExpires = maxExpires;
+        }
+
+        /**
+         * Gets the maximum number of waiting pull requests.
+         *
+         * @return the maximum number of waiting pull requests
+         */
+        public Long getMaxPullWaiting() {
+            return maxPullWaiting;
+        }
+
+        /**
+         * Sets the maximum number of waiting pull requests.
+         *
+         * @param maxPullWaiting the maximum number of waiting pull requests
+         */
+        public void setMaxPullWaiting(Long maxPullWaiting) {
+            this.maxPullWaiting = maxPullWaiting;
+        }
+
         /**
          * Applies the given consumer to this builder.
          *
@@ -355,7 +497,9 @@ public record ConsumerConfiguration(String durable, List<String> filterSubjects,
                     ackAwait, deliverPolicy, optStartSeq,
                     optStartTime, description, inactiveThreshold,
                     maxAckPending, maxDeliver, replayPolicy,
-                    replicas, memoryStorage, sampleFrequency);
+                    replicas, memoryStorage, sampleFrequency,
+                    flowControl, idleHeartbeat, rateLimit, headersOnly,
+                    maxBatch, maxExpires, maxPullWaiting);
         }
 
     }
@@ -4,11 +4,18 @@ import com.ariskourt.nats.exception.NatsException;
 import org.apache.commons.lang3.BooleanUtils;
 import org.apache.commons.lang3.StringUtils;
 
+import java.time.Duration;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Properties;
 
 /**
- * Configuration class for NATS connection settings.
+ * Configuration class for NATS connection settings. Settings are kept as properties keyed by
+ * {@link NatsConnectionConfigurationParameters} and may be given as strings or as typed values. Settings that are not
+ * configured are taken from the configured {@link NatsOptionsPreset}, if any, and otherwise from their defaults.
+ * <p>
+ * Every getter parses its setting on each call, so components read a {@link #snapshot()} once instead.
+ * </p>
  */
 public class NatsConnectionConfiguration extends Properties {
 
@@ -27,6 +34,11 @@ public class NatsConnectionConfiguration extends Properties {
      */
     public static final String DEFAULT_DRAIN_AWAIT_SECONDS    = "10";
 
+    /**
+     * Default number of connections opened to the NATS server.
+     */
+    public static final String DEFAULT_CONNECTIONS_POOL_SIZE = "1";
+
     /**
      * Default size of the executor pool.
      */
@@ -37,13 +49,68 @@ public class NatsConnectionConfiguration extends Properties {
      */
     public static final String DEFAULT_EXECUTOR_NAMING_PREFIX = "nats-";
 
+    /**
+     * Default for running each dispatched message on its own virtual thread.
+     */
+    public static final String DEFAULT_EXECUTOR_VIRTUAL_THREAD_PER_MESSAGE = "false";
+
+    /**
+     * Default maximum number of acknowledgments sent before flushing the connection.
+     */
+    public static final String DEFAULT_ACK_MAX_BURST = "256";
+
+    /**
+     * Default number of acknowledgments after which one is sent synchronously. Zero disables checkpoints.
+     */
+    public static final String DEFAULT_ACK_CHECKPOINT_INTERVAL = "0";
+
+    /**
+     * Default number of milliseconds to wait for a checkpoint acknowledgment to be confirmed.
+     */
+    public static final String DEFAULT_ACK_CHECKPOINT_TIMEOUT_MILLIS = "2000";
+
+    /**
+     * Default maximum number of requests queued by the ack pipeline before they are sent on the calling thread.
+     */
+    public static final String DEFAULT_ACK_MAX_QUEUED = "65536";
+
+    /**
+     * Default maximum number of published messages awaiting an acknowledgment.
+     */
+    public static final String DEFAULT_PUBLISHER_MAX_IN_FLIGHT_MESSAGES = "1024";
+
+    /**
+     * Default maximum number of published payload bytes awaiting an acknowledgment.
+     */
+    public static final String DEFAULT_PUBLISHER_MAX_IN_FLIGHT_BYTES = "67108864";
+
+    /**
+     * Default number of milliseconds a publish waits for room in the in-flight window.
+     */
+    public static final String DEFAULT_PUBLISHER_ACQUIRE_TIMEOUT_MILLIS = "30000";
+
+    /**
+     * Default number of seconds between re-evaluations of adaptive max ack pending consumers.
+     */
+    public static final String DEFAULT_ADAPTIVE_ACK_PENDING_INTERVAL_SECONDS = "30";
+
+    /**
+     * Default lower bound of adaptive max ack pending.
+     */
+    public static final String DEFAULT_ADAPTIVE_ACK_PENDING_MIN = "64";
+
+    /**
+     * Default upper bound of adaptive max ack pending.
+     */
+    public static final String DEFAULT_ADAPTIVE_ACK_PENDING_MAX = "65536";
+
     /**
      * Checks if NATS is enabled in the configuration.
      *
      * @return true if NATS is enabled, false otherwise
      */
     public boolean enabled() {
-        var enabled = getProperty(NatsConnectionConfigurationParameters.NATS_ENABLED);
+        var enabled = value(NatsConnectionConfigurationParameters.NATS_ENABLED, null);
         if (StringUtils.isNotEmpty(enabled)) {
             return Boolean.parseBoolean(enabled);
         }
@@ -57,7 +124,7 @@ public class NatsConnectionConfiguration extends Properties {
      * @throws NatsException if no NATS server URLs are provided
      */
     public List<String> getServerUrls() {
-        var urls = getProperty(NatsConnectionConfigurationParameters.NATS_URLS);
+        var urls = value(NatsConnectionConfigurationParameters.NATS_URLS, null);
         if (StringUtils.isNotEmpty(urls)) {
             return List.of(urls.split(","));
         }
@@ -70,7 +137,7 @@ public class NatsConnectionConfiguration extends Properties {
      * @return the maximum number of reconnect attempts
      */
     public int getMaxReconnects() {
-        var maxReconnects = getProperty(NatsConnectionConfigurationParameters.NATS_MAX_RECONNECTS, DEFAULT_MAX_RECONNECTS);
+        var maxReconnects = value(NatsConnectionConfigurationParameters.NATS_MAX_RECONNECTS, DEFAULT_MAX_RECONNECTS);
         return Integer.parseInt(maxReconnects);
     }
 
@@ -80,8 +147,7 @@ public class NatsConnectionConfiguration extends Properties {
      * @return true if connection tracing is enabled, false otherwise
      */
     public boolean traceConnection() {
-        var traceConnection = (Boolean) get(NatsConnectionConfigurationParameters.NATS_TRACE_CONNECTION);
-        return BooleanUtils.isTrue(traceConnection);
+        return BooleanUtils.toBoolean(value(NatsConnectionConfigurationParameters.NATS_TRACE_CONNECTION, null));
     }
 
     /**
@@ -90,18 +156,43 @@ public class NatsConnectionConfiguration extends Properties {
      * @return the number of seconds to wait for draining the connection
      */
     public int getDrainAwaitSeconds() {
-        var drainAwaitSeconds = getProperty(NatsConnectionConfigurationParameters.NATS_DRAIN_AWAIT_SECONDS, DEFAULT_DRAIN_AWAIT_SECONDS);
+        var drainAwaitSeconds = value(NatsConnectionConfigurationParameters.NATS_DRAIN_AWAIT_SECONDS, DEFAULT_DRAIN_AWAIT_SECONDS);
         return Integer.parseInt(drainAwaitSeconds);
     }
 
+    /**
+     * Retrieves the number of connections opened to the NATS server.
+     *
+     * @return the size of the connection pool
+     */
+    public int getConnectionPoolSize() {
+        var poolSize = value(NatsConnectionConfigurationParameters.NATS_CONNECTIONS_POOL_SIZE, DEFAULT_CONNECTIONS_POOL_SIZE);
+        return Integer.parseInt(poolSize);
+    }
+
+    /**
+     * Retrieves the weights subscriptions are assigned to the connections of the pool with.
+     *
+     * @return the weight of every connection, or an empty list for plain round-robin
+     */
+    public List<Integer> getConnectionWeights() {
+        var weights = value(NatsConnectionConfigurationParameters.NATS_CONNECTIONS_WEIGHTS, null);
+        if (StringUtils.isBlank(weights)) {
+            return List.of();
+        }
+        return Arrays.stream(weights.split(","))
+                .map(String::trim)
+                .map(Integer::valueOf)
+                .toList();
+    }
+
     /**
      * Checks if the dispatcher should use an executor service.
      *
      * @return true if the dispatcher should use an executor service, false otherwise
      */
     public boolean useDispatcherWithExecutor() {
-        var useDispatcherWithExecutor = (Boolean) get(NatsConnectionConfigurationParameters.NATS_USE_DISPATCHER_WITH_EXECUTOR);
-        return BooleanUtils.isTrue(useDispatcherWithExecutor);
+        return BooleanUtils.toBoolean(value(NatsConnectionConfigurationParameters.NATS_USE_DISPATCHER_WITH_EXECUTOR, null));
     }
 
     /**
@@ -110,7 +201,7 @@ public class NatsConnectionConfiguration extends Properties {
      * @return the size of the executor pool
      */
     public int getExecutorPoolSize() {
-        var poolSize = getProperty(NatsConnectionConfigurationParameters.NATS_EXECUTOR_POOL_SIZE, DEFAULT_EXECUTOR_POOL_SIZE);
+        var poolSize = value(NatsConnectionConfigurationParameters.NATS_EXECUTOR_POOL_SIZE, DEFAULT_EXECUTOR_POOL_SIZE);
         return Integer.parseInt(poolSize);
     }
 
@@ -120,7 +211,225 @@ public class NatsConnectionConfiguration extends Properties {
      * @return the naming prefix for the executor
      */
     public String getExecutorNamingPrefix() {
-        return getProperty(NatsConnectionConfigurationParameters.NATS_EXECUTOR_NAMING_PREFIX, DEFAULT_EXECUTOR_NAMING_PREFIX);
+        return value(NatsConnectionConfigurationParameters.NATS_EXECUTOR_NAMING_PREFIX, DEFAULT_EXECUTOR_NAMING_PREFIX);
+    }
+
+    /**
+     * Checks if each dispatched message runs on its own virtual thread instead of a fixed pool.
+     *
+     * @return true if each message runs on its own virtual thread, false otherwise
+     */
+    public boolean useVirtualThreadPerMessage() {
+        var virtualThreadPerMessage = value(NatsConnectionConfigurationParameters.NATS_EXECUTOR_VIRTUAL_THREAD_PER_MESSAGE, DEFAULT_EXECUTOR_VIRTUAL_THREAD_PER_MESSAGE);
+        return Boolean.parseBoolean(virtualThreadPerMessage);
+    }
+
+    /**
+     * Retrieves the maximum number of acknowledgments the ack pipeline sends before flushing the connection.
+     *
+     * @return the maximum ack burst size
+     */
+    public int getAckMaxBurst() {
+        var maxBurst = value(NatsConnectionConfigurationParameters.NATS_ACK_MAX_BURST, DEFAULT_ACK_MAX_BURST);
+        return Integer.parseInt(maxBurst);
+    }
+
+    /**
+     * Retrieves the number of acknowledgments after which the ack pipeline sends one synchronously.
+     *
+     * @return the ack checkpoint interval, zero if checkpoints are disabled
+     */
+    public int getAckCheckpointInterval() {
+        var checkpointInterval = value(NatsConnectionConfigurationParameters.NATS_ACK_CHECKPOINT_INTERVAL, DEFAULT_ACK_CHECKPOINT_INTERVAL);
+        return Integer.parseInt(checkpointInterval);
+    }
+
+    /**
+     * Retrieves the number of milliseconds the ack pipeline waits for a checkpoint acknowledgment to be confirmed.
+     *
+     * @return the ack checkpoint timeout in milliseconds
+     */
+    public long getAckCheckpointTimeoutMillis() {
+        var checkpointTimeout = value(NatsConnectionConfigurationParameters.NATS_ACK_CHECKPOINT_TIMEOUT_MILLIS, DEFAULT_ACK_CHECKPOINT_TIMEOUT_MILLIS);
+        return Long.parseLong(checkpointTimeout);
+    }
+
+    /**
+     * Retrieves the maximum number of requests the ack pipeline queues before sending them on the calling thread.
+     *
+     * @return the maximum number of queued ack requests
+     */
+    public int getAckMaxQueued() {
+        var maxQueued = value(NatsConnectionConfigurationParameters.NATS_ACK_MAX_QUEUED, DEFAULT_ACK_MAX_QUEUED);
+        return Integer.parseInt(maxQueued);
+    }
+
+    /**
+     * Retrieves the maximum number of published messages awaiting an acknowledgment.
+     *
+     * @return the maximum number of in-flight messages
+     */
+    public int getPublisherMaxInFlightMessages() {
+        var maxInFlightMessages = value(NatsConnectionConfigurationParameters.NATS_PUBLISHER_MAX_IN_FLIGHT_MESSAGES, DEFAULT_PUBLISHER_MAX_IN_FLIGHT_MESSAGES);
+        return Integer.parseInt(maxInFlightMessages);
+    }
+
+    /**
+     * Retrieves the maximum number of published payload bytes awaiting an acknowledgment.
+     *
+     * @return the maximum number of in-flight bytes
+     */
+    public int getPublisherMaxInFlightBytes() {
+        var maxInFlightBytes = value(NatsConnectionConfigurationParameters.NATS_PUBLISHER_MAX_IN_FLIGHT_BYTES, DEFAULT_PUBLISHER_MAX_IN_FLIGHT_BYTES);
+        return Integer.parseInt(maxInFlightBytes);
+    }
+
+    /**
+     * Retrieves the number of milliseconds a publish waits for room in the in-flight window.
+     *
+     * @return the publisher acquire timeout in milliseconds
+     */
+    public long getPublisherAcquireTimeoutMillis() {
+        var acquireTimeout = value(NatsConnectionConfigurationParameters.NATS_PUBLISHER_ACQUIRE_TIMEOUT_MILLIS, DEFAULT_PUBLISHER_ACQUIRE_TIMEOUT_MILLIS);
+        return Long.parseLong(acquireTimeout);
+    }
+
+    /**
+     * Retrieves the number of seconds between re-evaluations of adaptive max ack pending consumers.
+     *
+     * @return the adaptive max ack pending interval in seconds
+     */
+    public int getAdaptiveAckPendingIntervalSeconds() {
+        var interval = value(NatsConnectionConfigurationParameters.NATS_ADAPTIVE_ACK_PENDING_INTERVAL_SECONDS, DEFAULT_ADAPTIVE_ACK_PENDING_INTERVAL_SECONDS);
+        return Integer.parseInt(interval);
+    }
+
+    /**
+     * Retrieves the lower bound of adaptive max ack pending.
+     *
+     * @return the minimum max ack pending
+     */
+    public long getAdaptiveAckPendingMin() {
+        var min = value(NatsConnectionConfigurationParameters.NATS_ADAPTIVE_ACK_PENDING_MIN, DEFAULT_ADAPTIVE_ACK_PENDING_MIN);
+        return Long.parseLong(min);
+    }
+
+    /**
+     * Retrieves the upper bound of adaptive max ack pending.
+     *
+     * @return the maximum max ack pending
+     */
+    public long getAdaptiveAckPendingMax() {
+        var max = value(NatsConnectionConfigurationParameters.NATS_ADAPTIVE_ACK_PENDING_MAX, DEFAULT_ADAPTIVE_ACK_PENDING_MAX);
+        return Long.parseLong(max);
+    }
+
+    /**
+     * Retrieves the preset supplying the settings that are not configured explicitly.
+     *
+     * @return the preset, or null if none is configured
+     * @throws NatsException if the preset is unknown
+     */
+    public NatsOptionsPreset getPreset() {
+        var preset = get(NatsConnectionConfigurationParameters.NATS_OPTIONS_PRESET);
+        if (preset instanceof NatsOptionsPreset natsOptionsPreset) {
+            return natsOptionsPreset;
+        }
+        return preset == null || StringUtils.isBlank(preset.toString()) ? null : NatsOptionsPreset.parse(preset.toString());
+    }
+
+    /**
+     * Retrieves the tuning of the connection options.
+     *
+     * @return the options tuning, whose unset settings keep the defaults of the client library
+     */
+    public NatsOptionsTuning getOptionsTuning() {
+        return new NatsOptionsTuning(
+                value(NatsConnectionConfigurationParameters.NATS_OPTIONS_CONNECTION_NAME, null),
+                millis(NatsConnectionConfigurationParameters.NATS_OPTIONS_CONNECTION_TIMEOUT_MILLIS),
+                millis(NatsConnectionConfigurationParameters.NATS_OPTIONS_SOCKET_WRITE_TIMEOUT_MILLIS),
+                millis(NatsConnectionConfigurationParameters.NATS_OPTIONS_PING_INTERVAL_MILLIS),
+                integer(NatsConnectionConfigurationParameters.NATS_OPTIONS_MAX_PINGS_OUT),
+                millis(NatsConnectionConfigurationParameters.NATS_OPTIONS_RECONNECT_WAIT_MILLIS),
+                millis(NatsConnectionConfigurationParameters.NATS_OPTIONS_RECONNECT_JITTER_MILLIS),
+                longValue(NatsConnectionConfigurationParameters.NATS_OPTIONS_RECONNECT_BUFFER_SIZE),
+                integer(NatsConnectionConfigurationParameters.NATS_OPTIONS_BUFFER_SIZE),
+                integer(NatsConnectionConfigurationParameters.NATS_OPTIONS_MAX_MESSAGES_IN_OUTGOING_QUEUE),
+                BooleanUtils.toBooleanObject(value(NatsConnectionConfigurationParameters.NATS_OPTIONS_DISCARD_MESSAGES_WHEN_OUTGOING_QUEUE_FULL, null)),
+                millis(NatsConnectionConfigurationParameters.NATS_OPTIONS_REQUEST_CLEANUP_INTERVAL_MILLIS),
+                BooleanUtils.toBooleanObject(value(NatsConnectionConfigurationParameters.NATS_OPTIONS_NO_ECHO, null)),
+                integer(NatsConnectionConfigurationParameters.NATS_OPTIONS_MAX_CONTROL_LINE));
+    }
+
+    /**
+     * Parses every setting once into an immutable snapshot.
+     *
+     * @return the snapshot of the settings
+     * @throws NatsException if a setting cannot be parsed
+     */
+    public NatsConnectionSettings snapshot() {
+        try {
+            return new NatsConnectionSettings(enabled(),
+                    getServerUrls(),
+                    getMaxReconnects(),
+                    traceConnection(),
+                    Duration.ofSeconds(getDrainAwaitSeconds()),
+                    getConnectionPoolSize(),
+                    getConnectionWeights(),
+                    useDispatcherWithExecutor(),
+                    getExecutorPoolSize(),
+                    getExecutorNamingPrefix(),
+                    useVirtualThreadPerMessage(),
+                    getAckMaxBurst(),
+                    getAckCheckpointInterval(),
+                    Duration.ofMillis(getAckCheckpointTimeoutMillis()),
+                    getAckMaxQueued(),
+                    getPublisherMaxInFlightMessages(),
+                    getPublisherMaxInFlightBytes(),
+                    Duration.ofMillis(getPublisherAcquireTimeoutMillis()),
+                    Duration.ofSeconds(getAdaptiveAckPendingIntervalSeconds()),
+                    getAdaptiveAckPendingMin(),
+                    getAdaptiveAckPendingMax(),
+                    getPreset(),
+                    getOptionsTuning());
+        } catch (NumberFormatException e) {
+            throw new NatsException("The NATS connection configuration holds a malformed number", e);
+        }
+    }
+
+    /**
+     * Looks a setting up, falling back to the preset and then to the given default. Typed values are converted to
+     * strings, so that settings put as numbers or booleans are not mistaken for missing ones.
+     *
+     * @param key The key of the setting
+     * @param defaultValue The default of the setting, may be null
+     * @return the value of the setting
+     */
+    private String value(String key, String defaultValue) {
+        var value = get(key);
+        if (value != null && StringUtils.isNotEmpty(value.toString())) {
+            return value.toString();
+        }
+        var preset = getPreset();
+        if (preset != null && preset.value(key) != null) {
+            return preset.value(key);
+        }
+        return defaultValue;
+    }
+
+    private Integer integer(String key) {
+        var value = value(key, null);
+        return value == null ? null : Integer.valueOf(value.trim());
+    }
+
+    private Long longValue(String key) {
+        var value = value(key, null);
+        return value == null ? null : Long.valueOf(value.trim());
+    }
+
+    private Duration millis(String key) {
+        var value = longValue(key);
+        return value == null ? null : Duration.ofMillis(value);
     }
 
-}
\ No newline at end of file
+}
@@ -30,6 +30,16 @@ public final class NatsConnectionConfigurationParameters {
      */
     public static final String NATS_DRAIN_AWAIT_SECONDS = "nats.drainAwaitSeconds";
 
+    /**
+     * Key for the number of connections opened to the NATS server.
+     */
+    public static final String NATS_CONNECTIONS_POOL_SIZE = "nats.connections.poolSize";
+
+    /**
+     * Key for the comma-separated weights subscriptions are assigned to the connections with.
+     */
+    public static final String NATS_CONNECTIONS_WEIGHTS = "nats.connections.weights";
+
     /**
      * Key for enabling or disabling the use of dispatcher with executor.
      */
@@ -45,4 +55,134 @@ public final class NatsConnectionConfigurationParameters {
      */
     public static final String NATS_EXECUTOR_NAMING_PREFIX = "nats.executor.namingPrefix";
 
-}
\ No newline at end of file
+    /**
+     * Key for running each dispatched message on its own virtual thread instead of a fixed pool.
+     */
+    public static final String NATS_EXECUTOR_VIRTUAL_THREAD_PER_MESSAGE = "nats.executor.virtualThreadPerMessage";
+
+    /**
+     * Key for the maximum number of acknowledgments sent by the ack pipeline before flushing the connection.
+     */
+    public static final String NATS_ACK_MAX_BURST = "nats.ack.maxBurst";
+
+    /**
+     * Key for the number of acknowledgments after which the ack pipeline sends one synchronously.
+     */
+    public static final String NATS_ACK_CHECKPOINT_INTERVAL = "nats.ack.checkpointInterval";
+
+    /**
+     * Key for the number of milliseconds the ack pipeline waits for a checkpoint acknowledgment to be confirmed.
+     */
+    public static final String NATS_ACK_CHECKPOINT_TIMEOUT_MILLIS = "nats.ack.checkpointTimeoutMillis";
+
+    /**
+     * Key for the maximum number of requests queued by the ack pipeline before they are sent on the calling thread.
+     */
+    public static final String NATS_ACK_MAX_QUEUED = "nats.ack.maxQueued";
+
+    /**
+     * Key for the maximum number of published messages awaiting an acknowledgment.
+     */
+    public static final String NATS_PUBLISHER_MAX_IN_FLIGHT_MESSAGES = "nats.publisher.maxInFlightMessages";
+
+    /**
+     * Key for the maximum number of published payload bytes awaiting an acknowledgment.
+     */
+    public static final String NATS_PUBLISHER_MAX_IN_FLIGHT_BYTES = "nats.publisher.maxInFlightBytes";
+
+    /**
+     * Key for the number of milliseconds a publish waits for room in the in-flight window.
+     */
+    public static final String NATS_PUBLISHER_ACQUIRE_TIMEOUT_MILLIS = "nats.publisher.acquireTimeoutMillis";
+
+    /**
+     * Key for the number of seconds between re-evaluations of adaptive max ack pending consumers.
+     */
+    public static final String NATS_ADAPTIVE_ACK_PENDING_INTERVAL_SECONDS = "nats.adaptiveAckPending.intervalSeconds";
+
+    /**
+     * Key for the lower bound of adaptive max ack pending.
+     */
+    public static final String NATS_ADAPTIVE_ACK_PENDING_MIN = "nats.adaptiveAckPending.min";
+
+    /**
+     * Key for the upper bound of adaptive max ack pending.
+     */
+    public static final String NATS_ADAPTIVE_ACK_PENDING_MAX = "nats.adaptiveAckPending.max";
+
+    /**
+     * Key for the preset supplying the settings that are not configured explicitly.
+     */
+    public static final String NATS_OPTIONS_PRESET = "nats.options.preset";
+
+    /**
+     * Key for the name the connections report to the server.
+     */
+    public static final String NATS_OPTIONS_CONNECTION_NAME = "nats.options.connectionName";
+
+    /**
+     * Key for the number of milliseconds to establish a connection within.
+     */
+    public static final String NATS_OPTIONS_CONNECTION_TIMEOUT_MILLIS = "nats.options.connectionTimeoutMillis";
+
+    /**
+     * Key for the number of milliseconds a socket write may stall before the connection is considered broken.
+     */
+    public static final String NATS_OPTIONS_SOCKET_WRITE_TIMEOUT_MILLIS = "nats.options.socketWriteTimeoutMillis";
+
+    /**
+     * Key for the number of milliseconds between pings to the server.
+     */
+    public static final String NATS_OPTIONS_PING_INTERVAL_MILLIS = "nats.options.pingIntervalMillis";
+
+    /**
+     * Key for the number of unanswered pings after which the connection is considered broken.
+     */
+    public static final String NATS_OPTIONS_MAX_PINGS_OUT = "nats.options.maxPingsOut";
+
+    /**
+     * Key for the number of milliseconds to wait between reconnect attempts to the same server.
+     */
+    public static final String NATS_OPTIONS_RECONNECT_WAIT_MILLIS = "nats.options.reconnectWaitMillis";
+
+    /**
+     * Key for the random number of milliseconds added to the reconnect wait.
+     */
+    public static final String NATS_OPTIONS_RECONNECT_JITTER_MILLIS = "nats.options.reconnectJitterMillis";
+
+    /**
+     * Key for the number of bytes buffered while reconnecting.
+     */
+    public static final String NATS_OPTIONS_RECONNECT_BUFFER_SIZE = "nats.options.reconnectBufferSize";
+
+    /**
+     * Key for the size of the socket read and write buffers.
+     */
+    public static final String NATS_OPTIONS_BUFFER_SIZE = "nats.options.bufferSize";
+
+    /**
+     * Key for the maximum number of messages waiting to be written to the socket.
+     */
+    public static final String NATS_OPTIONS_MAX_MESSAGES_IN_OUTGOING_QUEUE = "nats.options.maxMessagesInOutgoingQueue";
+
+    /**
+     * Key for discarding messages published to a full outgoing queue instead of blocking.
+     */
+    public static final String NATS_OPTIONS_DISCARD_MESSAGES_WHEN_OUTGOING_QUEUE_FULL = "nats.options.discardMessagesWhenOutgoingQueueFull";
+
+    /**
+     * Key for the number of milliseconds between clean-ups of timed-out requests.
+     */
+    public static final String NATS_OPTIONS_REQUEST_CLEANUP_INTERVAL_MILLIS = "nats.options.requestCleanupIntervalMillis";
+
+    /**
+     * Key for withholding messages published on a connection from its own subscriptions.
+     */
+    public static final String NATS_OPTIONS_NO_ECHO = "nats.options.noEcho";
+
+    /**
+     * Key for the maximum length of a protocol control line.
+     */
+    public static final String NATS_OPTIONS_MAX_CONTROL_LINE = "nats.options.maxControlLine";
+
+}
@@ -0,0 +1,55 @@
+package com.ariskourt.nats.configuration;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Snapshot of a {@link NatsConnectionConfiguration}, with every setting parsed once and the preset, if any, applied.
+ *
+ * @param enabled Whether NATS is enabled.
+ * @param serverUrls The URLs of the NATS servers.
+ * @param maxReconnects The maximum number of reconnect attempts.
+ * @param traceConnection Whether connection tracing is enabled.
+ * @param drainAwait The time to wait for draining before closing.
+ * @param connectionPoolSize The number of connections opened to the NATS server.
+ * @param connectionWeights The weight of every connection, or an empty list for plain round-robin.
+ * @param useDispatcherWithExecutor Whether dispatchers run their handlers on an executor.
+ * @param executorPoolSize The size of the executor pool.
+ * @param executorNamingPrefix The naming prefix of the executor threads.
+ * @param virtualThreadPerMessage Whether each dispatched message runs on its own virtual thread.
+ * @param ackMaxBurst The maximum number of acknowledgments sent before flushing the connection.
+ * @param ackCheckpointInterval The number of acknowledgments after which one is sent synchronously.
+ * @param ackCheckpointTimeout The time to wait for a checkpoint acknowledgment to be confirmed.
+ * @param ackMaxQueued The maximum number of acknowledgments queued before they are sent on the calling thread.
+ * @param publisherMaxInFlightMessages The maximum number of published messages awaiting an acknowledgment.
+ * @param publisherMaxInFlightBytes The maximum number of published payload bytes awaiting an acknowledgment.
+ * @param publisherAcquireTimeout The time a publish waits for room in the in-flight window.
+ * @param adaptiveAckPendingInterval The interval between re-evaluations of adaptive max ack pending consumers.
+ * @param adaptiveAckPendingMin The lower bound of adaptive max ack pending.
+ * @param adaptiveAckPendingMax The upper bound of adaptive max ack pending.
+ * @param preset The preset applied, or null.
+ * @param options The tuning of the connection options.
+ */
+public record NatsConnectionSettings(boolean enabled,
+                                     List<String> serverUrls,
+                                     int maxReconnects,
+                                     boolean traceConnection,
+                                     Duration drainAwait,
+                                     int connectionPoolSize,
+                                     List<Integer> connectionWeights,
+                                     boolean useDispatcherWithExecutor,
+                                     int executorPoolSize,
+                                     String executorNamingPrefix,
+                                     boolean virtualThreadPerMessage,
+                                     int ackMaxBurst,
+                                     int ackCheckpointInterval,
+                                     Duration ackCheckpointTimeout,
+                                     int ackMaxQueued,
+                                     int publisherMaxInFlightMessages,
+                                     int publisherMaxInFlightBytes,
+                                     Duration publisherAcquireTimeout,
+                                     Duration adaptiveAckPendingInterval,
+                                     long adaptiveAckPendingMin,
+                                     long adaptiveAckPendingMax,
+                                     NatsOptionsPreset preset,
+                                     NatsOptionsTuning options) {}
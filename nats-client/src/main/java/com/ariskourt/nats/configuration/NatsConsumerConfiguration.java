@@ -9,9 +9,11 @@ import java.util.function.Consumer;
  *
  * @param consumerConfiguration The consumer configuration settings.
  * @param natsPushSubscriberConfiguration The push subscriber configuration settings.
+ * @param natsPullSubscriberConfiguration The pull subscriber configuration settings.
  */
 public record NatsConsumerConfiguration(ConsumerConfiguration consumerConfiguration,
-                                        NatsPushSubscriberConfiguration natsPushSubscriberConfiguration) {
+                                        NatsPushSubscriberConfiguration natsPushSubscriberConfiguration,
+                                        NatsPullSubscriberConfiguration natsPullSubscriberConfiguration) {
 
     /**
      * Creates a new builder for NatsConsumerConfiguration.
@@ -67,6 +69,26 @@ public record NatsConsumerConfiguration(ConsumerConfiguration consumerConfigurat
             this.pushSubscriberConfiguration = pushSubscriberConfiguration;
         }
 
+        private NatsPullSubscriberConfiguration pullSubscriberConfiguration;
+
+        /**
+         * Gets the pull subscriber configuration.
+         *
+         * @return the pull subscriber configuration
+         */
+        public NatsPullSubscriberConfiguration getPullSubscriberConfiguration() {
+            return pullSubscriberConfiguration;
+        }
+
+        /**
+         * Sets the pull subscriber configuration.
+         *
+         * @param pullSubscriberConfiguration the pull subscriber configuration
+         */
+        public void setPullSubscriberConfiguration(NatsPullSubscriberConfiguration pullSubscriberConfiguration) {
+            this.pullSubscriberConfiguration = pullSubscriberConfiguration;
+        }
+
         /**
          * Applies the given consumer to this builder.
          *
@@ -85,20 +107,21 @@ public record NatsConsumerConfiguration(ConsumerConfiguration consumerConfigurat
          */
         public NatsConsumerConfiguration build() {
             validate();
-            return new NatsConsumerConfiguration(consumerConfiguration, pushSubscriberConfiguration);
+            return new NatsConsumerConfiguration(consumerConfiguration, pushSubscriberConfiguration, pullSubscriberConfiguration);
         }
 
         /**
          * Validates the builder's state before building.
          *
-         * @throws NatsException if the consumer configuration or push subscriber configuration is null
+         * @throws NatsException if the consumer configuration is null or neither a push nor a pull subscriber
+         * configuration has been provided
          */
         private void validate() {
             if (consumerConfiguration == null) {
                 throw new NatsException("Cannot create a NATS consumer without a consumer configuration!");
             }
-            if (pushSubscriberConfiguration == null) {
-                throw new NatsException("Cannot create a NATS consumer without a push subscriber configuration!");
+            if (pushSubscriberConfiguration == null && pullSubscriberConfiguration == null) {
+                throw new NatsException("Cannot create a NATS consumer without a push or pull subscriber configuration!");
             }
         }
 
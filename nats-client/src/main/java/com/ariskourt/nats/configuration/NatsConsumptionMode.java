@@ -0,0 +1,18 @@
+package com.ariskourt.nats.configuration;
+
+/**
+ * The ways in which a NATS handler can consume the messages of its JetStream consumer.
+ */
+public enum NatsConsumptionMode {
+
+    /**
+     * The server pushes messages to a deliver subject as soon as they are available.
+     */
+    PUSH,
+
+    /**
+     * The client fetches messages in batches, keeping the next fetch in flight while the current batch is processed.
+     */
+    PULL
+
+}
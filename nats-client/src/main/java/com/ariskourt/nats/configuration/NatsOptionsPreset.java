@@ -0,0 +1,70 @@
+package com.ariskourt.nats.configuration;
+
+import com.ariskourt.nats.exception.NatsException;
+
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Named combinations of connection settings tuned for a workload. A preset only supplies the values of settings that
+ * are not configured explicitly, so that any of them can still be overridden one by one.
+ */
+public enum NatsOptionsPreset {
+
+    /**
+     * Favours the latency of individual messages: connection failures are detected and recovered from quickly, writes
+     * that stall fail fast, and acknowledgments are flushed in small bursts.
+     */
+    LOW_LATENCY(Map.of(
+            NatsConnectionConfigurationParameters.NATS_OPTIONS_CONNECTION_TIMEOUT_MILLIS, "1000",
+            NatsConnectionConfigurationParameters.NATS_OPTIONS_SOCKET_WRITE_TIMEOUT_MILLIS, "5000",
+            NatsConnectionConfigurationParameters.NATS_OPTIONS_PING_INTERVAL_MILLIS, "15000",
+            NatsConnectionConfigurationParameters.NATS_OPTIONS_RECONNECT_WAIT_MILLIS, "250",
+            NatsConnectionConfigurationParameters.NATS_OPTIONS_RECONNECT_JITTER_MILLIS, "50",
+            NatsConnectionConfigurationParameters.NATS_ACK_MAX_BURST, "32")),
+
+    /**
+     * Favours the number of messages moved per second: larger socket buffers and outgoing queues absorb bursts,
+     * reconnects buffer more, acknowledgments are flushed in large bursts and the publisher keeps a wider window in
+     * flight.
+     */
+    HIGH_THROUGHPUT(Map.of(
+            NatsConnectionConfigurationParameters.NATS_OPTIONS_BUFFER_SIZE, "262144",
+            NatsConnectionConfigurationParameters.NATS_OPTIONS_MAX_MESSAGES_IN_OUTGOING_QUEUE, "65536",
+            NatsConnectionConfigurationParameters.NATS_OPTIONS_RECONNECT_BUFFER_SIZE, "67108864",
+            NatsConnectionConfigurationParameters.NATS_ACK_MAX_BURST, "1024",
+            NatsConnectionConfigurationParameters.NATS_PUBLISHER_MAX_IN_FLIGHT_MESSAGES, "8192",
+            NatsConnectionConfigurationParameters.NATS_PUBLISHER_MAX_IN_FLIGHT_BYTES, "268435456"));
+
+    private final Map<String, String> values;
+
+    NatsOptionsPreset(Map<String, String> values) {
+        this.values = values;
+    }
+
+    /**
+     * Gets the value the preset supplies for a setting.
+     *
+     * @param key The key of the setting, one of {@link NatsConnectionConfigurationParameters}
+     * @return the value of the setting, or null if the preset does not supply one
+     */
+    public String value(String key) {
+        return values.get(key);
+    }
+
+    /**
+     * Parses a preset from its name, in either its constant or its kebab-case form, such as {@code low-latency}.
+     *
+     * @param name The name of the preset
+     * @return the preset
+     * @throws NatsException In case no preset has the given name
+     */
+    public static NatsOptionsPreset parse(String name) {
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            throw new NatsException(String.format("Unknown NATS options preset %s", name), e);
+        }
+    }
+
+}
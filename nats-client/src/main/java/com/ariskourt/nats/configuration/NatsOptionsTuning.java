@@ -0,0 +1,94 @@
+package com.ariskourt.nats.configuration;
+
+import io.nats.client.Options;
+
+import java.time.Duration;
+
+/**
+ * Tuning of the options of NATS connections. Settings that are null keep the default of the client library.
+ *
+ * @param connectionName The name the connections report to the server.
+ * @param connectionTimeout The maximum time to establish a connection.
+ * @param socketWriteTimeout The maximum time a write to the socket may stall before the connection is considered
+ *                           broken.
+ * @param pingInterval The interval between pings to the server.
+ * @param maxPingsOut The number of unanswered pings after which the connection is considered broken.
+ * @param reconnectWait The time to wait between reconnect attempts to the same server.
+ * @param reconnectJitter The random time added to the reconnect wait.
+ * @param reconnectBufferSize The number of bytes buffered while reconnecting, or a negative number for no limit.
+ * @param bufferSize The size of the socket read and write buffers.
+ * @param maxMessagesInOutgoingQueue The maximum number of messages waiting to be written to the socket.
+ * @param discardMessagesWhenOutgoingQueueFull Whether publishing to a full outgoing queue discards the message
+ *                                             instead of blocking.
+ * @param requestCleanupInterval The interval at which timed-out requests are cleaned up.
+ * @param noEcho Whether messages published on a connection are withheld from its own subscriptions.
+ * @param maxControlLine The maximum length of a protocol control line.
+ */
+public record NatsOptionsTuning(String connectionName,
+                                Duration connectionTimeout,
+                                Duration socketWriteTimeout,
+                                Duration pingInterval,
+                                Integer maxPingsOut,
+                                Duration reconnectWait,
+                                Duration reconnectJitter,
+                                Long reconnectBufferSize,
+                                Integer bufferSize,
+                                Integer maxMessagesInOutgoingQueue,
+                                Boolean discardMessagesWhenOutgoingQueueFull,
+                                Duration requestCleanupInterval,
+                                Boolean noEcho,
+                                Integer maxControlLine) {
+
+    /**
+     * Applies the settings that are set to an options builder.
+     *
+     * @param builder The options builder
+     * @return the options builder
+     */
+    public Options.Builder apply(Options.Builder builder) {
+        if (connectionName != null) {
+            builder.connectionName(connectionName);
+        }
+        if (connectionTimeout != null) {
+            builder.connectionTimeout(connectionTimeout);
+        }
+        if (socketWriteTimeout != null) {
+            builder.socketWriteTimeout(socketWriteTimeout);
+        }
+        if (pingInterval != null) {
+            builder.pingInterval(pingInterval);
+        }
+        if (maxPingsOut != null) {
+            builder.maxPingsOut(maxPingsOut);
+        }
+        if (reconnectWait != null) {
+            builder.reconnectWait(reconnectWait);
+        }
+        if (reconnectJitter != null) {
+            builder.reconnectJitter(reconnectJitter);
+        }
+        if (reconnectBufferSize != null) {
+            builder.reconnectBufferSize(reconnectBufferSize);
+        }
+        if (bufferSize != null) {
+            builder.bufferSize(bufferSize);
+        }
+        if (maxMessagesInOutgoingQueue != null) {
+            builder.maxMessagesInOutgoingQueue(maxMessagesInOutgoingQueue);
+        }
+        if (Boolean.TRUE.equals(discardMessagesWhenOutgoingQueueFull)) {
+            builder.discardMessagesWhenOutgoingQueueFull();
+        }
+        if (requestCleanupInterval != null) {
+            builder.requestCleanupInterval(requestCleanupInterval);
+        }
+        if (Boolean.TRUE.equals(noEcho)) {
+            builder.noEcho();
+        }
+        if (maxControlLine != null) {
+            builder.maxControlLine(maxControlLine);
+        }
+        return builder;
+    }
+
+}
@@ -0,0 +1,154 @@
+package com.ariskourt.nats.configuration;
+
+import java.time.Duration;
+import java.util.function.Consumer;
+
+/**
+ * Configuration class for NATS pull subscriber settings.
+ *
+ * @param stream The name of the stream the consumer is bound to. When null, it is resolved from the filter subjects.
+ * @param batchSize The maximum number of messages requested by a single fetch.
+ * @param batchBytes The maximum number of bytes requested by a single fetch.
+ * @param expiresIn The duration after which an unfulfilled fetch expires on the server.
+ * @param thresholdPercent The percentage of the current batch left pending at which the next fetch is issued.
+ */
+public record NatsPullSubscriberConfiguration(String stream, Integer batchSize, Long batchBytes,
+                                              Duration expiresIn, Integer thresholdPercent) {
+
+    /**
+     * Creates a new builder for NatsPullSubscriberConfiguration.
+     *
+     * @return a new Builder instance
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Builder class for constructing NatsPullSubscriberConfiguration instances.
+     */
+    public static class Builder {
+
+        private String stream;
+
+        /**
+         * Gets the name of the stream.
+         *
+         * @return the name of the stream
+         */
+        public String getStream() {
+            return stream;
+        }
+
+        /**
+         * Sets the name of the stream.
+         *
+         * @param stream the name of the stream
+         */
+        public void setStream(String stream) {
+            this.stream = stream;
+        }
+
+        private Integer batchSize;
+
+        /**
+         * Gets the maximum number of messages per fetch.
+         *
+         * @return the maximum number of messages per fetch
+         */
+        public Integer getBatchSize() {
+            return batchSize;
+        }
+
+        /**
+         * Sets the maximum number of messages per fetch.
+         *
+         * @param batchSize the maximum number of messages per fetch
+         */
+        public void setBatchSize(Integer batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        private Long batchBytes;
+
+        /**
+         * Gets the maximum number of bytes per fetch.
+         *
+         * @return the maximum number of bytes per fetch
+         */
+        public Long getBatchBytes() {
+            return batchBytes;
+        }
+
+        /**
+         * Sets the maximum number of bytes per fetch.
+         *
+         * @param batchBytes the maximum number of bytes per fetch
+         */
+        public void setBatchBytes(Long batchBytes) {
+            this.batchBytes = batchBytes;
+        }
+
+        private Duration expiresIn;
+
+        /**
+         * Gets the fetch expiry.
+         *
+         * @return the fetch expiry
+         */
+        public Duration getExpiresIn() {
+            return expiresIn;
+        }
+
+        /**
+         * Sets the fetch expiry.
+         *
+         * @param expiresIn the fetch expiry
+         */
+        public void setExpiresIn(Duration expiresIn) {
+            this.expiresIn = expiresIn;
+        }
+
+        private Integer thresholdPercent;
+
+        /**
+         * Gets the re-fetch threshold percentage.
+         *
+         * @return the re-fetch threshold percentage
+         */
+        public Integer getThresholdPercent() {
+            return thresholdPercent;
+        }
+
+        /**
+         * Sets the re-fetch threshold percentage.
+         *
+         * @param thresholdPercent the re-fetch threshold percentage
+         */
+        public void setThresholdPercent(Integer thresholdPercent) {
+            this.thresholdPercent = thresholdPercent;
+        }
+
+        /**
+         * Applies the given consumer to this builder.
+         *
+         * @param builder the consumer to apply
+         * @return this builder
+         */
+        public Builder with(Consumer<Builder> builder) {
+            builder.accept(this);
+            return this;
+        }
+
+        /**
+         * Builds a new NatsPullSubscriberConfiguration instance.
+         *
+         * @return a new NatsPullSubscriberConfiguration instance
+         */
+        public NatsPullSubscriberConfiguration build() {
+            return new NatsPullSubscriberConfiguration(stream, batchSize, batchBytes, expiresIn, thresholdPercent);
+        }
+
+    }
+
+}
@@ -0,0 +1,200 @@
+package com.ariskourt.nats.consumer;
+
+import com.ariskourt.nats.configuration.NatsConsumerConfiguration;
+import com.ariskourt.nats.exception.NatsException;
+import io.nats.client.Connection;
+import io.nats.client.JetStreamApiException;
+import io.nats.client.Message;
+import io.nats.client.MessageHandler;
+import io.nats.client.api.ConsumerConfiguration;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Tunes the maximum number of pending acknowledgments of durable consumers from the throughput and latency observed in
+ * their handlers. Following Little's law, a consumer handling {@code R} messages per second with {@code N} messages
+ * pending delivers each of them {@code N / R} seconds after the server has sent it, and acknowledges it after a further
+ * handler latency {@code L}. The controller targets {@code R * (ackWait * 0.5 - L)}, so that the server delivers enough
+ * to keep the handler busy while messages stay well within their ack wait, backing off towards the lower bound as the
+ * latency approaches half the ack wait. It moves the current value half-way towards the target on every interval,
+ * within the configured bounds.
+ */
+public class NatsAdaptiveAckPendingController implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NatsAdaptiveAckPendingController.class);
+
+    private static final double ACK_WAIT_FRACTION = 0.5;
+    private static final double MIN_RELATIVE_CHANGE = 0.1;
+    private static final Duration DEFAULT_ACK_WAIT = Duration.ofSeconds(30);
+
+    private final Supplier<Connection> connection;
+    private final Duration interval;
+    private final long minAckPending;
+    private final long maxAckPending;
+    private final Map<String, TrackedConsumer> consumers = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Constructor for creating an instance of NatsAdaptiveAckPendingController.
+     *
+     * @param connection The supplier of the connection used to read and update the consumers
+     * @param interval The interval at which consumers are re-evaluated
+     * @param minAckPending The lower bound of the maximum number of pending acknowledgments
+     * @param maxAckPending The upper bound of the maximum number of pending acknowledgments
+     */
+    public NatsAdaptiveAckPendingController(Supplier<Connection> connection, Duration interval, long minAckPending, long maxAckPending) {
+        this.connection = connection;
+        this.interval = interval;
+        this.minAckPending = minAckPending;
+        this.maxAckPending = maxAckPending;
+    }
+
+    /**
+     * Starts re-evaluating the tracked consumers at the configured interval.
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().name("nats-adaptive-ack-pending").factory());
+        scheduler.scheduleWithFixedDelay(this::evaluate, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Tracks the consumer of the given configuration and wraps its handler with one measuring its throughput and
+     * latency. Handlers tracked for the same durable consumer share its measurements.
+     *
+     * @param configuration The configuration of the durable consumer
+     * @param delegate The message handler of the consumer
+     * @return The measuring message handler
+     */
+    public MessageHandler track(NatsConsumerConfiguration configuration, MessageHandler delegate) {
+        var durable = configuration.consumerConfiguration().durable();
+        if (StringUtils.isEmpty(durable)) {
+            LOGGER.warn("Adaptive max ack pending requires a durable consumer, ignoring consumer for subject(s) {}", configuration.consumerConfiguration().filterSubjects());
+            return delegate;
+        }
+        var consumer = consumers.computeIfAbsent(durable, name -> new TrackedConsumer(configuration));
+        return new MeasuredMessageHandler(consumer, delegate);
+    }
+
+    /**
+     * Stops re-evaluating the tracked consumers.
+     */
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    private void evaluate() {
+        consumers.values().forEach(consumer -> {
+            try {
+                consumer.evaluate();
+            } catch (IOException | JetStreamApiException | RuntimeException e) {
+                LOGGER.warn("Tuning max ack pending of consumer {} has failed", consumer.durable(), e);
+            }
+        });
+    }
+
+    private record MeasuredMessageHandler(TrackedConsumer consumer, MessageHandler delegate) implements MessageHandler, AutoCloseable {
+
+        @Override
+        public void onMessage(Message message) throws InterruptedException {
+            var start = System.nanoTime();
+            try {
+                delegate.onMessage(message);
+            } finally {
+                consumer.latencyNanos.add(System.nanoTime() - start);
+                consumer.handled.increment();
+            }
+        }
+
+        @Override
+        public void close() throws Exception {
+            if (delegate instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+
+    }
+
+    private final class TrackedConsumer {
+
+        private final NatsConsumerConfiguration configuration;
+        private final LongAdder handled = new LongAdder();
+        private final LongAdder latencyNanos = new LongAdder();
+
+        private String stream;
+        private long lastEvaluation = System.nanoTime();
+
+        private TrackedConsumer(NatsConsumerConfiguration configuration) {
+            this.configuration = configuration;
+        }
+
+        private String durable() {
+            return configuration.consumerConfiguration().durable();
+        }
+
+        private void evaluate() throws IOException, JetStreamApiException {
+            var now = System.nanoTime();
+            var elapsed = Duration.ofNanos(now - lastEvaluation);
+            lastEvaluation = now;
+            var count = handled.sumThenReset();
+            var latency = latencyNanos.sumThenReset();
+            if (count == 0) {
+                return;
+            }
+            var jetStreamManagement = connection.get().jetStreamManagement();
+            var info = jetStreamManagement.getConsumerInfo(resolveStream(), durable());
+            var current = info.getConsumerConfiguration();
+            var ackWait = current.getAckWait() == null ? DEFAULT_ACK_WAIT : current.getAckWait();
+            var throughput = count / (elapsed.toNanos() / 1_000_000_000.0);
+            var averageLatency = Duration.ofNanos(latency / count);
+            var budget = Math.max(0.0, ackWait.toNanos() * ACK_WAIT_FRACTION - averageLatency.toNanos()) / 1_000_000_000.0;
+            var target = (long) (throughput * budget);
+            var currentValue = current.getMaxAckPending() > 0 ? current.getMaxAckPending() : maxAckPending;
+            var next = Math.clamp((currentValue + target) / 2, minAckPending, maxAckPending);
+            if (Math.abs(next - currentValue) < currentValue * MIN_RELATIVE_CHANGE) {
+                return;
+            }
+            LOGGER.info("Changing max ack pending of consumer {} from {} to {} (throughput {}/s, average latency {} ms)",
+                    durable(), currentValue, next, Math.round(throughput), averageLatency.toMillis());
+            jetStreamManagement.addOrUpdateConsumer(info.getStreamName(), ConsumerConfiguration.builder(current)
+                    .maxAckPending(next)
+                    .build());
+        }
+
+        private String resolveStream() throws IOException, JetStreamApiException {
+            if (stream == null) {
+                var pull = configuration.natsPullSubscriberConfiguration();
+                if (pull != null && StringUtils.isNotEmpty(pull.stream())) {
+                    stream = pull.stream();
+                } else {
+                    var streams = connection.get().jetStreamManagement().getStreamNames(configuration.consumerConfiguration().filterSubjects().getFirst());
+                    if (streams.size() != 1) {
+                        throw new NatsException(String.format("Expected exactly one stream for consumer %s but found %s", durable(), streams));
+                    }
+                    stream = streams.getFirst();
+                }
+            }
+            return stream;
+        }
+
+    }
+
+}
@@ -0,0 +1,89 @@
+package com.ariskourt.nats.consumer;
+
+import com.ariskourt.nats.configuration.NatsConsumerConfiguration;
+import io.nats.client.api.ConsumerConfiguration;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Compares the desired configuration of a consumer with the one the server already holds. Only settings that have
+ * been explicitly specified in the desired configuration are compared, since anything else is left to the server
+ * defaults.
+ */
+public final class NatsConsumerDiff {
+
+    private NatsConsumerDiff() {
+    }
+
+    /**
+     * Lists the settings in which the existing consumer differs from the desired configuration.
+     *
+     * @param desired The desired configuration of the consumer
+     * @param existing The configuration of the consumer as held by the server
+     * @return The names of the settings that differ, empty if the consumer can be bound to as is
+     */
+    public static List<String> changes(NatsConsumerConfiguration desired, ConsumerConfiguration existing) {
+        var changes = new ArrayList<String>();
+        var consumer = desired.consumerConfiguration();
+        if (consumer.filterSubjects() != null && !new HashSet<>(consumer.filterSubjects()).equals(new HashSet<>(existing.getFilterSubjects()))) {
+            changes.add("filterSubjects");
+        }
+        compare(changes, "ackPolicy", consumer.ackPolicy(), existing.getAckPolicy());
+        compare(changes, "ackWait", consumer.ackAwait(), existing.getAckWait());
+        compare(changes, "deliverPolicy", consumer.deliverPolicy(), existing.getDeliverPolicy());
+        compareNumbers(changes, "startSequence", consumer.optStartSeq(), existing.getStartSequence());
+        if (consumer.optStartTime() != null && (existing.getStartTime() == null
+                || !consumer.optStartTime().toInstant().equals(existing.getStartTime().toInstant()))) {
+            changes.add("startTime");
+        }
+        compare(changes, "description", consumer.description(), existing.getDescription());
+        compare(changes, "inactiveThreshold", consumer.inactiveThreshold(), existing.getInactiveThreshold());
+        compareNumbers(changes, "maxAckPending", consumer.maxAckPending(), existing.getMaxAckPending());
+        compareNumbers(changes, "maxDeliver", consumer.maxDeliver(), existing.getMaxDeliver());
+        compare(changes, "replayPolicy", consumer.replayPolicy(), existing.getReplayPolicy());
+        compareNumbers(changes, "replicas", consumer.replicas(), existing.getNumReplicas());
+        compare(changes, "memoryStorage", consumer.memoryStorage(), existing.isMemStorage());
+        compare(changes, "sampleFrequency", consumer.sampleFrequency(), existing.getSampleFrequency());
+        compare(changes, "flowControl", consumer.flowControl(), existing.isFlowControl());
+        compare(changes, "idleHeartbeat", consumer.idleHeartbeat(), existing.getIdleHeartbeat());
+        compareNumbers(changes, "rateLimit", consumer.rateLimit(), existing.getRateLimit());
+        compare(changes, "headersOnly", consumer.headersOnly(), existing.isHeadersOnly());
+        compareNumbers(changes, "maxBatch", consumer.maxBatch(), existing.getMaxBatch());
+        compare(changes, "maxExpires", consumer.maxExpires(), existing.getMaxExpires());
+        compareNumbers(changes, "maxPullWaiting", consumer.maxPullWaiting(), existing.getMaxPullWaiting());
+        var push = desired.natsPushSubscriberConfiguration();
+        if (push != null) {
+            if (existing.getDeliverSubject() == null) {
+                changes.add("deliverSubject");
+            } else {
+                compare(changes, "deliverSubject", push.deliverSubject(), existing.getDeliverSubject());
+            }
+            if (!Objects.equals(push.deliverGroup(), existing.getDeliverGroup())) {
+                changes.add("deliverGroup");
+            }
+        } else if (existing.getDeliverSubject() != null) {
+            changes.add("deliverSubject");
+        }
+        return changes;
+    }
+
+    private static void compare(List<String> changes, String name, Object desired, Object existing) {
+        if (desired != null && !desired.equals(existing)) {
+            changes.add(name);
+        }
+    }
+
+    /**
+     * Compares numeric settings by their value, as the client library may hold them in a different type than the
+     * desired configuration.
+     */
+    private static void compareNumbers(List<String> changes, String name, Number desired, Number existing) {
+        if (desired != null && (existing == null || desired.longValue() != existing.longValue())) {
+            changes.add(name);
+        }
+    }
+
+}
@@ -0,0 +1,112 @@
+package com.ariskourt.nats.consumer;
+
+import io.nats.client.JetStreamApiException;
+import io.nats.client.JetStreamManagement;
+import io.nats.client.api.ConsumerInfo;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A point-in-time view of the streams of the server and the consumers defined on each of them. It is loaded with one
+ * request for the streams and one per stream for its consumers, so that consumers can be looked up and compared
+ * locally instead of with a round trip per handler.
+ */
+public class NatsConsumerSnapshot {
+
+    private final Map<String, List<String>> streamSubjects;
+    private final Map<String, Map<String, ConsumerInfo>> consumers;
+
+    private NatsConsumerSnapshot(Map<String, List<String>> streamSubjects, Map<String, Map<String, ConsumerInfo>> consumers) {
+        this.streamSubjects = streamSubjects;
+        this.consumers = consumers;
+    }
+
+    /**
+     * Loads the streams and consumers currently defined on the server.
+     *
+     * @param jetStreamManagement The management context used to list streams and consumers
+     * @return The loaded snapshot
+     * @throws IOException In case communicating with the server fails
+     * @throws JetStreamApiException In case the server rejects one of the requests
+     */
+    public static NatsConsumerSnapshot load(JetStreamManagement jetStreamManagement) throws IOException, JetStreamApiException {
+        var streamSubjects = new HashMap<String, List<String>>();
+        var consumers = new HashMap<String, Map<String, ConsumerInfo>>();
+        for (var streamInfo : jetStreamManagement.getStreams()) {
+            var stream = streamInfo.getConfiguration().getName();
+            streamSubjects.put(stream, streamInfo.getConfiguration().getSubjects());
+            var streamConsumers = new HashMap<String, ConsumerInfo>();
+            jetStreamManagement.getConsumers(stream).forEach(info -> streamConsumers.put(info.getName(), info));
+            consumers.put(stream, streamConsumers);
+        }
+        return new NatsConsumerSnapshot(streamSubjects, consumers);
+    }
+
+    /**
+     * Finds the single stream capturing the given subject.
+     *
+     * @param subject The subject, which may contain wildcards
+     * @return The name of the stream, or null if no or more than one stream captures the subject
+     */
+    public String findStream(String subject) {
+        var matches = streamSubjects.entrySet().stream()
+                .filter(entry -> entry.getValue().stream().anyMatch(streamSubject -> isSubsetOf(subject, streamSubject)))
+                .map(Map.Entry::getKey)
+                .toList();
+        return matches.size() == 1 ? matches.getFirst() : null;
+    }
+
+    /**
+     * Finds a consumer of a stream by name.
+     *
+     * @param stream The name of the stream
+     * @param name The name of the consumer
+     * @return The consumer info, or null if the consumer does not exist
+     */
+    public ConsumerInfo findConsumer(String stream, String name) {
+        return consumers.getOrDefault(stream, Map.of()).get(name);
+    }
+
+    /**
+     * Gets the number of streams in this snapshot.
+     *
+     * @return the number of streams
+     */
+    public int getStreamCount() {
+        return streamSubjects.size();
+    }
+
+    /**
+     * Gets the number of consumers across all streams in this snapshot.
+     *
+     * @return the number of consumers
+     */
+    public int getConsumerCount() {
+        return consumers.values().stream().mapToInt(Map::size).sum();
+    }
+
+    /**
+     * Checks whether every subject matched by {@code subject} is also matched by {@code streamSubject}, following the
+     * NATS wildcard rules where {@code *} matches a single token and {@code >} matches one or more trailing tokens.
+     */
+    private static boolean isSubsetOf(String subject, String streamSubject) {
+        var tokens = subject.split("\\.");
+        var streamTokens = streamSubject.split("\\.");
+        for (var i = 0; i < streamTokens.length; i++) {
+            if (">".equals(streamTokens[i])) {
+                return tokens.length > i;
+            }
+            if (i >= tokens.length || ">".equals(tokens[i])) {
+                return false;
+            }
+            if (!"*".equals(streamTokens[i]) && !streamTokens[i].equals(tokens[i])) {
+                return false;
+            }
+        }
+        return tokens.length == streamTokens.length;
+    }
+
+}
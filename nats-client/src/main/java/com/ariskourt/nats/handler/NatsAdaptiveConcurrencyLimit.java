@@ -0,0 +1,195 @@
+package com.ariskourt.nats.handler;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Concurrency limit of a single handler that adapts to the latency and failures it observes, following an additive
+ * increase, multiplicative decrease scheme. The latency of every handled message feeds a short-term and a long-term
+ * moving average. While the short-term latency stays within the tolerated multiple of the long-term one and at least
+ * half of the limit is in use, every handled message raises the limit by one. A failure, or a short-term latency beyond
+ * the tolerance, lowers the limit by the backoff ratio, at most once per short-term latency, so that a single slow
+ * spell is not punished once per message in flight.
+ */
+public class NatsAdaptiveConcurrencyLimit {
+
+    /**
+     * Default number of messages allowed in flight before any latency has been observed.
+     */
+    public static final int DEFAULT_INITIAL_LIMIT = 20;
+
+    /**
+     * Default lower bound of the limit.
+     */
+    public static final int DEFAULT_MIN_LIMIT = 1;
+
+    /**
+     * Default multiple of the long-term latency the short-term latency may reach before the limit is lowered.
+     */
+    public static final double DEFAULT_LATENCY_TOLERANCE = 2.0;
+
+    /**
+     * Default ratio the limit is multiplied with when it is lowered.
+     */
+    public static final double DEFAULT_BACKOFF_RATIO = 0.9;
+
+    private static final double SHORT_TERM_SMOOTHING = 0.2;
+    private static final double LONG_TERM_SMOOTHING = 0.01;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double latencyTolerance;
+    private final double backoffRatio;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+
+    private double limit;
+    private int inFlight;
+    private double latencyNanos;
+    private double baselineLatencyNanos;
+    private long lastDecrease;
+
+    /**
+     * Constructor for creating an instance of NatsAdaptiveConcurrencyLimit.
+     *
+     * @param initialLimit The number of messages allowed in flight before any latency has been observed
+     * @param minLimit The lower bound of the limit
+     * @param maxLimit The upper bound of the limit
+     * @param latencyTolerance The multiple of the long-term latency the short-term latency may reach
+     * @param backoffRatio The ratio the limit is multiplied with when it is lowered
+     */
+    public NatsAdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double latencyTolerance, double backoffRatio) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyTolerance = latencyTolerance;
+        this.backoffRatio = backoffRatio;
+        this.limit = Math.clamp(initialLimit, minLimit, maxLimit);
+    }
+
+    /**
+     * Gets the number of messages currently allowed in flight.
+     *
+     * @return the current limit
+     */
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the number of messages currently in flight.
+     *
+     * @return the number of messages in flight
+     */
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the short-term moving average of the latency.
+     *
+     * @return the short-term latency in nanoseconds
+     */
+    public double getLatencyNanos() {
+        lock.lock();
+        try {
+            return latencyNanos;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the long-term moving average of the latency, the limit is adapted against.
+     *
+     * @return the long-term latency in nanoseconds
+     */
+    public double getBaselineLatencyNanos() {
+        lock.lock();
+        try {
+            return baselineLatencyNanos;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until the number of messages in flight is below the limit and takes a slot.
+     *
+     * @throws InterruptedException In case the thread has been interrupted while waiting
+     */
+    public void acquire() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (inFlight >= (int) limit) {
+                available.await();
+            }
+            inFlight++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gives back a slot taken by {@link #acquire()} and adapts the limit to the outcome of the message.
+     *
+     * @param latency The time spent handling the message, in nanoseconds
+     * @param failed Whether handling the message has failed
+     */
+    public void release(long latency, boolean failed) {
+        lock.lock();
+        try {
+            var utilized = inFlight * 2 >= (int) limit;
+            inFlight--;
+            if (latencyNanos == 0) {
+                latencyNanos = latency;
+                baselineLatencyNanos = latency;
+            } else {
+                latencyNanos += SHORT_TERM_SMOOTHING * (latency - latencyNanos);
+                baselineLatencyNanos += LONG_TERM_SMOOTHING * (latency - baselineLatencyNanos);
+            }
+            if (failed || latencyNanos > baselineLatencyNanos * latencyTolerance) {
+                decrease();
+            } else if (utilized && limit < maxLimit) {
+                limit = Math.min(maxLimit, limit + 1);
+                available.signalAll();
+                return;
+            }
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Lowers the limit because handling a message has failed outside of {@link #release(long, boolean)}, for example
+     * when a message is negatively acknowledged.
+     */
+    public void failed() {
+        lock.lock();
+        try {
+            decrease();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void decrease() {
+        var now = System.nanoTime();
+        if (now - lastDecrease < latencyNanos) {
+            return;
+        }
+        lastDecrease = now;
+        limit = Math.max(minLimit, limit * backoffRatio);
+    }
+
+}
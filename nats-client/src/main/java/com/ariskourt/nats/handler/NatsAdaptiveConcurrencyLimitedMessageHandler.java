@@ -0,0 +1,57 @@
+package com.ariskourt.nats.handler;
+
+import io.nats.client.Message;
+import io.nats.client.MessageHandler;
+
+/**
+ * Message handler bounding the number of messages its delegate processes concurrently by a
+ * {@link NatsAdaptiveConcurrencyLimit}, reporting the latency and outcome of every message back to it.
+ */
+public class NatsAdaptiveConcurrencyLimitedMessageHandler implements MessageHandler, AutoCloseable {
+
+    private final MessageHandler delegate;
+    private final NatsAdaptiveConcurrencyLimit limit;
+
+    /**
+     * Constructor for creating an instance of NatsAdaptiveConcurrencyLimitedMessageHandler.
+     *
+     * @param delegate The message handler processing the messages
+     * @param limit The adaptive limit bounding the delegate
+     */
+    public NatsAdaptiveConcurrencyLimitedMessageHandler(MessageHandler delegate, NatsAdaptiveConcurrencyLimit limit) {
+        this.delegate = delegate;
+        this.limit = limit;
+    }
+
+    /**
+     * Waits for a free slot, passes the message to the delegate and reports how long it took and whether it failed.
+     *
+     * @param message The NATS message
+     * @throws InterruptedException In case the thread has been interrupted while waiting or handling
+     */
+    @Override
+    public void onMessage(Message message) throws InterruptedException {
+        limit.acquire();
+        var start = System.nanoTime();
+        var failed = true;
+        try {
+            delegate.onMessage(message);
+            failed = false;
+        } finally {
+            limit.release(System.nanoTime() - start, failed);
+        }
+    }
+
+    /**
+     * Closes the delegate, if it holds resources.
+     *
+     * @throws Exception In case closing the delegate fails
+     */
+    @Override
+    public void close() throws Exception {
+        if (delegate instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
+}
@@ -0,0 +1,80 @@
+package com.ariskourt.nats.handler;
+
+import com.ariskourt.nats.exception.NatsException;
+import io.nats.client.Message;
+import io.nats.client.api.AckPolicy;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Interface representing a handler that receives NATS messages in batches, decoded into its event class. A batch is
+ * closed once it reaches {@link #batchMaxSize()} messages, {@link #batchMaxBytes()} payload bytes or has been open for
+ * {@link #batchMaxLinger()}, whichever comes first. The framework acknowledges the whole batch after
+ * {@link #handle(List, List)} returns and negatively acknowledges it in case the method throws.
+ *
+ * @param <T> The type of event that this handler processes, which extends {@link NatsEvent}
+ */
+public interface NatsBatchHandler<T extends NatsEvent> extends NatsHandler<T> {
+
+    /**
+     * Handles a batch of decoded events
+     *
+     * @param events The events decoded from the message payloads, in delivery order
+     * @param messages The NATS messages the events were decoded from, in the same order as the events
+     */
+    void handle(List<T> events, List<Message> messages);
+
+    /**
+     * The maximum number of messages in a batch
+     *
+     * @return The maximum number of messages in a batch
+     */
+    default int batchMaxSize() {
+        return 100;
+    }
+
+    /**
+     * The maximum number of payload bytes in a batch. A non-positive value means batches are not bounded by size.
+     *
+     * @return The maximum number of payload bytes in a batch
+     */
+    default long batchMaxBytes() {
+        return 1024 * 1024;
+    }
+
+    /**
+     * The maximum duration a batch stays open after its first message has arrived
+     *
+     * @return The maximum linger duration of a batch
+     */
+    default Duration batchMaxLinger() {
+        return Duration.ofMillis(100);
+    }
+
+    /**
+     * Batches are acknowledged message by message. A push consumer without a deliver group may opt into
+     * {@link AckPolicy#All}, acknowledging a batch by its last message; after a failed batch its acknowledgments are
+     * then held back until every negatively acknowledged message has been handled again, has been terminated on its
+     * last delivery or has not come back within the ack wait, as acknowledging a later message would acknowledge them
+     * too.
+     *
+     * @return The acknowledgment policy of the consumer
+     */
+    @Override
+    default AckPolicy ackPolicy() {
+        return AckPolicy.Explicit;
+    }
+
+    /**
+     * Batch handlers are dispatched through {@link NatsBatchingMessageHandler}, which collects and decodes the
+     * messages and calls {@link #handle(List, List)}. This method is therefore never expected to be invoked directly.
+     *
+     * @param message A NATS message
+     */
+    @Override
+    default void onMessage(Message message) {
+        throw new NatsException(String.format("Batch handler %s must be registered through a batching message handler", getClass().getName()));
+    }
+
+}
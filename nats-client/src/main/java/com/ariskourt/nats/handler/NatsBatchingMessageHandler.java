@@ -0,0 +1,204 @@
+package com.ariskourt.nats.handler;
+
+import com.ariskourt.nats.ack.NatsAcknowledger;
+import com.ariskourt.nats.codec.NatsCodec;
+import com.ariskourt.nats.codec.NatsPayloadReader;
+import io.nats.client.Message;
+import io.nats.client.MessageHandler;
+import io.nats.client.api.AckPolicy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Message handler that collects messages into batches for a {@link NatsBatchHandler}. Batches are closed by count, by
+ * payload bytes or by a linger timer, decoded with a pre-built codec and acknowledged in bulk once handled. Batches are
+ * handled one at a time, in the order they were closed, so that acknowledging the last message of a batch never covers
+ * messages of a batch that is still being processed. Messages keep being collected into the next batch while one is
+ * handled.
+ * <p>
+ * Under {@link AckPolicy#All} acknowledging a message acknowledges every message delivered before it, including the
+ * negatively acknowledged messages of a failed batch. The stream sequences of those messages are therefore remembered
+ * and no batch is acknowledged until all of them have been redelivered and handled; batches handled in the meantime
+ * are redelivered once their ack wait has elapsed. A failed message on its last delivery is terminated instead, and
+ * one that has not come back within the ack wait, having been terminated or delivered elsewhere, is forgotten, so
+ * that acknowledgments are never held back for good.
+ * </p>
+ *
+ * @param <T> The type of event decoded from the messages
+ */
+public class NatsBatchingMessageHandler<T extends NatsEvent> implements MessageHandler, AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NatsBatchingMessageHandler.class);
+
+    private final NatsBatchHandler<T> handler;
+    private final NatsCodec<T> codec;
+    private final NatsPayloadReader payloadReader;
+    private final NatsAcknowledger acknowledger;
+    private final ScheduledExecutorService lingerScheduler;
+    private static final Duration DEFAULT_ACK_WAIT = Duration.ofSeconds(30);
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ReentrantLock handling = new ReentrantLock();
+    private final Map<Long, Long> unacknowledged = new HashMap<>();
+
+    private List<Message> messages = new ArrayList<>();
+    private long bytes;
+    private ScheduledFuture<?> lingerFlush;
+
+    /**
+     * Constructor for creating an instance of NatsBatchingMessageHandler.
+     *
+     * @param handler The batch handler the decoded batches are passed to
+     * @param codec The codec used to decode the message payloads
+     * @param acknowledger The acknowledger sending the bulk acknowledgments
+     */
+    public NatsBatchingMessageHandler(NatsBatchHandler<T> handler, NatsCodec<T> codec, NatsAcknowledger acknowledger) {
+        this(handler, codec, NatsPayloadReader.raw(), acknowledger);
+    }
+
+    /**
+     * Constructor for creating an instance of NatsBatchingMessageHandler reading payloads through a payload reader.
+     *
+     * @param handler The batch handler the decoded batches are passed to
+     * @param codec The codec used to decode the message payloads
+     * @param payloadReader The reader of the message payloads, undoing any compression applied by the producer
+     * @param acknowledger The acknowledger sending the bulk acknowledgments
+     */
+    public NatsBatchingMessageHandler(NatsBatchHandler<T> handler, NatsCodec<T> codec, NatsPayloadReader payloadReader,
+                                      NatsAcknowledger acknowledger) {
+        this.handler = handler;
+        this.codec = codec;
+        this.payloadReader = payloadReader;
+        this.acknowledger = acknowledger;
+        this.lingerScheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual()
+                .name("nats-batch-" + handler.durable())
+                .factory());
+    }
+
+    /**
+     * Adds the message to the current batch and handles the batch in case it has reached its count or size limit.
+     *
+     * @param message The NATS message
+     */
+    @Override
+    public void onMessage(Message message) {
+        lock.lock();
+        try {
+            if (messages.isEmpty()) {
+                lingerFlush = lingerScheduler.schedule(this::flush, handler.batchMaxLinger().toMillis(), TimeUnit.MILLISECONDS);
+            }
+            messages.add(message);
+            bytes += message.getData() == null ? 0 : message.getData().length;
+            if (messages.size() >= handler.batchMaxSize() || (handler.batchMaxBytes() > 0 && bytes >= handler.batchMaxBytes())) {
+                flush();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Handles the current batch, if any, and acknowledges or negatively acknowledges its messages depending on the
+     * outcome. The batch is handled once the previous one has been, without holding up the collection of the next.
+     */
+    public void flush() {
+        List<Message> batch;
+        lock.lock();
+        try {
+            if (lingerFlush != null) {
+                lingerFlush.cancel(false);
+                lingerFlush = null;
+            }
+            if (messages.isEmpty()) {
+                return;
+            }
+            batch = messages;
+            messages = new ArrayList<>(handler.batchMaxSize());
+            bytes = 0;
+            handling.lock();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            handleBatch(batch);
+        } finally {
+            handling.unlock();
+        }
+    }
+
+    /**
+     * Handles any pending batch and stops the linger timer.
+     */
+    @Override
+    public void close() {
+        flush();
+        lingerScheduler.shutdownNow();
+    }
+
+    private void handleBatch(List<Message> batch) {
+        try {
+            var events = new ArrayList<T>(batch.size());
+            for (var message : batch) {
+                events.add(codec.decode(payloadReader.read(message)));
+            }
+            handler.handle(events, batch);
+        } catch (RuntimeException e) {
+            LOGGER.error("Handling batch of {} messages for consumer {} failed", batch.size(), handler.durable(), e);
+            if (AckPolicy.All == handler.ackPolicy()) {
+                failedAll(batch);
+            } else {
+                batch.forEach(acknowledger::nak);
+            }
+            return;
+        }
+        acknowledge(batch);
+    }
+
+    private void acknowledge(List<Message> batch) {
+        switch (handler.ackPolicy()) {
+            case All -> acknowledgeAll(batch);
+            case Explicit -> batch.forEach(acknowledger::ack);
+            default -> LOGGER.trace("Consumer {} does not require acknowledgments", handler.durable());
+        }
+    }
+
+    private void failedAll(List<Message> batch) {
+        var maxDeliver = handler.maxDeliver();
+        var ackWait = handler.ackWait() == null ? DEFAULT_ACK_WAIT : handler.ackWait();
+        var expiresAt = System.nanoTime() + ackWait.toNanos();
+        for (var message : batch) {
+            var metaData = message.metaData();
+            if (maxDeliver != null && maxDeliver > 0 && metaData.deliveredCount() >= maxDeliver) {
+                acknowledger.term(message);
+            } else {
+                unacknowledged.put(metaData.streamSequence(), expiresAt);
+                acknowledger.nak(message);
+            }
+        }
+    }
+
+    private void acknowledgeAll(List<Message> batch) {
+        if (!unacknowledged.isEmpty()) {
+            batch.forEach(message -> unacknowledged.remove(message.metaData().streamSequence()));
+            var now = System.nanoTime();
+            unacknowledged.values().removeIf(expiresAt -> now - expiresAt >= 0);
+            if (!unacknowledged.isEmpty()) {
+                LOGGER.debug("Holding back the acknowledgment of consumer {} until {} failed message(s) are handled", handler.durable(), unacknowledged.size());
+                return;
+            }
+        }
+        acknowledger.ack(batch.getLast());
+    }
+
+}
@@ -0,0 +1,67 @@
+package com.ariskourt.nats.handler;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free Bloom filter over string keys, sized for an expected number of insertions and false positive rate. It
+ * answers whether a key has definitely not been added, which spares the lookup of keys that have never been seen.
+ */
+final class NatsBloomFilter {
+
+    private final AtomicLongArray bits;
+    private final int bitCount;
+    private final int hashCount;
+
+    NatsBloomFilter(int expectedInsertions, double falsePositiveRate) {
+        var insertions = Math.max(1, expectedInsertions);
+        var rate = Math.clamp(falsePositiveRate, 1e-9, 0.5);
+        var optimalBits = (long) Math.ceil(-insertions * Math.log(rate) / (Math.log(2) * Math.log(2)));
+        this.bitCount = (int) Math.clamp(optimalBits, 64L, Integer.MAX_VALUE - 63L);
+        this.hashCount = Math.clamp(Math.round((double) bitCount / insertions * Math.log(2)), 1, 16);
+        this.bits = new AtomicLongArray((bitCount + 63) / 64);
+    }
+
+    void add(String key) {
+        var hash = hash(key);
+        var first = (int) hash;
+        var second = (int) (hash >>> 32);
+        for (var i = 0; i < hashCount; i++) {
+            var bit = Math.floorMod(first + i * second, bitCount);
+            var word = bit >>> 6;
+            var mask = 1L << bit;
+            var current = bits.get(word);
+            while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask)) {
+                current = bits.get(word);
+            }
+        }
+    }
+
+    boolean mightContain(String key) {
+        var hash = hash(key);
+        var first = (int) hash;
+        var second = (int) (hash >>> 32);
+        for (var i = 0; i < hashCount; i++) {
+            var bit = Math.floorMod(first + i * second, bitCount);
+            if ((bits.get(bit >>> 6) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 64-bit FNV-1a hash of the key, finalized with the mixer of SplitMix64 so that both halves are well distributed.
+     */
+    private static long hash(String key) {
+        var hash = 0xcbf29ce484222325L;
+        for (var b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        hash = (hash ^ (hash >>> 30)) * 0xbf58476d1ce4e5b9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94d049bb133111ebL;
+        return hash ^ (hash >>> 31);
+    }
+
+}
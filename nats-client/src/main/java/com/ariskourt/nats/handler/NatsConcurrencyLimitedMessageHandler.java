@@ -0,0 +1,77 @@
+package com.ariskourt.nats.handler;
+
+import io.nats.client.Message;
+import io.nats.client.MessageHandler;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * Message handler bounding the number of messages its delegate processes concurrently. Meant for dispatchers running
+ * each message on its own virtual thread, where the executor itself imposes no bound: a message arriving while the
+ * limit is reached parks its virtual thread until another message of the same handler completes.
+ */
+public class NatsConcurrencyLimitedMessageHandler implements MessageHandler, AutoCloseable {
+
+    private final MessageHandler delegate;
+    private final Semaphore permits;
+    private final int limit;
+
+    /**
+     * Constructor for creating an instance of NatsConcurrencyLimitedMessageHandler.
+     *
+     * @param delegate The message handler processing the messages
+     * @param limit The maximum number of messages processed concurrently
+     */
+    public NatsConcurrencyLimitedMessageHandler(MessageHandler delegate, int limit) {
+        this.delegate = delegate;
+        this.permits = new Semaphore(limit);
+        this.limit = limit;
+    }
+
+    /**
+     * Gets the maximum number of messages processed concurrently.
+     *
+     * @return the concurrency limit
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Gets the number of messages currently processed.
+     *
+     * @return the number of messages in flight
+     */
+    public int getInFlight() {
+        return limit - permits.availablePermits();
+    }
+
+    /**
+     * Waits for a free permit and passes the message to the delegate.
+     *
+     * @param message The NATS message
+     * @throws InterruptedException In case the thread has been interrupted while waiting or handling
+     */
+    @Override
+    public void onMessage(Message message) throws InterruptedException {
+        permits.acquire();
+        try {
+            delegate.onMessage(message);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Closes the delegate, if it holds resources.
+     *
+     * @throws Exception In case closing the delegate fails
+     */
+    @Override
+    public void close() throws Exception {
+        if (delegate instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
+}
@@ -0,0 +1,89 @@
+package com.ariskourt.nats.handler;
+
+import com.ariskourt.nats.codec.NatsCodec;
+import com.ariskourt.nats.codec.NatsPayloadReader;
+import io.nats.client.Message;
+import io.nats.client.MessageHandler;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Message handler that decodes the payload of each message with a pre-built codec and passes the result to a
+ * {@link NatsTypedHandler}. The payload is read through a {@link NatsPayloadReader}, which undoes any compression
+ * applied by the producer.
+ * <p>
+ * When the handler orders its messages by a field of the event, the payload is decoded by the
+ * {@link #orderingKey() ordering key} as the message is dispatched, and the decoded event is held on to until the
+ * message reaches this handler on its lane, so that each payload is decoded once.
+ * </p>
+ *
+ * @param <T> The type of event decoded from the messages
+ */
+public class NatsDecodingMessageHandler<T extends NatsEvent> implements MessageHandler {
+
+    private final NatsTypedHandler<T> handler;
+    private final NatsCodec<T> codec;
+    private final NatsPayloadReader payloadReader;
+    private final Map<Message, T> decoded = Collections.synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * Constructor for creating an instance of NatsDecodingMessageHandler.
+     *
+     * @param handler The typed handler the decoded events are passed to
+     * @param codec The codec used to decode the message payloads
+     */
+    public NatsDecodingMessageHandler(NatsTypedHandler<T> handler, NatsCodec<T> codec) {
+        this(handler, codec, NatsPayloadReader.raw());
+    }
+
+    /**
+     * Constructor for creating an instance of NatsDecodingMessageHandler reading payloads through a payload reader.
+     *
+     * @param handler The typed handler the decoded events are passed to
+     * @param codec The codec used to decode the message payloads
+     * @param payloadReader The reader of the message payloads
+     */
+    public NatsDecodingMessageHandler(NatsTypedHandler<T> handler, NatsCodec<T> codec, NatsPayloadReader payloadReader) {
+        this.handler = handler;
+        this.codec = codec;
+        this.payloadReader = payloadReader;
+    }
+
+    /**
+     * Decodes the payload of the message and passes it to the typed handler.
+     *
+     * @param message The NATS message
+     * @throws InterruptedException In case the handler has been interrupted
+     */
+    @Override
+    public void onMessage(Message message) throws InterruptedException {
+        var event = decoded.remove(message);
+        handler.handle(event != null ? event : decode(message), message);
+    }
+
+    /**
+     * Creates the ordering key of the messages of the handler out of its {@link NatsTypedHandler#orderingField()},
+     * holding on to the events it decodes for when the messages are handled. Messages that never reach this handler,
+     * such as skipped duplicates, release their events once they are garbage collected.
+     *
+     * @return The ordering key, or null if the handler does not order its messages by a field of the event
+     */
+    public NatsOrderingKey orderingKey() {
+        var field = handler.orderingField();
+        if (field == null) {
+            return null;
+        }
+        return message -> {
+            var event = decode(message);
+            decoded.put(message, event);
+            return field.apply(event);
+        };
+    }
+
+    private T decode(Message message) {
+        return codec.decode(payloadReader.read(message));
+    }
+
+}
@@ -0,0 +1,79 @@
+package com.ariskourt.nats.handler;
+
+import com.ariskourt.nats.ack.NatsAcknowledger;
+import io.nats.client.Message;
+import io.nats.client.MessageHandler;
+
+/**
+ * Message handler skipping messages whose handling has already completed, such as messages redelivered after their
+ * acknowledgment has been lost or has timed out. Messages are keyed by their {@code Nats-Msg-Id} header, falling back
+ * to their stream and stream sequence, and recorded in a {@link NatsDeduplicationCache} once the delegate has returned
+ * without throwing. Duplicates are acknowledged without invoking the delegate.
+ */
+public class NatsDeduplicatingMessageHandler implements MessageHandler {
+
+    /**
+     * The header carrying the id of a message.
+     */
+    public static final String MESSAGE_ID_HEADER = "Nats-Msg-Id";
+
+    private final MessageHandler delegate;
+    private final NatsDeduplicationCache cache;
+    private final NatsAcknowledger acknowledger;
+
+    /**
+     * Constructor for creating an instance of NatsDeduplicatingMessageHandler.
+     *
+     * @param delegate The message handler processing the messages
+     * @param cache The cache of the keys of completed messages
+     * @param acknowledger The acknowledger sending the acknowledgments of duplicates, or null in case duplicates are
+     *                     acknowledged further up the chain, as by automatic acknowledgment
+     */
+    public NatsDeduplicatingMessageHandler(MessageHandler delegate, NatsDeduplicationCache cache, NatsAcknowledger acknowledger) {
+        this.delegate = delegate;
+        this.cache = cache;
+        this.acknowledger = acknowledger;
+    }
+
+    /**
+     * Acknowledges the message if it is a duplicate, or passes it to the delegate and records it otherwise.
+     *
+     * @param message The NATS message
+     * @throws InterruptedException In case the delegate has been interrupted
+     */
+    @Override
+    public void onMessage(Message message) throws InterruptedException {
+        var key = keyOf(message);
+        if (key != null && cache.contains(key)) {
+            if (acknowledger != null) {
+                acknowledger.ack(message);
+            }
+            return;
+        }
+        delegate.onMessage(message);
+        if (key != null) {
+            cache.add(key);
+        }
+    }
+
+    /**
+     * Gets the key a message is deduplicated by
+     *
+     * @param message The NATS message
+     * @return The key of the message, or null if it has neither a message id nor a stream sequence
+     */
+    public static String keyOf(Message message) {
+        if (message.hasHeaders()) {
+            var messageId = message.getHeaders().getFirst(MESSAGE_ID_HEADER);
+            if (messageId != null) {
+                return "id:" + messageId;
+            }
+        }
+        if (message.isJetStream()) {
+            var metaData = message.metaData();
+            return "seq:" + metaData.getStream() + ":" + metaData.streamSequence();
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,148 @@
+package com.ariskourt.nats.handler;
+
+import com.ariskourt.nats.cache.NatsExpiringMap;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded, concurrent cache of the keys of messages whose handling has completed within a time window. Keys are
+ * evicted in the order they were added, once they have left the window or the cache has outgrown its bound.
+ * <p>
+ * Optionally, lookups are fronted by two generations of Bloom filters, each sized for the bound of the cache and
+ * rotated once it is full or the window has passed. Together they cover every key the cache can still hold, so that
+ * keys that have never been seen, which is the common case, are answered without a lookup.
+ * </p>
+ */
+public class NatsDeduplicationCache {
+
+    /**
+     * Default maximum number of keys held.
+     */
+    public static final int DEFAULT_MAX_ENTRIES = 100_000;
+
+    /**
+     * Default window keys are held for, matching the default duplicate window of JetStream streams.
+     */
+    public static final Duration DEFAULT_WINDOW = Duration.ofMinutes(2);
+
+    /**
+     * Default false positive rate of the Bloom filters.
+     */
+    public static final double DEFAULT_FALSE_POSITIVE_RATE = 0.01;
+
+    private final int maxEntries;
+    private final long windowNanos;
+    private final double falsePositiveRate;
+    private final boolean bloomFilter;
+    private final NatsExpiringMap<String, Boolean> entries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private volatile Generation current;
+    private volatile Generation previous;
+
+    /**
+     * Constructor for creating an instance of NatsDeduplicationCache.
+     *
+     * @param maxEntries The maximum number of keys held
+     * @param window The duration keys are held for
+     * @param bloomFilter Whether lookups are fronted by Bloom filters
+     * @param falsePositiveRate The false positive rate of the Bloom filters
+     */
+    public NatsDeduplicationCache(int maxEntries, Duration window, boolean bloomFilter, double falsePositiveRate) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.windowNanos = window.toNanos();
+        this.bloomFilter = bloomFilter;
+        this.falsePositiveRate = falsePositiveRate;
+        this.entries = new NatsExpiringMap<>(this.maxEntries, window);
+        if (bloomFilter) {
+            this.current = new Generation(new NatsBloomFilter(this.maxEntries, falsePositiveRate), System.nanoTime());
+            this.previous = current;
+        }
+    }
+
+    /**
+     * Checks whether the handling of a message with the given key has completed within the window, counting the
+     * lookup as a hit or a miss.
+     *
+     * @param key The key of the message
+     * @return true if the message is a duplicate, false otherwise
+     */
+    public boolean contains(String key) {
+        if (bloomFilter && !current.filter().mightContain(key) && !previous.filter().mightContain(key)) {
+            misses.increment();
+            return false;
+        }
+        if (entries.get(key) != null) {
+            hits.increment();
+            return true;
+        }
+        misses.increment();
+        return false;
+    }
+
+    /**
+     * Records that the handling of a message with the given key has completed.
+     *
+     * @param key The key of the message
+     */
+    public void add(String key) {
+        if (bloomFilter) {
+            generation(System.nanoTime()).add(key);
+        }
+        entries.put(key, Boolean.TRUE);
+    }
+
+    /**
+     * Gets the number of lookups that have found a duplicate.
+     *
+     * @return the number of hits
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Gets the number of lookups that have not found a duplicate.
+     *
+     * @return the number of misses
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Gets the number of keys held.
+     *
+     * @return the size of the cache
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    private NatsBloomFilter generation(long now) {
+        var generation = current;
+        if (generation.insertions().sum() >= maxEntries || now - generation.createdAt() >= windowNanos) {
+            synchronized (this) {
+                generation = current;
+                if (generation.insertions().sum() >= maxEntries || now - generation.createdAt() >= windowNanos) {
+                    previous = generation;
+                    generation = new Generation(new NatsBloomFilter(maxEntries, falsePositiveRate), now);
+                    current = generation;
+                }
+            }
+        }
+        generation.insertions().increment();
+        return generation.filter();
+    }
+
+    private record Generation(NatsBloomFilter filter, long createdAt, LongAdder insertions) {
+
+        private Generation(NatsBloomFilter filter, long createdAt) {
+            this(filter, createdAt, new LongAdder());
+        }
+
+    }
+
+}
@@ -1,7 +1,9 @@
 package com.ariskourt.nats.handler;
 
+import com.ariskourt.nats.configuration.NatsConsumptionMode;
 import io.nats.client.Message;
 import io.nats.client.MessageHandler;
+import io.nats.client.api.AckPolicy;
 
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
@@ -91,4 +93,272 @@ public interface NatsHandler<T extends NatsEvent> extends MessageHandler {
         return null;
     }
 
+    /**
+     * The maximum number of messages delivered to the consumer and not yet acknowledged. Once reached, the server
+     * stops delivering until acknowledgments come in.
+     *
+     * @return The maximum number of pending acknowledgments
+     */
+    default Long maxAckPending() {
+        return null;
+    }
+
+    /**
+     * Whether the maximum number of pending acknowledgments of the consumer is tuned at runtime from the observed
+     * throughput and latency of this handler, starting from {@link #maxAckPending()}. Requires a durable consumer. When
+     * existing consumers are bound to, the value a consumer has been tuned to is kept across restarts.
+     *
+     * @return true if the maximum number of pending acknowledgments is adaptive, false otherwise
+     */
+    default boolean adaptiveMaxAckPending() {
+        return false;
+    }
+
+    /**
+     * Whether the server applies flow control towards the push consumer of this handler, pausing delivery until the
+     * client has caught up. Requires {@link #idleHeartbeat()} to be set.
+     *
+     * @return true if flow control is enabled, null to use the server default
+     */
+    default Boolean flowControl() {
+        return null;
+    }
+
+    /**
+     * The interval at which the server sends heartbeats to an idle push consumer of this handler
+     *
+     * @return The idle heartbeat interval
+     */
+    default Duration idleHeartbeat() {
+        return null;
+    }
+
+    /**
+     * The maximum rate, in bits per second, at which messages are delivered to the push consumer of this handler
+     *
+     * @return The delivery rate limit
+     */
+    default Long rateLimit() {
+        return null;
+    }
+
+    /**
+     * Whether only the headers of messages are delivered to this handler, without their payload
+     *
+     * @return true if only headers are delivered, null to use the server default
+     */
+    default Boolean headersOnly() {
+        return null;
+    }
+
+    /**
+     * The maximum number of messages a single pull request of the consumer may ask for
+     *
+     * @return The maximum pull batch size
+     */
+    default Long maxBatch() {
+        return null;
+    }
+
+    /**
+     * The maximum expiry a single pull request of the consumer may ask for
+     *
+     * @return The maximum pull expiry
+     */
+    default Duration maxExpires() {
+        return null;
+    }
+
+    /**
+     * The maximum number of pull requests of the consumer waiting to be fulfilled
+     *
+     * @return The maximum number of waiting pull requests
+     */
+    default Long maxPullWaiting() {
+        return null;
+    }
+
+    /**
+     * The acknowledgment policy of the consumer that corresponds to this message handler
+     *
+     * @return The acknowledgment policy of the consumer
+     */
+    default AckPolicy ackPolicy() {
+        return AckPolicy.Explicit;
+    }
+
+    /**
+     * Whether the framework acknowledges the messages of this handler. When enabled, each message is acknowledged
+     * once the handler returns and negatively acknowledged in case it throws, through the asynchronous ack pipeline
+     * of the client. Handlers must then not acknowledge messages themselves.
+     *
+     * @return true if messages are acknowledged by the framework, false otherwise
+     */
+    default boolean autoAck() {
+        return false;
+    }
+
+    /**
+     * The extractor of the key that orders the messages of this handler. When defined, messages are spread over
+     * {@link #orderingLanes()} lanes by key, keeping the order of messages sharing a key while handling the rest in
+     * parallel. A failed message holds back its lane and is retried in place until it succeeds, or until its attempts
+     * under {@link #retryPolicy()} are exhausted. Batch handlers are always handled in delivery order and ignore this
+     * setting. Ordering requires messages to be dispatched serially, so it cannot be combined with dispatchers handing
+     * messages to an executor.
+     *
+     * @return The ordering key extractor, or null to handle messages on the dispatcher thread
+     */
+    default NatsOrderingKey orderingKey() {
+        return null;
+    }
+
+    /**
+     * The number of lanes messages are spread over when an ordering key is defined
+     *
+     * @return The number of ordered lanes
+     */
+    default int orderingLanes() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * The maximum number of messages queued per ordered lane before the dispatcher blocks
+     *
+     * @return The capacity of each ordered lane
+     */
+    default int orderingLaneCapacity() {
+        return 256;
+    }
+
+    /**
+     * The maximum number of messages of this handler processed concurrently. When null, handlers are bounded by the
+     * configured handler concurrency if each message runs on its own virtual thread, and left unbounded otherwise.
+     *
+     * @return The maximum number of messages processed concurrently
+     */
+    default Integer maxConcurrency() {
+        return null;
+    }
+
+    /**
+     * Whether the number of messages of this handler processed concurrently adapts to the observed latency and
+     * failures, up to {@link #maxConcurrency()}. Not applied to batch handlers.
+     *
+     * @return true if the concurrency of this handler is adaptive, false otherwise
+     */
+    default boolean adaptiveConcurrency() {
+        return false;
+    }
+
+    /**
+     * The predicate the headers of a message must match for this handler to receive it. Messages that do not match
+     * are acknowledged according to {@link #unmatchedAction()} without their payload being decoded. Push handlers
+     * sharing a durable consumer and each declaring a header filter share a single subscription, whose messages are
+     * routed to the first handler, in the order of their class names, whose filter matches.
+     *
+     * @return The header filter of this handler, or null to receive every message of the consumer
+     */
+    default NatsHeaderPredicate headerFilter() {
+        return null;
+    }
+
+    /**
+     * The acknowledgment sent for messages whose headers match the {@link #headerFilter()} of no handler of the
+     * consumer. Not applied when the consumer does not acknowledge messages.
+     *
+     * @return The acknowledgment sent for unmatched messages
+     */
+    default NatsUnmatchedAction unmatchedAction() {
+        return NatsUnmatchedAction.ACK;
+    }
+
+    /**
+     * Whether messages whose handling has already completed are acknowledged without being passed to this handler
+     * again, such as messages redelivered after their acknowledgment has been lost. Messages are keyed by their
+     * {@code Nats-Msg-Id} header or their stream sequence. Not applied to batch handlers.
+     *
+     * @return true if redelivered duplicates are skipped, false otherwise
+     */
+    default boolean deduplicate() {
+        return false;
+    }
+
+    /**
+     * The window within which duplicates of a completed message are skipped
+     *
+     * @return The deduplication window, or null to use the configured one
+     */
+    default Duration deduplicationWindow() {
+        return null;
+    }
+
+    /**
+     * The retry policy applied to the messages this handler fails on. Failed messages are negatively acknowledged with
+     * an exponentially growing delay and, once their attempts are exhausted, published to the dead-letter subject of
+     * the policy and terminated. The attempts are capped by {@link #maxDeliver()}, less one delivery kept in reserve
+     * for publishing to the dead-letter subject again in case it fails. Handlers defining an ordering key retry in
+     * place, waiting for the delay themselves. Not applied to batch handlers.
+     *
+     * @return The retry policy, or null to let failed messages be redelivered by the consumer right away
+     */
+    default NatsRetryPolicy retryPolicy() {
+        return null;
+    }
+
+    /**
+     * The way in which this handler consumes the messages of its consumer. Push consumers get messages delivered by
+     * the server, while pull consumers fetch them in bounded batches.
+     *
+     * @return The consumption mode of this handler
+     */
+    default NatsConsumptionMode consumptionMode() {
+        return NatsConsumptionMode.PUSH;
+    }
+
+    /**
+     * The name of the stream a pull consumer is created on. When not defined, the stream is looked up using the
+     * filter subjects of this handler.
+     *
+     * @return The name of the stream
+     */
+    default String stream() {
+        return null;
+    }
+
+    /**
+     * The maximum number of messages requested by a single fetch of a pull consumer
+     *
+     * @return The maximum number of messages per fetch
+     */
+    default Integer fetchBatchSize() {
+        return null;
+    }
+
+    /**
+     * The maximum number of bytes requested by a single fetch of a pull consumer
+     *
+     * @return The maximum number of bytes per fetch
+     */
+    default Long fetchBatchBytes() {
+        return null;
+    }
+
+    /**
+     * The duration after which an unfulfilled fetch of a pull consumer expires on the server
+     *
+     * @return The fetch expiry
+     */
+    default Duration fetchExpiresIn() {
+        return null;
+    }
+
+    /**
+     * The percentage of a fetched batch that may remain pending before the next fetch of a pull consumer is issued
+     *
+     * @return The re-fetch threshold percentage
+     */
+    default Integer fetchThresholdPercent() {
+        return null;
+    }
+
 }
@@ -0,0 +1,103 @@
+package com.ariskourt.nats.handler;
+
+import io.nats.client.impl.Headers;
+
+import java.util.Set;
+
+/**
+ * Decides from the headers of a message alone whether a handler is interested in it, so that messages nobody is
+ * interested in are discarded without their payload being decoded.
+ */
+@FunctionalInterface
+public interface NatsHeaderPredicate {
+
+    /**
+     * Tests the headers of a message
+     *
+     * @param headers The headers of the message, or null if it has none
+     * @return true if the handler is interested in the message, false otherwise
+     */
+    boolean test(Headers headers);
+
+    /**
+     * Combines this predicate with another one, matching only if both do
+     *
+     * @param other The other predicate
+     * @return The combined predicate
+     */
+    default NatsHeaderPredicate and(NatsHeaderPredicate other) {
+        return headers -> test(headers) && other.test(headers);
+    }
+
+    /**
+     * Combines this predicate with another one, matching if either does
+     *
+     * @param other The other predicate
+     * @return The combined predicate
+     */
+    default NatsHeaderPredicate or(NatsHeaderPredicate other) {
+        return headers -> test(headers) || other.test(headers);
+    }
+
+    /**
+     * Negates this predicate
+     *
+     * @return The negated predicate
+     */
+    default NatsHeaderPredicate negate() {
+        return headers -> !test(headers);
+    }
+
+    /**
+     * Creates a predicate matching messages carrying the given header
+     *
+     * @param name The name of the header
+     * @return The header predicate
+     */
+    static NatsHeaderPredicate present(String name) {
+        return headers -> headers != null && headers.containsKey(name);
+    }
+
+    /**
+     * Creates a predicate matching messages whose first value of the given header equals the given value, such as
+     * the event type
+     *
+     * @param name The name of the header
+     * @param value The expected value
+     * @return The header predicate
+     */
+    static NatsHeaderPredicate equalTo(String name, String value) {
+        return headers -> headers != null && value.equals(headers.getFirst(name));
+    }
+
+    /**
+     * Creates a predicate matching messages whose first value of the given header is one of the given values
+     *
+     * @param name The name of the header
+     * @param values The expected values
+     * @return The header predicate
+     */
+    static NatsHeaderPredicate in(String name, String... values) {
+        var expected = Set.of(values);
+        return headers -> {
+            var value = headers == null ? null : headers.getFirst(name);
+            return value != null && expected.contains(value);
+        };
+    }
+
+    /**
+     * Creates a predicate matching messages whose first value of the given header starts with the given prefix, such
+     * as a tenant or type hierarchy
+     *
+     * @param name The name of the header
+     * @param prefix The expected prefix
+     * @return The header predicate
+     */
+    static NatsHeaderPredicate startsWith(String name, String prefix) {
+        return headers -> {
+            var value = headers == null ? null : headers.getFirst(name);
+            return value != null && value.startsWith(prefix);
+        };
+    }
+
+}
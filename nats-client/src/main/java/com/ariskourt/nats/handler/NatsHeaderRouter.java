@@ -0,0 +1,101 @@
+package com.ariskourt.nats.handler;
+
+import com.ariskourt.nats.ack.NatsAcknowledger;
+import io.nats.client.Message;
+import io.nats.client.MessageHandler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Message handler routing the messages of a consumer by their headers alone. Every message is passed to the first
+ * route whose {@link NatsHeaderPredicate} matches its headers, while messages no route matches are acknowledged or
+ * terminated right away, without being decoded or passed through the handler chain of any route.
+ */
+public class NatsHeaderRouter implements MessageHandler, AutoCloseable {
+
+    private final List<Route> routes;
+    private final NatsAcknowledger acknowledger;
+    private final NatsUnmatchedAction unmatchedAction;
+    private final LongAdder unmatched = new LongAdder();
+
+    /**
+     * Constructor for creating an instance of NatsHeaderRouter.
+     *
+     * @param routes The routes, tested in order
+     * @param acknowledger The acknowledger sending the acknowledgments of unmatched messages
+     * @param unmatchedAction The acknowledgment sent for unmatched messages, or null to leave them unacknowledged
+     */
+    public NatsHeaderRouter(List<Route> routes, NatsAcknowledger acknowledger, NatsUnmatchedAction unmatchedAction) {
+        this.routes = List.copyOf(routes);
+        this.acknowledger = acknowledger;
+        this.unmatchedAction = unmatchedAction;
+    }
+
+    /**
+     * Passes the message to the handler of the first matching route, or discards it if none matches.
+     *
+     * @param message The NATS message
+     * @throws InterruptedException In case the handler of the route has been interrupted
+     */
+    @Override
+    public void onMessage(Message message) throws InterruptedException {
+        var headers = message.hasHeaders() ? message.getHeaders() : null;
+        for (var route : routes) {
+            if (route.predicate() == null || route.predicate().test(headers)) {
+                route.handler().onMessage(message);
+                return;
+            }
+        }
+        unmatched.increment();
+        if (unmatchedAction == NatsUnmatchedAction.ACK) {
+            acknowledger.ack(message);
+        } else if (unmatchedAction == NatsUnmatchedAction.TERM) {
+            acknowledger.term(message);
+        }
+    }
+
+    /**
+     * Gets the number of messages no route has matched.
+     *
+     * @return the number of unmatched messages
+     */
+    public long getUnmatched() {
+        return unmatched.sum();
+    }
+
+    /**
+     * Closes the handlers of every route that hold resources.
+     *
+     * @throws Exception In case closing a handler fails, carrying the failures of the other handlers as suppressed
+     */
+    @Override
+    public void close() throws Exception {
+        var failures = new ArrayList<Exception>();
+        for (var route : routes) {
+            if (route.handler() instanceof AutoCloseable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception e) {
+                    failures.add(e);
+                }
+            }
+        }
+        if (!failures.isEmpty()) {
+            var exception = failures.getFirst();
+            failures.subList(1, failures.size()).forEach(exception::addSuppressed);
+            throw exception;
+        }
+    }
+
+    /**
+     * A route of the router.
+     *
+     * @param predicate The predicate the headers of a message must match, or null to match every message
+     * @param handler The message handler the matching messages are passed to
+     */
+    public record Route(NatsHeaderPredicate predicate, MessageHandler handler) {
+    }
+
+}
@@ -0,0 +1,210 @@
+package com.ariskourt.nats.handler;
+
+import com.ariskourt.nats.ack.NatsAcknowledger;
+import io.nats.client.Message;
+import io.nats.client.MessageHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Message handler that spreads the messages of a single consumer over a number of lanes by the hash of their ordering
+ * key. Each lane has its own bounded queue and worker thread, so messages sharing a key keep their delivery order while
+ * messages with different keys are handled in parallel. Once the queue of a lane is full, the dispatcher blocks until
+ * the lane catches up.
+ * <p>
+ * The order of a lane is the order in which {@link #onMessage(Message)} is called, so messages have to be dispatched
+ * serially, as a dispatcher does unless it hands messages to an executor. A message whose handling throws parks its
+ * lane: it is kept in progress and handed to the delegate again with a growing delay until it succeeds, so that the
+ * messages behind it are never handled before it. The delegate therefore has to rethrow failures rather than
+ * negatively acknowledge them. Once the lane is closed, a parked message and the messages queued behind it are
+ * negatively acknowledged, to be redelivered in order.
+ * </p>
+ */
+public class NatsOrderedMessageHandler implements MessageHandler, AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NatsOrderedMessageHandler.class);
+
+    private static final long POLL_TIMEOUT_MILLIS = 100;
+    private static final Duration INITIAL_RETRY_DELAY = Duration.ofMillis(100);
+    private static final Duration MAX_RETRY_DELAY = Duration.ofSeconds(5);
+
+    private final MessageHandler delegate;
+    private final NatsAcknowledger acknowledger;
+    private final NatsOrderingKey orderingKey;
+    private final List<BlockingQueue<Message>> queues;
+    private final List<Thread> workers;
+
+    private volatile boolean running = true;
+
+    /**
+     * Constructor for creating an instance of NatsOrderedMessageHandler.
+     *
+     * @param name The name used for the lane worker threads
+     * @param lanes The number of lanes
+     * @param laneCapacity The maximum number of messages queued per lane
+     * @param orderingKey The extractor of the ordering key of each message
+     * @param delegate The message handler invoked by the lane workers
+     */
+    public NatsOrderedMessageHandler(String name, int lanes, int laneCapacity, NatsOrderingKey orderingKey, MessageHandler delegate) {
+        this(name, lanes, laneCapacity, orderingKey, delegate, null);
+    }
+
+    /**
+     * Constructor for creating an instance of NatsOrderedMessageHandler negatively acknowledging the messages left on closed lanes.
+     *
+     * @param name The name used for the lane worker threads
+     * @param lanes The number of lanes
+     * @param laneCapacity The maximum number of messages queued per lane
+     * @param orderingKey The extractor of the ordering key of each message
+     * @param delegate The message handler invoked by the lane workers
+     * @param acknowledger The acknowledger negatively acknowledging the messages left on a closed lane, or null if the
+     *                     consumer does not require acknowledgments
+     */
+    public NatsOrderedMessageHandler(String name, int lanes, int laneCapacity, NatsOrderingKey orderingKey, MessageHandler delegate,
+                                     NatsAcknowledger acknowledger) {
+        this.delegate = delegate;
+        this.acknowledger = acknowledger;
+        this.orderingKey = orderingKey;
+        this.queues = new ArrayList<>(lanes);
+        this.workers = new ArrayList<>(lanes);
+        var factory = Thread.ofVirtual().name("nats-lane-" + name + "-", 0).factory();
+        for (var i = 0; i < lanes; i++) {
+            var queue = new ArrayBlockingQueue<Message>(laneCapacity);
+            queues.add(queue);
+            var worker = factory.newThread(() -> work(queue));
+            workers.add(worker);
+            worker.start();
+        }
+    }
+
+    /**
+     * Queues the message on the lane of its ordering key, waiting for room in case the lane is full.
+     *
+     * @param message The NATS message
+     * @throws InterruptedException In case waiting for room in the lane has been interrupted
+     */
+    @Override
+    public void onMessage(Message message) throws InterruptedException {
+        var key = orderingKey.keyOf(message);
+        var lane = key == null ? 0 : Math.floorMod(key.hashCode(), queues.size());
+        queues.get(lane).put(message);
+    }
+
+    /**
+     * Gets the number of messages queued across all lanes.
+     *
+     * @return the number of queued messages
+     */
+    public int getQueuedMessages() {
+        return queues.stream().mapToInt(BlockingQueue::size).sum();
+    }
+
+    /**
+     * Lets the lane workers handle every queued message, waits for them to finish and closes the delegate if it is
+     * closeable.
+     *
+     * @throws Exception In case closing the delegate fails
+     */
+    @Override
+    public void close() throws Exception {
+        running = false;
+        for (var worker : workers) {
+            worker.join();
+        }
+        if (delegate instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
+    private void work(BlockingQueue<Message> queue) {
+        while (running || !queue.isEmpty()) {
+            Message message;
+            try {
+                message = queue.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                LOGGER.warn("Waiting for messages in ordered lane has been interrupted", e);
+                continue;
+            }
+            if (message != null && !handle(message)) {
+                queue.forEach(this::nak);
+                queue.clear();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Handles a message, parking the lane and retrying the message in place for as long as it fails.
+     *
+     * @param message The NATS message
+     * @return true if the lane carries on with the next message, false if it has been closed while the message was
+     *         parked and the messages queued behind it have to be given up as well
+     */
+    private boolean handle(Message message) {
+        var delay = INITIAL_RETRY_DELAY;
+        for (var attempt = 1; ; attempt++) {
+            try {
+                delegate.onMessage(message);
+                return true;
+            } catch (InterruptedException e) {
+                if (!running) {
+                    nak(message);
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+                LOGGER.warn("Handling message on subject {} in ordered lane has been interrupted on attempt {}, retrying in {} ms",
+                        message.getSubject(), attempt, delay.toMillis(), e);
+            } catch (RuntimeException e) {
+                LOGGER.error("Handling message on subject {} in ordered lane has failed on attempt {}, retrying in {} ms",
+                        message.getSubject(), attempt, delay.toMillis(), e);
+            }
+            if (!park(message, delay)) {
+                LOGGER.warn("Ordered lane has been closed while message on subject {} was parked", message.getSubject());
+                nak(message);
+                return false;
+            }
+            var doubled = delay.multipliedBy(2);
+            delay = doubled.compareTo(MAX_RETRY_DELAY) < 0 ? doubled : MAX_RETRY_DELAY;
+        }
+    }
+
+    /**
+     * Keeps a failed message in progress while waiting for its next attempt.
+     *
+     * @param message The NATS message
+     * @param delay The delay before the next attempt
+     * @return true once the delay has passed, false if the lane has been closed in the meantime
+     */
+    private boolean park(Message message, Duration delay) {
+        if (acknowledger != null && message.isJetStream()) {
+            message.inProgress();
+        }
+        var deadline = System.nanoTime() + delay.toNanos();
+        while (running) {
+            var remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return true;
+            }
+            try {
+                Thread.sleep(Math.min(TimeUnit.NANOSECONDS.toMillis(remaining) + 1, POLL_TIMEOUT_MILLIS));
+            } catch (InterruptedException e) {
+                LOGGER.warn("Waiting for the next attempt of message on subject {} in ordered lane has been interrupted", message.getSubject(), e);
+            }
+        }
+        return false;
+    }
+
+    private void nak(Message message) {
+        if (message != null && acknowledger != null) {
+            acknowledger.nak(message);
+        }
+    }
+
+}
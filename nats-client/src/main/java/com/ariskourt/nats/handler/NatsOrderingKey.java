@@ -0,0 +1,51 @@
+package com.ariskourt.nats.handler;
+
+import io.nats.client.Message;
+
+/**
+ * Extracts the key that determines the ordering of a message. Messages sharing a key are handled one after the other
+ * in delivery order, while messages with different keys may be handled in parallel.
+ */
+@FunctionalInterface
+public interface NatsOrderingKey {
+
+    /**
+     * Extracts the ordering key of a message
+     *
+     * @param message The NATS message
+     * @return The ordering key, or null to use a common key
+     */
+    Object keyOf(Message message);
+
+    /**
+     * Creates an ordering key using a token of the message subject, such as the entity id in {@code orders.42.updated}
+     *
+     * @param index The zero-based index of the token within the subject
+     * @return The ordering key
+     */
+    static NatsOrderingKey subjectToken(int index) {
+        return message -> {
+            var subject = message.getSubject();
+            var start = 0;
+            for (var i = 0; i < index; i++) {
+                start = subject.indexOf('.', start) + 1;
+                if (start == 0) {
+                    return null;
+                }
+            }
+            var end = subject.indexOf('.', start);
+            return end < 0 ? subject.substring(start) : subject.substring(start, end);
+        };
+    }
+
+    /**
+     * Creates an ordering key using the first value of a message header
+     *
+     * @param name The name of the header
+     * @return The ordering key
+     */
+    static NatsOrderingKey header(String name) {
+        return message -> message.hasHeaders() ? message.getHeaders().getFirst(name) : null;
+    }
+
+}
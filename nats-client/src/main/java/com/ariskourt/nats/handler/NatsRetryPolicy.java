@@ -0,0 +1,208 @@
+package com.ariskourt.nats.handler;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+/**
+ * Retry policy of a handler. Failed messages are negatively acknowledged with an exponentially growing delay, so that
+ * they are redelivered by the server once it has passed instead of right away, and are sent to a dead-letter subject
+ * once their attempts are exhausted.
+ *
+ * @param initialDelay The delay before the second attempt.
+ * @param maxDelay The upper bound of the delay between attempts.
+ * @param multiplier The factor the delay grows by with every attempt.
+ * @param jitter The fraction of the delay it is randomly shortened or lengthened by, from 0 to 1, so that messages
+ *               failing together are not all retried together.
+ * @param maxAttempts The maximum number of deliveries of a message, including the first one.
+ * @param deadLetterSubject The subject exhausted messages are published to, or null to only terminate them.
+ */
+public record NatsRetryPolicy(Duration initialDelay, Duration maxDelay, double multiplier, double jitter,
+                              int maxAttempts, String deadLetterSubject) {
+
+    /**
+     * Creates a new builder for NatsRetryPolicy.
+     *
+     * @return a new Builder instance
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Gets the delay before the next attempt of a message that has failed.
+     *
+     * @param attempt The number of the attempt that has failed, starting at 1
+     * @return the delay before the next attempt
+     */
+    public Duration delay(long attempt) {
+        var exponential = initialDelay.toNanos() * Math.pow(multiplier, Math.max(0, attempt - 1));
+        var bounded = Math.min(exponential, (double) maxDelay.toNanos());
+        if (jitter > 0) {
+            bounded *= 1.0 + ThreadLocalRandom.current().nextDouble(-jitter, jitter);
+        }
+        return Duration.ofNanos((long) Math.clamp(bounded, 0.0, (double) maxDelay.toNanos()));
+    }
+
+    /**
+     * Checks whether a message that has failed is attempted again.
+     *
+     * @param attempt The number of the attempt that has failed, starting at 1
+     * @return true if the message is attempted again, false if its attempts are exhausted
+     */
+    public boolean retries(long attempt) {
+        return attempt < maxAttempts;
+    }
+
+    /**
+     * Builder class for constructing NatsRetryPolicy instances.
+     */
+    public static class Builder {
+
+        private Duration initialDelay = Duration.ofSeconds(1);
+
+        /**
+         * Gets the delay before the second attempt.
+         *
+         * @return the initial delay
+         */
+        public Duration getInitialDelay() {
+            return initialDelay;
+        }
+
+        /**
+         * Sets the delay before the second attempt.
+         *
+         * @param initialDelay the initial delay
+         */
+        public void setInitialDelay(Duration initialDelay) {
+            this.initialDelay = initialDelay;
+        }
+
+        private Duration maxDelay = Duration.ofMinutes(5);
+
+        /**
+         * Gets the upper bound of the delay between attempts.
+         *
+         * @return the maximum delay
+         */
+        public Duration getMaxDelay() {
+            return maxDelay;
+        }
+
+        /**
+         * Sets the upper bound of the delay between attempts.
+         *
+         * @param maxDelay the maximum delay
+         */
+        public void setMaxDelay(Duration maxDelay) {
+            this.maxDelay = maxDelay;
+        }
+
+        private double multiplier = 2.0;
+
+        /**
+         * Gets the factor the delay grows by with every attempt.
+         *
+         * @return the multiplier
+         */
+        public double getMultiplier() {
+            return multiplier;
+        }
+
+        /**
+         * Sets the factor the delay grows by with every attempt.
+         *
+         * @param multiplier the multiplier
+         */
+        public void setMultiplier(double multiplier) {
+            this.multiplier = multiplier;
+        }
+
+        private double jitter = 0.2;
+
+        /**
+         * Gets the fraction of the delay it is randomly shortened or lengthened by.
+         *
+         * @return the jitter
+         */
+        public double getJitter() {
+            return jitter;
+        }
+
+        /**
+         * Sets the fraction of the delay it is randomly shortened or lengthened by.
+         *
+         * @param jitter the jitter, from 0 to 1
+         */
+        public void setJitter(double jitter) {
+            this.jitter = jitter;
+        }
+
+        private int maxAttempts = 3;
+
+        /**
+         * Gets the maximum number of deliveries of a message.
+         *
+         * @return the maximum number of attempts
+         */
+        public int getMaxAttempts() {
+            return maxAttempts;
+        }
+
+        /**
+         * Sets the maximum number of deliveries of a message, including the first one.
+         *
+         * @param maxAttempts the maximum number of attempts
+         */
+        public void setMaxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+        }
+
+        private String deadLetterSubject;
+
+        /**
+         * Gets the subject exhausted messages are published to.
+         *
+         * @return the dead-letter subject
+         */
+        public String getDeadLetterSubject() {
+            return deadLetterSubject;
+        }
+
+        /**
+         * Sets the subject exhausted messages are published to.
+         *
+         * @param deadLetterSubject the dead-letter subject, or null to only terminate exhausted messages
+         */
+        public void setDeadLetterSubject(String deadLetterSubject) {
+            this.deadLetterSubject = deadLetterSubject;
+        }
+
+        /**
+         * Applies the given consumer to this builder.
+         *
+         * @param builder the consumer to apply
+         * @return this builder
+         */
+        public Builder with(Consumer<Builder> builder) {
+            builder.accept(this);
+            return this;
+        }
+
+        /**
+         * Builds a new NatsRetryPolicy instance.
+         *
+         * @return a new NatsRetryPolicy instance
+         * @throws IllegalArgumentException In case the policy allows no attempt or has negative delays
+         */
+        public NatsRetryPolicy build() {
+            if (maxAttempts < 1 || initialDelay.isNegative() || maxDelay.compareTo(initialDelay) < 0 || multiplier < 1.0) {
+                throw new IllegalArgumentException("A retry policy needs at least one attempt, a multiplier of at least 1 and a max delay not below its initial delay");
+            }
+            return new NatsRetryPolicy(initialDelay, maxDelay, multiplier, Math.clamp(jitter, 0.0, 1.0), maxAttempts, deadLetterSubject);
+        }
+
+    }
+
+}
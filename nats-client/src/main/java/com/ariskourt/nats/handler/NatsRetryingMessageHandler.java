@@ -0,0 +1,268 @@
+package com.ariskourt.nats.handler;
+
+import com.ariskourt.nats.ack.NatsAcknowledger;
+import com.ariskourt.nats.exception.NatsException;
+import io.nats.client.JetStream;
+import io.nats.client.JetStreamApiException;
+import io.nats.client.Message;
+import io.nats.client.MessageHandler;
+import io.nats.client.PublishOptions;
+import io.nats.client.impl.Headers;
+import io.nats.client.impl.NatsMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Message handler applying a {@link NatsRetryPolicy} to the messages its delegate fails on. A failed message is
+ * negatively acknowledged with the delay of its attempt, so that the server redelivers it once the delay has passed.
+ * Once its attempts are exhausted, it is published to the dead-letter subject of the policy along with headers
+ * describing its origin and failure, and terminated. In case publishing to the dead-letter subject fails, the message
+ * is negatively acknowledged instead, so that publishing it is attempted again on its next delivery. This requires the
+ * consumer to allow more deliveries than the policy attempts; a message whose publishing fails on the last delivery
+ * the consumer allows is not redelivered by the server and only remains in its stream.
+ * <p>
+ * On push consumers, the subscription must not acknowledge messages automatically, as that acknowledgment would
+ * precede the delayed negative acknowledgment or termination and have the failed message dropped instead.
+ * </p>
+ * <p>
+ * Handlers whose messages are ordered retry in place instead, since a redelivered message would be handled after the
+ * messages that followed it. The failed message is then kept in progress and handed to the delegate again once the
+ * delay has passed, holding back the messages behind it, and a message whose publishing to the dead-letter subject
+ * fails is rethrown as a {@link NatsException}, so that the ordered lane keeps it in place as well.
+ * </p>
+ */
+public class NatsRetryingMessageHandler implements MessageHandler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NatsRetryingMessageHandler.class);
+
+    /**
+     * Header carrying the subject the dead-lettered message has been published to.
+     */
+    public static final String ORIGINAL_SUBJECT_HEADER = "Nats-Dlq-Original-Subject";
+
+    /**
+     * Header carrying the stream the dead-lettered message has been stored in.
+     */
+    public static final String ORIGINAL_STREAM_HEADER = "Nats-Dlq-Original-Stream";
+
+    /**
+     * Header carrying the stream sequence of the dead-lettered message.
+     */
+    public static final String ORIGINAL_SEQUENCE_HEADER = "Nats-Dlq-Original-Sequence";
+
+    /**
+     * Header carrying the consumer that has given up on the dead-lettered message.
+     */
+    public static final String CONSUMER_HEADER = "Nats-Dlq-Consumer";
+
+    /**
+     * Header carrying the number of times the dead-lettered message has been delivered.
+     */
+    public static final String DELIVERIES_HEADER = "Nats-Dlq-Deliveries";
+
+    /**
+     * Header carrying the class of the exception the last attempt has failed with.
+     */
+    public static final String EXCEPTION_HEADER = "Nats-Dlq-Exception";
+
+    /**
+     * Header carrying the message of the exception the last attempt has failed with.
+     */
+    public static final String ERROR_HEADER = "Nats-Dlq-Error";
+
+    /**
+     * Header carrying the instant the message has been dead-lettered at.
+     */
+    public static final String FAILED_AT_HEADER = "Nats-Dlq-Failed-At";
+
+    private static final int MAX_ERROR_LENGTH = 256;
+
+    private final MessageHandler delegate;
+    private final NatsRetryPolicy policy;
+    private final NatsAcknowledger acknowledger;
+    private final Function<String, JetStream> jetStreams;
+    private final boolean autoAck;
+    private final boolean inPlace;
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder deadLettered = new LongAdder();
+    private final LongAdder terminated = new LongAdder();
+    private final LongAdder deadLetterFailures = new LongAdder();
+
+    /**
+     * Constructor for creating an instance of NatsRetryingMessageHandler.
+     *
+     * @param delegate The message handler processing the messages
+     * @param policy The retry policy applied to failed messages
+     * @param acknowledger The acknowledger sending the acknowledgments
+     * @param jetStreams The JetStream context publishing to a given subject
+     * @param autoAck Whether messages the delegate has handled are acknowledged as well
+     */
+    public NatsRetryingMessageHandler(MessageHandler delegate, NatsRetryPolicy policy, NatsAcknowledger acknowledger,
+                                      Function<String, JetStream> jetStreams, boolean autoAck) {
+        this(delegate, policy, acknowledger, jetStreams, autoAck, false);
+    }
+
+    /**
+     * Constructor for creating an instance of NatsRetryingMessageHandler.
+     *
+     * @param delegate The message handler processing the messages
+     * @param policy The retry policy applied to failed messages
+     * @param acknowledger The acknowledger sending the acknowledgments
+     * @param jetStreams The JetStream context publishing to a given subject
+     * @param autoAck Whether messages the delegate has handled are acknowledged as well
+     * @param inPlace Whether failed messages are retried in place rather than redelivered by the server
+     */
+    public NatsRetryingMessageHandler(MessageHandler delegate, NatsRetryPolicy policy, NatsAcknowledger acknowledger,
+                                      Function<String, JetStream> jetStreams, boolean autoAck, boolean inPlace) {
+        this.delegate = delegate;
+        this.policy = policy;
+        this.acknowledger = acknowledger;
+        this.jetStreams = jetStreams;
+        this.autoAck = autoAck;
+        this.inPlace = inPlace;
+    }
+
+    /**
+     * Passes the message to the delegate and retries or dead-letters it in case the delegate throws.
+     *
+     * @param message The NATS message
+     * @throws InterruptedException In case the delegate or the wait for an attempt in place has been interrupted
+     * @throws NatsException In case a message retried in place could not be published to the dead-letter subject
+     */
+    @Override
+    public void onMessage(Message message) throws InterruptedException {
+        var attempt = message.isJetStream() ? message.metaData().deliveredCount() : 1;
+        while (true) {
+            try {
+                delegate.onMessage(message);
+                break;
+            } catch (RuntimeException e) {
+                if (!inPlace || !policy.retries(attempt)) {
+                    failed(message, attempt, e);
+                    return;
+                }
+                retryInPlace(message, attempt, e);
+                attempt++;
+            }
+        }
+        if (autoAck) {
+            acknowledger.ack(message);
+        }
+    }
+
+    /**
+     * Gets the number of failed messages negatively acknowledged with a delay.
+     *
+     * @return the number of retried messages
+     */
+    public long getRetried() {
+        return retried.sum();
+    }
+
+    /**
+     * Gets the number of exhausted messages published to the dead-letter subject.
+     *
+     * @return the number of dead-lettered messages
+     */
+    public long getDeadLettered() {
+        return deadLettered.sum();
+    }
+
+    /**
+     * Gets the number of exhausted messages terminated without a dead-letter subject.
+     *
+     * @return the number of terminated messages
+     */
+    public long getTerminated() {
+        return terminated.sum();
+    }
+
+    /**
+     * Gets the number of exhausted messages whose publishing to the dead-letter subject has failed.
+     *
+     * @return the number of dead-letter failures
+     */
+    public long getDeadLetterFailures() {
+        return deadLetterFailures.sum();
+    }
+
+    private void retryInPlace(Message message, long attempt, RuntimeException exception) throws InterruptedException {
+        var delay = policy.delay(attempt);
+        LOGGER.warn("Handling message on subject {} has failed on attempt {} of {}, retrying in place in {} ms", message.getSubject(), attempt,
+                policy.maxAttempts(), delay.toMillis(), exception);
+        retried.increment();
+        if (message.isJetStream()) {
+            message.inProgress();
+        }
+        Thread.sleep(delay);
+    }
+
+    private void failed(Message message, long attempt, RuntimeException exception) {
+        if (policy.retries(attempt)) {
+            var delay = policy.delay(attempt);
+            LOGGER.warn("Handling message on subject {} has failed on attempt {} of {}, retrying in {} ms", message.getSubject(), attempt,
+                    policy.maxAttempts(), delay.toMillis(), exception);
+            retried.increment();
+            acknowledger.nakWithDelay(message, delay);
+            return;
+        }
+        if (policy.deadLetterSubject() == null) {
+            LOGGER.error("Handling message on subject {} has failed on its last attempt {}, terminating it", message.getSubject(), attempt, exception);
+            terminated.increment();
+            acknowledger.term(message);
+            return;
+        }
+        try {
+            deadLetter(message, attempt, exception);
+            LOGGER.error("Handling message on subject {} has failed on its last attempt {}, published it to {}", message.getSubject(), attempt,
+                    policy.deadLetterSubject(), exception);
+            deadLettered.increment();
+            acknowledger.term(message);
+        } catch (IOException | JetStreamApiException | RuntimeException e) {
+            LOGGER.error("Publishing message on subject {} to dead-letter subject {} has failed", message.getSubject(), policy.deadLetterSubject(), e);
+            deadLetterFailures.increment();
+            if (inPlace) {
+                throw new NatsException(String.format("Publishing message on subject %s to dead-letter subject %s has failed",
+                        message.getSubject(), policy.deadLetterSubject()), e);
+            }
+            acknowledger.nakWithDelay(message, policy.maxDelay());
+        }
+    }
+
+    private void deadLetter(Message message, long attempt, RuntimeException exception) throws IOException, JetStreamApiException {
+        var headers = new Headers(message.hasHeaders() ? message.getHeaders() : null);
+        headers.put(ORIGINAL_SUBJECT_HEADER, message.getSubject());
+        headers.put(DELIVERIES_HEADER, String.valueOf(attempt));
+        headers.put(EXCEPTION_HEADER, exception.getClass().getName());
+        headers.put(ERROR_HEADER, sanitize(exception.getMessage()));
+        headers.put(FAILED_AT_HEADER, Instant.now().toString());
+        var options = PublishOptions.builder();
+        if (message.isJetStream()) {
+            var metaData = message.metaData();
+            headers.put(ORIGINAL_STREAM_HEADER, metaData.getStream());
+            headers.put(ORIGINAL_SEQUENCE_HEADER, String.valueOf(metaData.streamSequence()));
+            headers.put(CONSUMER_HEADER, metaData.getConsumer());
+            options.messageId(String.format("dlq-%s-%d", metaData.getStream(), metaData.streamSequence()));
+        }
+        var deadLetter = NatsMessage.builder()
+                .subject(policy.deadLetterSubject())
+                .headers(headers)
+                .data(message.getData())
+                .build();
+        jetStreams.apply(policy.deadLetterSubject()).publish(deadLetter, options.build());
+    }
+
+    private static String sanitize(String error) {
+        if (error == null) {
+            return "";
+        }
+        var singleLine = error.replaceAll("[\\r\\n]+", " ");
+        return singleLine.length() > MAX_ERROR_LENGTH ? singleLine.substring(0, MAX_ERROR_LENGTH) : singleLine;
+    }
+
+}
@@ -0,0 +1,47 @@
+package com.ariskourt.nats.handler;
+
+import com.ariskourt.nats.exception.NatsException;
+import io.nats.client.Message;
+
+import java.util.function.Function;
+
+/**
+ * Interface representing a handler that receives NATS messages already decoded into its event class. The payload is
+ * decoded straight from the message bytes by the codec registered for {@link #eventClass()}, so implementations do not
+ * need to call {@link #readMessage(Message)}.
+ *
+ * @param <T> The type of event that this handler processes, which extends {@link NatsEvent}
+ */
+public interface NatsTypedHandler<T extends NatsEvent> extends NatsHandler<T> {
+
+    /**
+     * Handles a decoded event
+     *
+     * @param event The event decoded from the message payload
+     * @param message The NATS message the event was decoded from, providing its headers and metadata
+     */
+    void handle(T event, Message message);
+
+    /**
+     * The field of the decoded event that orders the messages of this handler, as an alternative to
+     * {@link #orderingKey()}. Since the key is needed before the message is queued on its lane, the payload is then
+     * decoded on the dispatcher thread rather than on the lane, which hands the decoded event on to the handler.
+     *
+     * @return The ordering field extractor, or null if messages are not ordered by a field of the event
+     */
+    default Function<T, ?> orderingField() {
+        return null;
+    }
+
+    /**
+     * Typed handlers are dispatched through {@link NatsDecodingMessageHandler}, which decodes the payload and calls
+     * {@link #handle(NatsEvent, Message)}. This method is therefore never expected to be invoked directly.
+     *
+     * @param message A NATS message
+     */
+    @Override
+    default void onMessage(Message message) {
+        throw new NatsException(String.format("Typed handler %s must be registered through a decoding message handler", getClass().getName()));
+    }
+
+}
@@ -0,0 +1,18 @@
+package com.ariskourt.nats.handler;
+
+/**
+ * The acknowledgment sent for a message whose headers match no handler of its consumer.
+ */
+public enum NatsUnmatchedAction {
+
+    /**
+     * Acknowledges the message, as if it had been handled.
+     */
+    ACK,
+
+    /**
+     * Terminates the message, so that the server stops redelivering it and emits a termination advisory.
+     */
+    TERM
+
+}
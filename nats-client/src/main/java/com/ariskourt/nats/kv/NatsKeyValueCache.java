@@ -0,0 +1,329 @@
+package com.ariskourt.nats.kv;
+
+import com.ariskourt.nats.exception.NatsException;
+import io.nats.client.JetStreamApiException;
+import io.nats.client.KeyValue;
+import io.nats.client.api.KeyValueEntry;
+import io.nats.client.api.KeyValueOperation;
+import io.nats.client.api.KeyValueWatcher;
+import io.nats.client.impl.NatsKeyValueWatchSubscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process near-cache of a JetStream KeyValue bucket. On start, the latest value of every key is loaded through a
+ * watcher of the bucket, which then keeps the cache coherent by applying every subsequent update and deletion. Keys
+ * missing from the cache are read through from the bucket on their first read, and keys the bucket does not hold are
+ * cached as absent, so that repeated reads of them stay local as well.
+ * <p>
+ * Every cached value carries the revision it has been read at, and a value only ever replaces one of an older
+ * revision, so that a read-through racing with an update never overwrites the newer value. Once the cache outgrows its
+ * bound, keys are evicted in the order they were added, except for keys read since they were last considered, which
+ * are given a second chance.
+ * </p>
+ */
+public class NatsKeyValueCache implements KeyValueWatcher, AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NatsKeyValueCache.class);
+
+    /**
+     * Default maximum number of keys held.
+     */
+    public static final int DEFAULT_MAX_ENTRIES = 100_000;
+
+    /**
+     * Default duration to wait for the initial load of the bucket.
+     */
+    public static final Duration DEFAULT_LOAD_TIMEOUT = Duration.ofSeconds(30);
+
+    private final String bucket;
+    private final KeyValue keyValue;
+    private final int maxEntries;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Queue<String> order = new ConcurrentLinkedQueue<>();
+    private final CountDownLatch loaded = new CountDownLatch(1);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder updates = new LongAdder();
+
+    private volatile NatsKeyValueWatchSubscription watch;
+
+    /**
+     * Constructor for creating an instance of NatsKeyValueCache.
+     *
+     * @param bucket The name of the bucket
+     * @param keyValue The KeyValue context of the bucket
+     * @param maxEntries The maximum number of keys held
+     */
+    public NatsKeyValueCache(String bucket, KeyValue keyValue, int maxEntries) {
+        this.bucket = bucket;
+        this.keyValue = keyValue;
+        this.maxEntries = Math.max(1, maxEntries);
+    }
+
+    /**
+     * Starts watching the bucket and waits for the latest value of every key to be loaded.
+     *
+     * @param loadTimeout The maximum time to wait for the initial load, after which the remaining keys are loaded in
+     *                    the background
+     * @return true if the bucket has been loaded within the timeout, false otherwise
+     * @throws NatsException In case watching the bucket fails
+     */
+    public boolean start(Duration loadTimeout) {
+        try {
+            watch = keyValue.watchAll(this);
+            if (loaded.await(loadTimeout.toNanos(), TimeUnit.NANOSECONDS)) {
+                LOGGER.info("Loaded {} key(s) of NATS KeyValue bucket {}", entries.size(), bucket);
+                return true;
+            }
+            LOGGER.warn("Loading NATS KeyValue bucket {} did not complete within {}, continuing in the background", bucket, loadTimeout);
+            return false;
+        } catch (IOException | JetStreamApiException e) {
+            throw new NatsException(String.format("Watching NATS KeyValue bucket %s failed", bucket), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new NatsException(String.format("Interrupted while loading NATS KeyValue bucket %s", bucket), e);
+        }
+    }
+
+    /**
+     * Gets the value of a key, reading it through from the bucket if it is not cached.
+     *
+     * @param key The key
+     * @return the value of the key, which must not be modified, or null if the bucket does not hold the key
+     * @throws NatsException In case reading the key from the bucket fails
+     */
+    public byte[] get(String key) {
+        var entry = entries.get(key);
+        if (entry != null) {
+            entry.referenced = true;
+            hits.increment();
+            return entry.value;
+        }
+        misses.increment();
+        try {
+            var read = keyValue.get(key);
+            if (read == null || read.getOperation() != KeyValueOperation.PUT) {
+                store(key, null, read == null ? 0 : read.getRevision());
+                return null;
+            }
+            store(key, read.getValue(), read.getRevision());
+            return read.getValue();
+        } catch (IOException | JetStreamApiException e) {
+            throw new NatsException(String.format("Reading key %s of NATS KeyValue bucket %s failed", key, bucket), e);
+        }
+    }
+
+    /**
+     * Puts the value of a key into the bucket and the cache.
+     *
+     * @param key The key
+     * @param value The value
+     * @return the revision of the value
+     * @throws NatsException In case writing the key to the bucket fails
+     */
+    public long put(String key, byte[] value) {
+        try {
+            var revision = keyValue.put(key, value);
+            store(key, value, revision);
+            return revision;
+        } catch (IOException | JetStreamApiException e) {
+            throw new NatsException(String.format("Writing key %s of NATS KeyValue bucket %s failed", key, bucket), e);
+        }
+    }
+
+    /**
+     * Deletes a key from the bucket and the cache.
+     *
+     * @param key The key
+     * @throws NatsException In case deleting the key from the bucket fails
+     */
+    public void delete(String key) {
+        try {
+            keyValue.delete(key);
+            entries.remove(key);
+        } catch (IOException | JetStreamApiException e) {
+            throw new NatsException(String.format("Deleting key %s of NATS KeyValue bucket %s failed", key, bucket), e);
+        }
+    }
+
+    /**
+     * Applies an update or deletion of the bucket to the cache.
+     *
+     * @param entry The entry of the bucket that has changed
+     */
+    @Override
+    public void watch(KeyValueEntry entry) {
+        updates.increment();
+        store(entry.getKey(), entry.getOperation() == KeyValueOperation.PUT ? entry.getValue() : null, entry.getRevision());
+    }
+
+    /**
+     * Marks the initial load of the bucket as complete.
+     */
+    @Override
+    public void endOfData() {
+        loaded.countDown();
+    }
+
+    /**
+     * Gets the name of the bucket.
+     *
+     * @return the bucket name
+     */
+    public String getBucket() {
+        return bucket;
+    }
+
+    /**
+     * Gets the KeyValue context of the bucket, for operations the cache does not cover.
+     *
+     * @return the KeyValue context
+     */
+    public KeyValue getKeyValue() {
+        return keyValue;
+    }
+
+    /**
+     * Checks whether the initial load of the bucket has completed.
+     *
+     * @return true if the bucket has been loaded, false otherwise
+     */
+    public boolean isLoaded() {
+        return loaded.getCount() == 0;
+    }
+
+    /**
+     * Gets the number of reads answered by the cache.
+     *
+     * @return the number of hits
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Gets the number of reads read through from the bucket.
+     *
+     * @return the number of misses
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Gets the ratio of reads answered by the cache.
+     *
+     * @return the hit ratio, or zero if nothing has been read
+     */
+    public double getHitRatio() {
+        var hitCount = hits.sum();
+        var total = hitCount + misses.sum();
+        return total == 0 ? 0.0 : (double) hitCount / total;
+    }
+
+    /**
+     * Gets the number of keys evicted to keep the cache within its bound.
+     *
+     * @return the number of evictions
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Gets the number of updates and deletions received from the watcher of the bucket.
+     *
+     * @return the number of updates
+     */
+    public long getUpdates() {
+        return updates.sum();
+    }
+
+    /**
+     * Gets the number of keys held, including keys cached as absent.
+     *
+     * @return the size of the cache
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Stops watching the bucket. The cache keeps answering reads, but is no longer kept coherent.
+     */
+    @Override
+    public void close() {
+        var subscription = watch;
+        watch = null;
+        if (subscription == null) {
+            return;
+        }
+        try {
+            subscription.unsubscribe();
+        } catch (RuntimeException e) {
+            LOGGER.warn("Stopping the watch of NATS KeyValue bucket {} has failed", bucket, e);
+        }
+    }
+
+    private void store(String key, byte[] value, long revision) {
+        var inserted = new boolean[1];
+        entries.compute(key, (ignored, existing) -> {
+            if (existing == null) {
+                inserted[0] = true;
+                return new Entry(value, revision);
+            }
+            return existing.revision < revision ? new Entry(value, revision) : existing;
+        });
+        if (inserted[0]) {
+            order.add(key);
+            evict();
+        }
+    }
+
+    private void evict() {
+        while (entries.size() > maxEntries) {
+            var key = order.poll();
+            if (key == null) {
+                return;
+            }
+            var entry = entries.get(key);
+            if (entry == null) {
+                continue;
+            }
+            if (entry.referenced) {
+                entry.referenced = false;
+                order.add(key);
+            } else if (entries.remove(key, entry)) {
+                evictions.increment();
+            } else {
+                order.add(key);
+            }
+        }
+    }
+
+    private static final class Entry {
+
+        private final byte[] value;
+        private final long revision;
+        private volatile boolean referenced;
+
+        private Entry(byte[] value, long revision) {
+            this.value = value;
+            this.revision = revision;
+        }
+
+    }
+
+}
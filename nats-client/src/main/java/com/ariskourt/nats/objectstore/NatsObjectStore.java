@@ -0,0 +1,392 @@
+package com.ariskourt.nats.objectstore;
+
+import com.ariskourt.nats.exception.NatsException;
+import io.nats.client.Connection;
+import io.nats.client.JetStream;
+import io.nats.client.JetStreamApiException;
+import io.nats.client.NUID;
+import io.nats.client.ObjectStore;
+import io.nats.client.api.ObjectInfo;
+import io.nats.client.api.ObjectMeta;
+import io.nats.client.api.PurgeOptions;
+import io.nats.client.impl.Headers;
+import io.nats.client.impl.NatsMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Base64;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Streaming access to a JetStream object store bucket. Objects are put from and got into channels and streams chunk by
+ * chunk, so that no more than a bounded number of chunks is ever held on the heap, whatever the size of the object.
+ * <p>
+ * Puts pipeline their chunks: chunks are published asynchronously within a window bounded by the number of chunks
+ * awaiting their acknowledgment, while the digest of the object is computed as it is read. Once every chunk has been
+ * acknowledged, the info of the object is published, replacing the one of any previous object of the same name, whose
+ * chunks are then purged. Objects are stored in the same layout as the one of the client library, so that objects put
+ * by either can be got by the other.
+ * </p>
+ * <p>
+ * Gets write every chunk as it arrives, and fail if the chunks or the digest of the object do not match its info. A
+ * get into a file deletes the partially written file in that case.
+ * </p>
+ */
+public class NatsObjectStore {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NatsObjectStore.class);
+
+    /**
+     * Default size of the chunks objects are split into.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 128 * 1024;
+
+    /**
+     * Default maximum number of chunks awaiting their acknowledgment while putting an object.
+     */
+    public static final int DEFAULT_MAX_IN_FLIGHT_CHUNKS = 32;
+
+    /**
+     * Default duration to wait for the acknowledgments of the chunks of an object.
+     */
+    public static final Duration DEFAULT_ACK_TIMEOUT = Duration.ofSeconds(30);
+
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+    private static final String ROLLUP_HEADER = "Nats-Rollup";
+    private static final String ROLLUP_SUBJECT = "sub";
+
+    private final String bucket;
+    private final Connection connection;
+    private final ObjectStore objectStore;
+    private final int chunkSize;
+    private final int maxInFlightChunks;
+    private final Duration ackTimeout;
+    private final LongAdder bytesPut = new LongAdder();
+    private final LongAdder bytesGot = new LongAdder();
+    private final LongAdder chunksPut = new LongAdder();
+
+    /**
+     * Constructor for creating an instance of NatsObjectStore.
+     *
+     * @param bucket The name of the bucket
+     * @param connection The connection to stream objects through
+     * @param chunkSize The size of the chunks objects are split into
+     * @param maxInFlightChunks The maximum number of chunks awaiting their acknowledgment while putting an object
+     * @param ackTimeout The maximum time to wait for the acknowledgments of the chunks of an object
+     * @throws NatsException In case the bucket does not exist
+     */
+    public NatsObjectStore(String bucket, Connection connection, int chunkSize, int maxInFlightChunks, Duration ackTimeout) {
+        this.bucket = bucket;
+        this.connection = connection;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.maxInFlightChunks = Math.max(1, maxInFlightChunks);
+        this.ackTimeout = ackTimeout;
+        try {
+            this.objectStore = connection.objectStore(bucket);
+        } catch (IOException | RuntimeException e) {
+            throw new NatsException(String.format("Accessing NATS object store bucket %s failed", bucket), e);
+        }
+    }
+
+    /**
+     * Puts an object from a file.
+     *
+     * @param name The name of the object
+     * @param file The file holding the object
+     * @return the info of the stored object
+     * @throws NatsException In case reading the file or storing the object fails
+     */
+    public ObjectInfo put(String name, Path file) {
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return put(ObjectMeta.object(name), channel);
+        } catch (IOException e) {
+            throw new NatsException(String.format("Reading file %s to put as object %s failed", file, name), e);
+        }
+    }
+
+    /**
+     * Puts an object from a stream, which is read to its end but not closed.
+     *
+     * @param name The name of the object
+     * @param inputStream The stream holding the object
+     * @return the info of the stored object
+     * @throws NatsException In case reading the stream or storing the object fails
+     */
+    public ObjectInfo put(String name, InputStream inputStream) {
+        return put(ObjectMeta.object(name), Channels.newChannel(inputStream));
+    }
+
+    /**
+     * Puts an object from a channel, which is read to its end but not closed.
+     *
+     * @param meta The meta of the object, whose chunk size is set to the one of this store
+     * @param channel The channel holding the object
+     * @return the info of the stored object
+     * @throws NatsException In case reading the channel or storing the object fails
+     */
+    public ObjectInfo put(ObjectMeta meta, ReadableByteChannel channel) {
+        var name = meta.getObjectName();
+        var nuid = NUID.nextGlobal();
+        var chunkSubject = chunkSubject(nuid);
+        var jetStream = jetStream();
+        var window = new Semaphore(maxInFlightChunks);
+        var failure = new AtomicReference<Throwable>();
+        var digest = digest();
+        var buffer = ByteBuffer.allocate(chunkSize);
+        long size = 0;
+        long chunks = 0;
+        try {
+            var previous = objectStore.getInfo(name);
+            var end = false;
+            while (!end && failure.get() == null) {
+                buffer.clear();
+                end = fill(channel, buffer);
+                if (buffer.position() == 0) {
+                    break;
+                }
+                var chunk = new byte[buffer.position()];
+                buffer.flip().get(chunk);
+                digest.update(chunk);
+                if (!window.tryAcquire(ackTimeout.toNanos(), TimeUnit.NANOSECONDS)) {
+                    throw new NatsException(String.format("Timed out waiting for the chunks of object %s to be acknowledged", name));
+                }
+                jetStream.publishAsync(chunkSubject, chunk).whenComplete((ack, error) -> {
+                    if (error != null) {
+                        failure.compareAndSet(null, error);
+                    }
+                    window.release();
+                });
+                size += chunk.length;
+                chunks++;
+            }
+            if (!window.tryAcquire(maxInFlightChunks, ackTimeout.toNanos(), TimeUnit.NANOSECONDS)) {
+                throw new NatsException(String.format("Timed out waiting for the chunks of object %s to be acknowledged", name));
+            }
+            if (failure.get() != null) {
+                throw new NatsException(String.format("Publishing a chunk of object %s failed", name), failure.get());
+            }
+            var info = ObjectInfo.builder(bucket, ObjectMeta.builder(meta.getObjectName())
+                            .description(meta.getDescription())
+                            .headers(meta.getHeaders())
+                            .chunkSize(chunkSize)
+                            .build())
+                    .nuid(nuid)
+                    .size(size)
+                    .chunks(chunks)
+                    .modified(ZonedDateTime.now(ZoneOffset.UTC))
+                    .digest(DIGEST_ALGORITHM + "=" + Base64.getUrlEncoder().encodeToString(digest.digest()))
+                    .build();
+            var headers = new Headers().put(ROLLUP_HEADER, ROLLUP_SUBJECT);
+            jetStream.publish(NatsMessage.builder()
+                    .subject(metaSubject(name))
+                    .headers(headers)
+                    .data(info.serialize())
+                    .build());
+            bytesPut.add(size);
+            chunksPut.add(chunks);
+            if (previous != null && !previous.isDeleted() && previous.getNuid() != null) {
+                purge(previous.getNuid());
+            }
+            return info;
+        } catch (IOException | JetStreamApiException | RuntimeException e) {
+            purge(nuid);
+            throw e instanceof NatsException natsException ? natsException
+                    : new NatsException(String.format("Putting object %s into NATS object store bucket %s failed", name, bucket), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            purge(nuid);
+            throw new NatsException(String.format("Interrupted while putting object %s", name), e);
+        }
+    }
+
+    /**
+     * Gets an object into a file, which is created or truncated.
+     *
+     * @param name The name of the object
+     * @param file The file to write the object to
+     * @return the info of the object
+     * @throws NatsException In case the object does not exist, does not match its info or cannot be written
+     */
+    public ObjectInfo get(String name, Path file) {
+        try (var channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            return get(name, Channels.newOutputStream(channel));
+        } catch (IOException | RuntimeException e) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException deleteException) {
+                e.addSuppressed(deleteException);
+            }
+            throw e instanceof NatsException natsException ? natsException
+                    : new NatsException(String.format("Writing object %s to file %s failed", name, file), e);
+        }
+    }
+
+    /**
+     * Gets an object into a stream, which is not closed.
+     *
+     * @param name The name of the object
+     * @param outputStream The stream to write the object to
+     * @return the info of the object
+     * @throws NatsException In case the object does not exist, does not match its info or cannot be written
+     */
+    public ObjectInfo get(String name, OutputStream outputStream) {
+        try {
+            var info = objectStore.get(name, outputStream);
+            bytesGot.add(info.getSize());
+            return info;
+        } catch (IOException | JetStreamApiException | RuntimeException e) {
+            throw new NatsException(String.format("Getting object %s from NATS object store bucket %s failed", name, bucket), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new NatsException(String.format("Interrupted while getting object %s", name), e);
+        }
+    }
+
+    /**
+     * Gets the info of an object.
+     *
+     * @param name The name of the object
+     * @return the info of the object, or null if it does not exist
+     * @throws NatsException In case reading the info fails
+     */
+    public ObjectInfo getInfo(String name) {
+        try {
+            return objectStore.getInfo(name);
+        } catch (IOException | JetStreamApiException e) {
+            throw new NatsException(String.format("Getting info of object %s from NATS object store bucket %s failed", name, bucket), e);
+        }
+    }
+
+    /**
+     * Deletes an object and its chunks.
+     *
+     * @param name The name of the object
+     * @return the info of the deleted object
+     * @throws NatsException In case deleting the object fails
+     */
+    public ObjectInfo delete(String name) {
+        try {
+            return objectStore.delete(name);
+        } catch (IOException | JetStreamApiException e) {
+            throw new NatsException(String.format("Deleting object %s from NATS object store bucket %s failed", name, bucket), e);
+        }
+    }
+
+    /**
+     * Gets the name of the bucket.
+     *
+     * @return the bucket name
+     */
+    public String getBucket() {
+        return bucket;
+    }
+
+    /**
+     * Gets the object store context of the bucket, for operations this store does not cover.
+     *
+     * @return the object store context
+     */
+    public ObjectStore getObjectStore() {
+        return objectStore;
+    }
+
+    /**
+     * Gets the number of object bytes put.
+     *
+     * @return the number of bytes put
+     */
+    public long getBytesPut() {
+        return bytesPut.sum();
+    }
+
+    /**
+     * Gets the number of object bytes got.
+     *
+     * @return the number of bytes got
+     */
+    public long getBytesGot() {
+        return bytesGot.sum();
+    }
+
+    /**
+     * Gets the number of chunks put.
+     *
+     * @return the number of chunks put
+     */
+    public long getChunksPut() {
+        return chunksPut.sum();
+    }
+
+    private JetStream jetStream() {
+        try {
+            return connection.jetStream();
+        } catch (IOException e) {
+            throw new NatsException(String.format("Creating a JetStream context for NATS object store bucket %s failed", bucket), e);
+        }
+    }
+
+    private void purge(String nuid) {
+        try {
+            connection.jetStreamManagement().purgeStream(streamName(), PurgeOptions.subject(chunkSubject(nuid)));
+        } catch (IOException | JetStreamApiException | RuntimeException e) {
+            LOGGER.warn("Purging chunks {} of NATS object store bucket {} has failed", nuid, bucket, e);
+        }
+    }
+
+    private String streamName() {
+        return "OBJ_" + bucket;
+    }
+
+    private String chunkSubject(String nuid) {
+        return "$O." + bucket + ".C." + nuid;
+    }
+
+    private String metaSubject(String name) {
+        return "$O." + bucket + ".M." + Base64.getUrlEncoder().encodeToString(name.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Reads from a channel until the buffer is full or the channel has ended.
+     *
+     * @param channel The channel to read from
+     * @param buffer The buffer to fill
+     * @return true if the channel has ended, false otherwise
+     * @throws IOException In case reading fails
+     */
+    private static boolean fill(ReadableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static MessageDigest digest() {
+        try {
+            return MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new NatsException(String.format("Digest algorithm %s is not available", DIGEST_ALGORITHM), e);
+        }
+    }
+
+}
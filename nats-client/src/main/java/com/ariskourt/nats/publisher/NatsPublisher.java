@@ -0,0 +1,219 @@
+package com.ariskourt.nats.publisher;
+
+import com.ariskourt.nats.NatsClient;
+import com.ariskourt.nats.codec.NatsCodecRegistry;
+import com.ariskourt.nats.codec.NatsCompression;
+import com.ariskourt.nats.exception.NatsException;
+import io.nats.client.NUID;
+import io.nats.client.PublishOptions;
+import io.nats.client.api.PublishAck;
+import io.nats.client.impl.Headers;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publisher of JetStream messages built on asynchronous publishing. Instead of waiting for the server to acknowledge
+ * each message before sending the next, messages are pipelined within a window bounded by the number of messages and
+ * bytes awaiting their acknowledgment. Once the window is full, publishing blocks until acknowledgments free it up or
+ * the acquire timeout elapses.
+ * <p>
+ * Every message carries a message id, which lets the server drop duplicates that are published again after a
+ * failure within the stream's duplicate window.
+ * </p>
+ * <p>
+ * When a {@link NatsCompression} is given, payloads are compressed according to the threshold of their subject before
+ * they enter the window, so that the window is bounded by the bytes actually sent.
+ * </p>
+ */
+public class NatsPublisher {
+
+    private final NatsClient natsClient;
+    private final NatsCodecRegistry codecRegistry;
+    private final NatsCompression compression;
+    private final int maxInFlightMessages;
+    private final int maxInFlightBytes;
+    private final Duration acquireTimeout;
+    private final Semaphore messagePermits;
+    private final Semaphore bytePermits;
+
+    /**
+     * Constructor for creating an instance of NatsPublisher.
+     *
+     * @param natsClient The NATS client whose JetStream context is used for publishing
+     * @param codecRegistry The registry providing the codecs of published events
+     * @param maxInFlightMessages The maximum number of messages awaiting an acknowledgment
+     * @param maxInFlightBytes The maximum number of payload bytes awaiting an acknowledgment
+     * @param acquireTimeout The maximum time to wait for room in the window
+     */
+    public NatsPublisher(NatsClient natsClient, NatsCodecRegistry codecRegistry, int maxInFlightMessages,
+                         int maxInFlightBytes, Duration acquireTimeout) {
+        this(natsClient, codecRegistry, null, maxInFlightMessages, maxInFlightBytes, acquireTimeout);
+    }
+
+    /**
+     * Constructor for creating an instance of NatsPublisher compressing payloads.
+     *
+     * @param natsClient The NATS client whose JetStream context is used for publishing
+     * @param codecRegistry The registry providing the codecs of published events
+     * @param compression The compression applied to payloads, or null to publish them as they are
+     * @param maxInFlightMessages The maximum number of messages awaiting an acknowledgment
+     * @param maxInFlightBytes The maximum number of payload bytes awaiting an acknowledgment
+     * @param acquireTimeout The maximum time to wait for room in the window
+     */
+    public NatsPublisher(NatsClient natsClient, NatsCodecRegistry codecRegistry, NatsCompression compression,
+                         int maxInFlightMessages, int maxInFlightBytes, Duration acquireTimeout) {
+        this.natsClient = natsClient;
+        this.codecRegistry = codecRegistry;
+        this.compression = compression;
+        this.maxInFlightMessages = maxInFlightMessages;
+        this.maxInFlightBytes = maxInFlightBytes;
+        this.acquireTimeout = acquireTimeout;
+        this.messagePermits = new Semaphore(maxInFlightMessages);
+        this.bytePermits = new Semaphore(maxInFlightBytes);
+    }
+
+    /**
+     * Publishes an event, encoded by the codec of its class.
+     *
+     * @param subject The subject to publish to
+     * @param event The event to publish
+     * @param <T> The type of the event
+     * @return A future completed with the acknowledgment of the server
+     */
+    public <T> CompletableFuture<PublishAck> publishEvent(String subject, T event) {
+        return publishEvent(subject, null, event);
+    }
+
+    /**
+     * Publishes an event with headers, encoded by the codec of its class.
+     *
+     * @param subject The subject to publish to
+     * @param headers The headers of the message, may be null
+     * @param event The event to publish
+     * @param <T> The type of the event
+     * @return A future completed with the acknowledgment of the server
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<PublishAck> publishEvent(String subject, Headers headers, T event) {
+        var codec = codecRegistry.codec((Class<T>) event.getClass());
+        return publish(subject, headers, codec.encode(event));
+    }
+
+    /**
+     * Publishes a raw payload.
+     *
+     * @param subject The subject to publish to
+     * @param data The payload of the message
+     * @return A future completed with the acknowledgment of the server
+     */
+    public CompletableFuture<PublishAck> publish(String subject, byte[] data) {
+        return publish(subject, null, data);
+    }
+
+    /**
+     * Publishes a raw payload with headers, using a generated message id.
+     *
+     * @param subject The subject to publish to
+     * @param headers The headers of the message, may be null
+     * @param data The payload of the message
+     * @return A future completed with the acknowledgment of the server
+     */
+    public CompletableFuture<PublishAck> publish(String subject, Headers headers, byte[] data) {
+        return publish(subject, headers, data, NUID.nextGlobal());
+    }
+
+    /**
+     * Publishes a raw payload with headers and an explicit message id. Callers that may publish the same logical
+     * message more than once should derive the id from its content so that the server can deduplicate it.
+     *
+     * @param subject The subject to publish to
+     * @param headers The headers of the message, may be null
+     * @param data The payload of the message
+     * @param messageId The id of the message used for deduplication
+     * @return A future completed with the acknowledgment of the server
+     * @throws NatsException In case no room frees up in the window within the acquire timeout
+     */
+    public CompletableFuture<PublishAck> publish(String subject, Headers headers, byte[] data, String messageId) {
+        if (compression != null) {
+            var payload = compression.compress(subject, headers, data);
+            headers = payload.headers();
+            data = payload.data();
+        }
+        var bytes = Math.min(data == null ? 0 : data.length, maxInFlightBytes);
+        acquire(subject, bytes);
+        try {
+            var options = PublishOptions.builder()
+                    .messageId(messageId)
+                    .build();
+            return natsClient.getJetStream(subject).publishAsync(subject, headers, data, options)
+                    .whenComplete((ack, error) -> release(bytes));
+        } catch (RuntimeException e) {
+            release(bytes);
+            throw new NatsException(String.format("Publishing message to subject %s failed", subject), e);
+        }
+    }
+
+    /**
+     * Waits until every message published so far has been acknowledged, or the timeout elapses.
+     *
+     * @param timeout The maximum time to wait
+     * @return true if no message is awaiting an acknowledgment anymore, false otherwise
+     * @throws InterruptedException In case waiting has been interrupted
+     */
+    public boolean awaitInFlight(Duration timeout) throws InterruptedException {
+        if (messagePermits.tryAcquire(maxInFlightMessages, timeout.toNanos(), TimeUnit.NANOSECONDS)) {
+            messagePermits.release(maxInFlightMessages);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Gets the number of messages awaiting an acknowledgment.
+     *
+     * @return the number of in-flight messages
+     */
+    public int getInFlightMessages() {
+        return maxInFlightMessages - messagePermits.availablePermits();
+    }
+
+    /**
+     * Gets the number of payload bytes awaiting an acknowledgment.
+     *
+     * @return the number of in-flight bytes
+     */
+    public int getInFlightBytes() {
+        return maxInFlightBytes - bytePermits.availablePermits();
+    }
+
+    private void acquire(String subject, int bytes) {
+        var deadline = System.nanoTime() + acquireTimeout.toNanos();
+        try {
+            if (!messagePermits.tryAcquire(acquireTimeout.toNanos(), TimeUnit.NANOSECONDS)) {
+                throw new NatsException(String.format("Timed out waiting for in-flight messages to publish to subject %s", subject));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new NatsException(String.format("Interrupted while waiting to publish to subject %s", subject), e);
+        }
+        try {
+            if (!bytePermits.tryAcquire(bytes, deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                messagePermits.release();
+                throw new NatsException(String.format("Timed out waiting for in-flight bytes to publish to subject %s", subject));
+            }
+        } catch (InterruptedException e) {
+            messagePermits.release();
+            Thread.currentThread().interrupt();
+            throw new NatsException(String.format("Interrupted while waiting to publish to subject %s", subject), e);
+        }
+    }
+
+    private void release(int bytes) {
+        bytePermits.release(bytes);
+        messagePermits.release();
+    }
+
+}
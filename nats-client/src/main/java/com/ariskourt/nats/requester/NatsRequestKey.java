@@ -0,0 +1,43 @@
+package com.ariskourt.nats.requester;
+
+import java.util.Arrays;
+
+/**
+ * Key of a request, made of its subject and payload. The hash of the payload is computed once so that looking the key
+ * up in the in-flight requests and the response cache does not hash the payload again, while equality still compares
+ * the payloads so that colliding hashes never share a response.
+ *
+ * @param subject The subject the request is sent to.
+ * @param data The payload of the request.
+ * @param hash The hash of the subject and payload.
+ */
+record NatsRequestKey(String subject, byte[] data, int hash) {
+
+    /**
+     * Creates the key of a request.
+     *
+     * @param subject The subject the request is sent to
+     * @param data The payload of the request, may be null
+     * @return the key of the request
+     */
+    static NatsRequestKey of(String subject, byte[] data) {
+        var payload = data == null ? new byte[0] : data;
+        return new NatsRequestKey(subject, payload, 31 * subject.hashCode() + Arrays.hashCode(payload));
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof NatsRequestKey key && hash == key.hash && subject.equals(key.subject) && Arrays.equals(data, key.data);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s (%d bytes)", subject, data.length);
+    }
+
+}
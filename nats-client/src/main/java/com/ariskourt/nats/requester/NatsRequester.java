@@ -0,0 +1,253 @@
+package com.ariskourt.nats.requester;
+
+import com.ariskourt.nats.NatsClient;
+import com.ariskourt.nats.codec.NatsCodecRegistry;
+import com.ariskourt.nats.codec.NatsPayloadReader;
+import com.ariskourt.nats.exception.NatsException;
+import io.nats.client.Connection;
+import io.nats.client.Message;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Requester of NATS request-reply exchanges. Requests are sent through the shared reply inbox of the connection, which
+ * multiplexes every response over a single subscription instead of subscribing to an inbox per request.
+ * <p>
+ * Concurrent requests with the same subject and payload are coalesced: only the first is sent, and every other caller
+ * is completed with its response. The timeout of the request sent applies to every caller coalesced into it.
+ * </p>
+ * <p>
+ * When a {@link NatsResponseCache} is given, responses are held for its time to live and requests with the same
+ * subject and payload are answered from it without being sent. This only suits lookups whose responses may be stale
+ * for that long.
+ * </p>
+ */
+public class NatsRequester {
+
+    /**
+     * Default duration to wait for a response.
+     */
+    public static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(2);
+
+    private final NatsClient natsClient;
+    private final NatsCodecRegistry codecRegistry;
+    private final NatsPayloadReader payloadReader;
+    private final Duration timeout;
+    private final NatsResponseCache cache;
+    private final Map<NatsRequestKey, CompletableFuture<byte[]>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    /**
+     * Constructor for creating an instance of NatsRequester.
+     *
+     * @param natsClient The NATS client whose connections send the requests
+     * @param codecRegistry The registry providing the codecs of requests and responses
+     * @param payloadReader The reader of response payloads, undoing their compression
+     * @param timeout The default duration to wait for a response
+     * @param cache The cache of responses, or null to send every request that is not coalesced
+     */
+    public NatsRequester(NatsClient natsClient, NatsCodecRegistry codecRegistry, NatsPayloadReader payloadReader,
+                         Duration timeout, NatsResponseCache cache) {
+        this.natsClient = natsClient;
+        this.codecRegistry = codecRegistry;
+        this.payloadReader = payloadReader;
+        this.timeout = timeout;
+        this.cache = cache;
+    }
+
+    /**
+     * Sends a request, encoded by the codec of its class, and decodes its response.
+     *
+     * @param subject The subject to send the request to
+     * @param request The request
+     * @param responseType The class of the response
+     * @param <Q> The type of the request
+     * @param <R> The type of the response
+     * @return A future completed with the decoded response
+     */
+    public <Q, R> CompletableFuture<R> request(String subject, Q request, Class<R> responseType) {
+        return request(subject, request, responseType, timeout);
+    }
+
+    /**
+     * Sends a request, encoded by the codec of its class, and decodes its response.
+     *
+     * @param subject The subject to send the request to
+     * @param request The request
+     * @param responseType The class of the response
+     * @param timeout The duration to wait for a response
+     * @param <Q> The type of the request
+     * @param <R> The type of the response
+     * @return A future completed with the decoded response
+     */
+    @SuppressWarnings("unchecked")
+    public <Q, R> CompletableFuture<R> request(String subject, Q request, Class<R> responseType, Duration timeout) {
+        var requestCodec = codecRegistry.codec((Class<Q>) request.getClass());
+        var responseCodec = codecRegistry.codec(responseType);
+        return request(subject, requestCodec.encode(request), timeout).thenApply(responseCodec::decode);
+    }
+
+    /**
+     * Sends a raw request.
+     *
+     * @param subject The subject to send the request to
+     * @param data The payload of the request
+     * @return A future completed with the payload of the response, which is shared with coalesced and cached requests
+     *         and must not be modified
+     */
+    public CompletableFuture<byte[]> request(String subject, byte[] data) {
+        return request(subject, data, timeout);
+    }
+
+    /**
+     * Sends a raw request.
+     *
+     * @param subject The subject to send the request to
+     * @param data The payload of the request
+     * @param timeout The duration to wait for a response
+     * @return A future completed with the payload of the response, which is shared with coalesced and cached requests
+     *         and must not be modified
+     */
+    public CompletableFuture<byte[]> request(String subject, byte[] data, Duration timeout) {
+        var key = NatsRequestKey.of(subject, data);
+        if (cache != null) {
+            var cached = cache.get(key);
+            if (cached != null) {
+                return CompletableFuture.completedFuture(cached);
+            }
+        }
+        var future = new CompletableFuture<byte[]>();
+        var existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            coalesced.increment();
+            return existing.thenApply(response -> response);
+        }
+        send(key, timeout, future);
+        return future.thenApply(response -> response);
+    }
+
+    /**
+     * Gets the number of requests sent.
+     *
+     * @return the number of requests sent
+     */
+    public long getSent() {
+        return sent.sum();
+    }
+
+    /**
+     * Gets the number of requests completed with the response of an identical request in flight.
+     *
+     * @return the number of coalesced requests
+     */
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    /**
+     * Gets the number of requests sent that have not been responded to in time.
+     *
+     * @return the number of timeouts
+     */
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+
+    /**
+     * Gets the number of requests sent that have failed for any other reason than a timeout.
+     *
+     * @return the number of failures
+     */
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    /**
+     * Gets the number of requests in flight.
+     *
+     * @return the number of requests awaiting their response
+     */
+    public int getInFlight() {
+        return inFlight.size();
+    }
+
+    /**
+     * Gets the cache of responses.
+     *
+     * @return the response cache, or null if responses are not cached
+     */
+    public NatsResponseCache getCache() {
+        return cache;
+    }
+
+    private void send(NatsRequestKey key, Duration timeout, CompletableFuture<byte[]> future) {
+        sent.increment();
+        try {
+            connection(key.subject()).requestWithTimeout(key.subject(), null, key.data(), timeout)
+                    .whenComplete((response, error) -> complete(key, future, response, error));
+        } catch (RuntimeException e) {
+            complete(key, future, null, e);
+        }
+    }
+
+    /**
+     * Completes a request sent along with every caller coalesced into it. A successful response is cached before the
+     * request stops being in flight, so that an identical request arriving in between finds either and is not sent.
+     */
+    private void complete(NatsRequestKey key, CompletableFuture<byte[]> future, Message response, Throwable error) {
+        var cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof CancellationException || cause instanceof TimeoutException) {
+            timeouts.increment();
+            fail(key, future, new NatsException(String.format("Request to subject %s has timed out", key.subject()), cause));
+            return;
+        }
+        if (cause != null) {
+            failures.increment();
+            fail(key, future, new NatsException(String.format("Request to subject %s has failed", key.subject()), cause));
+            return;
+        }
+        if (response.isStatusMessage()) {
+            failures.increment();
+            fail(key, future, new NatsException(String.format("Request to subject %s has failed with status %s", key.subject(),
+                    response.getStatus())));
+            return;
+        }
+        byte[] data;
+        try {
+            data = payloadReader.read(response);
+        } catch (RuntimeException e) {
+            failures.increment();
+            fail(key, future, e);
+            return;
+        }
+        if (cache != null) {
+            cache.put(key, data);
+        }
+        inFlight.remove(key, future);
+        future.complete(data);
+    }
+
+    private void fail(NatsRequestKey key, CompletableFuture<byte[]> future, Throwable exception) {
+        inFlight.remove(key, future);
+        future.completeExceptionally(exception);
+    }
+
+    private Connection connection(String subject) {
+        var connections = natsClient.getConnections();
+        if (connections.size() <= 1) {
+            return natsClient.getConnection();
+        }
+        return connections.get(Math.floorMod(subject.hashCode(), connections.size()));
+    }
+
+}
@@ -0,0 +1,91 @@
+package com.ariskourt.nats.requester;
+
+import com.ariskourt.nats.cache.NatsExpiringMap;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded, concurrent cache of the responses to requests, keyed by their subject and payload. Responses are held for a
+ * time to live and evicted in the order they were added, once they have expired or the cache has outgrown its bound.
+ */
+public class NatsResponseCache {
+
+    /**
+     * Default maximum number of responses held.
+     */
+    public static final int DEFAULT_MAX_ENTRIES = 10_000;
+
+    /**
+     * Default duration responses are held for.
+     */
+    public static final Duration DEFAULT_TTL = Duration.ofSeconds(5);
+
+    private final NatsExpiringMap<NatsRequestKey, byte[]> entries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Constructor for creating an instance of NatsResponseCache.
+     *
+     * @param maxEntries The maximum number of responses held
+     * @param ttl The duration responses are held for
+     */
+    public NatsResponseCache(int maxEntries, Duration ttl) {
+        this.entries = new NatsExpiringMap<>(maxEntries, ttl);
+    }
+
+    /**
+     * Gets the response to a request, counting the lookup as a hit or a miss.
+     *
+     * @param key The key of the request
+     * @return the payload of the response, or null if none is held or it has expired
+     */
+    byte[] get(NatsRequestKey key) {
+        var data = entries.get(key);
+        if (data != null) {
+            hits.increment();
+            return data;
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Holds the response to a request.
+     *
+     * @param key The key of the request
+     * @param data The payload of the response
+     */
+    void put(NatsRequestKey key, byte[] data) {
+        entries.put(key, data);
+    }
+
+    /**
+     * Gets the number of lookups that have found a response.
+     *
+     * @return the number of hits
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Gets the number of lookups that have not found a response.
+     *
+     * @return the number of misses
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Gets the number of responses held.
+     *
+     * @return the size of the cache
+     */
+    public int size() {
+        return entries.size();
+    }
+
+}
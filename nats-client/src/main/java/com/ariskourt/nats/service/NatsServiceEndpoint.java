@@ -0,0 +1,18 @@
+package com.ariskourt.nats.service;
+
+import io.nats.client.Connection;
+import io.nats.service.ServiceMessageHandler;
+
+import java.util.function.Function;
+
+/**
+ * Endpoint of a service to start.
+ *
+ * @param name The name of the endpoint.
+ * @param subject The subject of the endpoint, or null to use its name.
+ * @param queueGroup The queue group of the endpoint, or null to use the default queue group.
+ * @param handler Creates the handler of the endpoint, given the connection the service is started on and responds
+ *                through.
+ */
+public record NatsServiceEndpoint(String name, String subject, String queueGroup,
+                                  Function<Connection, ServiceMessageHandler> handler) {}
@@ -0,0 +1,94 @@
+package com.ariskourt.nats.service;
+
+import io.nats.service.ServiceMessage;
+
+/**
+ * Interface representing a handler serving an endpoint of a service built on the NATS Service API. Handlers of the
+ * same service are registered as the endpoints of a single service, which makes them discoverable and reports their
+ * statistics through the {@code $SRV} subjects. Every instance of the service joins the queue group of each endpoint,
+ * so that requests are load balanced across instances.
+ * <p>
+ * Requests are decoded and responses encoded by the codecs registered for {@link #requestClass()} and
+ * {@link #responseClass()}. A handler throwing an exception is counted as an error of its endpoint and responded to
+ * with a standard service error.
+ * </p>
+ *
+ * @param <Q> The type of request that this handler serves
+ * @param <R> The type of response that this handler returns
+ */
+public interface NatsServiceHandler<Q, R> {
+
+    /**
+     * The name of the service this handler serves an endpoint of
+     *
+     * @return The service name
+     */
+    String serviceName();
+
+    /**
+     * The version of the service, following semantic versioning. All handlers of a service must agree on it.
+     *
+     * @return The service version
+     */
+    default String serviceVersion() {
+        return "1.0.0";
+    }
+
+    /**
+     * The description of the service. All handlers of a service must agree on it.
+     *
+     * @return The service description
+     */
+    default String serviceDescription() {
+        return null;
+    }
+
+    /**
+     * The name of the endpoint this handler serves, unique within its service
+     *
+     * @return The endpoint name
+     */
+    String endpoint();
+
+    /**
+     * The subject this handler serves requests on
+     *
+     * @return The endpoint subject, or null to use the endpoint name
+     */
+    default String subject() {
+        return null;
+    }
+
+    /**
+     * The queue group instances of the service are load balanced by
+     *
+     * @return The queue group, or null to use the default queue group of the Service API
+     */
+    default String queueGroup() {
+        return null;
+    }
+
+    /**
+     * The class of the request that this handler is expecting
+     *
+     * @return The class of the request
+     */
+    Class<Q> requestClass();
+
+    /**
+     * The class of the response that this handler returns
+     *
+     * @return The class of the response
+     */
+    Class<R> responseClass();
+
+    /**
+     * Handles a decoded request
+     *
+     * @param request The request decoded from the message payload
+     * @param message The service message the request was decoded from, providing its subject and headers
+     * @return The response, or null to respond with an empty payload
+     */
+    R handle(Q request, ServiceMessage message);
+
+}
@@ -0,0 +1,51 @@
+package com.ariskourt.nats.service;
+
+import com.ariskourt.nats.codec.NatsCodec;
+import com.ariskourt.nats.codec.NatsCodecRegistry;
+import io.nats.client.Connection;
+import io.nats.service.ServiceMessage;
+import io.nats.service.ServiceMessageHandler;
+
+/**
+ * Service message handler decoding requests for a {@link NatsServiceHandler} and responding with its encoded
+ * response. Exceptions are left to the Service API, which counts them as errors of the endpoint and responds with a
+ * standard service error.
+ *
+ * @param <Q> The type of request served
+ * @param <R> The type of response returned
+ */
+public class NatsServiceMessageHandler<Q, R> implements ServiceMessageHandler {
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final NatsServiceHandler<Q, R> handler;
+    private final Connection connection;
+    private final NatsCodec<Q> requestCodec;
+    private final NatsCodec<R> responseCodec;
+
+    /**
+     * Constructor for creating an instance of NatsServiceMessageHandler.
+     *
+     * @param handler The service handler serving the requests
+     * @param connection The connection to respond through
+     * @param codecRegistry The registry providing the codecs of requests and responses
+     */
+    public NatsServiceMessageHandler(NatsServiceHandler<Q, R> handler, Connection connection, NatsCodecRegistry codecRegistry) {
+        this.handler = handler;
+        this.connection = connection;
+        this.requestCodec = codecRegistry.codec(handler.requestClass());
+        this.responseCodec = codecRegistry.codec(handler.responseClass());
+    }
+
+    /**
+     * Decodes the request, passes it to the service handler and responds with its encoded response.
+     *
+     * @param message The service message
+     */
+    @Override
+    public void onMessage(ServiceMessage message) {
+        var response = handler.handle(requestCodec.decode(message.getData()), message);
+        message.respond(connection, response == null ? EMPTY : responseCodec.encode(response));
+    }
+
+}
@@ -0,0 +1,121 @@
+package com.ariskourt.nats;
+
+import com.ariskourt.nats.ack.NatsAutoAckMessageHandler;
+import com.ariskourt.nats.configuration.ConsumerConfiguration;
+import com.ariskourt.nats.configuration.NatsConnectionConfiguration;
+import com.ariskourt.nats.configuration.NatsConnectionConfigurationParameters;
+import com.ariskourt.nats.configuration.NatsConsumerConfiguration;
+import com.ariskourt.nats.configuration.NatsPushSubscriberConfiguration;
+import com.ariskourt.nats.handler.NatsRetryPolicy;
+import com.ariskourt.nats.handler.NatsRetryingMessageHandler;
+import com.ariskourt.nats.test.NatsStandInServer;
+import io.nats.client.MessageHandler;
+import io.nats.client.api.AckPolicy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of how push consumers acknowledge through the {@link com.ariskourt.nats.ack.NatsAckPipeline}, run against a
+ * {@link NatsStandInServer}.
+ */
+class NatsClientAcknowledgmentTest {
+
+    private static final String STREAM = "ORDERS";
+    private static final String CONSUMER = "orders";
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    private NatsStandInServer server;
+    private NatsClient client;
+
+    @BeforeEach
+    void setUp() {
+        server = new NatsStandInServer().start().addStream(STREAM, "orders.>");
+        var configuration = new NatsConnectionConfiguration();
+        configuration.put(NatsConnectionConfigurationParameters.NATS_URLS, server.getUrl());
+        client = new NatsClient(configuration).connect();
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.disconnect();
+        server.close();
+    }
+
+    @Test
+    void pushConsumerRedeliversMessageNegativelyAcknowledgedByPipeline() throws Exception {
+        var deliveries = new AtomicInteger();
+        MessageHandler failingOnce = message -> {
+            if (deliveries.incrementAndGet() == 1) {
+                throw new IllegalStateException("first delivery fails");
+            }
+        };
+        client.subscribePushConsumer(pushConfiguration(), new NatsAutoAckMessageHandler(failingOnce, client.getAckPipeline()), null, false);
+
+        client.getJetStream().publish("orders.created", "order".getBytes(StandardCharsets.UTF_8));
+
+        assertTrue(await(() -> deliveries.get() >= 2), () -> "Message has been delivered " + deliveries.get() + " time(s)");
+        assertTrue(await(() -> server.getJetStream().getAckPendingCount(STREAM, CONSUMER) == 0));
+        assertEquals(2, deliveries.get());
+    }
+
+    @Test
+    void pushConsumerRetriesWithBackoffAndDeadLettersExhaustedMessage() throws Exception {
+        server.addStream("DLQ", "dlq.>");
+        var deliveries = new AtomicInteger();
+        MessageHandler failing = message -> {
+            deliveries.incrementAndGet();
+            throw new IllegalStateException("always fails");
+        };
+        var policy = new NatsRetryPolicy(Duration.ofMillis(50), Duration.ofMillis(200), 2, 0, 3, "dlq.orders");
+        var retrying = new NatsRetryingMessageHandler(failing, policy, client.getAckPipeline(), client::getJetStream, true);
+        client.subscribePushConsumer(pushConfiguration(), retrying, null, false);
+
+        client.getJetStream().publish("orders.created", "order".getBytes(StandardCharsets.UTF_8));
+
+        assertTrue(await(() -> server.getJetStream().getMessageCount("DLQ") == 1), () -> "Message has been delivered "
+                + deliveries.get() + " time(s) without being dead-lettered");
+        assertTrue(await(() -> server.getJetStream().getAckPendingCount(STREAM, CONSUMER) == 0));
+        assertEquals(3, deliveries.get());
+        assertEquals(2, retrying.getRetried());
+        assertEquals(1, retrying.getDeadLettered());
+    }
+
+    private static NatsConsumerConfiguration pushConfiguration() {
+        return NatsConsumerConfiguration.builder()
+                .with(b -> b.setConsumerConfiguration(ConsumerConfiguration.builder().with(c -> {
+                    c.setDurable(CONSUMER);
+                    c.setFilterSubjects(List.of("orders.>"));
+                    c.setAckPolicy(AckPolicy.Explicit);
+                    c.setAckAwait(Duration.ofSeconds(30));
+                    c.setMaxDeliver(5L);
+                }).build()))
+                .with(b -> b.setPushSubscriberConfiguration(NatsPushSubscriberConfiguration.builder().with(p -> {
+                    p.setName(CONSUMER);
+                    p.setDeliverSubject("deliver." + CONSUMER);
+                }).build()))
+                .build();
+    }
+
+    private static boolean await(BooleanSupplier condition) {
+        var deadline = System.nanoTime() + TIMEOUT.toNanos();
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() >= deadline) {
+                return false;
+            }
+            LockSupport.parkNanos(Duration.ofMillis(10).toNanos());
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,88 @@
+package com.ariskourt.nats;
+
+import com.ariskourt.nats.ack.NatsAutoAckMessageHandler;
+import com.ariskourt.nats.configuration.ConsumerConfiguration;
+import com.ariskourt.nats.configuration.NatsConnectionConfiguration;
+import com.ariskourt.nats.configuration.NatsConnectionConfigurationParameters;
+import com.ariskourt.nats.configuration.NatsConsumerConfiguration;
+import com.ariskourt.nats.configuration.NatsPushSubscriberConfiguration;
+import com.ariskourt.nats.test.NatsStandInServer;
+import com.ariskourt.nats.test.NatsThroughputProbe;
+import io.nats.client.api.AckPolicy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of how {@link NatsClient} binds to push consumers that already exist on a {@link NatsStandInServer}, updating
+ * those whose configuration has changed.
+ */
+class NatsClientConsumerUpdateTest {
+
+    private static final String STREAM = "ORDERS";
+    private static final String CONSUMER = "orders";
+    private static final String DELIVER_SUBJECT = "deliver." + CONSUMER;
+
+    private NatsStandInServer server;
+    private NatsClient client;
+
+    @BeforeEach
+    void setUp() {
+        server = new NatsStandInServer().start().addStream(STREAM, "orders.>");
+        client = connect();
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.disconnect();
+        server.close();
+    }
+
+    @Test
+    void changedPushConsumerIsUpdatedAndStaysPush() throws Exception {
+        client.subscribePushConsumer(pushConfiguration(5L, null), message -> {}, null, false);
+        client.disconnect();
+        client = connect();
+        var probe = new NatsThroughputProbe();
+
+        client.subscribePushConsumer(pushConfiguration(7L, "orders-group"),
+                new NatsAutoAckMessageHandler(probe, client.getAckPipeline()), client.loadConsumerSnapshot(), false);
+
+        var updated = client.getConnection().jetStreamManagement().getConsumerInfo(STREAM, CONSUMER).getConsumerConfiguration();
+        assertEquals(7, updated.getMaxDeliver());
+        assertEquals(DELIVER_SUBJECT, updated.getDeliverSubject());
+        assertEquals("orders-group", updated.getDeliverGroup());
+        client.getJetStream().publish("orders.created", "order".getBytes(StandardCharsets.UTF_8));
+        assertTrue(probe.awaitReceived(1, Duration.ofSeconds(10)));
+    }
+
+    private NatsClient connect() {
+        var configuration = new NatsConnectionConfiguration();
+        configuration.put(NatsConnectionConfigurationParameters.NATS_URLS, server.getUrl());
+        return new NatsClient(configuration).connect();
+    }
+
+    private static NatsConsumerConfiguration pushConfiguration(Long maxDeliver, String deliverGroup) {
+        return NatsConsumerConfiguration.builder()
+                .with(b -> b.setConsumerConfiguration(ConsumerConfiguration.builder().with(c -> {
+                    c.setDurable(CONSUMER);
+                    c.setFilterSubjects(List.of("orders.>"));
+                    c.setAckPolicy(AckPolicy.Explicit);
+                    c.setMaxDeliver(maxDeliver);
+                }).build()))
+                .with(b -> b.setPushSubscriberConfiguration(NatsPushSubscriberConfiguration.builder().with(p -> {
+                    p.setName(CONSUMER);
+                    p.setDeliverSubject(DELIVER_SUBJECT);
+                    p.setDeliverGroup(deliverGroup);
+                }).build()))
+                .build();
+    }
+
+}
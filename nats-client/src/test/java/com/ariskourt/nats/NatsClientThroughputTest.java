@@ -0,0 +1,159 @@
+package com.ariskourt.nats;
+
+import com.ariskourt.nats.ack.NatsAutoAckMessageHandler;
+import com.ariskourt.nats.configuration.ConsumerConfiguration;
+import com.ariskourt.nats.configuration.NatsConnectionConfiguration;
+import com.ariskourt.nats.configuration.NatsConnectionConfigurationParameters;
+import com.ariskourt.nats.configuration.NatsConsumerConfiguration;
+import com.ariskourt.nats.configuration.NatsPullSubscriberConfiguration;
+import com.ariskourt.nats.configuration.NatsPushSubscriberConfiguration;
+import com.ariskourt.nats.test.NatsLoadGenerator;
+import com.ariskourt.nats.test.NatsLoadProfile;
+import com.ariskourt.nats.test.NatsLoadReport;
+import com.ariskourt.nats.test.NatsStandInServer;
+import com.ariskourt.nats.test.NatsThroughputProbe;
+import io.nats.client.api.AckPolicy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Throughput regression tests of the handler paths of {@link NatsClient}, run against a {@link NatsStandInServer}.
+ * The floors are set well below what the stand-in sustains on a developer machine, so that they only trip when a
+ * change makes a path fall behind a steady load or lose messages under it.
+ */
+class NatsClientThroughputTest {
+
+    private static final String STREAM = "LOAD";
+    private static final Duration LOAD_DURATION = Duration.ofSeconds(2);
+    private static final Duration RECEIVE_TIMEOUT = Duration.ofSeconds(15);
+    private static final long JETSTREAM_RATE = 2_000;
+    private static final double MIN_CORE_THROUGHPUT = 10_000;
+    private static final Duration MAX_JETSTREAM_P99 = Duration.ofSeconds(1);
+
+    private NatsStandInServer server;
+    private NatsClient client;
+
+    @BeforeEach
+    void setUp() {
+        server = new NatsStandInServer().start().addStream(STREAM, "load.>");
+        var configuration = new NatsConnectionConfiguration();
+        configuration.put(NatsConnectionConfigurationParameters.NATS_URLS, server.getUrl());
+        client = new NatsClient(configuration).connect();
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.disconnect();
+        server.close();
+    }
+
+    @Test
+    void coreSubscriptionKeepsUpWithUnthrottledLoad() throws Exception {
+        var probe = new NatsThroughputProbe();
+        client.getConnection().createDispatcher(probe).subscribe("core.>");
+        client.getConnection().flush(Duration.ofSeconds(1));
+
+        var published = new NatsLoadGenerator(client.getConnection()).run(NatsLoadProfile.builder().with(b -> {
+            b.setSubjectPrefix("core");
+            b.setSubjectCount(8);
+            b.setMessageSize(128);
+            b.setDuration(LOAD_DURATION);
+            b.setPublishers(4);
+        }).build());
+
+        assertEquals(0, published.failed());
+        assertTrue(published.throughput() >= MIN_CORE_THROUGHPUT, () -> "Core publishing fell to " + published);
+        assertTrue(probe.awaitReceived(published.messages(), RECEIVE_TIMEOUT), () -> "Core subscription received "
+                + probe.getReceived() + " of " + published.messages() + " messages");
+    }
+
+    @Test
+    void pushConsumerKeepsUpWithSteadyLoad() throws InterruptedException {
+        var probe = new NatsThroughputProbe();
+        client.subscribePushConsumer(NatsConsumerConfiguration.builder()
+                .with(b -> b.setConsumerConfiguration(consumerConfiguration("load-push")))
+                .with(b -> b.setPushSubscriberConfiguration(NatsPushSubscriberConfiguration.builder().with(p -> {
+                    p.setName("load-push");
+                    p.setDeliverSubject("deliver.load-push");
+                }).build()))
+                .build(), new NatsAutoAckMessageHandler(probe, client.getAckPipeline()), null, false);
+
+        var published = runJetStreamLoad();
+
+        assertReceivedAndAcknowledged(probe, published.messages(), "load-push");
+        assertEquals(0, client.getAckPipeline().getFailedAcks());
+    }
+
+    @Test
+    void pullConsumerKeepsUpWithSteadyLoad() throws InterruptedException {
+        var probe = new NatsThroughputProbe();
+        client.subscribePullConsumer(NatsConsumerConfiguration.builder()
+                .with(b -> b.setConsumerConfiguration(consumerConfiguration("load-pull")))
+                .with(b -> b.setPullSubscriberConfiguration(NatsPullSubscriberConfiguration.builder().with(p -> {
+                    p.setStream(STREAM);
+                    p.setBatchSize(256);
+                    p.setExpiresIn(Duration.ofSeconds(1));
+                }).build()))
+                .build(), new NatsAutoAckMessageHandler(probe, client.getAckPipeline()));
+
+        var published = runJetStreamLoad();
+
+        assertReceivedAndAcknowledged(probe, published.messages(), "load-pull");
+        assertEquals(0, client.getAckPipeline().getFailedAcks());
+    }
+
+    private NatsLoadReport runJetStreamLoad() throws InterruptedException {
+        var published = new NatsLoadGenerator(client.getConnection()).run(NatsLoadProfile.builder().with(b -> {
+            b.setSubjectPrefix("load");
+            b.setSubjectCount(4);
+            b.setMessageSize(256);
+            b.setRatePerSecond(JETSTREAM_RATE);
+            b.setDuration(LOAD_DURATION);
+            b.setPublishers(2);
+            b.setJetStream(true);
+        }).build());
+        assertEquals(0, published.failed());
+        assertEquals(published.messages(), server.getJetStream().getMessageCount(STREAM));
+        return published;
+    }
+
+    private void assertReceivedAndAcknowledged(NatsThroughputProbe probe, long messages, String consumer) {
+        assertTrue(probe.awaitReceived(messages, RECEIVE_TIMEOUT), () -> "Consumer " + consumer + " received "
+                + probe.getReceived() + " of " + messages + " messages");
+        var received = probe.report();
+        assertTrue(received.p99().compareTo(MAX_JETSTREAM_P99) <= 0, () -> "Consumer " + consumer + " fell behind: " + received);
+        assertTrue(await(() -> server.getJetStream().getAckPendingCount(STREAM, consumer) == 0), () -> "Consumer "
+                + consumer + " left " + server.getJetStream().getAckPendingCount(STREAM, consumer) + " messages unacknowledged");
+    }
+
+    private static ConsumerConfiguration consumerConfiguration(String durable) {
+        return ConsumerConfiguration.builder().with(c -> {
+            c.setDurable(durable);
+            c.setFilterSubjects(List.of("load.>"));
+            c.setAckPolicy(AckPolicy.Explicit);
+            c.setAckAwait(Duration.ofSeconds(30));
+            c.setMaxAckPending(10_000L);
+        }).build();
+    }
+
+    private static boolean await(BooleanSupplier condition) {
+        var deadline = System.nanoTime() + RECEIVE_TIMEOUT.toNanos();
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() >= deadline) {
+                return false;
+            }
+            LockSupport.parkNanos(Duration.ofMillis(10).toNanos());
+        }
+        return true;
+    }
+
+}
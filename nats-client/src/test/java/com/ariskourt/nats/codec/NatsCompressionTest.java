@@ -0,0 +1,54 @@
+package com.ariskourt.nats.codec;
+
+import com.ariskourt.nats.exception.NatsException;
+import io.nats.client.impl.NatsMessage;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of how {@link NatsCompression} inflates the payloads it has deflated, within its maximum decompressed size.
+ */
+class NatsCompressionTest {
+
+    private static final String SUBJECT = "orders.created";
+    private static final int PAYLOAD_SIZE = 64 * 1024;
+
+    @Test
+    void readInflatesCompressedPayload() {
+        try (var compression = new NatsCompression(true, NatsCompression.DEFAULT_LEVEL, NatsCompression.DEFAULT_THRESHOLD, Map.of(), 1)) {
+            var payload = new byte[PAYLOAD_SIZE];
+            var compressed = compression.compress(SUBJECT, null, payload);
+
+            assertTrue(compressed.data().length < PAYLOAD_SIZE);
+            assertArrayEquals(payload, compression.read(message(compressed)));
+            assertEquals(1, compression.getDecompressedMessages());
+        }
+    }
+
+    @Test
+    void readFailsOncePayloadInflatesBeyondMaximumSize() {
+        try (var compression = new NatsCompression(true, NatsCompression.DEFAULT_LEVEL, NatsCompression.DEFAULT_THRESHOLD, Map.of(), 1,
+                PAYLOAD_SIZE - 1)) {
+            var compressed = compression.compress(SUBJECT, null, new byte[PAYLOAD_SIZE]);
+
+            assertThrows(NatsException.class, () -> compression.read(message(compressed)));
+            assertEquals(1, compression.getOversizedMessages());
+            assertEquals(0, compression.getDecompressedMessages());
+        }
+    }
+
+    private static NatsMessage message(NatsCompression.Payload payload) {
+        return NatsMessage.builder()
+                .subject(SUBJECT)
+                .headers(payload.headers())
+                .data(payload.data())
+                .build();
+    }
+
+}
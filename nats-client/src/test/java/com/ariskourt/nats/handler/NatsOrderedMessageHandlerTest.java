@@ -0,0 +1,107 @@
+package com.ariskourt.nats.handler;
+
+import com.ariskourt.nats.NatsClient;
+import com.ariskourt.nats.ack.NatsAutoAckMessageHandler;
+import com.ariskourt.nats.configuration.ConsumerConfiguration;
+import com.ariskourt.nats.configuration.NatsConnectionConfiguration;
+import com.ariskourt.nats.configuration.NatsConnectionConfigurationParameters;
+import com.ariskourt.nats.configuration.NatsConsumerConfiguration;
+import com.ariskourt.nats.configuration.NatsPushSubscriberConfiguration;
+import com.ariskourt.nats.test.NatsStandInServer;
+import io.nats.client.MessageHandler;
+import io.nats.client.api.AckPolicy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of how {@link NatsOrderedMessageHandler} keeps the order of messages sharing a key while one of them fails, run
+ * against a {@link NatsStandInServer}.
+ */
+class NatsOrderedMessageHandlerTest {
+
+    private static final String STREAM = "ORDERS";
+    private static final String CONSUMER = "orders";
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    private NatsStandInServer server;
+    private NatsClient client;
+
+    @BeforeEach
+    void setUp() {
+        server = new NatsStandInServer().start().addStream(STREAM, "orders.>");
+        var configuration = new NatsConnectionConfiguration();
+        configuration.put(NatsConnectionConfigurationParameters.NATS_URLS, server.getUrl());
+        client = new NatsClient(configuration).connect();
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.disconnect();
+        server.close();
+    }
+
+    @Test
+    void failedMessageParksItsLaneUntilRetriedInPlace() throws Exception {
+        var handled = new CopyOnWriteArrayList<String>();
+        var attempts = new AtomicInteger();
+        MessageHandler failingTwice = message -> {
+            var payload = new String(message.getData(), StandardCharsets.UTF_8);
+            if ("first".equals(payload) && attempts.incrementAndGet() <= 2) {
+                throw new IllegalStateException("first message fails twice");
+            }
+            handled.add(payload);
+        };
+        try (var ordered = new NatsOrderedMessageHandler(CONSUMER, 2, 16, NatsOrderingKey.subjectToken(1),
+                new NatsAutoAckMessageHandler(failingTwice, client.getAckPipeline(), false), client.getAckPipeline())) {
+            client.subscribePushConsumer(pushConfiguration(), ordered, null, false);
+
+            client.getJetStream().publish("orders.42", "first".getBytes(StandardCharsets.UTF_8));
+            client.getJetStream().publish("orders.42", "second".getBytes(StandardCharsets.UTF_8));
+
+            assertTrue(await(() -> handled.size() == 2), () -> "Handled " + handled);
+            assertTrue(await(() -> server.getJetStream().getAckPendingCount(STREAM, CONSUMER) == 0));
+        }
+        assertEquals(List.of("first", "second"), handled);
+        assertEquals(3, attempts.get());
+    }
+
+    private static NatsConsumerConfiguration pushConfiguration() {
+        return NatsConsumerConfiguration.builder()
+                .with(b -> b.setConsumerConfiguration(ConsumerConfiguration.builder().with(c -> {
+                    c.setDurable(CONSUMER);
+                    c.setFilterSubjects(List.of("orders.>"));
+                    c.setAckPolicy(AckPolicy.Explicit);
+                    c.setAckAwait(Duration.ofSeconds(30));
+                    c.setMaxDeliver(5L);
+                }).build()))
+                .with(b -> b.setPushSubscriberConfiguration(NatsPushSubscriberConfiguration.builder().with(p -> {
+                    p.setName(CONSUMER);
+                    p.setDeliverSubject("deliver." + CONSUMER);
+                }).build()))
+                .build();
+    }
+
+    private static boolean await(BooleanSupplier condition) {
+        var deadline = System.nanoTime() + TIMEOUT.toNanos();
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() >= deadline) {
+                return false;
+            }
+            LockSupport.parkNanos(Duration.ofMillis(10).toNanos());
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,153 @@
+package com.ariskourt.nats.objectstore;
+
+import com.ariskourt.nats.NatsClient;
+import com.ariskourt.nats.configuration.NatsConnectionConfiguration;
+import com.ariskourt.nats.configuration.NatsConnectionConfigurationParameters;
+import com.ariskourt.nats.exception.NatsException;
+import com.ariskourt.nats.test.NatsStandInServer;
+import io.nats.client.api.ObjectInfo;
+import io.nats.client.impl.Headers;
+import io.nats.client.impl.NatsMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests of the chunking and digest of {@link NatsObjectStore}, run against a {@link NatsStandInServer} holding the
+ * stream of the bucket in the layout of the client library.
+ */
+class NatsObjectStoreTest {
+
+    private static final String BUCKET = "files";
+    private static final String STREAM = "OBJ_" + BUCKET;
+    private static final int CHUNK_SIZE = 1024;
+
+    private NatsStandInServer server;
+    private NatsClient client;
+    private NatsObjectStore store;
+
+    @TempDir
+    Path directory;
+
+    @BeforeEach
+    void setUp() {
+        server = new NatsStandInServer().start().addStream(STREAM, "$O." + BUCKET + ".C.>", "$O." + BUCKET + ".M.>");
+        var configuration = new NatsConnectionConfiguration();
+        configuration.put(NatsConnectionConfigurationParameters.NATS_URLS, server.getUrl());
+        client = new NatsClient(configuration).connect();
+        store = client.createObjectStore(BUCKET, CHUNK_SIZE, 2, Duration.ofSeconds(5));
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.disconnect();
+        server.close();
+    }
+
+    @Test
+    void putAndGetRoundTripAcrossChunksWithPartialLastChunk() throws Exception {
+        var content = content(3 * CHUNK_SIZE + 300);
+
+        var info = store.put("report", new ByteArrayInputStream(content));
+
+        assertEquals(4, info.getChunks());
+        assertEquals(content.length, info.getSize());
+        assertEquals(CHUNK_SIZE, info.getObjectMeta().getObjectMetaOptions().getChunkSize());
+        assertEquals("SHA-256=" + Base64.getUrlEncoder().encodeToString(MessageDigest.getInstance("SHA-256").digest(content)), info.getDigest());
+        assertEquals(4, server.getJetStream().getMessageCount(STREAM, chunkSubject(info)));
+        assertEquals(4, store.getChunksPut());
+
+        var output = new ByteArrayOutputStream();
+        var got = store.get("report", output);
+
+        assertArrayEquals(content, output.toByteArray());
+        assertEquals(info.getNuid(), got.getNuid());
+        assertEquals(content.length, store.getBytesGot());
+    }
+
+    @Test
+    void getFailsOnDigestMismatch() throws Exception {
+        var info = store.put("report", new ByteArrayInputStream(content(2 * CHUNK_SIZE + 1)));
+        tamperDigest(info);
+
+        assertThrows(NatsException.class, () -> store.get("report", new ByteArrayOutputStream()));
+    }
+
+    @Test
+    void putPurgesChunksOfReplacedObject() {
+        var replaced = store.put("report", new ByteArrayInputStream(content(3 * CHUNK_SIZE)));
+        var content = content(CHUNK_SIZE + 10);
+
+        var info = store.put("report", new ByteArrayInputStream(content));
+
+        assertEquals(0, server.getJetStream().getMessageCount(STREAM, chunkSubject(replaced)));
+        assertEquals(2, server.getJetStream().getMessageCount(STREAM, chunkSubject(info)));
+        assertEquals(info.getChunks() + 1, server.getJetStream().getMessageCount(STREAM));
+        var output = new ByteArrayOutputStream();
+        store.get("report", output);
+        assertArrayEquals(content, output.toByteArray());
+    }
+
+    @Test
+    void getIntoFileDeletesPartialFileOnFailure() throws Exception {
+        var info = store.put("report", new ByteArrayInputStream(content(2 * CHUNK_SIZE + 1)));
+        tamperDigest(info);
+        var file = directory.resolve("report.bin");
+        Files.writeString(file, "previous content");
+
+        assertThrows(NatsException.class, () -> store.get("report", file));
+
+        assertFalse(Files.exists(file));
+    }
+
+    @Test
+    void getIntoFileDeletesFileOfMissingObject() {
+        var file = directory.resolve("missing.bin");
+
+        assertThrows(NatsException.class, () -> store.get("missing", file));
+
+        assertFalse(Files.exists(file));
+    }
+
+    /**
+     * Replaces the info of an object with one whose digest is the one of other content, the way a corrupted chunk
+     * would be seen by a get.
+     */
+    private void tamperDigest(ObjectInfo info) throws Exception {
+        var tampered = ObjectInfo.builder(info)
+                .digest("SHA-256=" + Base64.getUrlEncoder().encodeToString(MessageDigest.getInstance("SHA-256").digest(new byte[1])))
+                .build();
+        client.getJetStream().publish(NatsMessage.builder()
+                .subject("$O." + BUCKET + ".M." + Base64.getUrlEncoder().encodeToString(info.getObjectName().getBytes(StandardCharsets.UTF_8)))
+                .headers(new Headers().put("Nats-Rollup", "sub"))
+                .data(tampered.serialize())
+                .build());
+    }
+
+    private static String chunkSubject(ObjectInfo info) {
+        return "$O." + BUCKET + ".C." + info.getNuid();
+    }
+
+    private static byte[] content(int size) {
+        var content = new byte[size];
+        new Random(size).nextBytes(content);
+        return content;
+    }
+
+}
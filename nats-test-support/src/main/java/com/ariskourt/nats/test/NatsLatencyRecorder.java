@@ -0,0 +1,100 @@
+package com.ariskourt.nats.test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records latencies into a fixed-size reservoir sample, so that percentiles of arbitrarily long runs are estimated in
+ * constant memory. The count and the maximum are exact.
+ */
+public class NatsLatencyRecorder {
+
+    /**
+     * Default number of latencies kept in the reservoir.
+     */
+    public static final int DEFAULT_RESERVOIR_SIZE = 100_000;
+
+    private final long[] reservoir;
+    private final LongAdder count = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    private long seen;
+
+    /**
+     * Constructor for creating a recorder with the default reservoir size.
+     */
+    public NatsLatencyRecorder() {
+        this(DEFAULT_RESERVOIR_SIZE);
+    }
+
+    /**
+     * Constructor for creating a recorder with the given reservoir size.
+     *
+     * @param reservoirSize The number of latencies kept to estimate percentiles from
+     */
+    public NatsLatencyRecorder(int reservoirSize) {
+        this.reservoir = new long[reservoirSize];
+    }
+
+    /**
+     * Records a latency.
+     *
+     * @param nanos The latency in nanoseconds
+     */
+    public void record(long nanos) {
+        count.increment();
+        max.accumulate(nanos);
+        synchronized (reservoir) {
+            var index = seen++;
+            if (index < reservoir.length) {
+                reservoir[(int) index] = nanos;
+            } else {
+                var slot = ThreadLocalRandom.current().nextLong(index + 1);
+                if (slot < reservoir.length) {
+                    reservoir[(int) slot] = nanos;
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the number of recorded latencies.
+     *
+     * @return the number of latencies
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Gets the largest recorded latency.
+     *
+     * @return the largest latency
+     */
+    public Duration getMax() {
+        return Duration.ofNanos(max.get());
+    }
+
+    /**
+     * Estimates a percentile of the recorded latencies.
+     *
+     * @param percentile The percentile, between 0 and 100
+     * @return the estimated latency, or zero if nothing has been recorded
+     */
+    public Duration percentile(double percentile) {
+        long[] sample;
+        synchronized (reservoir) {
+            sample = Arrays.copyOf(reservoir, (int) Math.min(seen, reservoir.length));
+        }
+        if (sample.length == 0) {
+            return Duration.ZERO;
+        }
+        Arrays.sort(sample);
+        var rank = (int) Math.ceil(Math.clamp(percentile, 0.0, 100.0) / 100.0 * sample.length) - 1;
+        return Duration.ofNanos(sample[Math.clamp(rank, 0, sample.length - 1)]);
+    }
+
+}
@@ -0,0 +1,117 @@
+package com.ariskourt.nats.test;
+
+import io.nats.client.Connection;
+import io.nats.client.JetStreamApiException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives the load described by a {@link NatsLoadProfile} through a connection: messages are published by virtual
+ * threads, paced to the configured rate and fanned out over the configured subjects. Every payload starts with the
+ * {@link System#nanoTime()} it has been published at, from which a {@link NatsThroughputProbe} in the same process
+ * derives the end-to-end latency.
+ * <p>
+ * On the publishing side the latency is the one of the publish call, which for JetStream includes awaiting the publish
+ * acknowledgment.
+ * </p>
+ */
+public class NatsLoadGenerator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NatsLoadGenerator.class);
+
+    private final Connection connection;
+
+    /**
+     * Constructor for creating an instance of NatsLoadGenerator.
+     *
+     * @param connection The connection to publish through
+     */
+    public NatsLoadGenerator(Connection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * Reads the publish timestamp from a payload created by a load generator.
+     *
+     * @param payload The payload of a received message
+     * @return the {@link System#nanoTime()} the message has been published at, or -1 if the payload holds none
+     */
+    public static long publishedAt(byte[] payload) {
+        return payload == null || payload.length < NatsLoadProfile.MIN_MESSAGE_SIZE ? -1 : ByteBuffer.wrap(payload).getLong();
+    }
+
+    /**
+     * Runs the load and waits for it to complete.
+     *
+     * @param profile The profile of the load
+     * @return the report of the publishing side
+     * @throws InterruptedException In case the thread has been interrupted while waiting for the publishers
+     */
+    public NatsLoadReport run(NatsLoadProfile profile) throws InterruptedException {
+        var latency = new NatsLatencyRecorder();
+        var sequence = new AtomicLong();
+        var published = new LongAdder();
+        var failed = new LongAdder();
+        var jetStream = profile.jetStream() ? connection.jetStream() : null;
+        var intervalNanos = profile.ratePerSecond() == 0 ? 0 : 1_000_000_000L * profile.publishers() / profile.ratePerSecond();
+        var start = System.nanoTime();
+        var end = start + profile.duration().toNanos();
+        LOGGER.info("Starting NATS load of {}", profile);
+
+        var threads = new ArrayList<Thread>(profile.publishers());
+        for (var publisher = 0; publisher < profile.publishers(); publisher++) {
+            var offset = intervalNanos * publisher / profile.publishers();
+            threads.add(Thread.ofVirtual().name("nats-load-publisher-" + publisher).start(() -> {
+                var next = start + offset;
+                while (true) {
+                    var now = System.nanoTime();
+                    if (now >= end) {
+                        return;
+                    }
+                    if (intervalNanos > 0 && now < next) {
+                        LockSupport.parkNanos(next - now);
+                        continue;
+                    }
+                    next += intervalNanos;
+                    var index = sequence.getAndIncrement();
+                    var payload = ByteBuffer.allocate(profile.messageSize()).putLong(System.nanoTime()).array();
+                    var publishStart = System.nanoTime();
+                    try {
+                        if (jetStream != null) {
+                            jetStream.publish(profile.subject(index), payload);
+                        } else {
+                            connection.publish(profile.subject(index), payload);
+                        }
+                        published.increment();
+                        latency.record(System.nanoTime() - publishStart);
+                    } catch (IOException | JetStreamApiException | RuntimeException e) {
+                        failed.increment();
+                        LOGGER.debug("Publishing load message {} has failed", index, e);
+                    }
+                }
+            }));
+        }
+        for (var thread : threads) {
+            thread.join();
+        }
+        if (jetStream == null) {
+            try {
+                connection.flush(profile.duration().plusSeconds(1));
+            } catch (Exception e) {
+                LOGGER.warn("Flushing the NATS load has failed", e);
+            }
+        }
+        var report = NatsLoadReport.of(published.sum(), failed.sum(), Duration.ofNanos(System.nanoTime() - start), latency);
+        LOGGER.info("NATS load completed: {}", report);
+        return report;
+    }
+
+}
@@ -0,0 +1,216 @@
+package com.ariskourt.nats.test;
+
+import java.time.Duration;
+import java.util.function.Consumer;
+
+/**
+ * Profile of the load driven by a {@link NatsLoadGenerator}.
+ *
+ * @param subjectPrefix The prefix of the subjects published to, each message going to {@code <prefix>.<index>}.
+ * @param subjectCount The number of subjects the messages are fanned out to, in round-robin.
+ * @param messageSize The size of every payload in bytes, at least 8 to hold the publish timestamp.
+ * @param ratePerSecond The number of messages published per second across all publishers, 0 for as fast as possible.
+ * @param duration The duration of the load.
+ * @param publishers The number of virtual threads publishing concurrently.
+ * @param jetStream Whether the messages are published through JetStream, awaiting the publish acknowledgment of each.
+ */
+public record NatsLoadProfile(String subjectPrefix, int subjectCount, int messageSize, long ratePerSecond,
+                              Duration duration, int publishers, boolean jetStream) {
+
+    /**
+     * The smallest payload, holding the {@link System#nanoTime()} the message has been published at.
+     */
+    public static final int MIN_MESSAGE_SIZE = Long.BYTES;
+
+    /**
+     * Creates a new builder for NatsLoadProfile.
+     *
+     * @return a new Builder instance
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Gets the subject of the message with the given index.
+     *
+     * @param index The index of the message
+     * @return the subject to publish the message to
+     */
+    public String subject(long index) {
+        return subjectPrefix + "." + Math.floorMod(index, subjectCount);
+    }
+
+    /**
+     * Builder class for constructing NatsLoadProfile instances.
+     */
+    public static class Builder {
+
+        private String subjectPrefix = "load";
+
+        /**
+         * Gets the prefix of the subjects published to.
+         *
+         * @return the prefix of the subjects
+         */
+        public String getSubjectPrefix() {
+            return subjectPrefix;
+        }
+
+        /**
+         * Sets the prefix of the subjects published to.
+         *
+         * @param subjectPrefix the prefix of the subjects
+         */
+        public void setSubjectPrefix(String subjectPrefix) {
+            this.subjectPrefix = subjectPrefix;
+        }
+
+        private int subjectCount = 1;
+
+        /**
+         * Gets the number of subjects the messages are fanned out to.
+         *
+         * @return the number of subjects
+         */
+        public int getSubjectCount() {
+            return subjectCount;
+        }
+
+        /**
+         * Sets the number of subjects the messages are fanned out to.
+         *
+         * @param subjectCount the number of subjects
+         */
+        public void setSubjectCount(int subjectCount) {
+            this.subjectCount = subjectCount;
+        }
+
+        private int messageSize = 128;
+
+        /**
+         * Gets the size of every payload in bytes.
+         *
+         * @return the size of every payload
+         */
+        public int getMessageSize() {
+            return messageSize;
+        }
+
+        /**
+         * Sets the size of every payload in bytes.
+         *
+         * @param messageSize the size of every payload
+         */
+        public void setMessageSize(int messageSize) {
+            this.messageSize = messageSize;
+        }
+
+        private long ratePerSecond;
+
+        /**
+         * Gets the number of messages published per second.
+         *
+         * @return the number of messages per second, 0 for as fast as possible
+         */
+        public long getRatePerSecond() {
+            return ratePerSecond;
+        }
+
+        /**
+         * Sets the number of messages published per second.
+         *
+         * @param ratePerSecond the number of messages per second, 0 for as fast as possible
+         */
+        public void setRatePerSecond(long ratePerSecond) {
+            this.ratePerSecond = ratePerSecond;
+        }
+
+        private Duration duration = Duration.ofSeconds(10);
+
+        /**
+         * Gets the duration of the load.
+         *
+         * @return the duration of the load
+         */
+        public Duration getDuration() {
+            return duration;
+        }
+
+        /**
+         * Sets the duration of the load.
+         *
+         * @param duration the duration of the load
+         */
+        public void setDuration(Duration duration) {
+            this.duration = duration;
+        }
+
+        private int publishers = 1;
+
+        /**
+         * Gets the number of virtual threads publishing concurrently.
+         *
+         * @return the number of publishers
+         */
+        public int getPublishers() {
+            return publishers;
+        }
+
+        /**
+         * Sets the number of virtual threads publishing concurrently.
+         *
+         * @param publishers the number of publishers
+         */
+        public void setPublishers(int publishers) {
+            this.publishers = publishers;
+        }
+
+        private boolean jetStream;
+
+        /**
+         * Gets whether the messages are published through JetStream.
+         *
+         * @return true if the messages are published through JetStream, false for core NATS
+         */
+        public boolean isJetStream() {
+            return jetStream;
+        }
+
+        /**
+         * Sets whether the messages are published through JetStream.
+         *
+         * @param jetStream true to publish through JetStream, false for core NATS
+         */
+        public void setJetStream(boolean jetStream) {
+            this.jetStream = jetStream;
+        }
+
+        /**
+         * Applies the given consumer to this builder.
+         *
+         * @param builder the consumer to apply
+         * @return this builder
+         */
+        public Builder with(Consumer<Builder> builder) {
+            builder.accept(this);
+            return this;
+        }
+
+        /**
+         * Builds a new NatsLoadProfile instance.
+         *
+         * @return a new NatsLoadProfile instance
+         * @throws IllegalArgumentException In case the profile describes no load
+         */
+        public NatsLoadProfile build() {
+            if (subjectCount < 1 || publishers < 1 || ratePerSecond < 0 || duration == null || duration.isNegative()) {
+                throw new IllegalArgumentException("A load profile needs at least one subject and publisher, a non-negative rate and a duration");
+            }
+            return new NatsLoadProfile(subjectPrefix, subjectCount, Math.max(MIN_MESSAGE_SIZE, messageSize), ratePerSecond,
+                    duration, publishers, jetStream);
+        }
+
+    }
+
+}
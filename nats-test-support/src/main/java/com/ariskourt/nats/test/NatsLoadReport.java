@@ -0,0 +1,51 @@
+package com.ariskourt.nats.test;
+
+import java.time.Duration;
+
+/**
+ * Outcome of a load run, either on the publishing side as reported by a {@link NatsLoadGenerator} or on the receiving
+ * side as reported by a {@link NatsThroughputProbe}.
+ *
+ * @param messages The number of messages published or received.
+ * @param failed The number of messages whose publishing has failed.
+ * @param elapsed The duration of the run.
+ * @param p50 The median latency.
+ * @param p99 The 99th percentile latency.
+ * @param max The largest latency.
+ */
+public record NatsLoadReport(long messages, long failed, Duration elapsed, Duration p50, Duration p99, Duration max) {
+
+    /**
+     * Creates a report from the latencies recorded during a run.
+     *
+     * @param messages The number of messages published or received
+     * @param failed The number of messages whose publishing has failed
+     * @param elapsed The duration of the run
+     * @param latency The recorded latencies
+     * @return the report of the run
+     */
+    public static NatsLoadReport of(long messages, long failed, Duration elapsed, NatsLatencyRecorder latency) {
+        return new NatsLoadReport(messages, failed, elapsed, latency.percentile(50), latency.percentile(99), latency.getMax());
+    }
+
+    /**
+     * Gets the number of messages per second over the run.
+     *
+     * @return the throughput of the run
+     */
+    public double throughput() {
+        return elapsed.isZero() ? 0.0 : messages * 1_000_000_000.0 / elapsed.toNanos();
+    }
+
+    /**
+     * Formats the report for logging.
+     *
+     * @return the report as a single line
+     */
+    @Override
+    public String toString() {
+        return String.format("%d messages (%d failed) in %d ms, %.0f msg/s, latency p50 %d us, p99 %d us, max %d us",
+                messages, failed, elapsed.toMillis(), throughput(), p50.toNanos() / 1_000, p99.toNanos() / 1_000, max.toNanos() / 1_000);
+    }
+
+}
@@ -0,0 +1,209 @@
+package com.ariskourt.nats.test;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * A client connection of the {@link NatsStandInServer}. Protocol operations are read on one virtual thread, while
+ * outbound frames are queued and written by another, which flushes the socket only once the queue has been drained
+ * so that bursts of deliveries share a single write.
+ */
+final class NatsStandInClient {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NatsStandInClient.class);
+
+    private static final byte[] CRLF = "\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] PONG = "PONG\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] OK = "+OK\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CLOSE = new byte[0];
+    private static final int MAX_WRITE_BATCH = 1024;
+
+    private final NatsStandInServer server;
+    private final Socket socket;
+    private final long id;
+    private final BlockingQueue<byte[]> outbound = new LinkedBlockingQueue<>();
+
+    private volatile boolean verbose;
+    private volatile boolean closed;
+
+    NatsStandInClient(NatsStandInServer server, Socket socket, long id) {
+        this.server = server;
+        this.socket = socket;
+        this.id = id;
+    }
+
+    void start() {
+        send(("INFO " + server.info(id) + "\r\n").getBytes(StandardCharsets.UTF_8));
+        Thread.ofVirtual().name("nats-stand-in-writer-" + id).start(this::write);
+        Thread.ofVirtual().name("nats-stand-in-reader-" + id).start(this::read);
+    }
+
+    void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        outbound.add(CLOSE);
+        try {
+            socket.close();
+        } catch (IOException e) {
+            LOGGER.debug("Closing NATS stand-in client {} has failed", id, e);
+        }
+        server.disconnected(this);
+    }
+
+    /**
+     * Queues a {@code MSG} frame, or an {@code HMSG} frame when the message carries headers.
+     */
+    void sendMessage(String subject, String sid, String reply, byte[] headers, byte[] payload) {
+        var body = payload == null ? new byte[0] : payload;
+        var frame = new ByteArrayOutputStream(body.length + (headers == null ? 0 : headers.length) + 96);
+        var replyPart = reply == null ? "" : " " + reply;
+        if (headers == null) {
+            frame.writeBytes(String.format("MSG %s %s%s %d\r\n", subject, sid, replyPart, body.length).getBytes(StandardCharsets.US_ASCII));
+        } else {
+            frame.writeBytes(String.format("HMSG %s %s%s %d %d\r\n", subject, sid, replyPart, headers.length, headers.length + body.length)
+                    .getBytes(StandardCharsets.US_ASCII));
+            frame.writeBytes(headers);
+        }
+        frame.writeBytes(body);
+        frame.writeBytes(CRLF);
+        send(frame.toByteArray());
+    }
+
+    private void send(byte[] frame) {
+        if (!closed) {
+            outbound.add(frame);
+        }
+    }
+
+    private void write() {
+        var batch = new ArrayList<byte[]>(MAX_WRITE_BATCH);
+        try (var output = new BufferedOutputStream(socket.getOutputStream(), 64 * 1024)) {
+            while (true) {
+                batch.add(outbound.take());
+                outbound.drainTo(batch, MAX_WRITE_BATCH - 1);
+                for (var frame : batch) {
+                    if (frame == CLOSE) {
+                        return;
+                    }
+                    output.write(frame);
+                }
+                batch.clear();
+                if (outbound.isEmpty()) {
+                    output.flush();
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.debug("Writing to NATS stand-in client {} has failed", id, e);
+            close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void read() {
+        try (var input = new BufferedInputStream(socket.getInputStream(), 64 * 1024)) {
+            while (!closed) {
+                var line = readLine(input);
+                if (line.isEmpty()) {
+                    continue;
+                }
+                handle(line, input);
+            }
+        } catch (EOFException e) {
+            LOGGER.debug("NATS stand-in client {} has disconnected", id);
+        } catch (IOException | RuntimeException e) {
+            if (!closed) {
+                LOGGER.debug("Reading from NATS stand-in client {} has failed", id, e);
+            }
+        } finally {
+            close();
+        }
+    }
+
+    private void handle(String line, InputStream input) throws IOException {
+        var space = line.indexOf(' ');
+        var operation = (space < 0 ? line : line.substring(0, space)).toUpperCase(Locale.ROOT);
+        var arguments = space < 0 ? new String[0] : line.substring(space + 1).trim().split("\\s+");
+        switch (operation) {
+            case "CONNECT" -> verbose = line.contains("\"verbose\":true");
+            case "PING" -> send(PONG);
+            case "PONG" -> {
+            }
+            case "SUB" -> {
+                if (arguments.length == 3) {
+                    server.subscribe(this, arguments[0], arguments[1], arguments[2]);
+                } else {
+                    server.subscribe(this, arguments[0], null, arguments[1]);
+                }
+            }
+            case "UNSUB" -> server.unsubscribe(this, arguments[0], arguments.length > 1 ? Long.parseLong(arguments[1]) : 0);
+            case "PUB" -> {
+                var size = Integer.parseInt(arguments[arguments.length - 1]);
+                var reply = arguments.length == 3 ? arguments[1] : null;
+                var payload = readPayload(input, size);
+                server.publish(arguments[0], reply, null, payload);
+            }
+            case "HPUB" -> {
+                var headerSize = Integer.parseInt(arguments[arguments.length - 2]);
+                var totalSize = Integer.parseInt(arguments[arguments.length - 1]);
+                var reply = arguments.length == 4 ? arguments[1] : null;
+                var frame = readPayload(input, totalSize);
+                var headers = new byte[headerSize];
+                var payload = new byte[totalSize - headerSize];
+                System.arraycopy(frame, 0, headers, 0, headerSize);
+                System.arraycopy(frame, headerSize, payload, 0, payload.length);
+                server.publish(arguments[0], reply, headers, payload);
+            }
+            default -> {
+                send(("-ERR 'Unknown Protocol Operation'\r\n").getBytes(StandardCharsets.US_ASCII));
+                return;
+            }
+        }
+        if (verbose && !"PING".equals(operation) && !"PONG".equals(operation)) {
+            send(OK);
+        }
+    }
+
+    private static byte[] readPayload(InputStream input, int size) throws IOException {
+        var payload = input.readNBytes(size);
+        if (payload.length < size) {
+            throw new EOFException();
+        }
+        if (input.read() != '\r' || input.read() != '\n') {
+            throw new IOException("Payload is not terminated by CRLF");
+        }
+        return payload;
+    }
+
+    private static String readLine(InputStream input) throws IOException {
+        var line = new ByteArrayOutputStream(128);
+        while (true) {
+            var next = input.read();
+            if (next < 0) {
+                throw new EOFException();
+            }
+            if (next == '\n') {
+                var bytes = line.toByteArray();
+                var length = bytes.length > 0 && bytes[bytes.length - 1] == '\r' ? bytes.length - 1 : bytes.length;
+                return new String(bytes, 0, length, StandardCharsets.UTF_8);
+            }
+            line.write(next);
+        }
+    }
+
+}
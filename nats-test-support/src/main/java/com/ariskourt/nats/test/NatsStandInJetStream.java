@@ -0,0 +1,918 @@
+package com.ariskourt.nats.test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * The minimal JetStream subset of the {@link NatsStandInServer}, held in memory:
+ * <ul>
+ *     <li>streams can be created, updated, looked up, listed, purged, optionally by subject, and deleted, and store
+ *     every message published to their subjects, acknowledging publishes that expect it, deduplicating on
+ *     {@code Nats-Msg-Id} and rolling up subjects on {@code Nats-Rollup}</li>
+ *     <li>stored messages can be got by sequence, as the next or as the last one of a subject</li>
+ *     <li>push and pull consumers can be created, updated, looked up, listed and deleted, honouring filter subjects,
+ *     the {@code all}, {@code new}, {@code last} and {@code by_start_sequence} deliver policies, max ack pending and
+ *     max deliver</li>
+ *     <li>pull requests honour batch, max bytes, expiry, no-wait and idle heartbeats</li>
+ *     <li>acknowledgments support ack, nak with an optional delay, term and in-progress, and unacknowledged messages
+ *     are redelivered once their ack wait elapses</li>
+ * </ul>
+ * This covers what object stores need, as long as their stream is created upfront. Anything else, such as mirrors,
+ * sources, direct gets or flow control, is answered with an error.
+ */
+public class NatsStandInJetStream implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NatsStandInJetStream.class);
+
+    static final String API_PREFIX = "$JS.API.";
+    static final String ACK_PREFIX = "$JS.ACK.";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final Duration TICK = Duration.ofMillis(50);
+    private static final Duration DEFAULT_ACK_WAIT = Duration.ofSeconds(30);
+    private static final Duration DUPLICATE_WINDOW = Duration.ofMinutes(2);
+    private static final long DEFAULT_MAX_ACK_PENDING = 1000;
+    private static final int LIST_LIMIT = 1024;
+
+    private final NatsStandInServer server;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, Stream> streams = new LinkedHashMap<>();
+
+    private volatile boolean running;
+    private Thread ticker;
+
+    NatsStandInJetStream(NatsStandInServer server) {
+        this.server = server;
+    }
+
+    /**
+     * Creates a stream capturing the given subjects, or updates the subjects of an existing one.
+     *
+     * @param name The name of the stream
+     * @param subjects The subjects captured by the stream
+     */
+    public void addStream(String name, List<String> subjects) {
+        var config = MAPPER.createObjectNode().put("name", name);
+        subjects.forEach(config.putArray("subjects")::add);
+        withLock(outbound -> createStream(name, config));
+    }
+
+    /**
+     * Gets the number of messages stored in a stream.
+     *
+     * @param name The name of the stream
+     * @return the number of messages, or 0 if the stream does not exist
+     */
+    public long getMessageCount(String name) {
+        return withLock(outbound -> {
+            var stream = streams.get(name);
+            return stream == null ? 0L : stream.messages.size();
+        });
+    }
+
+    /**
+     * Gets the number of messages stored in a stream on the subjects matching a subject filter.
+     *
+     * @param name The name of the stream
+     * @param subject The subject filter, which may contain wildcards
+     * @return the number of messages, or 0 if the stream does not exist
+     */
+    public long getMessageCount(String name, String subject) {
+        return withLock(outbound -> {
+            var stream = streams.get(name);
+            return stream == null ? 0L : stream.messages.values().stream()
+                    .filter(message -> NatsStandInSubjects.matches(subject, message.subject()))
+                    .count();
+        });
+    }
+
+    /**
+     * Gets the number of messages delivered by a consumer that are awaiting an acknowledgment.
+     *
+     * @param streamName The name of the stream
+     * @param consumerName The name of the consumer
+     * @return the number of messages pending acknowledgment, or 0 if the consumer does not exist
+     */
+    public long getAckPendingCount(String streamName, String consumerName) {
+        return withLock(outbound -> {
+            var stream = streams.get(streamName);
+            var consumer = stream == null ? null : stream.consumers.get(consumerName);
+            return consumer == null ? 0L : consumer.pending.size();
+        });
+    }
+
+    void start() {
+        running = true;
+        ticker = Thread.ofVirtual().name("nats-stand-in-jetstream").start(this::tick);
+    }
+
+    /**
+     * Stops redelivering messages and expiring pull requests.
+     */
+    @Override
+    public void close() {
+        running = false;
+        if (ticker != null) {
+            ticker.interrupt();
+        }
+    }
+
+    void handleApiRequest(String subject, String reply, byte[] payload) {
+        var outbound = new ArrayList<Outbound>();
+        JsonNode response;
+        lock.lock();
+        try {
+            response = api(subject.substring(API_PREFIX.length()).split("\\."), reply, parse(payload), outbound);
+        } catch (RuntimeException e) {
+            LOGGER.warn("NATS stand-in JetStream request on {} has failed", subject, e);
+            response = error(500, 10000, String.valueOf(e.getMessage()));
+        } finally {
+            lock.unlock();
+        }
+        if (response != null && reply != null) {
+            outbound.addFirst(Outbound.reply(reply, json(response)));
+        }
+        send(outbound);
+    }
+
+    void handleAck(String subject, String reply, byte[] payload) {
+        var tokens = subject.split("\\.");
+        if (tokens.length < 9) {
+            return;
+        }
+        var body = payload == null ? "" : new String(payload, StandardCharsets.UTF_8).trim();
+        var outbound = new ArrayList<Outbound>();
+        lock.lock();
+        try {
+            var stream = streams.get(tokens[2]);
+            var consumer = stream == null ? null : stream.consumers.get(tokens[3]);
+            if (consumer != null) {
+                consumer.acknowledge(Long.parseLong(tokens[5]), body);
+                dispatch(consumer, outbound);
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (reply != null) {
+            outbound.addFirst(Outbound.reply(reply, new byte[0]));
+        }
+        send(outbound);
+    }
+
+    /**
+     * Stores a message published to a subject captured by a stream and delivers it to the consumers of the stream.
+     *
+     * @return true if a stream has captured the message, false otherwise
+     */
+    boolean store(String subject, String reply, byte[] headers, byte[] payload) {
+        var outbound = new ArrayList<Outbound>();
+        lock.lock();
+        try {
+            var stream = streams.values().stream()
+                    .filter(candidate -> candidate.captures(subject))
+                    .findFirst()
+                    .orElse(null);
+            if (stream == null) {
+                return false;
+            }
+            var ack = stream.append(subject, headers, payload);
+            if (reply != null) {
+                outbound.add(Outbound.reply(reply, json(ack)));
+            }
+            stream.consumers.values().forEach(consumer -> dispatch(consumer, outbound));
+        } finally {
+            lock.unlock();
+        }
+        send(outbound);
+        return true;
+    }
+
+    private JsonNode api(String[] tokens, String reply, ObjectNode request, List<Outbound> outbound) {
+        return switch (tokens[0]) {
+            case "INFO" -> accountInfo();
+            case "STREAM" -> streamApi(tokens, request);
+            case "CONSUMER" -> consumerApi(tokens, reply, request, outbound);
+            default -> unsupported(tokens);
+        };
+    }
+
+    private JsonNode streamApi(String[] tokens, ObjectNode request) {
+        var operation = tokens.length > 1 ? tokens[1] : "";
+        var name = tokens.length > 2 ? tokens[2] : null;
+        return switch (operation) {
+            case "CREATE", "UPDATE" -> streamInfo(createStream(name, request));
+            case "INFO" -> lookupStream(name, this::streamInfo);
+            case "DELETE" -> lookupStream(name, stream -> {
+                streams.remove(name);
+                return success();
+            });
+            case "PURGE" -> lookupStream(name, stream -> success().put("purged", stream.purge(request.path("filter").asText(null))));
+            case "MSG" -> "GET".equals(name)
+                    ? lookupStream(tokens.length > 3 ? tokens[3] : null, stream -> getMessage(stream, request))
+                    : unsupported(tokens);
+            case "NAMES" -> {
+                var filter = request.path("subject").asText(null);
+                var response = page(streams.size());
+                var names = response.putArray("streams");
+                streams.values().stream()
+                        .filter(stream -> filter == null || stream.subjects.stream().anyMatch(subject -> NatsStandInSubjects.overlaps(subject, filter)))
+                        .forEach(stream -> names.add(stream.name));
+                yield response.put("total", names.size());
+            }
+            case "LIST" -> {
+                var response = page(streams.size());
+                var infos = response.putArray("streams");
+                streams.values().forEach(stream -> infos.add(streamInfo(stream)));
+                yield response;
+            }
+            default -> unsupported(tokens);
+        };
+    }
+
+    private JsonNode consumerApi(String[] tokens, String reply, ObjectNode request, List<Outbound> outbound) {
+        var operation = tokens.length > 1 ? tokens[1] : "";
+        return switch (operation) {
+            case "CREATE" -> createConsumer(tokens[2], tokens.length > 3 ? tokens[3] : null, request, outbound);
+            case "DURABLE" -> createConsumer(tokens[3], tokens[4], request, outbound);
+            case "INFO" -> lookupConsumer(tokens[2], tokens[3], this::consumerInfo);
+            case "DELETE" -> lookupConsumer(tokens[2], tokens[3], consumer -> {
+                consumer.stream.consumers.remove(consumer.name);
+                return success();
+            });
+            case "NAMES" -> lookupStream(tokens[2], stream -> {
+                var response = page(stream.consumers.size());
+                var names = response.putArray("consumers");
+                stream.consumers.keySet().forEach(names::add);
+                return response;
+            });
+            case "LIST" -> lookupStream(tokens[2], stream -> {
+                var response = page(stream.consumers.size());
+                var infos = response.putArray("consumers");
+                stream.consumers.values().forEach(consumer -> infos.add(consumerInfo(consumer)));
+                return response;
+            });
+            case "MSG" -> {
+                pull(tokens[3], tokens[4], reply, request, outbound);
+                yield null;
+            }
+            default -> unsupported(tokens);
+        };
+    }
+
+    private Stream createStream(String name, ObjectNode config) {
+        config.put("name", name);
+        if (!config.has("subjects") || config.get("subjects").isEmpty()) {
+            config.putArray("subjects").add(name);
+        }
+        var subjects = new ArrayList<String>();
+        config.get("subjects").forEach(subject -> subjects.add(subject.asText()));
+        var stream = streams.computeIfAbsent(name, Stream::new);
+        stream.config = config;
+        stream.subjects = subjects;
+        return stream;
+    }
+
+    private JsonNode createConsumer(String streamName, String requestedName, ObjectNode request, List<Outbound> outbound) {
+        return lookupStream(streamName, stream -> {
+            var config = request.has("config") ? (ObjectNode) request.get("config") : MAPPER.createObjectNode();
+            var name = requestedName != null ? requestedName
+                    : config.path("name").asText(config.path("durable_name").asText(UUID.randomUUID().toString().replace("-", "")));
+            config.put("name", name);
+            var consumer = stream.consumers.get(name);
+            if (consumer == null) {
+                consumer = new Consumer(stream, name);
+                consumer.configure(config);
+                consumer.position(config);
+                stream.consumers.put(name, consumer);
+            } else {
+                consumer.configure(config);
+            }
+            var info = consumerInfo(consumer);
+            dispatch(consumer, outbound);
+            return info;
+        });
+    }
+
+    private JsonNode getMessage(Stream stream, ObjectNode request) {
+        StoredMessage message;
+        if (request.hasNonNull("last_by_subj")) {
+            var subject = request.get("last_by_subj").asText();
+            message = stream.messages.descendingMap().values().stream()
+                    .filter(candidate -> NatsStandInSubjects.matches(subject, candidate.subject()))
+                    .findFirst()
+                    .orElse(null);
+        } else if (request.hasNonNull("next_by_subj")) {
+            var subject = request.get("next_by_subj").asText();
+            message = stream.messages.tailMap(request.path("seq").asLong(0), true).values().stream()
+                    .filter(candidate -> NatsStandInSubjects.matches(subject, candidate.subject()))
+                    .findFirst()
+                    .orElse(null);
+        } else {
+            message = stream.messages.get(request.path("seq").asLong(0));
+        }
+        if (message == null) {
+            return error(404, 10037, "no message found");
+        }
+        var response = MAPPER.createObjectNode();
+        var stored = response.putObject("message")
+                .put("subject", message.subject())
+                .put("seq", message.sequence())
+                .put("data", Base64.getEncoder().encodeToString(message.payload() == null ? new byte[0] : message.payload()))
+                .put("time", message.timestamp().toString());
+        if (message.headers() != null) {
+            stored.put("hdrs", Base64.getEncoder().encodeToString(message.headers()));
+        }
+        return response;
+    }
+
+    private void pull(String streamName, String consumerName, String reply, ObjectNode request, List<Outbound> outbound) {
+        var stream = streams.get(streamName);
+        var consumer = stream == null ? null : stream.consumers.get(consumerName);
+        if (consumer == null || reply == null) {
+            if (reply != null) {
+                outbound.add(Outbound.status(reply, 404, "Consumer Not Found", 0, 0));
+            }
+            return;
+        }
+        var now = System.nanoTime();
+        var pullRequest = new PullRequest(reply,
+                Math.max(1, request.path("batch").asLong(1)),
+                request.path("max_bytes").asLong(0),
+                request.path("expires").asLong(0) > 0 ? now + request.path("expires").asLong() : 0,
+                request.path("idle_heartbeat").asLong(0));
+        consumer.waiting.add(pullRequest);
+        dispatch(consumer, outbound);
+        if (request.path("no_wait").asBoolean(false) && consumer.waiting.remove(pullRequest)) {
+            outbound.add(Outbound.status(reply, 404, "No Messages", pullRequest.remaining, pullRequest.remainingBytes));
+        }
+    }
+
+    private void dispatch(Consumer consumer, List<Outbound> outbound) {
+        if (consumer.deliverSubject != null) {
+            while (consumer.canDeliver()) {
+                var message = consumer.next();
+                if (message == null) {
+                    return;
+                }
+                outbound.add(consumer.deliver(message, consumer.deliverSubject));
+            }
+            return;
+        }
+        while (!consumer.waiting.isEmpty() && consumer.canDeliver()) {
+            var request = consumer.waiting.peekFirst();
+            var message = consumer.peek();
+            if (message == null) {
+                return;
+            }
+            var size = message.size();
+            if (request.maxBytes > 0 && size > request.remainingBytes) {
+                consumer.waiting.removeFirst();
+                outbound.add(Outbound.status(request.reply, 409, "Message Size Exceeds MaxBytes", request.remaining, request.remainingBytes));
+                continue;
+            }
+            consumer.take(message);
+            outbound.add(consumer.deliver(message, request.reply));
+            request.remaining--;
+            request.remainingBytes -= size;
+            if (request.remaining <= 0 || request.maxBytes > 0 && request.remainingBytes <= 0) {
+                consumer.waiting.removeFirst();
+            }
+        }
+    }
+
+    private void tick() {
+        while (running) {
+            try {
+                Thread.sleep(TICK);
+            } catch (InterruptedException e) {
+                return;
+            }
+            var outbound = new ArrayList<Outbound>();
+            lock.lock();
+            try {
+                var now = System.nanoTime();
+                for (var stream : streams.values()) {
+                    stream.expireMessageIds();
+                    for (var consumer : stream.consumers.values()) {
+                        consumer.expire(now, outbound);
+                        dispatch(consumer, outbound);
+                    }
+                }
+            } catch (RuntimeException e) {
+                LOGGER.warn("NATS stand-in JetStream housekeeping has failed", e);
+            } finally {
+                lock.unlock();
+            }
+            send(outbound);
+        }
+    }
+
+    private void send(List<Outbound> outbound) {
+        outbound.forEach(message -> server.route(message.target(), message.subject(), message.reply(), message.headers(), message.payload()));
+    }
+
+    private <T> T withLock(Function<List<Outbound>, T> action) {
+        var outbound = new ArrayList<Outbound>();
+        T result;
+        lock.lock();
+        try {
+            result = action.apply(outbound);
+        } finally {
+            lock.unlock();
+        }
+        send(outbound);
+        return result;
+    }
+
+    private JsonNode lookupStream(String name, Function<Stream, JsonNode> action) {
+        var stream = name == null ? null : streams.get(name);
+        return stream == null ? error(404, 10059, "stream not found") : action.apply(stream);
+    }
+
+    private JsonNode lookupConsumer(String streamName, String consumerName, Function<Consumer, JsonNode> action) {
+        return lookupStream(streamName, stream -> {
+            var consumer = stream.consumers.get(consumerName);
+            return consumer == null ? error(404, 10014, "consumer not found") : action.apply(consumer);
+        });
+    }
+
+    private ObjectNode accountInfo() {
+        var response = MAPPER.createObjectNode()
+                .put("memory", 0)
+                .put("storage", streams.values().stream().mapToLong(stream -> stream.bytes).sum())
+                .put("streams", streams.size())
+                .put("consumers", streams.values().stream().mapToInt(stream -> stream.consumers.size()).sum());
+        response.putObject("limits")
+                .put("max_memory", -1)
+                .put("max_storage", -1)
+                .put("max_streams", -1)
+                .put("max_consumers", -1);
+        response.putObject("api")
+                .put("total", 0)
+                .put("errors", 0);
+        return response;
+    }
+
+    private ObjectNode streamInfo(Stream stream) {
+        var response = MAPPER.createObjectNode();
+        response.set("config", stream.config);
+        response.put("created", stream.created.toString());
+        var state = response.putObject("state")
+                .put("messages", stream.messages.size())
+                .put("bytes", stream.bytes)
+                .put("first_seq", stream.messages.isEmpty() ? 0 : stream.messages.firstKey())
+                .put("last_seq", stream.lastSequence)
+                .put("consumer_count", stream.consumers.size());
+        if (!stream.messages.isEmpty()) {
+            state.put("first_ts", stream.messages.firstEntry().getValue().timestamp().toString());
+            state.put("last_ts", stream.messages.lastEntry().getValue().timestamp().toString());
+        }
+        return response.put("ts", Instant.now().toString());
+    }
+
+    private ObjectNode consumerInfo(Consumer consumer) {
+        var response = MAPPER.createObjectNode()
+                .put("stream_name", consumer.stream.name)
+                .put("name", consumer.name)
+                .put("created", consumer.created.toString());
+        response.set("config", consumer.config);
+        response.putObject("delivered")
+                .put("consumer_seq", consumer.consumerSequence)
+                .put("stream_seq", consumer.deliveredStreamSequence);
+        var floor = consumer.pending.isEmpty() ? null : consumer.pending.firstEntry().getValue();
+        response.putObject("ack_floor")
+                .put("consumer_seq", floor == null ? consumer.consumerSequence : floor.consumerSequence - 1)
+                .put("stream_seq", floor == null ? consumer.deliveredStreamSequence : consumer.pending.firstKey() - 1);
+        return response
+                .put("num_ack_pending", consumer.pending.size())
+                .put("num_redelivered", consumer.redelivered)
+                .put("num_waiting", consumer.waiting.size())
+                .put("num_pending", consumer.countPending())
+                .put("push_bound", consumer.deliverSubject != null && server.hasInterest(consumer.deliverSubject))
+                .put("ts", Instant.now().toString());
+    }
+
+    private static ObjectNode page(int total) {
+        return MAPPER.createObjectNode()
+                .put("total", total)
+                .put("offset", 0)
+                .put("limit", LIST_LIMIT);
+    }
+
+    private static ObjectNode success() {
+        return MAPPER.createObjectNode().put("success", true);
+    }
+
+    private static ObjectNode unsupported(String[] tokens) {
+        return error(400, 10003, String.format("%s is not supported by the NATS stand-in", String.join(".", tokens)));
+    }
+
+    private static ObjectNode error(int code, int errorCode, String description) {
+        var response = MAPPER.createObjectNode();
+        response.putObject("error")
+                .put("code", code)
+                .put("err_code", errorCode)
+                .put("description", description);
+        return response;
+    }
+
+    private static ObjectNode parse(byte[] payload) {
+        if (payload == null || payload.length == 0) {
+            return MAPPER.createObjectNode();
+        }
+        try {
+            var node = MAPPER.readTree(payload);
+            if (node instanceof ObjectNode object) {
+                return object;
+            }
+            return MAPPER.createObjectNode().put("batch", node.asLong(1));
+        } catch (IOException e) {
+            return MAPPER.createObjectNode().put("batch", Long.parseLong(new String(payload, StandardCharsets.UTF_8).trim()));
+        }
+    }
+
+    private static byte[] json(JsonNode node) {
+        try {
+            return MAPPER.writeValueAsBytes(node);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String header(byte[] headers, String name) {
+        if (headers == null) {
+            return null;
+        }
+        for (var line : new String(headers, StandardCharsets.UTF_8).split("\r\n")) {
+            var colon = line.indexOf(':');
+            if (colon > 0 && line.substring(0, colon).trim().equalsIgnoreCase(name)) {
+                return line.substring(colon + 1).trim();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * A message to route once the lock is released. The target is the subject subscriptions are matched against,
+     * while the subject is the one the message is delivered with, which differ for messages delivered by consumers.
+     */
+    private record Outbound(String target, String subject, String reply, byte[] headers, byte[] payload) {
+
+        static Outbound reply(String reply, byte[] payload) {
+            return new Outbound(reply, reply, null, null, payload);
+        }
+
+        static Outbound status(String target, int code, String description, long pendingMessages, long pendingBytes) {
+            var headers = String.format("NATS/1.0 %d %s\r\nNats-Pending-Messages: %d\r\nNats-Pending-Bytes: %d\r\n\r\n",
+                    code, description, Math.max(0, pendingMessages), Math.max(0, pendingBytes));
+            return new Outbound(target, target, null, headers.getBytes(StandardCharsets.US_ASCII), new byte[0]);
+        }
+
+        static Outbound heartbeat(String target) {
+            return new Outbound(target, target, null, "NATS/1.0 100 Idle Heartbeat\r\n\r\n".getBytes(StandardCharsets.US_ASCII), new byte[0]);
+        }
+
+    }
+
+    private record StoredMessage(long sequence, String subject, byte[] headers, byte[] payload, Instant timestamp) {
+
+        long size() {
+            return subject.length() + (headers == null ? 0 : headers.length) + (payload == null ? 0 : payload.length);
+        }
+
+    }
+
+    private static final class Stream {
+
+        private final String name;
+        private final Instant created = Instant.now();
+        private final NavigableMap<Long, StoredMessage> messages = new TreeMap<>();
+        private final Map<String, Long> messageIds = new HashMap<>();
+        private final Map<String, Consumer> consumers = new LinkedHashMap<>();
+
+        private ObjectNode config;
+        private List<String> subjects = List.of();
+        private long lastSequence;
+        private long bytes;
+
+        private Stream(String name) {
+            this.name = name;
+        }
+
+        private boolean captures(String subject) {
+            return subjects.stream().anyMatch(pattern -> NatsStandInSubjects.matches(pattern, subject));
+        }
+
+        private ObjectNode append(String subject, byte[] headers, byte[] payload) {
+            var ack = MAPPER.createObjectNode().put("stream", name);
+            var messageId = header(headers, "Nats-Msg-Id");
+            if (messageId != null && messageIds.containsKey(messageId)) {
+                return ack.put("seq", messageIds.get(messageId)).put("duplicate", true);
+            }
+            var message = new StoredMessage(++lastSequence, subject, headers, payload, Instant.now());
+            var rollup = header(headers, "Nats-Rollup");
+            if ("all".equals(rollup)) {
+                remove(List.copyOf(messages.keySet()));
+            } else if ("sub".equals(rollup)) {
+                remove(messages.values().stream()
+                        .filter(previous -> previous.subject().equals(subject))
+                        .map(StoredMessage::sequence)
+                        .toList());
+            }
+            messages.put(message.sequence(), message);
+            bytes += message.size();
+            if (messageId != null) {
+                messageIds.put(messageId, message.sequence());
+            }
+            return ack.put("seq", message.sequence());
+        }
+
+        private int purge(String filter) {
+            var sequences = messages.values().stream()
+                    .filter(message -> filter == null || NatsStandInSubjects.matches(filter, message.subject()))
+                    .map(StoredMessage::sequence)
+                    .toList();
+            remove(sequences);
+            return sequences.size();
+        }
+
+        private void remove(List<Long> sequences) {
+            for (var sequence : sequences) {
+                var message = messages.remove(sequence);
+                if (message != null) {
+                    bytes -= message.size();
+                }
+                consumers.values().forEach(consumer -> consumer.pending.remove(sequence));
+            }
+        }
+
+        private void expireMessageIds() {
+            if (messageIds.isEmpty()) {
+                return;
+            }
+            var horizon = Instant.now().minus(DUPLICATE_WINDOW);
+            messageIds.values().removeIf(sequence -> {
+                var message = messages.get(sequence);
+                return message == null || message.timestamp().isBefore(horizon);
+            });
+        }
+
+    }
+
+    private static final class Pending {
+
+        private long consumerSequence;
+        private int deliveries;
+        private long deadline;
+        private long redeliverAt;
+        private boolean queued;
+
+    }
+
+    private static final class PullRequest {
+
+        private final String reply;
+        private final long maxBytes;
+        private final long expiresAt;
+        private final long heartbeatNanos;
+
+        private long remaining;
+        private long remainingBytes;
+        private long nextHeartbeat;
+
+        private PullRequest(String reply, long batch, long maxBytes, long expiresAt, long heartbeatNanos) {
+            this.reply = reply;
+            this.remaining = batch;
+            this.maxBytes = maxBytes;
+            this.remainingBytes = maxBytes;
+            this.expiresAt = expiresAt;
+            this.heartbeatNanos = heartbeatNanos;
+            this.nextHeartbeat = heartbeatNanos > 0 ? System.nanoTime() + heartbeatNanos : 0;
+        }
+
+    }
+
+    private static final class Consumer {
+
+        private final Stream stream;
+        private final String name;
+        private final Instant created = Instant.now();
+        private final NavigableMap<Long, Pending> pending = new TreeMap<>();
+        private final Deque<Long> redeliveries = new ArrayDeque<>();
+        private final Deque<PullRequest> waiting = new ArrayDeque<>();
+
+        private ObjectNode config;
+        private List<String> filters = List.of();
+        private String deliverSubject;
+        private String ackPolicy;
+        private long ackWaitNanos;
+        private long maxDeliver;
+        private long maxAckPending;
+        private long heartbeatNanos;
+        private long nextHeartbeat;
+        private long nextSequence = 1;
+        private long consumerSequence;
+        private long deliveredStreamSequence;
+        private long redelivered;
+
+        private Consumer(Stream stream, String name) {
+            this.stream = stream;
+            this.name = name;
+        }
+
+        private void configure(ObjectNode config) {
+            this.config = config;
+            var subjects = new ArrayList<String>();
+            if (config.hasNonNull("filter_subject") && !config.get("filter_subject").asText().isEmpty()) {
+                subjects.add(config.get("filter_subject").asText());
+            }
+            config.path("filter_subjects").forEach(subject -> subjects.add(subject.asText()));
+            filters = subjects;
+            deliverSubject = config.hasNonNull("deliver_subject") ? config.get("deliver_subject").asText() : null;
+            ackPolicy = config.path("ack_policy").asText("explicit");
+            ackWaitNanos = config.path("ack_wait").asLong(DEFAULT_ACK_WAIT.toNanos());
+            maxDeliver = config.path("max_deliver").asLong(-1);
+            maxAckPending = config.path("max_ack_pending").asLong(DEFAULT_MAX_ACK_PENDING);
+            heartbeatNanos = deliverSubject == null ? 0 : config.path("idle_heartbeat").asLong(0);
+            nextHeartbeat = heartbeatNanos > 0 ? System.nanoTime() + heartbeatNanos : 0;
+        }
+
+        private void position(ObjectNode config) {
+            nextSequence = switch (config.path("deliver_policy").asText("all")) {
+                case "new" -> stream.lastSequence + 1;
+                case "last" -> Math.max(1, stream.lastSequence);
+                case "by_start_sequence" -> Math.max(1, config.path("opt_start_seq").asLong(1));
+                default -> 1;
+            };
+        }
+
+        private boolean acknowledges() {
+            return !"none".equals(ackPolicy);
+        }
+
+        private boolean canDeliver() {
+            return !acknowledges() || maxAckPending <= 0 || pending.size() < maxAckPending || !redeliveries.isEmpty();
+        }
+
+        private boolean filtered(StoredMessage message) {
+            return filters.isEmpty() || filters.stream().anyMatch(filter -> NatsStandInSubjects.matches(filter, message.subject()));
+        }
+
+        private StoredMessage peek() {
+            while (!redeliveries.isEmpty()) {
+                var sequence = redeliveries.peekFirst();
+                var message = stream.messages.get(sequence);
+                if (message != null && pending.containsKey(sequence)) {
+                    return message;
+                }
+                redeliveries.removeFirst();
+            }
+            if (acknowledges() && maxAckPending > 0 && pending.size() >= maxAckPending) {
+                return null;
+            }
+            for (var message : stream.messages.tailMap(nextSequence, true).values()) {
+                if (filtered(message)) {
+                    return message;
+                }
+                nextSequence = message.sequence() + 1;
+            }
+            return null;
+        }
+
+        private void take(StoredMessage message) {
+            if (!redeliveries.isEmpty() && redeliveries.peekFirst() == message.sequence()) {
+                redeliveries.removeFirst();
+                redelivered++;
+            } else {
+                nextSequence = message.sequence() + 1;
+            }
+        }
+
+        private StoredMessage next() {
+            var message = peek();
+            if (message != null) {
+                take(message);
+            }
+            return message;
+        }
+
+        private Outbound deliver(StoredMessage message, String target) {
+            var entry = acknowledges() ? pending.computeIfAbsent(message.sequence(), sequence -> new Pending()) : new Pending();
+            entry.consumerSequence = ++consumerSequence;
+            entry.deliveries++;
+            entry.deadline = System.nanoTime() + ackWaitNanos;
+            entry.redeliverAt = 0;
+            entry.queued = false;
+            deliveredStreamSequence = Math.max(deliveredStreamSequence, message.sequence());
+            var ackSubject = String.format("%s%s.%s.%d.%d.%d.%d.%d", ACK_PREFIX, stream.name, name, entry.deliveries,
+                    message.sequence(), entry.consumerSequence, message.timestamp().toEpochMilli() * 1_000_000L,
+                    Math.max(0, stream.lastSequence - nextSequence + 1));
+            return new Outbound(target, message.subject(), ackSubject, message.headers(), message.payload());
+        }
+
+        private void acknowledge(long sequence, String body) {
+            if (body.isEmpty() || body.startsWith("+ACK") || body.startsWith("+NXT")) {
+                if ("all".equals(ackPolicy)) {
+                    pending.headMap(sequence, true).clear();
+                } else {
+                    pending.remove(sequence);
+                }
+            } else if (body.startsWith("-NAK")) {
+                var entry = pending.get(sequence);
+                if (entry == null) {
+                    return;
+                }
+                var delay = delay(body);
+                if (delay > 0) {
+                    entry.redeliverAt = System.nanoTime() + delay;
+                } else {
+                    redeliver(sequence, entry);
+                }
+            } else if (body.startsWith("+TERM")) {
+                pending.remove(sequence);
+            } else if (body.startsWith("+WPI")) {
+                var entry = pending.get(sequence);
+                if (entry != null) {
+                    entry.deadline = System.nanoTime() + ackWaitNanos;
+                }
+            }
+        }
+
+        private void redeliver(long sequence, Pending entry) {
+            if (entry.queued) {
+                return;
+            }
+            if (maxDeliver > 0 && entry.deliveries >= maxDeliver) {
+                pending.remove(sequence);
+                return;
+            }
+            entry.queued = true;
+            redeliveries.add(sequence);
+        }
+
+        private void expire(long now, List<Outbound> outbound) {
+            for (var entry : new ArrayList<>(pending.entrySet())) {
+                var value = entry.getValue();
+                if (value.redeliverAt > 0 ? now >= value.redeliverAt : now >= value.deadline) {
+                    redeliver(entry.getKey(), value);
+                }
+            }
+            var requests = waiting.iterator();
+            while (requests.hasNext()) {
+                var request = requests.next();
+                if (request.expiresAt > 0 && now >= request.expiresAt) {
+                    requests.remove();
+                    outbound.add(Outbound.status(request.reply, 408, "Request Timeout", request.remaining, request.remainingBytes));
+                } else if (request.heartbeatNanos > 0 && now >= request.nextHeartbeat) {
+                    request.nextHeartbeat = now + request.heartbeatNanos;
+                    outbound.add(Outbound.heartbeat(request.reply));
+                }
+            }
+            if (heartbeatNanos > 0 && now >= nextHeartbeat) {
+                nextHeartbeat = now + heartbeatNanos;
+                outbound.add(Outbound.heartbeat(deliverSubject));
+            }
+        }
+
+        private long countPending() {
+            return stream.messages.tailMap(nextSequence, true).values().stream()
+                    .filter(this::filtered)
+                    .count();
+        }
+
+        private static long delay(String body) {
+            var json = body.substring("-NAK".length()).trim();
+            if (json.isEmpty()) {
+                return 0;
+            }
+            try {
+                return MAPPER.readTree(json).path("delay").asLong(0);
+            } catch (IOException e) {
+                return 0;
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,306 @@
+package com.ariskourt.nats.test;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.SocketException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process stand-in for a NATS server, speaking enough of the client protocol for the client and the starter to run
+ * against it on a single offline machine: {@code CONNECT}, {@code PING}/{@code PONG}, {@code SUB}/{@code UNSUB} with
+ * wildcards and queue groups, {@code PUB}/{@code HPUB} and delivery through {@code MSG}/{@code HMSG}. On top of that it
+ * implements a minimal subset of JetStream, see {@link NatsStandInJetStream}.
+ * <p>
+ * It is meant for reproducible throughput, latency and regression tests, not as a replacement of a real server: there
+ * is no authentication, clustering, persistence or limit enforcement, and subscriptions are matched by a linear scan.
+ * </p>
+ */
+public class NatsStandInServer implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NatsStandInServer.class);
+
+    /**
+     * The server version announced to clients, recent enough for them to use every JetStream API of the stand-in.
+     */
+    public static final String VERSION = "2.10.18";
+
+    /**
+     * The maximum payload announced to clients.
+     */
+    public static final int MAX_PAYLOAD = 1024 * 1024;
+
+    private final int requestedPort;
+    private final List<NatsStandInClient> clients = new ArrayList<>();
+    private final Map<NatsStandInClient, Map<String, NatsStandInSubscription>> subscriptions = new ConcurrentHashMap<>();
+    private final AtomicLong clientIds = new AtomicLong();
+    private final LongAdder messagesIn = new LongAdder();
+    private final LongAdder messagesOut = new LongAdder();
+    private final NatsStandInJetStream jetStream = new NatsStandInJetStream(this);
+
+    private ServerSocket serverSocket;
+    private Thread acceptor;
+
+    /**
+     * Constructor for creating a stand-in listening on a free ephemeral port.
+     */
+    public NatsStandInServer() {
+        this(0);
+    }
+
+    /**
+     * Constructor for creating a stand-in listening on the given port.
+     *
+     * @param port The port to listen on, or 0 for a free ephemeral port
+     */
+    public NatsStandInServer(int port) {
+        this.requestedPort = port;
+    }
+
+    /**
+     * Starts accepting client connections on the loopback interface.
+     *
+     * @return this stand-in
+     * @throws UncheckedIOException In case the server socket cannot be opened
+     */
+    public synchronized NatsStandInServer start() {
+        if (serverSocket != null) {
+            return this;
+        }
+        try {
+            serverSocket = new ServerSocket(requestedPort, 128, InetAddress.getLoopbackAddress());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Opening the NATS stand-in server socket has failed", e);
+        }
+        jetStream.start();
+        acceptor = Thread.ofVirtual().name("nats-stand-in-acceptor").start(this::accept);
+        LOGGER.info("NATS stand-in listening on {}", getUrl());
+        return this;
+    }
+
+    /**
+     * Gets the port the stand-in listens on.
+     *
+     * @return the port
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Gets the URL clients connect to the stand-in with.
+     *
+     * @return the URL of the stand-in
+     */
+    public String getUrl() {
+        return String.format("nats://127.0.0.1:%d", getPort());
+    }
+
+    /**
+     * Gets the JetStream subset of the stand-in, to create streams up front or inspect them.
+     *
+     * @return the JetStream subset
+     */
+    public NatsStandInJetStream getJetStream() {
+        return jetStream;
+    }
+
+    /**
+     * Gets the number of messages published by clients.
+     *
+     * @return the number of messages received
+     */
+    public long getMessagesIn() {
+        return messagesIn.sum();
+    }
+
+    /**
+     * Gets the number of messages delivered to clients.
+     *
+     * @return the number of messages sent
+     */
+    public long getMessagesOut() {
+        return messagesOut.sum();
+    }
+
+    /**
+     * Gets the number of connected clients.
+     *
+     * @return the number of clients
+     */
+    public synchronized int getClientCount() {
+        return clients.size();
+    }
+
+    /**
+     * Creates a stream capturing the given subjects, as a shortcut for doing so through the client.
+     *
+     * @param name The name of the stream
+     * @param subjects The subjects captured by the stream
+     * @return this stand-in
+     */
+    public NatsStandInServer addStream(String name, String... subjects) {
+        jetStream.addStream(name, List.of(subjects));
+        return this;
+    }
+
+    /**
+     * Stops accepting connections and disconnects every client.
+     */
+    @Override
+    public void close() {
+        List<NatsStandInClient> connected;
+        synchronized (this) {
+            if (serverSocket == null) {
+                return;
+            }
+            try {
+                serverSocket.close();
+            } catch (IOException e) {
+                LOGGER.debug("Closing the NATS stand-in server socket has failed", e);
+            }
+            serverSocket = null;
+            connected = new ArrayList<>(clients);
+            clients.clear();
+        }
+        jetStream.close();
+        connected.forEach(NatsStandInClient::close);
+        try {
+            acceptor.join(Duration.ofSeconds(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void accept() {
+        while (true) {
+            ServerSocket socket;
+            synchronized (this) {
+                socket = serverSocket;
+            }
+            if (socket == null) {
+                return;
+            }
+            try {
+                var accepted = socket.accept();
+                accepted.setTcpNoDelay(true);
+                var client = new NatsStandInClient(this, accepted, clientIds.incrementAndGet());
+                synchronized (this) {
+                    clients.add(client);
+                }
+                client.start();
+            } catch (SocketException e) {
+                return;
+            } catch (IOException e) {
+                LOGGER.warn("Accepting a NATS stand-in client has failed", e);
+            }
+        }
+    }
+
+    String info(long clientId) {
+        return String.format("{\"server_id\":\"NATSSTANDIN\",\"server_name\":\"nats-stand-in\",\"version\":\"%s\",\"go\":\"go1.22\","
+                        + "\"host\":\"127.0.0.1\",\"port\":%d,\"headers\":true,\"max_payload\":%d,\"proto\":1,\"jetstream\":true,\"client_id\":%d}",
+                VERSION, getPort(), MAX_PAYLOAD, clientId);
+    }
+
+    void disconnected(NatsStandInClient client) {
+        synchronized (this) {
+            clients.remove(client);
+        }
+        subscriptions.remove(client);
+    }
+
+    void subscribe(NatsStandInClient client, String subject, String queue, String sid) {
+        subscriptions.computeIfAbsent(client, key -> new ConcurrentHashMap<>())
+                .put(sid, new NatsStandInSubscription(client, sid, subject, queue));
+    }
+
+    void unsubscribe(NatsStandInClient client, String sid, long maxMessages) {
+        var clientSubscriptions = subscriptions.get(client);
+        if (clientSubscriptions == null) {
+            return;
+        }
+        var subscription = clientSubscriptions.get(sid);
+        if (subscription != null && (maxMessages <= 0 || subscription.limit(maxMessages))) {
+            clientSubscriptions.remove(sid);
+        }
+    }
+
+    /**
+     * Checks if any subscription matches a subject, which for the deliver subject of a push consumer tells whether
+     * the consumer is bound.
+     */
+    boolean hasInterest(String subject) {
+        return subscriptions.values().stream()
+                .flatMap(clientSubscriptions -> clientSubscriptions.values().stream())
+                .anyMatch(subscription -> NatsStandInSubjects.matches(subscription.subject(), subject));
+    }
+
+    /**
+     * Handles a message published by a client: JetStream API requests and acknowledgments are answered by the
+     * JetStream subset, messages on subjects captured by a stream are stored, and every message is routed to the
+     * matching subscriptions.
+     */
+    void publish(String subject, String reply, byte[] headers, byte[] payload) {
+        messagesIn.increment();
+        if (subject.startsWith(NatsStandInJetStream.API_PREFIX)) {
+            jetStream.handleApiRequest(subject, reply, payload);
+            return;
+        }
+        if (subject.startsWith(NatsStandInJetStream.ACK_PREFIX)) {
+            jetStream.handleAck(subject, reply, payload);
+            return;
+        }
+        jetStream.store(subject, reply, headers, payload);
+        route(subject, subject, reply, headers, payload);
+    }
+
+    /**
+     * Delivers a message to every plain subscription matching the target subject and to one member of every matching
+     * queue group. The target only differs from the subject of the message for messages delivered by JetStream
+     * consumers, which keep the subject they were published with.
+     */
+    void route(String target, String subject, String reply, byte[] headers, byte[] payload) {
+        Map<String, List<NatsStandInSubscription>> groups = null;
+        for (var clientSubscriptions : subscriptions.values()) {
+            for (var subscription : clientSubscriptions.values()) {
+                if (!NatsStandInSubjects.matches(subscription.subject(), target)) {
+                    continue;
+                }
+                if (subscription.queue() == null) {
+                    deliver(subscription, subject, reply, headers, payload);
+                } else {
+                    if (groups == null) {
+                        groups = new HashMap<>();
+                    }
+                    groups.computeIfAbsent(subscription.queue(), queue -> new ArrayList<>()).add(subscription);
+                }
+            }
+        }
+        if (groups != null) {
+            groups.values().forEach(members -> deliver(members.get(ThreadLocalRandom.current().nextInt(members.size())),
+                    subject, reply, headers, payload));
+        }
+    }
+
+    private void deliver(NatsStandInSubscription subscription, String subject, String reply, byte[] headers, byte[] payload) {
+        messagesOut.increment();
+        subscription.client().sendMessage(subject, subscription.sid(), reply, headers, payload);
+        if (subscription.delivered()) {
+            unsubscribe(subscription.client(), subscription.sid(), 0);
+        }
+    }
+
+}
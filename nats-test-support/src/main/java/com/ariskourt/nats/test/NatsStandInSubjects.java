@@ -0,0 +1,60 @@
+package com.ariskourt.nats.test;
+
+/**
+ * Subject matching of the {@link NatsStandInServer}, following the NATS wildcard rules: {@code *} matches exactly one
+ * token and {@code >} matches one or more trailing tokens.
+ */
+final class NatsStandInSubjects {
+
+    private NatsStandInSubjects() {
+    }
+
+    /**
+     * Checks if a subject matches a pattern that may contain wildcards.
+     *
+     * @param pattern The subscribed subject, possibly with wildcards
+     * @param subject The literal subject of a message
+     * @return true if the subject matches the pattern, false otherwise
+     */
+    static boolean matches(String pattern, String subject) {
+        var patternTokens = pattern.split("\\.");
+        var subjectTokens = subject.split("\\.");
+        for (var i = 0; i < patternTokens.length; i++) {
+            if (">".equals(patternTokens[i])) {
+                return subjectTokens.length > i;
+            }
+            if (i >= subjectTokens.length) {
+                return false;
+            }
+            if (!"*".equals(patternTokens[i]) && !patternTokens[i].equals(subjectTokens[i])) {
+                return false;
+            }
+        }
+        return patternTokens.length == subjectTokens.length;
+    }
+
+    /**
+     * Checks if two subjects, either of which may contain wildcards, can match a common literal subject.
+     *
+     * @param first The first subject
+     * @param second The second subject
+     * @return true if the subjects overlap, false otherwise
+     */
+    static boolean overlaps(String first, String second) {
+        var firstTokens = first.split("\\.");
+        var secondTokens = second.split("\\.");
+        for (var i = 0; i < Math.max(firstTokens.length, secondTokens.length); i++) {
+            if (i < firstTokens.length && ">".equals(firstTokens[i]) || i < secondTokens.length && ">".equals(secondTokens[i])) {
+                return i < firstTokens.length && i < secondTokens.length;
+            }
+            if (i >= firstTokens.length || i >= secondTokens.length) {
+                return false;
+            }
+            if (!"*".equals(firstTokens[i]) && !"*".equals(secondTokens[i]) && !firstTokens[i].equals(secondTokens[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,62 @@
+package com.ariskourt.nats.test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A subscription of a client of the {@link NatsStandInServer}.
+ */
+final class NatsStandInSubscription {
+
+    private final NatsStandInClient client;
+    private final String sid;
+    private final String subject;
+    private final String queue;
+    private final AtomicLong delivered = new AtomicLong();
+
+    private volatile long maxMessages;
+
+    NatsStandInSubscription(NatsStandInClient client, String sid, String subject, String queue) {
+        this.client = client;
+        this.sid = sid;
+        this.subject = subject;
+        this.queue = queue;
+    }
+
+    NatsStandInClient client() {
+        return client;
+    }
+
+    String sid() {
+        return sid;
+    }
+
+    String subject() {
+        return subject;
+    }
+
+    String queue() {
+        return queue;
+    }
+
+    /**
+     * Limits the subscription to the given total number of messages, as requested by {@code UNSUB <sid> <max>}.
+     *
+     * @return true if the limit has been reached already and the subscription can be removed right away
+     */
+    boolean limit(long maxMessages) {
+        this.maxMessages = maxMessages;
+        return delivered.get() >= maxMessages;
+    }
+
+    /**
+     * Counts a delivery.
+     *
+     * @return true if the subscription has reached its limit with this delivery and is to be removed
+     */
+    boolean delivered() {
+        var count = delivered.incrementAndGet();
+        var max = maxMessages;
+        return max > 0 && count >= max;
+    }
+
+}
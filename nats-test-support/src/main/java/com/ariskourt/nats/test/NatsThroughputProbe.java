@@ -0,0 +1,92 @@
+package com.ariskourt.nats.test;
+
+import io.nats.client.Message;
+import io.nats.client.MessageHandler;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Message handler measuring the receiving side of a load run: it counts the messages passed on to its delegate and
+ * records their end-to-end latency from the timestamp a {@link NatsLoadGenerator} has put into their payload. Wrapping
+ * the handler chain of a subscription with it gives the throughput and latency of that chain, for regression tests.
+ */
+public class NatsThroughputProbe implements MessageHandler {
+
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(5);
+
+    private final MessageHandler delegate;
+    private final NatsLatencyRecorder latency = new NatsLatencyRecorder();
+    private final LongAdder received = new LongAdder();
+    private final long start = System.nanoTime();
+
+    /**
+     * Constructor for creating a probe that only measures.
+     */
+    public NatsThroughputProbe() {
+        this(message -> {});
+    }
+
+    /**
+     * Constructor for creating a probe in front of a message handler.
+     *
+     * @param delegate The message handler processing the messages
+     */
+    public NatsThroughputProbe(MessageHandler delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * Passes the message to the delegate, then records it.
+     *
+     * @param message The NATS message
+     * @throws InterruptedException In case the thread has been interrupted while handling
+     */
+    @Override
+    public void onMessage(Message message) throws InterruptedException {
+        delegate.onMessage(message);
+        var publishedAt = NatsLoadGenerator.publishedAt(message.getData());
+        if (publishedAt >= 0) {
+            latency.record(System.nanoTime() - publishedAt);
+        }
+        received.increment();
+    }
+
+    /**
+     * Gets the number of messages received.
+     *
+     * @return the number of messages
+     */
+    public long getReceived() {
+        return received.sum();
+    }
+
+    /**
+     * Waits until the given number of messages has been received.
+     *
+     * @param count The number of messages to wait for
+     * @param timeout The maximum time to wait
+     * @return true if the messages have been received, false if the timeout has elapsed first
+     */
+    public boolean awaitReceived(long count, Duration timeout) {
+        var deadline = System.nanoTime() + timeout.toNanos();
+        while (received.sum() < count) {
+            if (System.nanoTime() >= deadline || Thread.currentThread().isInterrupted()) {
+                return false;
+            }
+            LockSupport.parkNanos(POLL_INTERVAL.toNanos());
+        }
+        return true;
+    }
+
+    /**
+     * Creates a report of the messages received since the probe has been created.
+     *
+     * @return the report of the receiving side
+     */
+    public NatsLoadReport report() {
+        return NatsLoadReport.of(received.sum(), 0, Duration.ofNanos(System.nanoTime() - start), latency);
+    }
+
+}